@@ -0,0 +1,106 @@
+package de.upb.upcy.update;
+
+import com.opencsv.CSVWriter;
+import de.upb.upcy.update.output.SuggestionFormat;
+import de.upb.upcy.update.output.SuggestionReader;
+import de.upb.upcy.update.output.SuggestionRecord;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the structured results (see {@link SuggestionFormat}) of all projects in a folder:
+ * the suggestions per status, and the violations and violated calls per library pair. The files
+ * are streamed, thus the size of the run does not matter.
+ *
+ * @author adann
+ */
+public class MainAggregateSuggestions {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MainAggregateSuggestions.class);
+
+  private static final String RESULTS_SUFFIX = "_recommendation_results";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      LOGGER.error("No arguments given");
+      return;
+    }
+    Path rootDir = Paths.get(args[0]);
+    Path outputDir = args.length > 1 ? Paths.get(args[1]) : rootDir;
+
+    List<Path> resultFiles;
+    try (Stream<Path> walkStream = Files.walk(rootDir)) {
+      resultFiles =
+          walkStream
+              .filter(Files::isRegularFile)
+              .filter(f -> SuggestionFormat.of(f) != null)
+              .filter(
+                  f ->
+                      StringUtils.endsWith(
+                          f.getFileName().toString(),
+                          RESULTS_SUFFIX + SuggestionFormat.of(f).getFileExtension()))
+              .collect(Collectors.toList());
+    }
+
+    Map<String, Long> suggestionsPerStatus = new TreeMap<>();
+    // "orgLib\tupdatedLib" -> [violations, violated calls]
+    Map<String, long[]> violationsPerLibPair = new TreeMap<>();
+    long suggestions = 0;
+    for (Path resultFile : resultFiles) {
+      try (SuggestionReader reader =
+          SuggestionFormat.of(resultFile).createReader(resultFile, true)) {
+        SuggestionRecord record;
+        while ((record = reader.next()) != null) {
+          suggestions++;
+          suggestionsPerStatus.merge(String.valueOf(record.getStatus()), 1L, Long::sum);
+          for (SuggestionRecord.ViolationRecord violation : record.getViolations()) {
+            final long[] counts =
+                violationsPerLibPair.computeIfAbsent(
+                    violation.getOrgLib() + "\t" + violation.getUpdatedLib(), k -> new long[2]);
+            counts[0]++;
+            counts[1] += violation.getViolatedCalls().size();
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.error("Failed to read {}", resultFile, e);
+      }
+    }
+    LOGGER.info("Read #{} suggestions from #{} files", suggestions, resultFiles.size());
+
+    try (CSVWriter writer =
+        new CSVWriter(
+            Files.newBufferedWriter(
+                outputDir.resolve("aggregated_status.csv"), StandardCharsets.UTF_8))) {
+      writer.writeNext(new String[] {"status", "suggestions"});
+      for (Map.Entry<String, Long> entry : suggestionsPerStatus.entrySet()) {
+        writer.writeNext(new String[] {entry.getKey(), String.valueOf(entry.getValue())});
+      }
+    }
+    try (CSVWriter writer =
+        new CSVWriter(
+            Files.newBufferedWriter(
+                outputDir.resolve("aggregated_violations.csv"), StandardCharsets.UTF_8))) {
+      writer.writeNext(new String[] {"orgLib", "updatedLib", "violations", "violatedCalls"});
+      for (Map.Entry<String, long[]> entry : violationsPerLibPair.entrySet()) {
+        List<String> row = new ArrayList<>();
+        row.addAll(Arrays.asList(StringUtils.split(entry.getKey(), '\t')));
+        row.add(String.valueOf(entry.getValue()[0]));
+        row.add(String.valueOf(entry.getValue()[1]));
+        writer.writeNext(row.toArray(new String[0]));
+      }
+    }
+  }
+}
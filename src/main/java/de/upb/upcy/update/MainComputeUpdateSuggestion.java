@@ -1,24 +1,17 @@
 package de.upb.upcy.update;
 
-import static java.util.stream.Collectors.groupingBy;
-
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
-import de.upb.upcy.base.build.Utils;
 import de.upb.upcy.base.mvn.MavenInvokerProject;
 import de.upb.upcy.update.build.PipelineRunner;
 import de.upb.upcy.update.build.Result;
+import de.upb.upcy.update.output.ResultFiles;
+import de.upb.upcy.update.output.SuggestionWriter;
+import de.upb.upcy.update.process.ComputeRecommendationProcess;
 import de.upb.upcy.update.recommendation.RecommendationAlgorithm;
 import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import de.upb.upcy.update.recommendation.incremental.IncrementalAnalysis;
+import de.upb.upcy.update.recommendation.incremental.IncrementalCache;
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -50,6 +43,22 @@ public class MainComputeUpdateSuggestion {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(MainComputeUpdateSuggestion.class);
 
+  // folder of the modules' snapshots for the incremental re-analysis, null disables it
+  private static Path INCREMENTAL_CACHE_DIR = null;
+  // compute one joint update for the requests of a module that are updated together
+  private static boolean JOINT_UPDATES = false;
+
+  static {
+    String cacheDir = System.getenv("INCREMENTAL_CACHE_DIR");
+    if (StringUtils.isNotBlank(cacheDir)) {
+      INCREMENTAL_CACHE_DIR = Paths.get(cacheDir);
+    }
+    String jointUpdates = System.getenv("JOINT_UPDATES");
+    if (StringUtils.isNotBlank(jointUpdates)) {
+      JOINT_UPDATES = Boolean.parseBoolean(jointUpdates);
+    }
+  }
+
   public static void main(String[] args) throws IOException {
 
     if (args.length == 0) {
@@ -80,22 +89,35 @@ public class MainComputeUpdateSuggestion {
     Set<String> doneProjects = done.getLeft();
     Path statusCacheFolder = done.getRight();
 
-    // run in separate threads
+    // run the projects in separate threads, the most expensive ones first
+    ProjectScheduler projectScheduler = new ProjectScheduler();
     for (Path csvFile : csvFiles) {
 
       Path parentDir = csvFile.getParent();
+      final String projectName = parentDir.getFileName().toString();
 
-      Path statusFile = statusCacheFolder.resolve(csvFile.getFileName().toString() + ".status");
-      try {
-        handleProject(csvFile, parentDir);
-        Files.createFile(statusFile);
-        Files.write(statusFile, "DONE".getBytes(StandardCharsets.UTF_8));
-      } catch (IOException e) {
-        LOGGER.error("Failed to handle file: " + parentDir.getFileName(), e);
-      } catch (GitAPIException e) {
-        LOGGER.error("Failed to Checkout project {} with", parentDir.getFileName(), e);
+      final String statusFileName = csvFile.getFileName().toString() + ".status";
+      if (doneProjects.contains(statusFileName)) {
+        LOGGER.info("Skipping done project: {}", projectName);
+        continue;
       }
+      Path statusFile = statusCacheFolder.resolve(statusFileName);
+      projectScheduler.submit(
+          projectName,
+          ProjectScheduler.estimateCost(parentDir),
+          () -> {
+            try {
+              handleProject(
+                  csvFile, parentDir, new ProjectCheckpoint(statusCacheFolder, projectName));
+              ProjectCheckpoint.writeStatusFile(statusFile);
+            } catch (IOException e) {
+              LOGGER.error("Failed to handle file: " + parentDir.getFileName(), e);
+            } catch (GitAPIException e) {
+              LOGGER.error("Failed to Checkout project {} with", parentDir.getFileName(), e);
+            }
+          });
     }
+    projectScheduler.awaitTermination();
   }
 
   public static void awaitTerminationAfterShutdown(ExecutorService threadPool) {
@@ -112,95 +134,86 @@ public class MainComputeUpdateSuggestion {
 
   public static void handleProject(Path csvFile, Path outputDir)
       throws IOException, GitAPIException {
+    handleProject(csvFile, outputDir, null);
+  }
+
+  /**
+   * @param checkpoint the checkpoints of the project's modules, done modules are skipped, may be
+   *     null
+   */
+  public static void handleProject(Path csvFile, Path outputDir, ProjectCheckpoint checkpoint)
+      throws IOException, GitAPIException {
     final Path parent = csvFile.getParent();
 
     final String projectName = parent.getFileName().toString();
 
-    List<Result> results;
-    try (Reader reader = Files.newBufferedReader(csvFile)) {
-      CsvToBean<Result> sbc =
-          new CsvToBeanBuilder<Result>(reader)
-              .withType(Result.class)
-              .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-              .build();
-      results = sbc.parse();
-    }
-    LOGGER.info("Successfully parsed csv file: {}", csvFile.getFileName().toString());
-
-    // clear the module names
-    results.forEach(
-        y -> {
-          String resultProjectName = y.getProjectName();
-          if (resultProjectName.contains("projectRun")) {
-            // remove it from the name
-            String[] split = resultProjectName.split("_");
-            final List<String> newName =
-                Arrays.stream(split)
-                    .filter(x -> !StringUtils.startsWith(x, "projectRun"))
-                    .collect(Collectors.toList());
-
-            y.setProjectName(String.join("_", newName));
-          }
-        });
-
     final Map<String, List<Result>> groupByModuleName =
-        results.stream().collect(groupingBy(Result::getProjectName));
+        ComputeRecommendationProcess.readModuleResults(csvFile);
 
     LOGGER.info("Running on project: {}", projectName);
 
-    // Checkout the PROJECT
-    Path commitFile = parent.resolve("COMMIT");
-    if (!Files.exists(commitFile)) {
-      LOGGER.error("Could not find commit file {}", commitFile);
+    Path resultsBaseFile = outputDir.resolve(projectName + "_recommendation_results");
+    if (checkpoint != null && checkpoint.areModulesDone(groupByModuleName.keySet())) {
+      LOGGER.info("All modules of project {} are done, skipping the build", projectName);
+      checkpoint.writeResults(groupByModuleName.keySet(), resultsBaseFile);
       return;
     }
-    final String[] s = parent.getFileName().toString().split("_");
-    if (s.length < 2) {
-      LOGGER.error("could not find repo name for {}", parent.getFileName());
+
+    // Checkout the PROJECT, and run the build pipeline on it (for generating the call graph)
+    final Path checkoutRepoFolder = ComputeRecommendationProcess.checkoutProject(parent);
+    if (checkoutRepoFolder == null) {
       return;
     }
-    String repoUrl =
-        String.format(
-            "https://github.com/%s/%s.git",
-            s[0], String.join("_", Arrays.asList(s).subList(1, s.length)));
-    String commit = Files.lines(commitFile).findFirst().orElse("").trim();
-
-    // run the build pipeline on the projects (for generating the call graph)
-    final Path checkoutRepoFolder = Utils.checkOutRepo(repoUrl, commit);
     Path projectPom = checkoutRepoFolder.resolve("pom.xml");
 
     PipelineRunner pipelineRunner = new PipelineRunner(projectName, projectPom);
     // the project/module names and the associated maveninvokerproject
     final Map<String, MavenInvokerProject> run = pipelineRunner.run();
 
-    // handle the modules
-    List<UpdateSuggestion> aggResults = new ArrayList<>();
-
-    for (Map.Entry<String, List<Result>> module : groupByModuleName.entrySet()) {
-      try {
-
-        aggResults.addAll(
+    // handle the modules, the results are appended to a log as they are computed
+    try (SuggestionWriter projectWriter =
+        checkpoint == null ? ResultFiles.resume(resultsBaseFile) : null) {
+      for (Map.Entry<String, List<Result>> module : groupByModuleName.entrySet()) {
+        if (checkpoint != null && checkpoint.isModuleDone(module.getKey())) {
+          LOGGER.info("Skipping done module: {}", module.getKey());
+          continue;
+        }
+        try {
+          if (checkpoint != null) {
+            try (SuggestionWriter moduleWriter = checkpoint.openModule(module.getKey())) {
+              runOnModule(
+                  run.get(module.getKey()),
+                  csvFile,
+                  outputDir,
+                  module.getKey(),
+                  module.getValue(),
+                  -1,
+                  moduleWriter);
+            }
+            checkpoint.completeModule(module.getKey());
+          } else {
             runOnModule(
-                run.get(module.getKey()), csvFile, outputDir, module.getKey(), module.getValue()));
-      } catch (IOException ex) {
-        LOGGER.error("Failed on module: {}", module.getKey(), ex);
+                run.get(module.getKey()),
+                csvFile,
+                outputDir,
+                module.getKey(),
+                module.getValue(),
+                -1,
+                projectWriter);
+          }
+        } catch (IOException ex) {
+          LOGGER.error("Failed on module: {}", module.getKey(), ex);
+        }
       }
     }
 
-    try {
-      Path outputCsvFile = outputDir.resolve(projectName + "_recommendation_results.csv");
-      CSVWriter writer = new CSVWriter(new FileWriter(outputCsvFile.toFile()));
-      StatefulBeanToCsv<UpdateSuggestion> sbc =
-          new StatefulBeanToCsvBuilder<UpdateSuggestion>(writer)
-              .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-              .build();
-      sbc.write(aggResults);
-      writer.close();
-      LOGGER.info("Wrote results to file: {}", outputCsvFile.getFileName().toString());
-
-    } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException | IOException e) {
-      LOGGER.error("Failed to write csv file with: ", e);
+    if (checkpoint != null) {
+      checkpoint.writeResults(groupByModuleName.keySet(), resultsBaseFile);
+    } else {
+      ResultFiles.finish(resultsBaseFile);
     }
+    LOGGER.info(
+        "Wrote results to file: {}", ResultFiles.getCsvFile(resultsBaseFile).getFileName());
   }
 
   public static List<UpdateSuggestion> runOnModule(
@@ -211,7 +224,24 @@ public class MainComputeUpdateSuggestion {
       List<Result> results)
       throws IOException {
     return runOnModule(
-        mavenInvokerProject, Paths.get(csvFile), Paths.get(outputDir), moduleName, results);
+        mavenInvokerProject, Paths.get(csvFile), Paths.get(outputDir), moduleName, results, -1);
+  }
+
+  public static List<UpdateSuggestion> runOnModule(
+      MavenInvokerProject mavenInvokerProject,
+      String csvFile,
+      String outputDir,
+      String moduleName,
+      List<Result> results,
+      int sootDaemonPort)
+      throws IOException {
+    return runOnModule(
+        mavenInvokerProject,
+        Paths.get(csvFile),
+        Paths.get(outputDir),
+        moduleName,
+        results,
+        sootDaemonPort);
   }
 
   public static List<UpdateSuggestion> runOnModule(
@@ -221,6 +251,84 @@ public class MainComputeUpdateSuggestion {
       String moduleName,
       List<Result> results)
       throws IOException {
+    return runOnModule(mavenInvokerProject, csvFile, outputDir, moduleName, results, -1);
+  }
+
+  /**
+   * @param sootDaemonPort the port of a running SootAnalysisDaemon to compute the call graph, a
+   *     value <= 0 computes it in this process
+   */
+  public static List<UpdateSuggestion> runOnModule(
+      MavenInvokerProject mavenInvokerProject,
+      Path csvFile,
+      Path outputDir,
+      String moduleName,
+      List<Result> results,
+      int sootDaemonPort)
+      throws IOException {
+    List<UpdateSuggestion> aggResults = new ArrayList<>();
+    runOnModule(
+        mavenInvokerProject,
+        csvFile,
+        outputDir,
+        moduleName,
+        results,
+        sootDaemonPort,
+        Collections.emptySet(),
+        (request, updateSuggestions) -> aggResults.addAll(updateSuggestions));
+    return aggResults;
+  }
+
+  /**
+   * Writes the module's update suggestions as soon as the suggestions of a request are computed,
+   * instead of collecting all of them first. Each request is committed to the writer once its
+   * suggestions are written; the requests the writer already committed, e.g., when it resumes an
+   * interrupted run, are skipped.
+   *
+   * @return the number of written suggestions
+   */
+  public static long runOnModule(
+      MavenInvokerProject mavenInvokerProject,
+      Path csvFile,
+      Path outputDir,
+      String moduleName,
+      List<Result> results,
+      int sootDaemonPort,
+      SuggestionWriter writer)
+      throws IOException {
+    final long[] written = new long[1];
+    runOnModule(
+        mavenInvokerProject,
+        csvFile,
+        outputDir,
+        moduleName,
+        results,
+        sootDaemonPort,
+        writer.getCommittedRequests(moduleName),
+        (request, updateSuggestions) -> {
+          writer.writeAll(updateSuggestions);
+          writer.commit(moduleName, request.getLeft(), request.getRight());
+          written[0] += updateSuggestions.size();
+        });
+    return written[0];
+  }
+
+  private interface SuggestionSink {
+    /** Receives all suggestions of an update request at once */
+    void accept(Pair<String, String> request, List<UpdateSuggestion> updateSuggestions)
+        throws IOException;
+  }
+
+  private static void runOnModule(
+      MavenInvokerProject mavenInvokerProject,
+      Path csvFile,
+      Path outputDir,
+      String moduleName,
+      List<Result> results,
+      int sootDaemonPort,
+      Set<Pair<String, String>> committedRequests,
+      SuggestionSink sink)
+      throws IOException {
 
     LOGGER.info("Running on project - module: {}", moduleName);
 
@@ -252,7 +360,7 @@ public class MainComputeUpdateSuggestion {
 
     if (jsonGraphs.isEmpty()) {
       LOGGER.error("Could not find graph file for module {}", moduleName);
-      return Collections.emptyList();
+      return;
     }
 
     // handle the module here
@@ -262,7 +370,7 @@ public class MainComputeUpdateSuggestion {
     // get the maven invoker project for the current module/scope
     if (mavenInvokerProject == null) {
       LOGGER.error("Could not find MavenInvokerProject for {}", moduleName);
-      return Collections.emptyList();
+      return;
     }
 
     final List<Result> filteredResults =
@@ -275,43 +383,110 @@ public class MainComputeUpdateSuggestion {
     if (filteredResults.isEmpty()) {
       LOGGER.info("Filtered results empty, skipping");
       // skip this module, but not the whole project
-      return Collections.emptyList();
+      return;
+    }
+    // the requests of the module share the call graph and the intermediate results
+    List<Pair<String, String>> requests =
+        filteredResults.stream()
+            .map(x -> Pair.of(x.getOrgGav(), x.getNewGav()))
+            .collect(Collectors.toList());
+    // the requests updated together, each group is computed as one joint update
+    List<List<Pair<String, String>>> jointUpdates = new ArrayList<>();
+    if (JOINT_UPDATES) {
+      List<Pair<String, String>> singleRequests = new ArrayList<>();
+      for (List<Pair<String, String>> group : RecommendationAlgorithm.groupJointUpdates(requests)) {
+        if (group.size() > 1) {
+          jointUpdates.add(group);
+        } else {
+          singleRequests.addAll(group);
+        }
+      }
+      requests = singleRequests;
+      LOGGER.info("Grouped the requests into #{} joint updates", jointUpdates.size());
+    }
+    // the requests committed by an earlier, interrupted run of the module are done
+    final int nrOfRequests = requests.size() + jointUpdates.size();
+    requests =
+        requests.stream().filter(r -> !committedRequests.contains(r)).collect(Collectors.toList());
+    jointUpdates.removeIf(u -> committedRequests.contains(toJointRequest(u)));
+    if (requests.size() + jointUpdates.size() < nrOfRequests) {
+      LOGGER.info(
+          "Resuming module {}, #{} of #{} requests are done",
+          moduleName,
+          nrOfRequests - requests.size() - jointUpdates.size(),
+          nrOfRequests);
     }
+    if (requests.isEmpty() && jointUpdates.isEmpty()) {
+      return;
+    }
+
     RecommendationAlgorithm recommendationAlgorithm;
     try {
       recommendationAlgorithm = new RecommendationAlgorithm(mavenInvokerProject, depGraphFile);
+      recommendationAlgorithm.setSootDaemonPort(sootDaemonPort);
     } catch (IOException ex) {
       LOGGER.error("Failed to establish neo4j connection");
-      return Collections.emptyList();
+      return;
     }
-    List<UpdateSuggestion> aggResults = new ArrayList<>();
-    for (Result result : filteredResults) {
-
-      try {
-
-        final List<UpdateSuggestion> updateSuggestion =
-            recommendationAlgorithm.run(result.getOrgGav(), result.getNewGav());
-        // set the project name for the update suggestion
-        updateSuggestion.forEach(x -> x.setProjectName(moduleName));
-        // add to the result set
-        aggResults.addAll(updateSuggestion);
-
-        LOGGER.info("Done with update suggestion found: {}", aggResults.size());
-
-      } catch (IllegalArgumentException ex) {
-        LOGGER.error("Failed ", ex);
-        Path outputErrorFile = outputDir.resolve(moduleName + "_recommendation-error.txt");
-        try (BufferedWriter writer =
-            Files.newBufferedWriter(outputErrorFile, StandardCharsets.UTF_8)) {
-          writer.write(ex.getMessage());
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      } catch (MavenInvokerProject.BuildToolException e) {
-        LOGGER.error("Failed to get Classpath for {}", moduleName, e);
+    // pass each request's suggestions on as soon as they are computed
+    final long[] nrOfSuggestions = new long[1];
+    final RecommendationAlgorithm.BatchResultSink batchResultSink =
+        batchResult -> {
+          final Exception ex = batchResult.getError();
+          if (ex instanceof IllegalArgumentException) {
+            LOGGER.error("Failed ", ex);
+            Path outputErrorFile = outputDir.resolve(moduleName + "_recommendation-error.txt");
+            try (BufferedWriter writer =
+                Files.newBufferedWriter(outputErrorFile, StandardCharsets.UTF_8)) {
+              writer.write(ex.getMessage());
+            } catch (IOException e) {
+              e.printStackTrace();
+            }
+            return;
+          } else if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+          } else if (ex != null) {
+            LOGGER.error("Failed to compute update suggestion for {}", moduleName, ex);
+            return;
+          }
+          final List<UpdateSuggestion> updateSuggestion = batchResult.getUpdateSuggestions();
+          // set the project name for the update suggestion
+          updateSuggestion.forEach(x -> x.setProjectName(moduleName));
+          // add to the result set
+          sink.accept(
+              Pair.of(batchResult.getOrgGav(), batchResult.getTargetGav()), updateSuggestion);
+          nrOfSuggestions[0] += updateSuggestion.size();
+
+          LOGGER.info("Done with update suggestion found: {}", nrOfSuggestions[0]);
+        };
+    try {
+      if (INCREMENTAL_CACHE_DIR != null) {
+        // only recompute the requests affected by changes since the last analysis
+        final IncrementalAnalysis incrementalAnalysis =
+            new IncrementalAnalysis(
+                recommendationAlgorithm,
+                new IncrementalCache(INCREMENTAL_CACHE_DIR, moduleName),
+                depGraphFile);
+        incrementalAnalysis.run(
+            requests,
+            outputDir.resolve(moduleName + "_recommendation-delta.json"),
+            batchResultSink);
+      } else {
+        recommendationAlgorithm.runBatch(requests, batchResultSink);
       }
+      for (List<Pair<String, String>> jointUpdate : jointUpdates) {
+        batchResultSink.accept(recommendationAlgorithm.runJointBatch(jointUpdate));
+      }
+    } catch (MavenInvokerProject.BuildToolException e) {
+      LOGGER.error("Failed to get Classpath for {}", moduleName, e);
     }
-    return aggResults;
+  }
+
+  /** @return the request of a joint update, as computed by {@link RecommendationAlgorithm} */
+  private static Pair<String, String> toJointRequest(List<Pair<String, String>> jointUpdate) {
+    return Pair.of(
+        jointUpdate.stream().map(Pair::getLeft).collect(Collectors.joining(";")),
+        jointUpdate.stream().map(Pair::getRight).collect(Collectors.joining(";")));
   }
 
   private static Pair<Set<String>, Path> getDoneProjects(String statusFolder) {
@@ -0,0 +1,37 @@
+package de.upb.upcy.update;
+
+import de.upb.upcy.update.recommendation.versions.VersionIndex;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports snapshots of library versions, with a line {@code group:artifact:version} per version,
+ * into the persistent version index in VERSION_INDEX_DIR, e.g., to run with VERSION_SOURCE=offline
+ *
+ * @author adann
+ */
+public class MainImportVersionIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MainImportVersionIndex.class);
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      LOGGER.error("No snapshot files given");
+      return;
+    }
+    if (StringUtils.isBlank(System.getenv("VERSION_INDEX_DIR"))) {
+      LOGGER.error("VERSION_INDEX_DIR is not set");
+      return;
+    }
+    final VersionIndex versionIndex = VersionIndex.getInstance();
+    for (String arg : args) {
+      final Path snapshot = Paths.get(arg);
+      final int libraries = versionIndex.importSnapshot(snapshot);
+      LOGGER.info("Imported #{} libraries from {}", libraries, snapshot);
+    }
+  }
+}
@@ -1,15 +1,11 @@
 package de.upb.upcy.update;
 
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
 import de.upb.upcy.base.mvn.MavenInvokerProject;
 import de.upb.upcy.update.build.PipelineRunner;
+import de.upb.upcy.update.output.ResultFiles;
+import de.upb.upcy.update.output.SuggestionWriter;
 import de.upb.upcy.update.recommendation.RecommendationAlgorithm;
 import de.upb.upcy.update.recommendation.UpdateSuggestion;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -145,17 +141,15 @@ public class MainMavenComputeUpdateSuggestion {
         fileNamePrefix = modulePath.getParent().getFileName().toString();
       }
 
-      Path outputCsvFile = outputDir.resolve(fileNamePrefix + "_recommendation_results.csv");
-      CSVWriter writer = new CSVWriter(new FileWriter(outputCsvFile.toFile()));
-      StatefulBeanToCsv<UpdateSuggestion> sbc =
-          new StatefulBeanToCsvBuilder<UpdateSuggestion>(writer)
-              .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-              .build();
-      sbc.write(updateSuggestion);
-      writer.close();
-      LOGGER.info("Wrote results to file: {}", outputCsvFile.getFileName().toString());
-
-    } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException | IOException e) {
+      Path resultsBaseFile = outputDir.resolve(fileNamePrefix + "_recommendation_results");
+      try (SuggestionWriter writer = ResultFiles.open(resultsBaseFile)) {
+        writer.writeAll(updateSuggestion);
+      }
+      ResultFiles.finish(resultsBaseFile);
+      LOGGER.info(
+          "Wrote results to file: {}", ResultFiles.getCsvFile(resultsBaseFile).getFileName());
+
+    } catch (IOException e) {
       LOGGER.error("Failed to write csv file with: ", e);
     }
   }
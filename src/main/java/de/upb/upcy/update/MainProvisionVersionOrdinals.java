@@ -0,0 +1,23 @@
+package de.upb.upcy.update;
+
+import de.upb.maven.ecosystem.persistence.dao.Neo4JConnector;
+import de.upb.upcy.update.recommendation.versions.VersionOrdinals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provisions the version ordinals and their index in the Neo4j dataset, to run once after the
+ * dataset is imported or updated
+ *
+ * @author adann
+ */
+public class MainProvisionVersionOrdinals {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MainProvisionVersionOrdinals.class);
+
+  public static void main(String[] args) {
+    final VersionOrdinals versionOrdinals = new VersionOrdinals(Neo4JConnector.getDriver());
+    final int libraries = versionOrdinals.provision();
+    LOGGER.info("Provisioned version ordinals of #{} libraries", libraries);
+  }
+}
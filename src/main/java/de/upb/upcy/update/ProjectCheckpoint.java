@@ -0,0 +1,138 @@
+package de.upb.upcy.update;
+
+import de.upb.upcy.update.output.ResultFiles;
+import de.upb.upcy.update.output.ResultLog;
+import de.upb.upcy.update.output.SuggestionFormat;
+import de.upb.upcy.update.output.SuggestionWriter;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Crash-safe checkpoints of a project's modules. The results of each module are appended to a
+ * {@link ResultLog} in the status folder while computed; once the module is completed the log is
+ * renamed, such that a restart skips the module. The project's results files are then streamed
+ * from the module logs and the modules' files of the enabled {@link SuggestionFormat}s. All files
+ * are moved atomically.
+ *
+ * @author adann
+ */
+public class ProjectCheckpoint {
+
+  private static final String PARTIAL_SUFFIX = ".part";
+
+  private final Path checkpointDir;
+
+  public ProjectCheckpoint(Path statusFolder, String projectName) {
+    this.checkpointDir = statusFolder.resolve(projectName);
+  }
+
+  private Path getModuleFile(String moduleName) {
+    return checkpointDir.resolve(moduleName + ".log");
+  }
+
+  private Path getPartialModuleFile(String moduleName) {
+    return checkpointDir.resolve(moduleName + ".log" + PARTIAL_SUFFIX);
+  }
+
+  private Path getModuleBaseFile(String moduleName) {
+    return checkpointDir.resolve(moduleName);
+  }
+
+  public boolean isModuleDone(String moduleName) {
+    return Files.isRegularFile(getModuleFile(moduleName));
+  }
+
+  public boolean areModulesDone(Collection<String> moduleNames) {
+    return moduleNames.stream().allMatch(this::isModuleDone);
+  }
+
+  /**
+   * Opens the log for the module's results. The committed results of a previous, crashed run are
+   * resumed, see {@link SuggestionWriter#getCommittedRequests(String)}; the structured formats
+   * cannot be resumed, thus if one is enabled the partial results are discarded and the module is
+   * computed again.
+   */
+  public SuggestionWriter openModule(String moduleName) throws IOException {
+    Files.createDirectories(checkpointDir);
+    if (SuggestionFormat.getEnabledFormats().isEmpty()) {
+      return ResultLog.open(getPartialModuleFile(moduleName));
+    }
+    List<SuggestionWriter> writers = new ArrayList<>();
+    writers.add(ResultLog.create(getPartialModuleFile(moduleName)));
+    try {
+      writers.addAll(
+          SuggestionFormat.createEnabledWriters(getModuleBaseFile(moduleName), PARTIAL_SUFFIX));
+    } catch (IOException e) {
+      writers.get(0).close();
+      throw e;
+    }
+    return SuggestionWriter.compose(writers);
+  }
+
+  /** Marks the module as done, its writer must be closed */
+  public void completeModule(String moduleName) throws IOException {
+    for (SuggestionFormat format : SuggestionFormat.getEnabledFormats()) {
+      moveAtomically(
+          format.resolve(getModuleBaseFile(moduleName), PARTIAL_SUFFIX),
+          format.resolve(getModuleBaseFile(moduleName), ""));
+    }
+    // the log is moved last, it marks the module as done
+    moveAtomically(getPartialModuleFile(moduleName), getModuleFile(moduleName));
+  }
+
+  /** Stores the results of the module, afterwards the module is done */
+  public void writeModule(String moduleName, List<UpdateSuggestion> updateSuggestions)
+      throws IOException {
+    Files.deleteIfExists(getPartialModuleFile(moduleName));
+    try (SuggestionWriter writer = openModule(moduleName)) {
+      writer.writeAll(updateSuggestions);
+    }
+    completeModule(moduleName);
+  }
+
+  /**
+   * Writes the results of the given modules into one csv file, with a single header line, and one
+   * file per enabled structured format
+   *
+   * @param moduleNames the modules, all must be done
+   * @param resultsBaseFile the path of the result files, without extension
+   */
+  public void writeResults(Collection<String> moduleNames, Path resultsBaseFile)
+      throws IOException {
+    ResultLog.exportCsv(
+        moduleNames.stream().map(this::getModuleFile).collect(Collectors.toList()),
+        ResultFiles.getCsvFile(resultsBaseFile));
+    for (SuggestionFormat format : SuggestionFormat.getEnabledFormats()) {
+      format.concat(
+          moduleNames.stream()
+              .map(m -> format.resolve(getModuleBaseFile(m), ""))
+              .collect(Collectors.toList()),
+          format.resolve(resultsBaseFile, ""));
+    }
+  }
+
+  /** Marks the whole project as done */
+  public static void writeStatusFile(Path statusFile) throws IOException {
+    final Path tmpFile =
+        Files.createTempFile(statusFile.toAbsolutePath().getParent(), "status", ".tmp");
+    try {
+      Files.write(tmpFile, "DONE".getBytes(StandardCharsets.UTF_8));
+      moveAtomically(tmpFile, statusFile);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  private static void moveAtomically(Path source, Path target) throws IOException {
+    Files.move(
+        source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,173 @@
+package de.upb.upcy.update;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs projects concurrently, the most expensive ones first. The number of concurrent projects is
+ * bounded by PROJECT_THREADS, by the host's cores (CORES_PER_PROJECT each), and by the heap of this
+ * JVM (PROJECT_MEMORY_MB each), since the call graphs are computed in process.
+ *
+ * @author adann
+ */
+public class ProjectScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectScheduler.class);
+
+  // max number of concurrent projects, a value <= 0 only uses the cores and memory bounds
+  private static int PROJECT_THREADS = -1;
+  private static int CORES_PER_PROJECT = 2;
+  private static long PROJECT_MEMORY_MB = 4096;
+  // the estimated cost of building and checking out a module, in bytes of dependency graph
+  private static final long MODULE_BASE_COST = 1024 * 1024;
+
+  static {
+    String projectThreads = System.getenv("PROJECT_THREADS");
+    if (StringUtils.isNotBlank(projectThreads)) {
+      try {
+        PROJECT_THREADS = Integer.parseInt(projectThreads);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String coresPerProject = System.getenv("CORES_PER_PROJECT");
+    if (StringUtils.isNotBlank(coresPerProject)) {
+      try {
+        CORES_PER_PROJECT = Math.max(1, Integer.parseInt(coresPerProject));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String projectMemory = System.getenv("PROJECT_MEMORY_MB");
+    if (StringUtils.isNotBlank(projectMemory)) {
+      try {
+        PROJECT_MEMORY_MB = Math.max(1, Long.parseLong(projectMemory));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private final ThreadPoolExecutor executor;
+  // breaks ties between equally expensive projects by submission order
+  private final AtomicLong sequence = new AtomicLong();
+  private boolean started = false;
+
+  public ProjectScheduler() {
+    this(computeConcurrency());
+  }
+
+  public ProjectScheduler(int concurrency) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    // the queue only holds ProjectTasks, thus no wrapping FutureTasks via submit
+    this.executor =
+        new ThreadPoolExecutor(
+            concurrency,
+            concurrency,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            r -> new Thread(r, "project-" + threadCount.incrementAndGet()));
+    LOGGER.info("Running up to #{} projects concurrently", concurrency);
+  }
+
+  /** @return the number of concurrent projects admitted by the configuration, cores and heap */
+  static int computeConcurrency() {
+    final int cores = Runtime.getRuntime().availableProcessors();
+    final long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    int concurrency = Math.max(1, cores / CORES_PER_PROJECT);
+    concurrency = (int) Math.min(concurrency, Math.max(1, maxHeapMb / PROJECT_MEMORY_MB));
+    if (PROJECT_THREADS > 0) {
+      concurrency = Math.min(concurrency, PROJECT_THREADS);
+    }
+    return concurrency;
+  }
+
+  /**
+   * Estimates the cost of a project by the size of its modules' dependency graphs, and a base cost
+   * per module
+   *
+   * @param projectDir the folder containing the project's csv and dependency graph files
+   * @return the estimated cost
+   */
+  public static long estimateCost(Path projectDir) {
+    long cost = 0;
+    try (Stream<Path> files = Files.list(projectDir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (StringUtils.endsWith(file.getFileName().toString(), "_dependency-graph.json")) {
+          cost += MODULE_BASE_COST + Files.size(file);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to estimate the cost of {}", projectDir, e);
+    }
+    return cost;
+  }
+
+  /**
+   * Schedules the project. Projects submitted before {@link #awaitTermination()} are started by
+   * decreasing cost, such that the long-running ones do not end up last.
+   *
+   * @param name the name of the project, for logging
+   * @param cost the estimated cost, e.g., by {@link #estimateCost(Path)}
+   * @param project the work to do
+   */
+  public synchronized void submit(String name, long cost, Runnable project) {
+    final ProjectTask task = new ProjectTask(name, cost, sequence.getAndIncrement(), project);
+    if (started) {
+      executor.execute(task);
+    } else {
+      // without started threads, execute would hand the first tasks over in submission order
+      executor.getQueue().add(task);
+    }
+  }
+
+  /** Starts the submitted projects and waits until all are done */
+  public void awaitTermination() {
+    synchronized (this) {
+      started = true;
+      executor.prestartAllCoreThreads();
+    }
+    MainComputeUpdateSuggestion.awaitTerminationAfterShutdown(executor);
+  }
+
+  private static class ProjectTask implements Runnable, Comparable<ProjectTask> {
+    private final String name;
+    private final long cost;
+    private final long sequence;
+    private final Runnable project;
+
+    ProjectTask(String name, long cost, long sequence, Runnable project) {
+      this.name = name;
+      this.cost = cost;
+      this.sequence = sequence;
+      this.project = project;
+    }
+
+    @Override
+    public void run() {
+      LOGGER.info("Starting project {} with estimated cost {}", name, cost);
+      try {
+        project.run();
+      } catch (RuntimeException e) {
+        LOGGER.error("Failed on project {}", name, e);
+      }
+    }
+
+    @Override
+    public int compareTo(ProjectTask o) {
+      final int byCost = Long.compare(o.cost, cost);
+      return byCost != 0 ? byCost : Long.compare(sequence, o.sequence);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package de.upb.upcy.update;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control for the expensive steps of concurrent jobs in one host: Maven builds, and the
+ * recommendation runs with their Soot analyses. A step leases cores and memory before it starts and
+ * waits until enough of both are free. The budget is the host's cores (WORKER_CPUS), and its
+ * physical memory minus the heap of this JVM (WORKER_MEMORY_MB).
+ *
+ * @author adann
+ */
+public final class ResourceGovernor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResourceGovernor.class);
+
+  private static int WORKER_CPUS = Runtime.getRuntime().availableProcessors();
+  private static long WORKER_MEMORY_MB = -1;
+
+  static {
+    String workerCpus = System.getenv("WORKER_CPUS");
+    if (StringUtils.isNotBlank(workerCpus)) {
+      try {
+        WORKER_CPUS = Math.max(1, Integer.parseInt(workerCpus));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String workerMemory = System.getenv("WORKER_MEMORY_MB");
+    if (StringUtils.isNotBlank(workerMemory)) {
+      try {
+        WORKER_MEMORY_MB = Math.max(1, Long.parseLong(workerMemory));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private static ResourceGovernor instance;
+
+  private final int cpus;
+  private final long memoryMb;
+  private int freeCpus;
+  private long freeMemoryMb;
+
+  public ResourceGovernor(int cpus, long memoryMb) {
+    this.cpus = cpus;
+    this.memoryMb = memoryMb;
+    this.freeCpus = cpus;
+    this.freeMemoryMb = memoryMb;
+  }
+
+  /** @return the governor shared by all jobs of this JVM */
+  public static synchronized ResourceGovernor getInstance() {
+    if (instance == null) {
+      long memoryMb = WORKER_MEMORY_MB;
+      if (memoryMb <= 0) {
+        memoryMb =
+            Math.max(
+                1024,
+                (getPhysicalMemory() - Runtime.getRuntime().maxMemory()) / (1024 * 1024));
+      }
+      instance = new ResourceGovernor(WORKER_CPUS, memoryMb);
+      LOGGER.info("Governing #{} cores and {} MB of memory", WORKER_CPUS, memoryMb);
+    }
+    return instance;
+  }
+
+  private static long getPhysicalMemory() {
+    final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      // the limit of the container, if any
+      return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+    }
+    return 2 * Runtime.getRuntime().maxMemory();
+  }
+
+  /**
+   * Waits until the cores and memory are free, and leases them. A request exceeding the budget is
+   * capped to the budget, thus it runs alone.
+   *
+   * @param name the name of the step, for logging
+   * @param cpus the cores of the step
+   * @param memoryMb the memory of the step
+   * @return the lease, to be closed when the step is done
+   */
+  public Lease acquire(String name, int cpus, long memoryMb) throws InterruptedException {
+    final int leasedCpus = Math.max(0, Math.min(cpus, this.cpus));
+    final long leasedMemoryMb = Math.max(0, Math.min(memoryMb, this.memoryMb));
+    synchronized (this) {
+      if (freeCpus < leasedCpus || freeMemoryMb < leasedMemoryMb) {
+        LOGGER.info(
+            "{} waits for {} cores and {} MB, free are {} cores and {} MB",
+            name,
+            leasedCpus,
+            leasedMemoryMb,
+            freeCpus,
+            freeMemoryMb);
+      }
+      while (freeCpus < leasedCpus || freeMemoryMb < leasedMemoryMb) {
+        wait();
+      }
+      freeCpus -= leasedCpus;
+      freeMemoryMb -= leasedMemoryMb;
+    }
+    return new Lease(leasedCpus, leasedMemoryMb);
+  }
+
+  private synchronized void release(int cpus, long memoryMb) {
+    freeCpus += cpus;
+    freeMemoryMb += memoryMb;
+    notifyAll();
+  }
+
+  /** The leased cores and memory of a step */
+  public final class Lease implements AutoCloseable {
+    private final int cpus;
+    private final long memoryMb;
+    private boolean released = false;
+
+    private Lease(int cpus, long memoryMb) {
+      this.cpus = cpus;
+      this.memoryMb = memoryMb;
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      release(cpus, memoryMb);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package de.upb.upcy.update.build;
 
 import de.upb.upcy.base.mvn.MavenInvokerProject;
+import de.upb.upcy.update.ResourceGovernor;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -25,18 +26,69 @@ import org.slf4j.LoggerFactory;
 public class PipelineRunner {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PipelineRunner.class);
+
+  // number of sub-modules built concurrently
+  private static int BUILD_THREADS = 4;
+  // the memory leased for a project's build, see ResourceGovernor
+  private static long BUILD_MEMORY_MB = 4096;
+
+  static {
+    String buildThreads = System.getenv("BUILD_THREADS");
+    if (StringUtils.isNotBlank(buildThreads)) {
+      try {
+        BUILD_THREADS = Math.max(1, Integer.parseInt(buildThreads));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String buildMemory = System.getenv("BUILD_MEMORY_MB");
+    if (StringUtils.isNotBlank(buildMemory)) {
+      try {
+        BUILD_MEMORY_MB = Math.max(0, Long.parseLong(buildMemory));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
   private final String projectName;
   private final Path projectPomFile;
-  private final ExecutorService executorService;
+  private final boolean cleanBuild;
 
   public PipelineRunner(String projectName, Path projectPomFile) {
+    this(projectName, projectPomFile, true);
+  }
+
+  /**
+   * @param cleanBuild false keeps the build output of the project folder, e.g., of a build handed
+   *     over by another worker, such that up-to-date modules are not compiled again
+   */
+  public PipelineRunner(String projectName, Path projectPomFile, boolean cleanBuild) {
 
     this.projectName = projectName;
     this.projectPomFile = projectPomFile;
-    executorService = Executors.newFixedThreadPool(4);
+    this.cleanBuild = cleanBuild;
   }
 
   public Map<String, MavenInvokerProject> run() {
+    // concurrent jobs of the host share its cores and memory
+    try (ResourceGovernor.Lease lease =
+        ResourceGovernor.getInstance()
+            .acquire("Build of " + projectName, BUILD_THREADS, BUILD_MEMORY_MB)) {
+      final ExecutorService executorService = Executors.newFixedThreadPool(BUILD_THREADS);
+      try {
+        return run(executorService);
+      } finally {
+        executorService.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while waiting to build {}", projectName);
+      return Collections.emptyMap();
+    }
+  }
+
+  private Map<String, MavenInvokerProject> run(ExecutorService executorService) {
     if (!Files.exists(projectPomFile)) {
       LOGGER.error("Could not find pom file: {}", projectPomFile.toAbsolutePath());
     }
@@ -49,8 +101,11 @@ public class PipelineRunner {
 
     try {
       Triple<Integer, String, String> integerStringStringTriple =
-          mavenInvokerProject.runCmd(
-              "clean", "compile", "install", "-DskipTests", "-Dmaven.test.skip=true");
+          cleanBuild
+              ? mavenInvokerProject.runCmd(
+                  "clean", "compile", "install", "-DskipTests", "-Dmaven.test.skip=true")
+              : mavenInvokerProject.runCmd(
+                  "compile", "install", "-DskipTests", "-Dmaven.test.skip=true");
 
       if (integerStringStringTriple.getLeft() != 0) {
         throw new MavenInvokerProject.BuildToolException(integerStringStringTriple.getRight());
@@ -130,7 +185,6 @@ public class PipelineRunner {
         }
       }
 
-      executorService.shutdown();
     } catch (InterruptedException e) {
       LOGGER.error("Failed task submission with: ", e);
     }
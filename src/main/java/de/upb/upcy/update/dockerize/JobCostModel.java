@@ -0,0 +1,147 @@
+package de.upb.upcy.update.dockerize;
+
+import de.upb.upcy.update.ProjectScheduler;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the runtime of work units from the producer's local inputs: the size of a module's
+ * dependency graph, its number of update requests, and the runtimes of previous runs. Units without
+ * a previous runtime are estimated by the graph size and the requests, scaled to seconds by the
+ * units that have one.
+ *
+ * @author adann
+ */
+class JobCostModel {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobCostModel.class);
+
+  /** the header of the runtime files, uploaded by the workers with their results */
+  static final String RUNTIME_HEADER = "project,unit,seconds";
+
+  // the RabbitMQ recommendation is to use at most 10 priorities
+  static final int MAX_PRIORITY = 9;
+
+  // the estimated cost of checking out and building a module, in bytes of dependency graph
+  private static final long MODULE_BASE_COST = 1024 * 1024;
+
+  // the runtimes of previous runs, by unit name
+  private final Map<String, Double> unitRuntimes = new HashMap<>();
+  // the runtimes of previous runs, summed up by project
+  private final Map<String, Double> projectRuntimes = new HashMap<>();
+
+  // the estimates of units with a previous runtime, to scale the other estimates to seconds
+  private double estimatedWithRuntime = 0;
+  private double runtimeOfEstimated = 0;
+
+  /**
+   * @param runtimeFile the concatenated runtime files of previous runs, may be missing
+   */
+  JobCostModel(Path runtimeFile) {
+    if (runtimeFile == null || !Files.exists(runtimeFile)) {
+      return;
+    }
+    try (BufferedReader br = Files.newBufferedReader(runtimeFile)) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        final String[] split = StringUtils.split(line.trim(), ',');
+        if (split.length != 3 || RUNTIME_HEADER.equals(line.trim())) {
+          continue;
+        }
+        try {
+          final double seconds = Double.parseDouble(split[2]);
+          // the last run of a unit counts
+          final Double previous = unitRuntimes.put(split[1], seconds);
+          projectRuntimes.merge(
+              split[0], seconds - (previous == null ? 0 : previous), Double::sum);
+        } catch (NumberFormatException e) {
+          // nothing
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Failed to read runtimes from {}", runtimeFile, e);
+    }
+    LOGGER.info("Found runtimes of #{} units", unitRuntimes.size());
+  }
+
+  /**
+   * Estimates the unit by its module's dependency graph and requests
+   *
+   * @param projectFolder the folder containing the project's csv and dependency graph files
+   * @param moduleName the module of the unit, null for a whole project whose modules are unknown,
+   *     then only the graph sizes count
+   * @param requests the number of update requests of the unit
+   * @return the estimated cost, in bytes of dependency graph
+   */
+  static long estimateByInputs(Path projectFolder, String moduleName, int requests) {
+    if (moduleName == null) {
+      return ProjectScheduler.estimateCost(projectFolder);
+    }
+    long graphSize = 0;
+    final Path graphFile = projectFolder.resolve(moduleName + "_dependency-graph.json");
+    try {
+      if (Files.exists(graphFile)) {
+        graphSize = Files.size(graphFile);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to read size of {}", graphFile, e);
+    }
+    // each request computes the call graph of an updated class path
+    return MODULE_BASE_COST + graphSize * Math.max(1, requests);
+  }
+
+  /**
+   * Registers the estimate of a unit, such that {@link #estimateSeconds(Msg, long)} can scale it
+   * to seconds. All units must be registered before.
+   */
+  void register(Msg unit, long estimate) {
+    final Double runtime = getRuntime(unit);
+    if (runtime != null && estimate > 0) {
+      estimatedWithRuntime += estimate;
+      runtimeOfEstimated += runtime;
+    }
+  }
+
+  /** @return the previous runtime of the unit, or else its estimate scaled to seconds */
+  double estimateSeconds(Msg unit, long estimate) {
+    final Double runtime = getRuntime(unit);
+    if (runtime != null) {
+      return runtime;
+    }
+    if (estimatedWithRuntime <= 0) {
+      // no scale known, the order of the estimates is what matters
+      return estimate;
+    }
+    return estimate * runtimeOfEstimated / estimatedWithRuntime;
+  }
+
+  private Double getRuntime(Msg unit) {
+    if (unit.isProjectUnit()) {
+      return projectRuntimes.get(unit.getProjectNameFolder());
+    }
+    return unitRuntimes.get(unit.getUnitName());
+  }
+
+  /**
+   * Maps the cost to a message priority, on a logarithmic scale such that the long tail of cheap
+   * units does not collapse into the lowest priority
+   *
+   * @param cost the estimated cost
+   * @param maxCost the maximal estimated cost of all units
+   * @return the priority in [0, {@link #MAX_PRIORITY}]
+   */
+  static int toPriority(double cost, double maxCost) {
+    if (maxCost <= 0 || cost <= 0) {
+      return 0;
+    }
+    final double scaled = Math.log1p(cost) / Math.log1p(maxCost);
+    return (int) Math.round(Math.min(1.0, scaled) * MAX_PRIORITY);
+  }
+}
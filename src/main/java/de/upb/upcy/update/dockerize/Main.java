@@ -5,6 +5,8 @@ import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Delivery;
 import de.upb.upcy.base.build.Utils;
 import de.upb.upcy.base.commons.RabbitMQCollective;
+import de.upb.upcy.base.mvn.MavenInvokerProject;
+import de.upb.upcy.update.build.Result;
 import de.upb.upcy.update.process.ComputeRecommendationProcess;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -13,14 +15,21 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.lingala.zip4j.ZipFile;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,108 +44,348 @@ public class Main extends RabbitMQCollective {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   private final ArrayList<String> doneProjectNames = new ArrayList<>();
   private final ArrayList<String> todoProjectNames = new ArrayList<>();
-  private IClient client;
+  private JobCostModel costModel;
   private Path projectDir;
 
+  // shared by the worker slots of this JVM
+  private static IClient client;
+  private static ProjectBuildCache buildCache;
+  private static ProjectInputArchive inputArchive;
+  private static int activeSlots = 0;
+
+  /**
+   * The granularity of the enqueued work units. A REQUEST unit analyzes the whole module for a
+   * single request, thus MODULE is the default.
+   */
+  private enum WorkUnit {
+    PROJECT,
+    MODULE,
+    REQUEST
+  }
+
+  private static final String RUNTIME_FILE = "job_runtimes.csv";
+
+  private static WorkUnit WORK_UNIT = WorkUnit.MODULE;
+
+  // number of deliveries a worker processes concurrently
+  private static int WORKER_SLOTS = 1;
+
+  static {
+    String workUnit = System.getenv("WORK_UNIT");
+    if (StringUtils.isNotBlank(workUnit)) {
+      try {
+        WORK_UNIT = WorkUnit.valueOf(workUnit.trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        // nothing
+      }
+    }
+    String workerSlots = System.getenv("WORKER_SLOTS");
+    if (StringUtils.isNotBlank(workerSlots)) {
+      try {
+        WORKER_SLOTS = Math.max(1, Integer.parseInt(workerSlots));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
   public Main() {
     super("THETIS_PROJECT_PIPELINE");
   }
 
   public static void main(String[] args) throws Exception {
-    Main main = new Main();
-    main.run();
+    if (WORKER_SLOTS == 1 || !Boolean.parseBoolean(System.getenv("WORKER_NODE"))) {
+      Main main = new Main();
+      main.run();
+      return;
+    }
+    // each slot consumes deliveries one at a time, the builds and recommendation runs of all slots
+    // are admitted by the ResourceGovernor
+    List<Thread> slots = new ArrayList<>();
+    for (int i = 0; i < WORKER_SLOTS; i++) {
+      Thread slot =
+          new Thread(
+              () -> {
+                try {
+                  new Main().run();
+                } catch (Exception e) {
+                  LOGGER.error("[Worker] Slot failed with", e);
+                }
+              },
+              "worker-slot-" + i);
+      slot.start();
+      slots.add(slot);
+    }
+    for (Thread slot : slots) {
+      slot.join();
+    }
   }
 
   @Override
   protected void doWorkerJob(Delivery delivery) throws IOException {
     Msg msg = OBJECT_MAPPER.readValue(delivery.getBody(), Msg.class);
+    final long start = System.nanoTime();
     try {
       LOGGER.info("[Worker] Received Request");
 
-      LOGGER.info("[Worker] Running Recommendation Pipeline for: {}", msg.getProjectNameFolder());
+      LOGGER.info("[Worker] Running Recommendation Pipeline for: {}", msg.getUnitName());
       // we have a folder projects/projects/...
-      Path projectToCheckFolder =
-          this.projectDir.resolve("projects").resolve(msg.getProjectNameFolder());
-
-      List<Path> csvFiles = new ArrayList<>();
-      try (Stream<Path> walkStream = Files.walk(projectToCheckFolder)) {
-        walkStream
-            .filter(p -> p.toFile().isFile())
-            .forEach(
-                f -> {
-                  if (StringUtils.endsWith(f.getFileName().toString(), ".csv")
-                      && !StringUtils.contains(f.getFileName().toString(), "_graph-analysis")
-                      && !StringUtils.contains(
-                          f.getFileName().toString(), "_options-analysis.csv")) {
-                    // ignore graph analysis csv file
-                    csvFiles.add(f);
-                  }
-                });
+      Path projectToCheckFolder = inputArchive.getProject(msg.getProjectNameFolder());
+      try {
+        runUnit(msg, projectToCheckFolder, start);
+      } finally {
+        inputArchive.release(msg.getProjectNameFolder());
       }
+    } catch (IOException | GitAPIException e) {
+      LOGGER.error("[Worker] Failed with", e);
+    }
+  }
 
-      Path tmpDir = Files.createTempDirectory(msg.getProjectNameFolder());
-      Path csvOutPutDir = Files.createDirectory(tmpDir.resolve(msg.getProjectNameFolder()));
+  private void runUnit(Msg msg, Path projectToCheckFolder, long start)
+      throws IOException, GitAPIException {
+    Path tmpDir = Files.createTempDirectory(msg.getProjectNameFolder());
+    Path csvOutPutDir = Files.createDirectory(tmpDir.resolve(msg.getProjectNameFolder()));
 
-      for (Path csvFile : csvFiles) {
+    if (msg.isProjectUnit()) {
+      for (Path csvFile : findCsvFiles(projectToCheckFolder)) {
         ComputeRecommendationProcess.handleProject(csvFile, csvOutPutDir);
         LOGGER.info("[Worker] Done with build pipeline");
       }
-      LOGGER.debug("[Worker] Uploading results files");
-      String timeStamp = new SimpleDateFormat("yyyyMMddHHmm").format(new Date());
+    } else {
+      handleModuleUnit(msg, projectToCheckFolder, csvOutPutDir);
+    }
+    // the runtime of the unit, for the estimates of the next runs
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    Files.write(
+        csvOutPutDir.resolve(msg.getUnitName() + "_runtime.csv"),
+        Arrays.asList(
+            JobCostModel.RUNTIME_HEADER,
+            String.join(
+                ",",
+                msg.getProjectNameFolder(),
+                msg.getUnitName(),
+                String.format(Locale.ROOT, "%.1f", seconds))));
 
-      final String zipFileName =
-          msg.getProjectNameFolder() + "_recommendation" + "_" + timeStamp + ".zip";
-      final ZipFile zipFile = new ZipFile(zipFileName);
-      zipFile.addFolder(csvOutPutDir.toFile());
+    LOGGER.debug("[Worker] Uploading results files");
+    String timeStamp = new SimpleDateFormat("yyyyMMddHHmm").format(new Date());
 
-      client.uploadFile(zipFile.getFile());
-      LOGGER.info("[Worker] Uploading files done");
+    final String zipFileName = msg.getUnitName() + "_recommendation" + "_" + timeStamp + ".zip";
+    final ZipFile zipFile = new ZipFile(zipFileName);
+    zipFile.addFolder(csvOutPutDir.toFile());
 
-    } catch (IOException | GitAPIException e) {
-      LOGGER.error("[Worker] Failed with", e);
+    client.uploadFile(zipFile.getFile());
+    LOGGER.info("[Worker] Uploading files done");
+  }
+
+  private void handleModuleUnit(Msg msg, Path projectFolder, Path outputDir)
+      throws IOException, GitAPIException {
+    final Path csvFile = projectFolder.resolve(msg.getCsvFile());
+    List<Result> results =
+        ComputeRecommendationProcess.readModuleResults(csvFile).get(msg.getModuleName());
+    if (results == null) {
+      LOGGER.error("[Worker] No update requests for module {}", msg.getModuleName());
+      return;
     }
+    if (msg.isRequestUnit()) {
+      results =
+          results.stream()
+              .filter(
+                  r ->
+                      StringUtils.equals(r.getOrgGav(), msg.getOrgGav())
+                          && StringUtils.equals(r.getNewGav(), msg.getNewGav()))
+              .collect(Collectors.toList());
+    }
+    // the units of a project share its build
+    final Map<String, MavenInvokerProject> build = buildCache.getBuild(projectFolder);
+    ComputeRecommendationProcess.handleModules(
+        csvFile, outputDir, Collections.singletonMap(msg.getModuleName(), results), build);
+  }
+
+  private static List<Path> findCsvFiles(Path projectFolder) throws IOException {
+    List<Path> csvFiles = new ArrayList<>();
+    try (Stream<Path> walkStream = Files.walk(projectFolder)) {
+      walkStream
+          .filter(p -> p.toFile().isFile())
+          .forEach(
+              f -> {
+                if (StringUtils.endsWith(f.getFileName().toString(), ".csv")
+                    && !StringUtils.contains(f.getFileName().toString(), "_graph-analysis")
+                    && !StringUtils.contains(
+                        f.getFileName().toString(), "_options-analysis.csv")) {
+                  // ignore graph analysis csv file
+                  csvFiles.add(f);
+                }
+              });
+    }
+    return csvFiles;
   }
 
   @Override
   protected void doProducerJob(AMQP.BasicProperties props) throws Exception {
 
     final Set<Path> commitFiles = Utils.findCommitFiles(projectDir.toAbsolutePath().toString());
-    int counter = 0;
     List<Path> commitFilesSorted = new ArrayList<>(commitFiles);
     Collections.sort(
         commitFilesSorted, Comparator.comparing(o -> o.getParent().getFileName().toString()));
+
+    // the units and their estimates, by project
+    Map<String, List<Pair<Msg, Long>>> projectUnits = new LinkedHashMap<>();
     for (Path commitFile : commitFilesSorted) {
 
-      Msg msg = new Msg();
       final String projectNameFolder = commitFile.getParent().getFileName().toString();
-      msg.setProjectNameFolder(projectNameFolder);
 
       if (!todoProjectNames.isEmpty()) {
         // always takes preference
         if (!todoProjectNames.contains(projectNameFolder)) {
-          LOGGER.info("Not in todo list {} ", msg.getProjectNameFolder());
+          LOGGER.info("Not in todo list {} ", projectNameFolder);
           continue;
         }
-      } else if (doneProjectNames.contains(msg.getProjectNameFolder())) {
-        LOGGER.info("Project {} is in done list.", msg.getProjectNameFolder());
+      } else if (doneProjectNames.contains(projectNameFolder)) {
+        LOGGER.info("Project {} is in done list.", projectNameFolder);
         continue;
       }
+      final List<Pair<Msg, Long>> units = createWorkUnits(commitFile.getParent());
+      units.forEach(u -> costModel.register(u.getLeft(), u.getRight()));
+      projectUnits.put(projectNameFolder, units);
+    }
 
-      LOGGER.info("[Producer] Enqueue: {}", msg);
-      String jsonString = OBJECT_MAPPER.writeValueAsString(msg);
-      this.enqueue(props, jsonString.getBytes());
-      counter++;
+    // longest processing time first: the units of a project are enqueued consecutively, to reuse
+    // the project's build, and share the project's priority
+    List<Pair<Double, List<Pair<Msg, Double>>>> projects = new ArrayList<>();
+    for (List<Pair<Msg, Long>> units : projectUnits.values()) {
+      List<Pair<Msg, Double>> unitSeconds = new ArrayList<>();
+      double projectSeconds = 0;
+      for (Pair<Msg, Long> unit : units) {
+        final double seconds = costModel.estimateSeconds(unit.getLeft(), unit.getRight());
+        unitSeconds.add(Pair.of(unit.getLeft(), seconds));
+        projectSeconds += seconds;
+      }
+      unitSeconds.sort(Comparator.comparing(Pair<Msg, Double>::getRight).reversed());
+      projects.add(Pair.of(projectSeconds, unitSeconds));
+    }
+    // stable, thus equally expensive projects stay in alphabetical order
+    projects.sort(Comparator.comparing(Pair<Double, List<Pair<Msg, Double>>>::getLeft).reversed());
+    final double maxSeconds = projects.isEmpty() ? 0 : projects.get(0).getLeft();
+
+    int counter = 0;
+    for (Pair<Double, List<Pair<Msg, Double>>> project : projects) {
+      final int priority = JobCostModel.toPriority(project.getLeft(), maxSeconds);
+      final AMQP.BasicProperties unitProps = props.builder().priority(priority).build();
+      for (Pair<Msg, Double> unit : project.getRight()) {
+        LOGGER.info(
+            "[Producer] Enqueue: {} with estimate {} and priority {}",
+            unit.getLeft(),
+            unit.getRight(),
+            priority);
+        String jsonString = OBJECT_MAPPER.writeValueAsString(unit.getLeft());
+        this.enqueue(unitProps, jsonString.getBytes());
+        counter++;
+      }
     }
     LOGGER.info("[Producer] Done with #{}", counter);
   }
 
+  /** @return the work units of the project, and their estimates by the inputs */
+  private static List<Pair<Msg, Long>> createWorkUnits(Path projectFolder) {
+    final String projectNameFolder = projectFolder.getFileName().toString();
+    if (WORK_UNIT == WorkUnit.PROJECT) {
+      return Collections.singletonList(
+          Pair.of(new Msg(projectNameFolder), estimateProject(projectFolder)));
+    }
+    List<Pair<Msg, Long>> units = new ArrayList<>();
+    try {
+      for (Path csvFile : findCsvFiles(projectFolder)) {
+        final String relativeCsvFile = projectFolder.relativize(csvFile).toString();
+        final Path graphFolder = csvFile.getParent();
+        final Map<String, List<Result>> modules =
+            new TreeMap<>(ComputeRecommendationProcess.readModuleResults(csvFile));
+        for (Map.Entry<String, List<Result>> module : modules.entrySet()) {
+          if (WORK_UNIT == WorkUnit.MODULE) {
+            units.add(
+                Pair.of(
+                    new Msg(projectNameFolder, relativeCsvFile, module.getKey(), null, null),
+                    JobCostModel.estimateByInputs(
+                        graphFolder, module.getKey(), module.getValue().size())));
+            continue;
+          }
+          final long estimate = JobCostModel.estimateByInputs(graphFolder, module.getKey(), 1);
+          // the requests the module would compute, each once
+          module.getValue().stream()
+              .filter(
+                  r ->
+                      StringUtils.isNotBlank(r.getOrgGav())
+                          && StringUtils.isNotBlank(r.getNewGav()))
+              .map(r -> Pair.of(r.getOrgGav(), r.getNewGav()))
+              .distinct()
+              .forEach(
+                  r ->
+                      units.add(
+                          Pair.of(
+                              new Msg(
+                                  projectNameFolder,
+                                  relativeCsvFile,
+                                  module.getKey(),
+                                  r.getLeft(),
+                                  r.getRight()),
+                              estimate)));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("[Producer] Failed to split project {}, enqueue it whole", projectNameFolder, e);
+      return Collections.singletonList(
+          Pair.of(
+              new Msg(projectNameFolder), JobCostModel.estimateByInputs(projectFolder, null, 1)));
+    }
+    return units;
+  }
+
+  /**
+   * @return the estimate of the project unit, the sum of its modules' estimates, as each module
+   *     computes the call graphs of its own requests only
+   */
+  private static long estimateProject(Path projectFolder) {
+    long estimate = 0;
+    try {
+      for (Path csvFile : findCsvFiles(projectFolder)) {
+        for (Map.Entry<String, List<Result>> module :
+            ComputeRecommendationProcess.readModuleResults(csvFile).entrySet()) {
+          estimate +=
+              JobCostModel.estimateByInputs(
+                  csvFile.getParent(), module.getKey(), module.getValue().size());
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("[Producer] Failed to count the requests of {}", projectFolder, e);
+      estimate = 0;
+    }
+    // without requests, at least the checkout and build cost
+    return estimate > 0 ? estimate : JobCostModel.estimateByInputs(projectFolder, null, 0);
+  }
+
   @Override
   protected void preFlightCheck() throws IOException {
-    this.client =
-        IClient.createClient(
-            System.getenv("FILESERVER_HOST"),
-            System.getenv("FILESERVER_USER"),
-            System.getenv("FILESERVER_PASS"));
+    final Path inputFile = Paths.get("project_input_recommendation.zip");
+    final Path projectDir = Paths.get("projects");
+    this.projectDir = projectDir;
+    synchronized (Main.class) {
+      if (client == null) {
+        client =
+            IClient.createClient(
+                System.getenv("FILESERVER_HOST"),
+                System.getenv("FILESERVER_USER"),
+                System.getenv("FILESERVER_PASS"));
+        buildCache = new ProjectBuildCache(client, WORKER_SLOTS);
+      }
+      if (this.isWorkerNode()) {
+        activeSlots++;
+        if (inputArchive == null) {
+          client.downloadFile("project_input_recommendation.zip", inputFile);
+          // a worker only needs the projects of its work units
+          inputArchive = new ProjectInputArchive(inputFile, projectDir);
+        }
+        return;
+      }
+    }
 
     // download projects file
     try {
@@ -172,20 +421,38 @@ public class Main extends RabbitMQCollective {
     }
     LOGGER.info("Found #{} todo projects", todoProjectNames.size());
 
-    final Path target = Paths.get("project_input_recommendation.zip");
-    client.downloadFile("project_input_recommendation.zip", target);
+    // the runtimes of previous runs, concatenated from the uploaded runtime files
+    Path runtimeFile = Paths.get(RUNTIME_FILE);
+    try {
+      client.downloadFile(RUNTIME_FILE, runtimeFile);
+    } catch (IOException exception) {
+      LOGGER.info("No runtimes of previous runs");
+      runtimeFile = null;
+    }
+    this.costModel = new JobCostModel(runtimeFile);
+
+    client.downloadFile("project_input_recommendation.zip", inputFile);
 
-    final ZipFile zipFile = new ZipFile(target.toFile());
-    final Path projectDir = Paths.get("projects");
+    final ZipFile zipFile = new ZipFile(inputFile.toFile());
     zipFile.extractAll(projectDir.toAbsolutePath().toString());
-    this.projectDir = projectDir;
   }
 
   @Override
   protected void shutdown() {
-    if (this.isWorkerNode() && this.client != null) {
-
-      this.client.close();
+    synchronized (Main.class) {
+      // the last slot closes the shared resources
+      if (this.isWorkerNode() && --activeSlots <= 0) {
+        if (client != null) {
+          client.close();
+        }
+        if (inputArchive != null) {
+          try {
+            inputArchive.close();
+          } catch (IOException e) {
+            //
+          }
+        }
+      }
     }
     // nothing
 
@@ -1,11 +1,16 @@
 package de.upb.upcy.update.dockerize;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * A work unit: a whole project, one module of a project, or a single update request of a module.
+ * The unset fields select everything, such that messages of older producers are whole projects.
+ */
 @JsonInclude(JsonInclude.Include.ALWAYS)
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
@@ -14,4 +19,38 @@ import lombok.NoArgsConstructor;
 public class Msg {
 
   private String projectNameFolder;
+  // the project's csv file, relative to the project folder; null for all csv files
+  private String csvFile;
+  // null for all modules
+  private String moduleName;
+  // the update request, null for all requests of the module
+  private String orgGav;
+  private String newGav;
+
+  public Msg(String projectNameFolder) {
+    this.projectNameFolder = projectNameFolder;
+  }
+
+  @JsonIgnore
+  public boolean isProjectUnit() {
+    return moduleName == null;
+  }
+
+  @JsonIgnore
+  public boolean isRequestUnit() {
+    return moduleName != null && orgGav != null && newGav != null;
+  }
+
+  /** @return a name unique per work unit, e.g., for the uploaded results */
+  @JsonIgnore
+  public String getUnitName() {
+    if (isProjectUnit()) {
+      return projectNameFolder;
+    }
+    String unitName = projectNameFolder + "_" + moduleName;
+    if (isRequestUnit()) {
+      unitName += "_" + Integer.toHexString((orgGav + "->" + newGav).hashCode());
+    }
+    return unitName;
+  }
 }
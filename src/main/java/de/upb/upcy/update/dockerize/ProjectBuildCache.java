@@ -0,0 +1,187 @@
+package de.upb.upcy.update.dockerize;
+
+import de.upb.upcy.base.mvn.MavenInvokerProject;
+import de.upb.upcy.update.build.PipelineRunner;
+import de.upb.upcy.update.process.ComputeRecommendationProcess;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.model.ZipParameters;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The built projects of the work units handled by this worker. The producer enqueues the units of a
+ * project consecutively, thus the recent builds are kept for the following units. The first worker
+ * building a project uploads the built checkout to the file server; other workers download it
+ * instead of cloning, and only run an incremental build to install the modules into their local
+ * repository.
+ *
+ * @author adann
+ */
+class ProjectBuildCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectBuildCache.class);
+
+  private static final String BUILD_SUFFIX = "_build.zip";
+
+  // share the built checkouts via the file server, BUILD_HANDOFF=false disables it
+  private static boolean BUILD_HANDOFF = true;
+
+  static {
+    String buildHandoff = System.getenv("BUILD_HANDOFF");
+    if (StringUtils.isNotBlank(buildHandoff)) {
+      BUILD_HANDOFF = Boolean.parseBoolean(buildHandoff);
+    }
+  }
+
+  private final IClient client;
+  private final int capacity;
+  // the recent builds, in access order; concurrent units of a project wait for the same build
+  private final LinkedHashMap<String, CompletableFuture<Map<String, MavenInvokerProject>>> builds =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  ProjectBuildCache(IClient client) {
+    this(client, 1);
+  }
+
+  /**
+   * @param client the file server client
+   * @param capacity the number of builds kept, e.g., the number of concurrent work units
+   */
+  ProjectBuildCache(IClient client, int capacity) {
+    this.client = client;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   * @param projectFolder the folder containing the project's csv and COMMIT files
+   * @return the built modules of the project, empty if the build failed
+   */
+  Map<String, MavenInvokerProject> getBuild(Path projectFolder)
+      throws IOException, GitAPIException {
+    final String projectName = projectFolder.getFileName().toString();
+    final String commit = ComputeRecommendationProcess.readCommit(projectFolder);
+    if (commit == null) {
+      return Collections.emptyMap();
+    }
+    final String key = projectName + "_" + StringUtils.left(commit, 12);
+
+    CompletableFuture<Map<String, MavenInvokerProject>> future;
+    boolean owner = false;
+    synchronized (this) {
+      future = builds.get(key);
+      if (future == null) {
+        future = new CompletableFuture<>();
+        builds.put(key, future);
+        owner = true;
+        final Iterator<String> eldest = builds.keySet().iterator();
+        while (builds.size() > capacity && eldest.hasNext()) {
+          eldest.next();
+          eldest.remove();
+        }
+      }
+    }
+    if (!owner) {
+      LOGGER.info("Reusing build of {}", key);
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for build of " + key, e);
+      } catch (ExecutionException e) {
+        throw new IOException("Failed build of " + key, e.getCause());
+      }
+    }
+
+    try {
+      final Map<String, MavenInvokerProject> build = build(projectFolder, projectName, key);
+      future.complete(build);
+      return build;
+    } catch (IOException | GitAPIException | RuntimeException e) {
+      synchronized (this) {
+        builds.remove(key, future);
+      }
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private Map<String, MavenInvokerProject> build(Path projectFolder, String projectName, String key)
+      throws IOException, GitAPIException {
+    Map<String, MavenInvokerProject> build =
+        BUILD_HANDOFF ? downloadBuild(projectName, key) : null;
+    if (build == null) {
+      final Path checkoutFolder = ComputeRecommendationProcess.checkoutProject(projectFolder);
+      if (checkoutFolder == null) {
+        return Collections.emptyMap();
+      }
+      build = new PipelineRunner(projectName, checkoutFolder.resolve("pom.xml")).run();
+      if (BUILD_HANDOFF && !build.isEmpty()) {
+        uploadBuild(checkoutFolder, key);
+      }
+    }
+    return build;
+  }
+
+  private Map<String, MavenInvokerProject> downloadBuild(String projectName, String key) {
+    try {
+      final Path buildDir = Files.createTempDirectory(key);
+      final Path zip = buildDir.resolve(key + BUILD_SUFFIX);
+      client.downloadFile(key + BUILD_SUFFIX, zip);
+      try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+        zipFile.extractAll(buildDir.toString());
+      }
+      Files.delete(zip);
+
+      // the zip holds the checkout folder
+      final Path checkoutFolder;
+      try (Stream<Path> files = Files.list(buildDir)) {
+        checkoutFolder = files.filter(Files::isDirectory).findFirst().orElse(null);
+      }
+      if (checkoutFolder == null || !Files.exists(checkoutFolder.resolve("pom.xml"))) {
+        LOGGER.warn("Ignoring invalid build of {}", key);
+        return null;
+      }
+      LOGGER.info("Using build of {} from the file server", key);
+      final Map<String, MavenInvokerProject> build =
+          new PipelineRunner(projectName, checkoutFolder.resolve("pom.xml"), false).run();
+      return build.isEmpty() ? null : build;
+    } catch (IOException e) {
+      LOGGER.info("No build of {} on the file server", key);
+      return null;
+    }
+  }
+
+  private void uploadBuild(Path checkoutFolder, String key) {
+    File zip = null;
+    try {
+      zip = Files.createTempDirectory(key).resolve(key + BUILD_SUFFIX).toFile();
+      ZipParameters zipParameters = new ZipParameters();
+      // the history is not needed for the build
+      zipParameters.setExcludeFileFilter(f -> f.getName().equals(".git"));
+      try (ZipFile zipFile = new ZipFile(zip)) {
+        zipFile.addFolder(checkoutFolder.toFile(), zipParameters);
+      }
+      client.uploadFile(zip);
+      LOGGER.info("Uploaded build of {}", key);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to upload build of {}", key, e);
+    } finally {
+      if (zip != null && !zip.delete()) {
+        zip.deleteOnExit();
+      }
+    }
+  }
+}
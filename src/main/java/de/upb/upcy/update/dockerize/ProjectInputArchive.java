@@ -0,0 +1,152 @@
+package de.upb.upcy.update.dockerize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.model.FileHeader;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The input archive of the workers, with an entry {@code projects/<project>/...} per file of a
+ * project. Only the central directory is read upfront; a project's entries are extracted when a
+ * work unit of the project is received. The extracted projects are kept up to PROJECT_CACHE_SIZE,
+ * the least recently used ones are deleted, unless a work unit still uses them.
+ *
+ * @author adann
+ */
+class ProjectInputArchive implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectInputArchive.class);
+
+  private static final String PROJECTS_FOLDER = "projects";
+
+  private static int PROJECT_CACHE_SIZE = 16;
+
+  static {
+    String cacheSize = System.getenv("PROJECT_CACHE_SIZE");
+    if (StringUtils.isNotBlank(cacheSize)) {
+      try {
+        PROJECT_CACHE_SIZE = Math.max(1, Integer.parseInt(cacheSize));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private final ZipFile zipFile;
+  private final Path outputDir;
+  private final int cacheSize;
+  // the archive's entries by project
+  private final Map<String, List<FileHeader>> projectEntries = new HashMap<>();
+  // the extracted projects, in access order
+  private final LinkedHashMap<String, Path> extracted = new LinkedHashMap<>(16, 0.75f, true);
+  // the number of work units using a project
+  private final Map<String, Integer> inUse = new HashMap<>();
+
+  ProjectInputArchive(Path archive, Path outputDir) throws IOException {
+    this(archive, outputDir, PROJECT_CACHE_SIZE);
+  }
+
+  /**
+   * @param archive the input archive
+   * @param outputDir the folder to extract the projects to, as {@code
+   *     outputDir/projects/<project>}
+   * @param cacheSize the maximal number of extracted projects
+   */
+  ProjectInputArchive(Path archive, Path outputDir, int cacheSize) throws IOException {
+    this.zipFile = new ZipFile(archive.toFile());
+    this.outputDir = outputDir;
+    this.cacheSize = cacheSize;
+    for (FileHeader fileHeader : zipFile.getFileHeaders()) {
+      final String[] segments =
+          StringUtils.split(StringUtils.removeStart(fileHeader.getFileName(), "./"), '/');
+      if (segments.length < 2 || !segments[0].equals(PROJECTS_FOLDER)) {
+        continue;
+      }
+      projectEntries.computeIfAbsent(segments[1], k -> new ArrayList<>()).add(fileHeader);
+    }
+    LOGGER.info("Found #{} projects in {}", projectEntries.size(), archive);
+  }
+
+  /**
+   * Extracts the project, unless it was extracted before. The project is kept until it is {@link
+   * #release(String) released}.
+   *
+   * @param projectNameFolder the name of the project's folder
+   * @return the extracted project folder
+   */
+  synchronized Path getProject(String projectNameFolder) throws IOException {
+    final Path cached = extracted.get(projectNameFolder);
+    if (cached != null && Files.isDirectory(cached)) {
+      inUse.merge(projectNameFolder, 1, Integer::sum);
+      return cached;
+    }
+    final List<FileHeader> entries = projectEntries.get(projectNameFolder);
+    if (entries == null) {
+      throw new IOException("No project " + projectNameFolder + " in the input archive");
+    }
+    final Path projectFolder = outputDir.resolve(PROJECTS_FOLDER).resolve(projectNameFolder);
+    // start from scratch, the folder may be a left over of an interrupted extraction
+    deleteRecursively(projectFolder);
+    for (FileHeader entry : entries) {
+      zipFile.extractFile(entry, outputDir.toAbsolutePath().toString());
+    }
+    LOGGER.info("Extracted #{} entries of project {}", entries.size(), projectNameFolder);
+
+    extracted.put(projectNameFolder, projectFolder);
+    inUse.merge(projectNameFolder, 1, Integer::sum);
+    evict();
+    return projectFolder;
+  }
+
+  /** Marks the project as no longer used by a work unit */
+  synchronized void release(String projectNameFolder) {
+    inUse.computeIfPresent(projectNameFolder, (k, count) -> count > 1 ? count - 1 : null);
+    evict();
+  }
+
+  private void evict() {
+    final Iterator<Map.Entry<String, Path>> iterator = extracted.entrySet().iterator();
+    while (extracted.size() > cacheSize && iterator.hasNext()) {
+      final Map.Entry<String, Path> eldest = iterator.next();
+      if (inUse.containsKey(eldest.getKey())) {
+        continue;
+      }
+      iterator.remove();
+      try {
+        deleteRecursively(eldest.getValue());
+        LOGGER.info("Evicted project {}", eldest.getKey());
+      } catch (IOException e) {
+        LOGGER.warn("Failed to delete project {}", eldest.getValue(), e);
+      }
+    }
+  }
+
+  private static void deleteRecursively(Path folder) throws IOException {
+    if (!Files.exists(folder)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(folder)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipFile.close();
+  }
+}
@@ -1,35 +1,88 @@
 package de.upb.upcy.update.dockerize;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.maven.surefire.shared.io.FileUtils;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Client for a WebDAV file server. Uploads are streamed from disk. Downloads are streamed into a
+ * {@code .part} file next to the target, which is resumed by a ranged request after a failure, and
+ * verified against the server's length and digest before it replaces the target. The ETag of a
+ * download is kept in an {@code .etag} file, such that an unchanged file is not downloaded again.
+ * Failed requests are retried with exponential backoff.
+ */
 public class WebDavClient implements IClient {
   private static final Logger LOGGER = LoggerFactory.getLogger(WebDavClient.class);
 
+  private static final String PART_SUFFIX = ".part";
+  private static final String ETAG_SUFFIX = ".etag";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Timeout in seconds, for connecting and between two reads of a transfer */
+  private static int TIMEOUT = 60;
+
+  private static int RETRIES = 5;
+
+  static {
+    String timeout = System.getenv("FILESERVER_TIMEOUT");
+    if (StringUtils.isNotBlank(timeout)) {
+      try {
+        TIMEOUT = Integer.parseInt(timeout);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String retries = System.getenv("FILESERVER_RETRIES");
+    if (StringUtils.isNotBlank(retries)) {
+      try {
+        RETRIES = Math.max(0, Integer.parseInt(retries));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
   private final CloseableHttpClient httpClient;
   private final String host;
-  /** Timeout in seconds */
-  private final int timeout = 5;
+  private final RequestConfig config;
+  private final int retries;
+  private final long backoffMillis;
 
   WebDavClient(String host, String user, String pass) {
+    this(host, user, pass, RETRIES, 1000);
+  }
+
+  WebDavClient(String host, String user, String pass, int retries, long backoffMillis) {
 
     CredentialsProvider provider = new BasicCredentialsProvider();
     UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(user, pass);
@@ -37,52 +90,254 @@ public class WebDavClient implements IClient {
 
     this.httpClient = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
     this.host = host;
+    this.config =
+        RequestConfig.custom()
+            .setConnectTimeout(TIMEOUT * 1000)
+            .setConnectionRequestTimeout(TIMEOUT * 1000)
+            .setSocketTimeout(TIMEOUT * 1000)
+            .build();
+    this.retries = retries;
+    this.backoffMillis = backoffMillis;
     LOGGER.info("Created WebDavClient");
   }
 
+  private interface Transfer {
+    void run() throws IOException;
+  }
+
+  private void withRetries(String name, Transfer transfer) throws IOException {
+    long backoff = backoffMillis;
+    for (int attempt = 0; ; attempt++) {
+      try {
+        transfer.run();
+        return;
+      } catch (FileNotFoundException e) {
+        // retrying does not help
+        throw e;
+      } catch (IOException e) {
+        if (attempt >= retries) {
+          throw e;
+        }
+        LOGGER.warn("Transfer of {} failed, retrying in {} ms: {}", name, backoff, e.toString());
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while transferring " + name, ie);
+        }
+        backoff = Math.min(backoff * 2, 60_000);
+      }
+    }
+  }
+
   @Override
   public void uploadFile(File upFile) throws IOException {
     if (upFile.exists()) {
 
       LOGGER.info("[Worker] Uploading file: {} of size {}", upFile, upFile.length() / 1024);
-
-      HttpPut httpPut = new HttpPut(URI.create(this.host + "/" + upFile.getName()));
-
-      ByteArrayEntity entity = new ByteArrayEntity(Files.readAllBytes(upFile.toPath()));
-      httpPut.setEntity(entity);
-      RequestConfig config =
-          RequestConfig.custom()
-              .setConnectTimeout(timeout * 1000)
-              .setConnectionRequestTimeout(timeout * 1000)
-              .setSocketTimeout(timeout * 1000)
-              .build();
-
-      httpPut.setConfig(config);
-      HttpResponse response = httpClient.execute(httpPut);
-      LOGGER.debug("HTTP Response: {}", response);
+      withRetries(upFile.getName(), () -> upload(upFile));
     } else {
       LOGGER.error("Could not upload file: {}", upFile);
     }
   }
 
+  private void upload(File upFile) throws IOException {
+    HttpPut httpPut = new HttpPut(URI.create(this.host + "/" + upFile.getName()));
+    // streamed from disk, and repeatable for the retries
+    httpPut.setEntity(new FileEntity(upFile, ContentType.APPLICATION_OCTET_STREAM));
+    httpPut.setConfig(config);
+    try (CloseableHttpResponse response = httpClient.execute(httpPut)) {
+      EntityUtils.consumeQuietly(response.getEntity());
+      LOGGER.debug("HTTP Response: {}", response);
+      final int status = response.getStatusLine().getStatusCode();
+      if (status < 200 || status >= 300) {
+        throw new IOException(
+            "Failed to upload " + upFile.getName() + ": " + response.getStatusLine());
+      }
+    }
+  }
+
   @Override
   public void downloadFile(String upFile, Path target) throws IOException {
     LOGGER.info("[Worker] Downloading file: {}", upFile);
-    HttpGet httpget = new HttpGet(this.host + "/" + upFile);
-    RequestConfig config =
-        RequestConfig.custom()
-            .setConnectTimeout(timeout * 1000)
-            .setConnectionRequestTimeout(timeout * 1000)
-            .setSocketTimeout(timeout * 1000)
-            .build();
+    withRetries(upFile, () -> download(upFile, target));
+  }
+
+  private void download(String upFile, Path target) throws IOException {
+    final Path partFile = sibling(target, PART_SUFFIX);
+    final Path etagFile = sibling(target, ETAG_SUFFIX);
+    final Path partEtagFile = sibling(partFile, ETAG_SUFFIX);
 
+    HttpGet httpget = new HttpGet(this.host + "/" + upFile);
     httpget.setConfig(config);
-    HttpResponse response = httpClient.execute(httpget);
+    final String etag = readEtag(etagFile);
+    if (etag != null && Files.exists(target)) {
+      httpget.setHeader("If-None-Match", etag);
+    }
+    final long offset = Files.exists(partFile) ? Files.size(partFile) : 0;
+    final String partEtag = readEtag(partEtagFile);
+    if (offset > 0 && partEtag != null) {
+      // resume, unless the file changed on the server in between
+      httpget.setHeader("Range", "bytes=" + offset + "-");
+      httpget.setHeader("If-Range", partEtag);
+    }
+
+    try (CloseableHttpResponse response = httpClient.execute(httpget)) {
+      LOGGER.debug("HTTP Response: {}", response);
+      final int status = response.getStatusLine().getStatusCode();
+      if (status == HttpStatus.SC_NOT_MODIFIED) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        LOGGER.info("[Worker] File {} is unchanged", upFile);
+        return;
+      }
+      if (status == HttpStatus.SC_NOT_FOUND) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        throw new FileNotFoundException("Failed to download " + upFile + ": not found");
+      }
+      if (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+        // the part file does not fit the server's file, start over with the next attempt
+        EntityUtils.consumeQuietly(response.getEntity());
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(partEtagFile);
+        throw new IOException("Failed to resume download of " + upFile);
+      }
+      final boolean resumed = status == HttpStatus.SC_PARTIAL_CONTENT;
+      if (status != HttpStatus.SC_OK && !resumed) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        throw new IOException("Failed to download " + upFile + ": " + response.getStatusLine());
+      }
+
+      final long expectedLength = getExpectedLength(response, resumed ? offset : 0);
+      final String newEtag = getHeader(response, "ETag");
+      if (!resumed) {
+        Files.deleteIfExists(partFile);
+        if (newEtag != null) {
+          Files.write(partEtagFile, newEtag.getBytes(StandardCharsets.UTF_8));
+        } else {
+          Files.deleteIfExists(partEtagFile);
+        }
+      } else {
+        LOGGER.info("[Worker] Resuming download of {} at {}", upFile, offset);
+      }
+
+      try (InputStream source = response.getEntity().getContent();
+          OutputStream out =
+              Files.newOutputStream(
+                  partFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = source.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      }
+
+      final long length = Files.size(partFile);
+      if (expectedLength >= 0 && length != expectedLength) {
+        // keep the part file for resuming
+        throw new IOException(
+            "Incomplete download of " + upFile + ": " + length + " of " + expectedLength);
+      }
+      try {
+        verifyDigest(upFile, response, partFile);
+      } catch (IOException e) {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(partEtagFile);
+        throw e;
+      }
 
-    InputStream source = response.getEntity().getContent();
-    FileUtils.copyInputStreamToFile(source, target.toFile());
+      Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+      Files.deleteIfExists(partEtagFile);
+      if (newEtag != null) {
+        Files.write(etagFile, newEtag.getBytes(StandardCharsets.UTF_8));
+      } else {
+        Files.deleteIfExists(etagFile);
+      }
+    }
+  }
+
+  /** @return the length of the complete file, or -1 if the server does not tell */
+  private static long getExpectedLength(HttpResponse response, long offset) {
+    final String contentRange = getHeader(response, "Content-Range");
+    if (contentRange != null) {
+      // bytes <first>-<last>/<complete length>
+      final String total = StringUtils.substringAfterLast(contentRange, "/");
+      try {
+        return Long.parseLong(total.trim());
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+    final long contentLength = response.getEntity().getContentLength();
+    return contentLength < 0 ? -1 : offset + contentLength;
+  }
+
+  /**
+   * Verifies the downloaded file against the digest of the server, given as {@code Digest} header
+   * (SHA-256 or MD5) or, for a complete response, {@code Content-MD5} header
+   */
+  private static void verifyDigest(String upFile, HttpResponse response, Path file)
+      throws IOException {
+    String algorithm = null;
+    String expected = null;
+    final String digest = getHeader(response, "Digest");
+    if (digest != null) {
+      for (String value : StringUtils.split(digest, ',')) {
+        final String name = StringUtils.substringBefore(value, "=").trim();
+        if (name.equalsIgnoreCase("SHA-256") || name.equalsIgnoreCase("MD5")) {
+          algorithm = name.toUpperCase();
+          expected = StringUtils.substringAfter(value, "=").trim();
+          break;
+        }
+      }
+    }
+    final String contentMd5 = getHeader(response, "Content-MD5");
+    if (expected == null
+        && contentMd5 != null
+        && response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+      algorithm = "MD5";
+      expected = contentMd5.trim();
+    }
+    if (expected == null) {
+      return;
+    }
+    final String actual = Base64.getEncoder().encodeToString(digest(file, algorithm));
+    if (!actual.equals(expected)) {
+      throw new IOException(
+          "Checksum mismatch of " + upFile + ": " + actual + " instead of " + expected);
+    }
+  }
+
+  private static byte[] digest(Path file, String algorithm) throws IOException {
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, read);
+      }
+    }
+    return messageDigest.digest();
+  }
+
+  private static String getHeader(HttpResponse response, String name) {
+    final Header header = response.getFirstHeader(name);
+    return header == null ? null : header.getValue();
+  }
+
+  private static String readEtag(Path etagFile) throws IOException {
+    if (!Files.exists(etagFile)) {
+      return null;
+    }
+    return StringUtils.trimToNull(new String(Files.readAllBytes(etagFile), StandardCharsets.UTF_8));
+  }
 
-    LOGGER.debug("HTTP Response: {}", response);
+  private static Path sibling(Path file, String suffix) {
+    return file.resolveSibling(file.getFileName() + suffix);
   }
 
   @Override
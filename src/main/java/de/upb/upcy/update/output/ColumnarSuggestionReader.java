@@ -0,0 +1,190 @@
+package de.upb.upcy.update.output;
+
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.BLOCK_MARKER;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COLUMN_COUNT;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_CUT_WEIGHT;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_FLAGS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_MESSAGES;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_NR_OF_VIOLATED_CALLS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_NR_OF_VIOLATIONS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_ORG_GAV;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_PROJECT_NAME;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_STATUS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_TARGET_GAV;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_UPDATE_GAV;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_UPDATE_STEPS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.COL_VIOLATIONS;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.FLAG_NAIVE_UPDATE;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.FLAG_PARTIAL_CALL_GRAPH;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.FLAG_SIMPLE_UPDATE;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.FORMAT_VERSION;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.MAGIC;
+import static de.upb.upcy.update.output.ColumnarSuggestionWriter.NULL_ID;
+
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the suggestions of a file written by {@link ColumnarSuggestionWriter}, or of several such
+ * files concatenated. Only one block is held in memory; the violations column is skipped without
+ * decoding if it is not requested.
+ *
+ * @author adann
+ */
+public class ColumnarSuggestionReader implements SuggestionReader {
+
+  private static final UpdateSuggestion.SuggestionStatus[] STATUSES =
+      UpdateSuggestion.SuggestionStatus.values();
+
+  private final Path file;
+  private final boolean withViolations;
+  private final DataInputStream in;
+  private final List<String> strings = new ArrayList<>();
+  private final ByteBuffer[] columns = new ByteBuffer[COLUMN_COUNT];
+  private int remainingRows = 0;
+
+  /**
+   * @param file the columnar file
+   * @param withViolations false skips the violations column, e.g., to only aggregate counts
+   */
+  public ColumnarSuggestionReader(Path file, boolean withViolations) throws IOException {
+    this.file = file;
+    this.withViolations = withViolations;
+    this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+  }
+
+  @Override
+  public SuggestionRecord next() throws IOException {
+    while (remainingRows == 0) {
+      if (!readBlock()) {
+        return null;
+      }
+    }
+    remainingRows--;
+    try {
+      return readRow();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt suggestions file " + file, e);
+    }
+  }
+
+  private boolean readBlock() throws IOException {
+    final int marker;
+    try {
+      marker = in.readInt();
+    } catch (EOFException e) {
+      return false;
+    }
+    if (marker == MAGIC) {
+      // the header of a (concatenated) file starts a new string table
+      if (in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported version in " + file);
+      }
+      strings.clear();
+      return true;
+    }
+    if (marker != BLOCK_MARKER) {
+      throw new IOException("Corrupt suggestions file " + file);
+    }
+    remainingRows = in.readInt();
+    final int newStrings = in.readInt();
+    for (int i = 0; i < newStrings; i++) {
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      strings.add(new String(bytes, StandardCharsets.UTF_8));
+    }
+    final int columnCount = in.readInt();
+    for (int i = 0; i < columnCount; i++) {
+      final int length = in.readInt();
+      if (i >= COLUMN_COUNT || (i == COL_VIOLATIONS && !withViolations)) {
+        // columns of newer writers, or not requested
+        skipFully(length);
+        if (i < COLUMN_COUNT) {
+          columns[i] = null;
+        }
+        continue;
+      }
+      final byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      columns[i] = ByteBuffer.wrap(bytes);
+    }
+    return true;
+  }
+
+  private void skipFully(int length) throws IOException {
+    int skipped = 0;
+    while (skipped < length) {
+      final int n = in.skipBytes(length - skipped);
+      if (n <= 0) {
+        throw new EOFException("Truncated block in " + file);
+      }
+      skipped += n;
+    }
+  }
+
+  private String getString(int id) {
+    return id == NULL_ID ? null : strings.get(id);
+  }
+
+  private SuggestionRecord readRow() {
+    SuggestionRecord record = new SuggestionRecord();
+    record.setProjectName(getString(columns[COL_PROJECT_NAME].getInt()));
+    record.setOrgGav(getString(columns[COL_ORG_GAV].getInt()));
+    record.setTargetGav(getString(columns[COL_TARGET_GAV].getInt()));
+    record.setUpdateGav(getString(columns[COL_UPDATE_GAV].getInt()));
+    final byte status = columns[COL_STATUS].get();
+    record.setStatus(status == NULL_ID ? null : STATUSES[status]);
+    final byte flags = columns[COL_FLAGS].get();
+    record.setSimpleUpdate((flags & FLAG_SIMPLE_UPDATE) != 0);
+    record.setNaiveUpdate((flags & FLAG_NAIVE_UPDATE) != 0);
+    record.setPartialCallGraph((flags & FLAG_PARTIAL_CALL_GRAPH) != 0);
+    record.setNrOfViolations(columns[COL_NR_OF_VIOLATIONS].getInt());
+    record.setNrOfViolatedCalls(columns[COL_NR_OF_VIOLATED_CALLS].getInt());
+    record.setCutWeight(columns[COL_CUT_WEIGHT].getInt());
+
+    final ByteBuffer updateSteps = columns[COL_UPDATE_STEPS];
+    for (int i = updateSteps.getInt(); i > 0; i--) {
+      record
+          .getUpdateSteps()
+          .add(new String[] {getString(updateSteps.getInt()), getString(updateSteps.getInt())});
+    }
+    final ByteBuffer messages = columns[COL_MESSAGES];
+    for (int i = messages.getInt(); i > 0; i--) {
+      record.getMessages().add(getString(messages.getInt()));
+    }
+
+    final ByteBuffer violations = columns[COL_VIOLATIONS];
+    if (violations == null) {
+      return record;
+    }
+    for (int i = violations.getInt(); i > 0; i--) {
+      final String orgLib = getString(violations.getInt());
+      final String updatedLib = getString(violations.getInt());
+      final boolean forward = violations.get() != 0;
+      final int nrOfCalls = violations.getInt();
+      List<String> calls = new ArrayList<>(nrOfCalls);
+      for (int j = 0; j < nrOfCalls; j++) {
+        calls.add(getString(violations.getInt()));
+      }
+      record
+          .getViolations()
+          .add(new SuggestionRecord.ViolationRecord(orgLib, updatedLib, forward, calls));
+    }
+    return record;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,186 @@
+package de.upb.upcy.update.output;
+
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import de.upb.upcy.update.recommendation.check.ForwardViolation;
+import de.upb.upcy.update.recommendation.check.Violation;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Writes update suggestions in a columnar binary layout. The rows are buffered into blocks; a
+ * block stores each column as a length-prefixed run, such that a reader skips the columns it does
+ * not need. All strings, i.e., GAVs, libraries and method signatures, are interned into one table;
+ * each block first appends the strings new to the table, the columns reference them by id.
+ *
+ * <p>A file starts with a segment header that resets the string table, thus files can be
+ * concatenated.
+ *
+ * @author adann
+ */
+public class ColumnarSuggestionWriter implements SuggestionWriter {
+
+  static final int MAGIC = 0x55434f4c;
+  static final int FORMAT_VERSION = 1;
+  static final int BLOCK_MARKER = 1;
+  static final int NULL_ID = -1;
+
+  // the columns of a block, in this order
+  static final int COL_PROJECT_NAME = 0;
+  static final int COL_ORG_GAV = 1;
+  static final int COL_TARGET_GAV = 2;
+  static final int COL_UPDATE_GAV = 3;
+  static final int COL_STATUS = 4;
+  static final int COL_FLAGS = 5;
+  static final int COL_NR_OF_VIOLATIONS = 6;
+  static final int COL_NR_OF_VIOLATED_CALLS = 7;
+  static final int COL_CUT_WEIGHT = 8;
+  static final int COL_UPDATE_STEPS = 9;
+  static final int COL_MESSAGES = 10;
+  static final int COL_VIOLATIONS = 11;
+  static final int COLUMN_COUNT = 12;
+
+  static final int FLAG_SIMPLE_UPDATE = 1;
+  static final int FLAG_NAIVE_UPDATE = 2;
+  static final int FLAG_PARTIAL_CALL_GRAPH = 4;
+
+  private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private final DataOutputStream out;
+  private final int blockSize;
+  private final Map<String, Integer> stringIds = new HashMap<>();
+  private final List<String> newStrings = new ArrayList<>();
+  private final ByteArrayOutputStream[] columnBytes = new ByteArrayOutputStream[COLUMN_COUNT];
+  private final DataOutputStream[] columns = new DataOutputStream[COLUMN_COUNT];
+  private int blockRows = 0;
+
+  public ColumnarSuggestionWriter(Path file) throws IOException {
+    this(file, DEFAULT_BLOCK_SIZE);
+  }
+
+  public ColumnarSuggestionWriter(Path file, int blockSize) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+    this.blockSize = Math.max(1, blockSize);
+    for (int i = 0; i < COLUMN_COUNT; i++) {
+      columnBytes[i] = new ByteArrayOutputStream();
+      columns[i] = new DataOutputStream(columnBytes[i]);
+    }
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+  }
+
+  @Override
+  public synchronized void write(UpdateSuggestion updateSuggestion) throws IOException {
+    columns[COL_PROJECT_NAME].writeInt(getStringId(updateSuggestion.getProjectName()));
+    columns[COL_ORG_GAV].writeInt(getStringId(updateSuggestion.getOrgGav()));
+    columns[COL_TARGET_GAV].writeInt(getStringId(updateSuggestion.getTargetGav()));
+    columns[COL_UPDATE_GAV].writeInt(getStringId(updateSuggestion.getUpdateGav()));
+    columns[COL_STATUS].writeByte(
+        updateSuggestion.getStatus() == null ? NULL_ID : updateSuggestion.getStatus().ordinal());
+    int flags = 0;
+    flags |= updateSuggestion.isSimpleUpdate() ? FLAG_SIMPLE_UPDATE : 0;
+    flags |= updateSuggestion.isNaiveUpdate() ? FLAG_NAIVE_UPDATE : 0;
+    flags |= updateSuggestion.isPartialCallGraph() ? FLAG_PARTIAL_CALL_GRAPH : 0;
+    columns[COL_FLAGS].writeByte(flags);
+    columns[COL_NR_OF_VIOLATIONS].writeInt(updateSuggestion.getNrOfViolations());
+    columns[COL_NR_OF_VIOLATED_CALLS].writeInt(updateSuggestion.getNrOfViolatedCalls());
+    columns[COL_CUT_WEIGHT].writeInt(updateSuggestion.getCutWeight());
+
+    final List<Pair<String, String>> updateSteps = updateSuggestion.getUpdateSteps();
+    columns[COL_UPDATE_STEPS].writeInt(updateSteps == null ? 0 : updateSteps.size());
+    if (updateSteps != null) {
+      for (Pair<String, String> step : updateSteps) {
+        columns[COL_UPDATE_STEPS].writeInt(getStringId(step.getLeft()));
+        columns[COL_UPDATE_STEPS].writeInt(getStringId(step.getRight()));
+      }
+    }
+
+    final List<String> messages = updateSuggestion.getMessages();
+    columns[COL_MESSAGES].writeInt(messages == null ? 0 : messages.size());
+    if (messages != null) {
+      for (String message : messages) {
+        columns[COL_MESSAGES].writeInt(getStringId(message));
+      }
+    }
+
+    final Collection<Violation> violations = updateSuggestion.getViolations();
+    final DataOutputStream violationColumn = columns[COL_VIOLATIONS];
+    violationColumn.writeInt(violations == null ? 0 : violations.size());
+    if (violations != null) {
+      for (Violation violation : violations) {
+        final boolean forward = violation instanceof ForwardViolation;
+        violationColumn.writeInt(getStringId(violation.getOrgLib()));
+        violationColumn.writeInt(getStringId(violation.getUpdatedLib()));
+        violationColumn.writeBoolean(forward);
+        if (forward) {
+          violationColumn.writeInt(0);
+          continue;
+        }
+        final List<String> signatures = violation.getViolatedCallSignatures();
+        violationColumn.writeInt(signatures.size());
+        for (String signature : signatures) {
+          violationColumn.writeInt(getStringId(signature));
+        }
+      }
+    }
+
+    if (++blockRows >= blockSize) {
+      writeBlock();
+    }
+  }
+
+  private int getStringId(String value) {
+    if (value == null) {
+      return NULL_ID;
+    }
+    Integer id = stringIds.get(value);
+    if (id == null) {
+      id = stringIds.size();
+      stringIds.put(value, id);
+      newStrings.add(value);
+    }
+    return id;
+  }
+
+  private void writeBlock() throws IOException {
+    if (blockRows == 0) {
+      return;
+    }
+    out.writeInt(BLOCK_MARKER);
+    out.writeInt(blockRows);
+    out.writeInt(newStrings.size());
+    for (String value : newStrings) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    out.writeInt(COLUMN_COUNT);
+    for (int i = 0; i < COLUMN_COUNT; i++) {
+      columns[i].flush();
+      out.writeInt(columnBytes[i].size());
+      columnBytes[i].writeTo(out);
+      columnBytes[i].reset();
+    }
+    newStrings.clear();
+    blockRows = 0;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      writeBlock();
+    } finally {
+      out.close();
+    }
+  }
+}
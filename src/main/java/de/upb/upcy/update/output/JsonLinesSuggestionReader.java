@@ -0,0 +1,126 @@
+package de.upb.upcy.update.output;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Streams the suggestions of a file written by {@link JsonLinesSuggestionWriter}, or of several
+ * such files concatenated.
+ *
+ * @author adann
+ */
+public class JsonLinesSuggestionReader implements SuggestionReader {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final Path file;
+  private final boolean withViolations;
+  private final MappingIterator<JsonNode> lines;
+  private final List<String> signatures = new ArrayList<>();
+
+  /**
+   * @param file the JSON Lines file
+   * @param withViolations false skips resolving the violations, e.g., to only aggregate counts
+   */
+  public JsonLinesSuggestionReader(Path file, boolean withViolations) throws IOException {
+    this.file = file;
+    this.withViolations = withViolations;
+    this.lines =
+        OBJECT_MAPPER
+            .readerFor(JsonNode.class)
+            .readValues(new BufferedInputStream(Files.newInputStream(file)));
+  }
+
+  @Override
+  public SuggestionRecord next() throws IOException {
+    try {
+      while (lines.hasNextValue()) {
+        final JsonNode line = lines.nextValue();
+        switch (line.path("type").asText()) {
+          case "header":
+            if (line.path("version").asInt() != JsonLinesSuggestionWriter.FORMAT_VERSION) {
+              throw new IOException("Unsupported version in " + file);
+            }
+            // a concatenated file starts a new signature table
+            signatures.clear();
+            break;
+          case "sig":
+            if (line.path("id").asInt() != signatures.size()) {
+              throw new IOException("Signatures out of order in " + file);
+            }
+            signatures.add(line.path("signature").asText());
+            break;
+          case "suggestion":
+            return toRecord(line);
+          default:
+            // ignore unknown lines of newer writers
+        }
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt suggestions file " + file, e);
+    }
+    return null;
+  }
+
+  private SuggestionRecord toRecord(JsonNode line) throws IOException {
+    SuggestionRecord record = new SuggestionRecord();
+    record.setProjectName(line.path("projectName").asText(null));
+    record.setOrgGav(line.path("orgGav").asText(null));
+    record.setTargetGav(line.path("targetGav").asText(null));
+    record.setUpdateGav(line.path("updateGav").asText(null));
+    final String status = line.path("status").asText(null);
+    if (StringUtils.isNotBlank(status)) {
+      record.setStatus(UpdateSuggestion.SuggestionStatus.valueOf(status));
+    }
+    record.setSimpleUpdate(line.path("simpleUpdate").asBoolean());
+    record.setNaiveUpdate(line.path("naiveUpdate").asBoolean());
+    record.setPartialCallGraph(line.path("partialCallGraph").asBoolean());
+    record.setNrOfViolations(line.path("nrOfViolations").asInt());
+    record.setNrOfViolatedCalls(line.path("nrOfViolatedCalls").asInt());
+    record.setCutWeight(line.path("cutWeight").asInt());
+    for (JsonNode step : line.path("updateSteps")) {
+      record
+          .getUpdateSteps()
+          .add(new String[] {step.path(0).asText(null), step.path(1).asText(null)});
+    }
+    for (JsonNode message : line.path("messages")) {
+      record.getMessages().add(message.asText(null));
+    }
+    if (!withViolations) {
+      return record;
+    }
+    for (JsonNode violation : line.path("violations")) {
+      List<String> calls = new ArrayList<>();
+      for (JsonNode call : violation.path("calls")) {
+        final int id = call.asInt();
+        if (id < 0 || id >= signatures.size()) {
+          throw new IOException("Unknown signature id " + id + " in " + file);
+        }
+        calls.add(signatures.get(id));
+      }
+      record
+          .getViolations()
+          .add(
+              new SuggestionRecord.ViolationRecord(
+                  violation.path("orgLib").asText(null),
+                  violation.path("updatedLib").asText(null),
+                  violation.path("forward").asBoolean(),
+                  calls));
+    }
+    return record;
+  }
+
+  @Override
+  public void close() throws IOException {
+    lines.close();
+  }
+}
@@ -0,0 +1,141 @@
+package de.upb.upcy.update.output;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import de.upb.upcy.update.recommendation.check.ForwardViolation;
+import de.upb.upcy.update.recommendation.check.Violation;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Writes update suggestions as JSON Lines. A method signature is written once in a "sig" line and
+ * referenced by its id in the violations; the "header" line starts a new signature table, such that
+ * files can be concatenated.
+ *
+ * @author adann
+ */
+public class JsonLinesSuggestionWriter implements SuggestionWriter {
+
+  static final String FORMAT_NAME = "upcy-suggestions";
+  static final int FORMAT_VERSION = 1;
+
+  private final JsonGenerator generator;
+  private final Map<String, Integer> signatureIds = new HashMap<>();
+
+  public JsonLinesSuggestionWriter(Path file) throws IOException {
+    this.generator =
+        new JsonFactory()
+            .createGenerator(
+                new BufferedOutputStream(Files.newOutputStream(file)), JsonEncoding.UTF8);
+    // one root value per line
+    this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    generator.writeStartObject();
+    generator.writeStringField("type", "header");
+    generator.writeStringField("format", FORMAT_NAME);
+    generator.writeNumberField("version", FORMAT_VERSION);
+    generator.writeEndObject();
+  }
+
+  @Override
+  public synchronized void write(UpdateSuggestion updateSuggestion) throws IOException {
+    // the signatures must be defined before the suggestion referencing them
+    List<List<Integer>> violatedCallIds = new ArrayList<>();
+    if (updateSuggestion.getViolations() != null) {
+      for (Violation violation : updateSuggestion.getViolations()) {
+        List<Integer> ids = new ArrayList<>();
+        if (!(violation instanceof ForwardViolation)) {
+          for (String signature : violation.getViolatedCallSignatures()) {
+            ids.add(getSignatureId(signature));
+          }
+        }
+        violatedCallIds.add(ids);
+      }
+    }
+
+    generator.writeStartObject();
+    generator.writeStringField("type", "suggestion");
+    generator.writeStringField("projectName", updateSuggestion.getProjectName());
+    generator.writeStringField("orgGav", updateSuggestion.getOrgGav());
+    generator.writeStringField("targetGav", updateSuggestion.getTargetGav());
+    generator.writeStringField("updateGav", updateSuggestion.getUpdateGav());
+    generator.writeStringField(
+        "status",
+        updateSuggestion.getStatus() == null ? null : updateSuggestion.getStatus().name());
+    generator.writeBooleanField("simpleUpdate", updateSuggestion.isSimpleUpdate());
+    generator.writeBooleanField("naiveUpdate", updateSuggestion.isNaiveUpdate());
+    generator.writeBooleanField("partialCallGraph", updateSuggestion.isPartialCallGraph());
+    generator.writeNumberField("nrOfViolations", updateSuggestion.getNrOfViolations());
+    generator.writeNumberField("nrOfViolatedCalls", updateSuggestion.getNrOfViolatedCalls());
+    generator.writeNumberField("cutWeight", updateSuggestion.getCutWeight());
+
+    generator.writeArrayFieldStart("updateSteps");
+    if (updateSuggestion.getUpdateSteps() != null) {
+      for (Pair<String, String> step : updateSuggestion.getUpdateSteps()) {
+        generator.writeStartArray();
+        generator.writeString(step.getLeft());
+        generator.writeString(step.getRight());
+        generator.writeEndArray();
+      }
+    }
+    generator.writeEndArray();
+
+    generator.writeArrayFieldStart("messages");
+    if (updateSuggestion.getMessages() != null) {
+      for (String message : updateSuggestion.getMessages()) {
+        generator.writeString(message);
+      }
+    }
+    generator.writeEndArray();
+
+    generator.writeArrayFieldStart("violations");
+    if (updateSuggestion.getViolations() != null) {
+      int i = 0;
+      for (Violation violation : updateSuggestion.getViolations()) {
+        final List<Integer> ids = violatedCallIds.get(i++);
+        generator.writeStartObject();
+        generator.writeStringField("orgLib", violation.getOrgLib());
+        generator.writeStringField("updatedLib", violation.getUpdatedLib());
+        generator.writeBooleanField("forward", violation instanceof ForwardViolation);
+        generator.writeNumberField("nrOfCalls", ids.size());
+        generator.writeArrayFieldStart("calls");
+        for (Integer id : ids) {
+          generator.writeNumber(id);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+      }
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  private int getSignatureId(String signature) throws IOException {
+    Integer id = signatureIds.get(signature);
+    if (id == null) {
+      id = signatureIds.size();
+      signatureIds.put(signature, id);
+      generator.writeStartObject();
+      generator.writeStringField("type", "sig");
+      generator.writeNumberField("id", id);
+      generator.writeStringField("signature", signature);
+      generator.writeEndObject();
+    }
+    return id;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    generator.writeRaw('\n');
+    generator.close();
+  }
+}
@@ -0,0 +1,63 @@
+package de.upb.upcy.update.output;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result files of a project or module, sharing a base path, e.g., {@code
+ * <project>_recommendation_results}: the csv file, exported from the {@link ResultLog} when done,
+ * and a file per enabled {@link SuggestionFormat}.
+ *
+ * @author adann
+ */
+public final class ResultFiles {
+
+  private static final String CSV_EXTENSION = ".csv";
+  private static final String LOG_EXTENSION = ".log";
+
+  private ResultFiles() {}
+
+  /** @return a writer appending to the result log and writing the enabled structured formats */
+  public static SuggestionWriter open(Path baseFile) throws IOException {
+    List<SuggestionWriter> writers = new ArrayList<>();
+    writers.add(ResultLog.create(getLogFile(baseFile)));
+    try {
+      writers.addAll(SuggestionFormat.createEnabledWriters(baseFile, ""));
+    } catch (IOException e) {
+      writers.get(0).close();
+      throw e;
+    }
+    return SuggestionWriter.compose(writers);
+  }
+
+  /**
+   * Like {@link #open(Path)}, but resumes the result log of an earlier run that did not finish,
+   * e.g., after a timeout, see {@link SuggestionWriter#getCommittedRequests(String)}. The
+   * structured formats cannot be resumed, thus if one is enabled the results are computed again.
+   */
+  public static SuggestionWriter resume(Path baseFile) throws IOException {
+    if (!SuggestionFormat.getEnabledFormats().isEmpty()) {
+      return open(baseFile);
+    }
+    return ResultLog.open(getLogFile(baseFile));
+  }
+
+  /** Exports the closed result log into the csv file and removes the log */
+  public static void finish(Path baseFile) throws IOException {
+    final Path logFile = getLogFile(baseFile);
+    ResultLog.exportCsv(Collections.singletonList(logFile), getCsvFile(baseFile));
+    Files.deleteIfExists(logFile);
+  }
+
+  public static Path getCsvFile(Path baseFile) {
+    return baseFile.resolveSibling(baseFile.getFileName() + CSV_EXTENSION);
+  }
+
+  public static Path getLogFile(Path baseFile) {
+    return baseFile.resolveSibling(baseFile.getFileName() + LOG_EXTENSION);
+  }
+}
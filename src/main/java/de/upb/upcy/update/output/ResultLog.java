@@ -0,0 +1,455 @@
+package de.upb.upcy.update.output;
+
+import com.opencsv.CSVWriter;
+import com.opencsv.bean.HeaderColumnNameMappingStrategy;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of update suggestions, written as they are computed, such that a timeout or OOM
+ * does not lose the results computed so far. Each suggestion is stored as its csv row in a record
+ * framed by length and CRC32; the first record holds the csv header. After the rows of an update
+ * request, a commit record marks the request as complete. Every record is handed to the OS when
+ * appended; when it is fsynced is set by RESULT_LOG_FSYNC.
+ *
+ * <p>Opening an existing log resumes it: the records after the last commit, e.g., a torn record or
+ * the rows of a request interrupted by a crash, are truncated. The csv results file is exported
+ * from one or more logs by streaming the records.
+ *
+ * @author adann
+ */
+public class ResultLog implements SuggestionWriter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultLog.class);
+
+  private static final int MAGIC = 0x5552534c;
+  private static final int FORMAT_VERSION = 2;
+  private static final int FILE_HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8;
+  // guards against reading garbage lengths of a corrupt record, thus larger records are rejected
+  private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+  private static final byte KIND_HEADER = 0;
+  private static final byte KIND_ROW = 1;
+  private static final byte KIND_COMMIT = 2;
+
+  /** When the appended records are forced to the disk */
+  public enum FsyncPolicy {
+    /** after each record */
+    RECORD,
+    /** when the log is closed, e.g., after each module */
+    CLOSE,
+    /** never, left to the OS */
+    NEVER
+  }
+
+  private static FsyncPolicy FSYNC_POLICY = FsyncPolicy.CLOSE;
+
+  static {
+    String fsync = System.getenv("RESULT_LOG_FSYNC");
+    if (StringUtils.isNotBlank(fsync)) {
+      try {
+        FSYNC_POLICY = FsyncPolicy.valueOf(fsync.trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        // nothing
+      }
+    }
+  }
+
+  private final Path logFile;
+  private final FileChannel channel;
+  private final FsyncPolicy fsyncPolicy;
+  private final HeaderColumnNameMappingStrategy<UpdateSuggestion> mappingStrategy;
+  private String[] header;
+  private long rowCount;
+  // the keys of the committed update requests
+  private final Set<List<String>> commits;
+  private int maxRecordSize = MAX_RECORD_SIZE;
+
+  private ResultLog(
+      Path logFile,
+      FileChannel channel,
+      FsyncPolicy fsyncPolicy,
+      String[] header,
+      long rowCount,
+      Set<List<String>> commits) {
+    this.logFile = logFile;
+    this.channel = channel;
+    this.fsyncPolicy = fsyncPolicy;
+    this.header = header;
+    this.rowCount = rowCount;
+    this.commits = commits;
+    this.mappingStrategy = new HeaderColumnNameMappingStrategy<>();
+    this.mappingStrategy.setType(UpdateSuggestion.class);
+  }
+
+  /** Creates a new, empty log, replacing an existing one */
+  public static ResultLog create(Path logFile) throws IOException {
+    return create(logFile, FSYNC_POLICY);
+  }
+
+  public static ResultLog create(Path logFile, FsyncPolicy fsyncPolicy) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            logFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      buffer.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+      writeFully(channel, buffer);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new ResultLog(logFile, channel, fsyncPolicy, null, 0, new HashSet<>());
+  }
+
+  /**
+   * Opens the log for appending, a missing log is created. The records after the last commit, e.g.,
+   * a torn record or the rows of an interrupted request, are truncated.
+   */
+  public static ResultLog open(Path logFile) throws IOException {
+    return open(logFile, FSYNC_POLICY);
+  }
+
+  public static ResultLog open(Path logFile, FsyncPolicy fsyncPolicy) throws IOException {
+    if (!Files.isRegularFile(logFile) || Files.size(logFile) < FILE_HEADER_SIZE) {
+      return create(logFile, fsyncPolicy);
+    }
+    final String[] header;
+    final long rowCount;
+    final long committedEnd;
+    final Set<List<String>> commits;
+    try (Cursor cursor = new Cursor(logFile)) {
+      while (cursor.next() != null) {
+        // read up to the last valid record
+      }
+      header = cursor.getCommittedHeader();
+      rowCount = cursor.getCommittedRowCount();
+      committedEnd = cursor.getCommittedEnd();
+      commits = new HashSet<>(cursor.getCommits());
+    }
+    FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+    try {
+      if (committedEnd < channel.size()) {
+        LOGGER.warn(
+            "Truncating {} bytes of torn or uncommitted records in {}",
+            channel.size() - committedEnd,
+            logFile);
+        channel.truncate(committedEnd);
+        channel.force(false);
+      }
+      channel.position(committedEnd);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new ResultLog(logFile, channel, fsyncPolicy, header, rowCount, commits);
+  }
+
+  /**
+   * Appends the suggestion as one record
+   *
+   * @throws IOException if the suggestion's record exceeds the maximal record size, a reader would
+   *     take it and all following records for a corrupt tail; the log is not changed then
+   */
+  public synchronized void append(UpdateSuggestion updateSuggestion) throws IOException {
+    try {
+      if (header == null) {
+        final String[] newHeader = mappingStrategy.generateHeader(updateSuggestion);
+        writeRecord(KIND_HEADER, newHeader);
+        header = newHeader;
+      }
+      writeRecord(KIND_ROW, mappingStrategy.transmuteBean(updateSuggestion));
+      rowCount++;
+    } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException e) {
+      throw new IOException("Failed to convert update suggestion to csv", e);
+    }
+  }
+
+  @Override
+  public void write(UpdateSuggestion updateSuggestion) throws IOException {
+    append(updateSuggestion);
+  }
+
+  @Override
+  public synchronized void commit(String moduleName, String orgGav, String targetGav)
+      throws IOException {
+    final String[] key = {moduleName, orgGav, targetGav};
+    writeRecord(KIND_COMMIT, key);
+    commits.add(Arrays.asList(key));
+  }
+
+  @Override
+  public synchronized Set<Pair<String, String>> getCommittedRequests(String moduleName) {
+    Set<Pair<String, String>> requests = new HashSet<>();
+    for (List<String> commit : commits) {
+      if (commit.size() == 3 && StringUtils.equals(commit.get(0), moduleName)) {
+        requests.add(Pair.of(commit.get(1), commit.get(2)));
+      }
+    }
+    return requests;
+  }
+
+  /** @return the number of suggestions in the log, including the recovered ones */
+  public synchronized long getRowCount() {
+    return rowCount;
+  }
+
+  public Path getLogFile() {
+    return logFile;
+  }
+
+  // for tests
+  synchronized void setMaxRecordSize(int maxRecordSize) {
+    this.maxRecordSize = Math.min(maxRecordSize, MAX_RECORD_SIZE);
+  }
+
+  private void writeRecord(byte kind, String[] fields) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(kind);
+    out.writeInt(fields.length);
+    for (String field : fields) {
+      final byte[] value = StringUtils.defaultString(field).getBytes(StandardCharsets.UTF_8);
+      out.writeInt(value.length);
+      out.write(value);
+    }
+    out.flush();
+    final byte[] payload = bytes.toByteArray();
+    if (payload.length > maxRecordSize) {
+      throw new IOException(
+          "Record of " + payload.length + " bytes exceeds the maximum of " + maxRecordSize);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+
+    // one write per record, a crash leaves at most this record torn
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+    buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    writeFully(channel, buffer);
+    if (fsyncPolicy == FsyncPolicy.RECORD) {
+      channel.force(false);
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      if (fsyncPolicy != FsyncPolicy.NEVER) {
+        channel.force(false);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Streams the rows of the logs into one csv file with a single header, the csv file is replaced
+   * atomically. All logs must have the same header.
+   *
+   * @param logFiles the logs, missing ones are skipped
+   * @param outputCsvFile the csv file to write
+   * @return the number of written rows
+   */
+  public static long exportCsv(Collection<Path> logFiles, Path outputCsvFile) throws IOException {
+    final Path tmpFile =
+        Files.createTempFile(outputCsvFile.toAbsolutePath().getParent(), "results", ".tmp");
+    long rows = 0;
+    try {
+      try (CSVWriter writer =
+          new CSVWriter(Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8))) {
+        String[] header = null;
+        for (Path logFile : logFiles) {
+          if (!Files.isRegularFile(logFile)) {
+            continue;
+          }
+          try (Cursor cursor = new Cursor(logFile)) {
+            String[] row;
+            while ((row = cursor.next()) != null) {
+              if (header == null) {
+                header = cursor.getHeader();
+                writer.writeNext(header);
+              } else if (!Arrays.equals(header, cursor.getHeader())) {
+                throw new IOException("Incompatible csv header in " + logFile);
+              }
+              writer.writeNext(row);
+              rows++;
+            }
+          }
+        }
+      }
+      Files.move(
+          tmpFile,
+          outputCsvFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+    return rows;
+  }
+
+  /** Reads the rows of a log one by one, stopping at the first torn or corrupt record */
+  public static class Cursor implements Closeable {
+    private final Path logFile;
+    private final DataInputStream in;
+    private final long fileSize;
+    private String[] header;
+    private long validEnd;
+    private long rowCount;
+    // the state at the end of the last commit record
+    private long committedEnd;
+    private String[] committedHeader;
+    private long committedRowCount;
+    private final List<List<String>> commits = new ArrayList<>();
+
+    public Cursor(Path logFile) throws IOException {
+      this.logFile = logFile;
+      FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ);
+      this.fileSize = channel.size();
+      this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      try {
+        if (fileSize < FILE_HEADER_SIZE || in.readInt() != MAGIC) {
+          throw new IOException("Not a result log: " + logFile);
+        }
+        // logs of version 1 have no commit records, thus are read but not resumed
+        final int formatVersion = in.readInt();
+        if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+          throw new IOException("Unsupported result log version " + formatVersion);
+        }
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+      this.validEnd = FILE_HEADER_SIZE;
+      this.committedEnd = FILE_HEADER_SIZE;
+    }
+
+    /** @return the csv header, null until the first row has been read */
+    public String[] getHeader() {
+      return header;
+    }
+
+    /** @return the next csv row, or null at the end of the log */
+    public String[] next() throws IOException {
+      while (true) {
+        final byte[] payload = readRecord();
+        if (payload == null) {
+          return null;
+        }
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        final byte kind = record.readByte();
+        final String[] fields = new String[record.readInt()];
+        for (int i = 0; i < fields.length; i++) {
+          final byte[] value = new byte[record.readInt()];
+          record.readFully(value);
+          fields[i] = new String(value, StandardCharsets.UTF_8);
+        }
+        if (kind == KIND_HEADER) {
+          header = fields;
+        } else if (kind == KIND_COMMIT) {
+          commits.add(Arrays.asList(fields));
+          committedEnd = validEnd;
+          committedHeader = header;
+          committedRowCount = rowCount;
+        } else if (header == null) {
+          LOGGER.warn("Row without header in {}, ignoring the rest", logFile);
+          return null;
+        } else {
+          rowCount++;
+          return fields;
+        }
+      }
+    }
+
+    private byte[] readRecord() throws IOException {
+      if (fileSize - validEnd < RECORD_HEADER_SIZE) {
+        return null;
+      }
+      try {
+        final int length = in.readInt();
+        final int checksum = in.readInt();
+        if (length < 0
+            || length > MAX_RECORD_SIZE
+            || length > fileSize - validEnd - RECORD_HEADER_SIZE) {
+          return null;
+        }
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          return null;
+        }
+        validEnd += RECORD_HEADER_SIZE + length;
+        return payload;
+      } catch (EOFException e) {
+        return null;
+      }
+    }
+
+    /** @return the end of the last commit record read */
+    long getCommittedEnd() {
+      return committedEnd;
+    }
+
+    /** @return the csv header at the last commit record read */
+    String[] getCommittedHeader() {
+      return committedHeader;
+    }
+
+    /** @return the number of rows before the last commit record read */
+    long getCommittedRowCount() {
+      return committedRowCount;
+    }
+
+    /** @return the keys of the commit records read */
+    List<List<String>> getCommits() {
+      return commits;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
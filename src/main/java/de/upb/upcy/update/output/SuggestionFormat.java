@@ -0,0 +1,143 @@
+package de.upb.upcy.update.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The structured output formats written in addition to the csv results file. RESULT_FORMATS takes a
+ * comma-separated list, e.g., {@code jsonl,columnar}; by default only the csv file is written.
+ *
+ * @author adann
+ */
+public enum SuggestionFormat {
+  JSONL(".jsonl"),
+  COLUMNAR(".ucol");
+
+  private static Set<SuggestionFormat> ENABLED_FORMATS = Collections.emptySet();
+
+  static {
+    String formats = System.getenv("RESULT_FORMATS");
+    if (StringUtils.isNotBlank(formats)) {
+      Set<SuggestionFormat> enabled = EnumSet.noneOf(SuggestionFormat.class);
+      for (String format : StringUtils.split(formats, ',')) {
+        try {
+          enabled.add(SuggestionFormat.valueOf(format.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+          // nothing
+        }
+      }
+      ENABLED_FORMATS = Collections.unmodifiableSet(enabled);
+    }
+  }
+
+  private final String fileExtension;
+
+  SuggestionFormat(String fileExtension) {
+    this.fileExtension = fileExtension;
+  }
+
+  public static Set<SuggestionFormat> getEnabledFormats() {
+    return ENABLED_FORMATS;
+  }
+
+  public String getFileExtension() {
+    return fileExtension;
+  }
+
+  public SuggestionWriter createWriter(Path file) throws IOException {
+    switch (this) {
+      case JSONL:
+        return new JsonLinesSuggestionWriter(file);
+      case COLUMNAR:
+        return new ColumnarSuggestionWriter(file);
+      default:
+        throw new IllegalStateException("Unknown format " + this);
+    }
+  }
+
+  /**
+   * @param file the file to read
+   * @param withViolations false skips the violations, e.g., to only aggregate counts
+   */
+  public SuggestionReader createReader(Path file, boolean withViolations) throws IOException {
+    switch (this) {
+      case JSONL:
+        return new JsonLinesSuggestionReader(file, withViolations);
+      case COLUMNAR:
+        return new ColumnarSuggestionReader(file, withViolations);
+      default:
+        throw new IllegalStateException("Unknown format " + this);
+    }
+  }
+
+  /** @return the format of the file by its extension, or null */
+  public static SuggestionFormat of(Path file) {
+    for (SuggestionFormat format : values()) {
+      if (StringUtils.endsWith(file.getFileName().toString(), format.fileExtension)) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a writer for each enabled format
+   *
+   * @param baseFile the path of the output files, without extension
+   * @param suffix appended after the format's extension, e.g., for partial files
+   */
+  public static List<SuggestionWriter> createEnabledWriters(Path baseFile, String suffix)
+      throws IOException {
+    List<SuggestionWriter> writers = new ArrayList<>();
+    try {
+      for (SuggestionFormat format : ENABLED_FORMATS) {
+        writers.add(format.createWriter(format.resolve(baseFile, suffix)));
+      }
+    } catch (IOException e) {
+      for (SuggestionWriter writer : writers) {
+        writer.close();
+      }
+      throw e;
+    }
+    return writers;
+  }
+
+  public Path resolve(Path baseFile, String suffix) {
+    return baseFile.resolveSibling(baseFile.getFileName() + fileExtension + suffix);
+  }
+
+  /**
+   * Merges files of this format into one, since each file starts a new string table they are
+   * simply concatenated; the output file is replaced atomically
+   *
+   * @param files the files, missing ones are skipped
+   * @param outputFile the merged file
+   */
+  public void concat(Collection<Path> files, Path outputFile) throws IOException {
+    final Path tmpFile =
+        Files.createTempFile(outputFile.toAbsolutePath().getParent(), "results", ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmpFile)) {
+        for (Path file : files) {
+          if (Files.isRegularFile(file)) {
+            Files.copy(file, out);
+          }
+        }
+      }
+      Files.move(
+          tmpFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package de.upb.upcy.update.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams the {@link SuggestionRecord}s of a structured output file one by one, e.g., to aggregate
+ * the results of many projects without loading them.
+ *
+ * @author adann
+ */
+public interface SuggestionReader extends Closeable {
+
+  /** @return the next record, or null at the end of the file */
+  SuggestionRecord next() throws IOException;
+}
@@ -0,0 +1,45 @@
+package de.upb.upcy.update.output;
+
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An update suggestion as read from the structured output, the violated calls are given by their
+ * signatures instead of method table ids.
+ *
+ * @author adann
+ */
+@Data
+@NoArgsConstructor
+public class SuggestionRecord {
+  private String projectName;
+  private String orgGav;
+  private String targetGav;
+  private String updateGav;
+  private UpdateSuggestion.SuggestionStatus status;
+  private boolean simpleUpdate;
+  private boolean naiveUpdate;
+  private boolean partialCallGraph;
+  private int nrOfViolations;
+  private int nrOfViolatedCalls;
+  private int cutWeight;
+  // each step as [from, to]
+  private List<String[]> updateSteps = new ArrayList<>();
+  private List<String> messages = new ArrayList<>();
+  // empty if the reader skipped the violations
+  private List<ViolationRecord> violations = new ArrayList<>();
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class ViolationRecord {
+    private String orgLib;
+    private String updatedLib;
+    private boolean forward;
+    private List<String> violatedCalls;
+  }
+}
@@ -0,0 +1,90 @@
+package de.upb.upcy.update.output;
+
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Sink for update suggestions, written one by one as they are computed.
+ *
+ * @author adann
+ */
+public interface SuggestionWriter extends Closeable {
+
+  void write(UpdateSuggestion updateSuggestion) throws IOException;
+
+  default void writeAll(Collection<UpdateSuggestion> updateSuggestions) throws IOException {
+    for (UpdateSuggestion updateSuggestion : updateSuggestions) {
+      write(updateSuggestion);
+    }
+  }
+
+  /**
+   * Marks the suggestions of the module's update request as completely written, see {@link
+   * ResultLog}
+   */
+  default void commit(String moduleName, String orgGav, String targetGav) throws IOException {}
+
+  /**
+   * @return the update requests of the module committed by an earlier run, whose results this
+   *     writer resumes; these requests are not computed again
+   */
+  default Set<Pair<String, String>> getCommittedRequests(String moduleName) {
+    return Collections.emptySet();
+  }
+
+  /** @return a writer passing each suggestion to all given writers, closing closes all of them */
+  static SuggestionWriter compose(List<? extends SuggestionWriter> writers) {
+    final List<SuggestionWriter> all = new ArrayList<>(writers);
+    return new SuggestionWriter() {
+      @Override
+      public void write(UpdateSuggestion updateSuggestion) throws IOException {
+        for (SuggestionWriter writer : all) {
+          writer.write(updateSuggestion);
+        }
+      }
+
+      @Override
+      public void commit(String moduleName, String orgGav, String targetGav) throws IOException {
+        for (SuggestionWriter writer : all) {
+          writer.commit(moduleName, orgGav, targetGav);
+        }
+      }
+
+      @Override
+      public Set<Pair<String, String>> getCommittedRequests(String moduleName) {
+        Set<Pair<String, String>> requests = new HashSet<>();
+        for (SuggestionWriter writer : all) {
+          requests.addAll(writer.getCommittedRequests(moduleName));
+        }
+        return requests;
+      }
+
+      @Override
+      public void close() throws IOException {
+        IOException exception = null;
+        for (SuggestionWriter writer : all) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            if (exception == null) {
+              exception = e;
+            } else {
+              exception.addSuppressed(e);
+            }
+          }
+        }
+        if (exception != null) {
+          throw exception;
+        }
+      }
+    };
+  }
+}
@@ -8,19 +8,21 @@ import com.opencsv.CSVWriter;
 import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
 import de.upb.upcy.base.build.Utils;
-import de.upb.upcy.base.commons.JavaProcess;
 import de.upb.upcy.base.mvn.MavenInvokerProject;
+import de.upb.upcy.update.ResourceGovernor;
 import de.upb.upcy.update.build.PipelineRunner;
 import de.upb.upcy.update.build.Result;
+import de.upb.upcy.update.recommendation.daemon.SootDaemonClient;
 import java.io.IOException;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.slf4j.Logger;
@@ -36,6 +38,22 @@ public class ComputeRecommendationProcess {
 
   private static boolean RUN_IN_PROCESS = true;
 
+  // compute the modules' call graphs in a shared, long-lived SootAnalysisDaemon
+  private static boolean SOOT_DAEMON = false;
+
+  // number of pre-started worker JVMs running the modules if RUN_IN_PROCESS
+  private static int MODULE_WORKERS = 1;
+
+  // the cores and memory leased for a module's recommendation run, see ResourceGovernor
+  private static int MODULE_CPUS = 1;
+  private static long MODULE_MEMORY_MB = 4096;
+
+  // shared by all projects, created on first use
+  private static ModuleWorkerPool workerPool;
+
+  // Soot's global state allows one run in this process at a time
+  private static final Object IN_PROCESS_LOCK = new Object();
+
   static {
     String timeOut = System.getenv("TIMEOUT");
     if (StringUtils.isNotBlank(timeOut)) {
@@ -53,6 +71,43 @@ public class ComputeRecommendationProcess {
         // nothing
       }
     }
+    String sootDaemon = System.getenv("SOOT_DAEMON");
+    if (StringUtils.isNotBlank(sootDaemon)) {
+      SOOT_DAEMON = Boolean.parseBoolean(sootDaemon);
+    }
+    String moduleWorkers = System.getenv("MODULE_WORKERS");
+    if (StringUtils.isNotBlank(moduleWorkers)) {
+      try {
+        MODULE_WORKERS = Math.max(1, Integer.parseInt(moduleWorkers));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String moduleCpus = System.getenv("MODULE_CPUS");
+    if (StringUtils.isNotBlank(moduleCpus)) {
+      try {
+        MODULE_CPUS = Math.max(0, Integer.parseInt(moduleCpus));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String moduleMemory = System.getenv("MODULE_MEMORY_MB");
+    if (StringUtils.isNotBlank(moduleMemory)) {
+      try {
+        MODULE_MEMORY_MB = Math.max(0, Long.parseLong(moduleMemory));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private static synchronized ModuleWorkerPool getWorkerPool() throws IOException {
+    if (workerPool == null) {
+      workerPool = new ModuleWorkerPool(MODULE_WORKERS, TIMEOUT_IN_SEC);
+      final ModuleWorkerPool pool = workerPool;
+      Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "module-worker-shutdown"));
+    }
+    return workerPool;
   }
 
   public static void handleProject(Path csvFile, Path outputDir)
@@ -61,6 +116,30 @@ public class ComputeRecommendationProcess {
 
     final String projectName = parent.getFileName().toString();
 
+    final Map<String, List<Result>> groupByModuleName = readModuleResults(csvFile);
+
+    LOGGER.info("Running on project: {}", projectName);
+
+    // Checkout the PROJECT
+    final Path checkoutRepoFolder = checkoutProject(parent);
+    if (checkoutRepoFolder == null) {
+      return;
+    }
+    Path projectPom = checkoutRepoFolder.resolve("pom.xml");
+
+    PipelineRunner pipelineRunner = new PipelineRunner(projectName, projectPom);
+    // the project/module names and the associated maveninvokerproject
+    final Map<String, MavenInvokerProject> run = pipelineRunner.run();
+
+    handleModules(csvFile, outputDir, groupByModuleName, run);
+  }
+
+  /**
+   * Parses the update requests of a project's csv file
+   *
+   * @return the requests grouped by module name
+   */
+  public static Map<String, List<Result>> readModuleResults(Path csvFile) throws IOException {
     List<Result> results;
     try (Reader reader = Files.newBufferedReader(csvFile)) {
       CsvToBean<Result> sbc =
@@ -88,36 +167,71 @@ public class ComputeRecommendationProcess {
           }
         });
 
-    final Map<String, List<Result>> groupByModuleName =
-        results.stream().collect(groupingBy(Result::getProjectName));
-
-    LOGGER.info("Running on project: {}", projectName);
+    return results.stream().collect(groupingBy(Result::getProjectName));
+  }
 
-    // Checkout the PROJECT
-    Path commitFile = parent.resolve("COMMIT");
-    if (!Files.exists(commitFile)) {
-      LOGGER.error("Could not find commit file {}", commitFile);
-      return;
+  /**
+   * Checks out the project's repository at the commit given in its COMMIT file, the repository is
+   * derived from the folder name {@code <owner>_<repo>}
+   *
+   * @param projectFolder the folder containing the project's csv and COMMIT files
+   * @return the checked out repository, or null if the folder does not describe a repository
+   */
+  public static Path checkoutProject(Path projectFolder) throws IOException, GitAPIException {
+    final String commit = readCommit(projectFolder);
+    if (commit == null) {
+      return null;
     }
-    final String[] s = parent.getFileName().toString().split("_");
+    final String[] s = projectFolder.getFileName().toString().split("_");
     if (s.length < 2) {
-      LOGGER.error("could not find repo name for {}", parent.getFileName());
-      return;
+      LOGGER.error("could not find repo name for {}", projectFolder.getFileName());
+      return null;
     }
     String repoUrl =
         String.format(
             "https://github.com/%s/%s.git",
             s[0], String.join("_", Arrays.asList(s).subList(1, s.length)));
-    String commit = Files.lines(commitFile).findFirst().orElse("").trim();
 
     // run the build pipeline on the projects (for generating the call graph)
-    final Path checkoutRepoFolder = Utils.checkOutRepo(repoUrl, commit);
-    Path projectPom = checkoutRepoFolder.resolve("pom.xml");
+    return Utils.checkOutRepo(repoUrl, commit);
+  }
 
-    PipelineRunner pipelineRunner = new PipelineRunner(projectName, projectPom);
-    // the project/module names and the associated maveninvokerproject
-    final Map<String, MavenInvokerProject> run = pipelineRunner.run();
+  /** @return the commit of the project's COMMIT file, or null if it is missing */
+  public static String readCommit(Path projectFolder) throws IOException {
+    Path commitFile = projectFolder.resolve("COMMIT");
+    if (!Files.exists(commitFile)) {
+      LOGGER.error("Could not find commit file {}", commitFile);
+      return null;
+    }
+    try (Stream<String> lines = Files.lines(commitFile)) {
+      return lines.findFirst().orElse("").trim();
+    }
+  }
+
+  /**
+   * Computes the update suggestions of the given modules of a built project
+   *
+   * @param csvFile the project's csv file
+   * @param outputDir the folder for the modules' result files
+   * @param groupByModuleName the update requests per module, may be a subset of the csv file's
+   * @param run the built modules
+   */
+  public static void handleModules(
+      Path csvFile,
+      Path outputDir,
+      Map<String, List<Result>> groupByModuleName,
+      Map<String, MavenInvokerProject> run) {
+    try (SootDaemonClient sootDaemonClient = SOOT_DAEMON ? new SootDaemonClient() : null) {
+      handleModules(csvFile, outputDir, groupByModuleName, run, sootDaemonClient);
+    }
+  }
 
+  private static void handleModules(
+      Path csvFile,
+      Path outputDir,
+      Map<String, List<Result>> groupByModuleName,
+      Map<String, MavenInvokerProject> run,
+      SootDaemonClient sootDaemonClient) {
     for (Map.Entry<String, List<Result>> module : groupByModuleName.entrySet()) {
 
       try {
@@ -131,28 +245,44 @@ public class ComputeRecommendationProcess {
         inputParameter.setModuleName(module.getKey());
         inputParameter.setMavenInvokerProject(run.get(module.getKey()));
         inputParameter.setResultFile(resFile.toAbsolutePath().toString());
+        if (sootDaemonClient != null) {
+          try {
+            inputParameter.setSootDaemonPort(sootDaemonClient.ensureRunning());
+          } catch (IOException e) {
+            LOGGER.error("Failed to start Soot daemon, computing call graph in module process", e);
+          }
+        }
 
-        // run the process and maybe kill it
-        String json = OBJECT_MAPPER.writeValueAsString(inputParameter);
-        if (RUN_IN_PROCESS) {
-          System.out.println(
-              "Start RecommendationModuleProcess in OWN process for: " + module.getKey());
-          final int retVal =
-              JavaProcess.exec(
-                  RecommendationModuleProcess.class,
-                  Collections.emptyList(),
-                  Collections.singletonList(json),
-                  TIMEOUT_IN_SEC);
-          System.out.println("Done RecommendationModuleProcess with return value: " + retVal);
-        } else {
-          System.out.println(
-              "Start RecommendationModuleProcess in SAME process for: " + module.getKey());
-          String[] args = new String[1];
-          args[0] = json;
-          RecommendationModuleProcess.main(args);
+        // concurrent jobs of the host share its cores and memory
+        try (ResourceGovernor.Lease lease =
+            ResourceGovernor.getInstance()
+                .acquire("Module " + module.getKey(), MODULE_CPUS, MODULE_MEMORY_MB)) {
+          // run the module in a worker JVM and maybe kill it
+          if (RUN_IN_PROCESS) {
+            System.out.println(
+                "Start RecommendationModuleProcess in worker process for: " + module.getKey());
+            // the worker appends the results to the module's result files itself
+            final long nrOfSuggestions = getWorkerPool().run(inputParameter);
+            System.out.println(
+                "Done RecommendationModuleProcess with #" + nrOfSuggestions + " results");
+          } else {
+            System.out.println(
+                "Start RecommendationModuleProcess in SAME process for: " + module.getKey());
+            String[] args = new String[1];
+            args[0] = OBJECT_MAPPER.writeValueAsString(inputParameter);
+            synchronized (IN_PROCESS_LOCK) {
+              RecommendationModuleProcess.main(args);
+            }
+          }
         }
+      } catch (TimeoutException e) {
+        LOGGER.error(
+            "Timout for module, its results so far are resumed by the next run: {}",
+            module.getKey());
       } catch (InterruptedException e) {
-        LOGGER.error("Timout for module");
+        Thread.currentThread().interrupt();
+        LOGGER.error("Interrupted while waiting for module");
+        return;
       } catch (JsonProcessingException e) {
         LOGGER.error("Jackson exception for module", e);
       } catch (IOException exception) {
@@ -0,0 +1,173 @@
+package de.upb.upcy.update.process;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.upb.upcy.update.recommendation.CGBuilder;
+import de.upb.upcy.update.recommendation.exception.SootStateCorruptedException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Worker JVM of the {@link ModuleWorkerPool}, computing the update suggestions of one module per
+ * job. Like the Soot daemon, the worker only listens on the loopback interface and saves the JVM
+ * startup, class loading and JIT warm-up of a fresh process per module. The worker appends the
+ * results to the module's result files itself, as they are computed, and only returns their
+ * number.
+ *
+ * <p>The worker exits after MODULE_WORKER_MAX_JOBS jobs, if the used heap exceeds
+ * MODULE_WORKER_MAX_HEAP_RATIO after a job, or if it is idle for MODULE_WORKER_IDLE_SECONDS; it
+ * announces this in its last response.
+ *
+ * @author adann
+ */
+public class ModuleWorker {
+
+  static final String PORT_PREFIX = "MODULE_WORKER_PORT=";
+  static final int PROTOCOL_VERSION = 2;
+  static final byte RUN_MODULE = 1;
+  static final byte SHUTDOWN = 2;
+  static final byte STATUS_OK = 0;
+  static final byte STATUS_ERROR = 1;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ModuleWorker.class);
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static int MAX_JOBS = 20;
+  private static double MAX_HEAP_RATIO = 0.75;
+  private static int IDLE_TIMEOUT_IN_SEC = 3600;
+
+  static {
+    String maxJobs = System.getenv("MODULE_WORKER_MAX_JOBS");
+    if (StringUtils.isNotBlank(maxJobs)) {
+      try {
+        MAX_JOBS = Integer.parseInt(maxJobs);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String maxHeapRatio = System.getenv("MODULE_WORKER_MAX_HEAP_RATIO");
+    if (StringUtils.isNotBlank(maxHeapRatio)) {
+      try {
+        MAX_HEAP_RATIO = Double.parseDouble(maxHeapRatio);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String idleTimeout = System.getenv("MODULE_WORKER_IDLE_SECONDS");
+    if (StringUtils.isNotBlank(idleTimeout)) {
+      try {
+        IDLE_TIMEOUT_IN_SEC = Integer.parseInt(idleTimeout);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverSocket.setSoTimeout(Math.max(0, IDLE_TIMEOUT_IN_SEC) * 1000);
+      // the pool reads the port from the first line of stdout
+      System.out.println(PORT_PREFIX + serverSocket.getLocalPort());
+      System.out.flush();
+
+      int handledJobs = 0;
+      boolean exit = false;
+      while (!exit) {
+        try (Socket socket = serverSocket.accept()) {
+          DataInputStream in =
+              new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+          DataOutputStream out =
+              new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+          final int protocolVersion = in.readInt();
+          final byte command = in.readByte();
+          if (protocolVersion != PROTOCOL_VERSION || command != RUN_MODULE) {
+            if (protocolVersion == PROTOCOL_VERSION && command == SHUTDOWN) {
+              LOGGER.info("Shutdown requested");
+              out.writeByte(STATUS_OK);
+              out.flush();
+              break;
+            }
+            writeResponse(out, STATUS_ERROR, "Unsupported request", false);
+            continue;
+          }
+          final String inputJson = readString(in);
+          byte status = STATUS_OK;
+          String payload;
+          try {
+            final RecommendationModuleProcess.InputParameter inputParameter =
+                OBJECT_MAPPER.readValue(
+                    inputJson, RecommendationModuleProcess.InputParameter.class);
+            payload = Long.toString(RecommendationModuleProcess.run(inputParameter));
+          } catch (Throwable e) {
+            LOGGER.error("Failed to run module job", e);
+            status = STATUS_ERROR;
+            payload = e.toString();
+            // after an error, e.g., an OutOfMemoryError, or with a leaked Soot thread the state of
+            // this JVM would corrupt the next jobs, thus let the pool replace us
+            exit = !(e instanceof Exception) || e instanceof SootStateCorruptedException;
+          }
+          handledJobs++;
+          // a Soot analysis thread that did not stop after its timeout, the module's call graph
+          // has been marked partial
+          exit = exit || CGBuilder.isSootStateCorrupted();
+          if (exit) {
+            LOGGER.info("The state of the worker is corrupted, recycling");
+          } else if (MAX_JOBS > 0 && handledJobs >= MAX_JOBS) {
+            LOGGER.info("Handled {} jobs, recycling", handledJobs);
+            exit = true;
+          } else if (isUnderMemoryPressure()) {
+            LOGGER.info("Under memory pressure, recycling");
+            exit = true;
+          }
+          writeResponse(out, status, payload, exit);
+        } catch (SocketTimeoutException e) {
+          LOGGER.info("Idle for {}s, shutting down", IDLE_TIMEOUT_IN_SEC);
+          break;
+        } catch (IOException e) {
+          LOGGER.error("Failed to handle request", e);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Failed to open worker socket", e);
+    }
+    System.exit(0);
+  }
+
+  private static boolean isUnderMemoryPressure() {
+    final Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    final long used = runtime.totalMemory() - runtime.freeMemory();
+    return used > MAX_HEAP_RATIO * runtime.maxMemory();
+  }
+
+  private static void writeResponse(
+      DataOutputStream out, byte status, String payload, boolean exiting) throws IOException {
+    out.writeByte(status);
+    writeString(out, StringUtils.defaultString(payload));
+    out.writeBoolean(exiting);
+    out.flush();
+  }
+
+  // the job and result JSON may exceed the 64k of writeUTF
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,266 @@
+package de.upb.upcy.update.process;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of pre-started {@link ModuleWorker} JVMs. A job is sent to an idle worker over a loopback
+ * socket; a worker that exceeds the job timeout is killed and replaced, as is a worker that
+ * announced to recycle itself.
+ *
+ * @author adann
+ */
+public class ModuleWorkerPool implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ModuleWorkerPool.class);
+
+  private static final long SHUTDOWN_WAIT_IN_SEC = 10;
+
+  // additional JVM arguments for the workers, e.g., -Xmx
+  private static List<String> JVM_ARGS = new ArrayList<>();
+
+  static {
+    String jvmArgs = System.getenv("MODULE_WORKER_JVM_ARGS");
+    if (StringUtils.isNotBlank(jvmArgs)) {
+      JVM_ARGS = Arrays.asList(StringUtils.split(jvmArgs));
+    }
+  }
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  // the slot of a worker that failed to start, it is started again on its next job
+  private static final Worker VACANT = new Worker(null, -1);
+
+  private final long jobTimeoutInSec;
+  private final BlockingQueue<Worker> idleWorkers;
+  private final List<Worker> workers = new ArrayList<>();
+  private boolean closed = false;
+
+  /**
+   * @param size the number of worker JVMs
+   * @param jobTimeoutInSec the timeout per job, a value <= 0 disables the timeout
+   */
+  public ModuleWorkerPool(int size, long jobTimeoutInSec) throws IOException {
+    this.jobTimeoutInSec = jobTimeoutInSec;
+    this.idleWorkers = new LinkedBlockingQueue<>();
+    try {
+      for (int i = 0; i < size; i++) {
+        idleWorkers.add(startWorker());
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Runs the module job on an idle worker, waiting for one if necessary
+   *
+   * @param inputParameter the module job
+   * @return the number of update suggestions, the worker writes them to the module's result files
+   * @throws TimeoutException if the job exceeded the timeout, the worker is killed; the results
+   *     computed so far are kept in the module's result log
+   * @throws IOException if the job failed or the worker died
+   */
+  public long run(RecommendationModuleProcess.InputParameter inputParameter)
+      throws IOException, TimeoutException, InterruptedException {
+    final String inputJson = OBJECT_MAPPER.writeValueAsString(inputParameter);
+    Worker worker = idleWorkers.take();
+    try {
+      if (worker == VACANT || !worker.process.isAlive()) {
+        if (worker != VACANT) {
+          LOGGER.info("Module worker exited with {}, restarting", worker.process.exitValue());
+        }
+        worker = replace(worker);
+        if (worker == VACANT) {
+          throw new IOException("Failed to start a module worker");
+        }
+      }
+      final byte status;
+      final String payload;
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), worker.port)) {
+        // a timeout of 0 waits forever
+        socket.setSoTimeout(
+            (int) Math.min(Integer.MAX_VALUE, Math.max(0, jobTimeoutInSec) * 1000));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(ModuleWorker.PROTOCOL_VERSION);
+        out.writeByte(ModuleWorker.RUN_MODULE);
+        ModuleWorker.writeString(out, inputJson);
+        out.flush();
+
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        status = in.readByte();
+        payload = ModuleWorker.readString(in);
+        if (in.readBoolean()) {
+          // the worker recycles itself
+          worker = replace(worker);
+        }
+      } catch (SocketTimeoutException e) {
+        LOGGER.error("Module job exceeded {}s, killing worker", jobTimeoutInSec);
+        worker = replace(worker);
+        throw new TimeoutException("Module job exceeded " + jobTimeoutInSec + "s");
+      } catch (IOException e) {
+        // the worker died, or its state of the protocol is unknown
+        worker = replace(worker);
+        throw e;
+      }
+      if (status != ModuleWorker.STATUS_OK) {
+        throw new IOException("Module job failed: " + payload);
+      }
+      try {
+        return Long.parseLong(payload);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid module job result: " + payload, e);
+      }
+    } finally {
+      idleWorkers.add(worker);
+    }
+  }
+
+  /**
+   * Kills the worker and starts a new one
+   *
+   * @return the new worker, or {@link #VACANT} if it failed to start, thus a dead worker is never
+   *     handed out again
+   */
+  private Worker replace(Worker worker) {
+    if (worker != VACANT) {
+      worker.destroy();
+      synchronized (this) {
+        workers.remove(worker);
+      }
+    }
+    try {
+      return startWorker();
+    } catch (IOException e) {
+      LOGGER.error("Failed to start module worker", e);
+      return VACANT;
+    }
+  }
+
+  private Worker startWorker() throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(JVM_ARGS);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ModuleWorker.class.getName());
+
+    final Process process =
+        new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    int port = -1;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(ModuleWorker.PORT_PREFIX)) {
+        port = Integer.parseInt(line.substring(ModuleWorker.PORT_PREFIX.length()).trim());
+        break;
+      }
+      System.out.println(line);
+    }
+    if (port < 0) {
+      process.destroyForcibly();
+      throw new IOException("Module worker did not report its port");
+    }
+    // forward the worker's log output
+    Thread drain =
+        new Thread(
+            () -> {
+              try {
+                String l;
+                while ((l = reader.readLine()) != null) {
+                  System.out.println(l);
+                }
+              } catch (IOException e) {
+                // worker exited
+              }
+            },
+            "module-worker-output");
+    drain.setDaemon(true);
+    drain.start();
+    LOGGER.info("Started module worker on port {}", port);
+
+    final Worker worker = new Worker(process, port);
+    synchronized (this) {
+      if (closed) {
+        worker.destroy();
+        throw new IOException("Module worker pool is closed");
+      }
+      workers.add(worker);
+    }
+    return worker;
+  }
+
+  @Override
+  public void close() {
+    final List<Worker> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(workers);
+      workers.clear();
+    }
+    for (Worker worker : toClose) {
+      worker.shutdown();
+    }
+  }
+
+  private static class Worker {
+    private final Process process;
+    private final int port;
+
+    Worker(Process process, int port) {
+      this.process = process;
+      this.port = port;
+    }
+
+    void destroy() {
+      process.destroyForcibly();
+    }
+
+    void shutdown() {
+      if (!process.isAlive()) {
+        return;
+      }
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeInt(ModuleWorker.PROTOCOL_VERSION);
+        out.writeByte(ModuleWorker.SHUTDOWN);
+        out.flush();
+        socket.getInputStream().read();
+        if (!process.waitFor(SHUTDOWN_WAIT_IN_SEC, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (IOException e) {
+        process.destroyForcibly();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        process.destroyForcibly();
+      }
+    }
+  }
+}
@@ -1,16 +1,11 @@
 package de.upb.upcy.update.process;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
 import de.upb.upcy.base.mvn.MavenInvokerProject;
 import de.upb.upcy.update.MainComputeUpdateSuggestion;
 import de.upb.upcy.update.build.Result;
-import de.upb.upcy.update.recommendation.UpdateSuggestion;
-import java.io.FileWriter;
+import de.upb.upcy.update.output.ResultFiles;
+import de.upb.upcy.update.output.SuggestionWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -30,31 +25,40 @@ class RecommendationModuleProcess {
     try {
       final InputParameter inputParameter =
           objectMapper.readValue(jsonString, InputParameter.class);
+      run(inputParameter);
+    } catch (IOException e) {
+      LOGGER.error("Failed to write csv file with: ", e);
+    }
+  }
 
-      final List<UpdateSuggestion> updateSuggestions =
+  /**
+   * Computes the module's update suggestions and writes them in a separate file --- the violations
+   * only reference method ids of the module's own method table, which is not shared across
+   * modules. The results are appended to the module's log as computed, such that a timeout does
+   * not lose them; the log of an interrupted run is resumed.
+   *
+   * @return the number of written suggestions
+   */
+  static long run(InputParameter inputParameter) throws IOException {
+    final Path outputDir = Paths.get(inputParameter.getOutputDir());
+    final Path resultsBaseFile =
+        outputDir.resolve(inputParameter.getModuleName() + "_recommendation_results");
+    final long nrOfSuggestions;
+    try (SuggestionWriter writer = ResultFiles.resume(resultsBaseFile)) {
+      nrOfSuggestions =
           MainComputeUpdateSuggestion.runOnModule(
               inputParameter.getMavenInvokerProject(),
-              inputParameter.getCsvFile(),
-              inputParameter.getOutputDir(),
+              Paths.get(inputParameter.getCsvFile()),
+              outputDir,
               inputParameter.getModuleName(),
-              inputParameter.getResults());
-      // write modules in separate files --- since we cannot serialize them into one (soot method
-      // is not serializable with json)
-      Path outputCsvFile =
-          Paths.get(inputParameter.getOutputDir())
-              .resolve(inputParameter.getModuleName() + "_recommendation_results.csv");
-      CSVWriter writer = new CSVWriter(new FileWriter(outputCsvFile.toFile()));
-      StatefulBeanToCsv<UpdateSuggestion> sbc =
-          new StatefulBeanToCsvBuilder<UpdateSuggestion>(writer)
-              .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-              .build();
-      sbc.write(updateSuggestions);
-      writer.close();
-      LOGGER.info("Wrote results to file: {}", outputCsvFile.getFileName().toString());
-
-    } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException | IOException e) {
-      LOGGER.error("Failed to write csv file with: ", e);
+              inputParameter.getResults(),
+              inputParameter.getSootDaemonPort(),
+              writer);
     }
+    ResultFiles.finish(resultsBaseFile);
+    LOGGER.info(
+        "Wrote results to file: {}", ResultFiles.getCsvFile(resultsBaseFile).getFileName());
+    return nrOfSuggestions;
   }
 
   @Data
@@ -65,5 +69,6 @@ class RecommendationModuleProcess {
     private String moduleName;
     private List<Result> results;
     private String resultFile;
+    private int sootDaemonPort = -1;
   }
 }
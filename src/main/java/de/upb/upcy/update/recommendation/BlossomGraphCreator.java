@@ -2,22 +2,26 @@ package de.upb.upcy.update.recommendation;
 
 import de.upb.upcy.base.graph.GraphModel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.jgrapht.Graph;
-import org.jgrapht.graph.AbstractBaseGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Class for creating and expanding blossoms in the dependency graph
+ * Class for creating and expanding blossoms in the dependency graph. The blossom graph is the
+ * quotient graph of the dependency graph, built in a single pass over its edges. Which groupIds
+ * form a blossom is decided by {@link BlossomGroupingRule}s, whose keys are merged with a
+ * union-find.
  *
  * @author adann
  */
@@ -25,108 +29,230 @@ public class BlossomGraphCreator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BlossomGraphCreator.class);
 
+  private static final List<BlossomGroupingRule> DEFAULT_GROUPING_RULES = new ArrayList<>();
+
+  static {
+    // special case for springframework
+    DEFAULT_GROUPING_RULES.add(BlossomGroupingRule.prefix("org.springframework"));
+    // further prefixes, e.g., com.fasterxml.jackson,io.netty
+    String groupPrefixes = System.getenv("BLOSSOM_GROUP_PREFIXES");
+    if (StringUtils.isNotBlank(groupPrefixes)) {
+      for (String prefix : StringUtils.split(groupPrefixes, ',')) {
+        if (StringUtils.isNotBlank(prefix)) {
+          DEFAULT_GROUPING_RULES.add(BlossomGroupingRule.prefix(prefix.trim()));
+        }
+      }
+    }
+  }
+
   private final Graph<GraphModel.Artifact, GraphModel.Dependency> depGraph;
   private final GraphModel.Artifact rootNode;
+  private final List<BlossomGroupingRule> groupingRules;
 
-  private final Map<GraphModel.Artifact, GraphModel.Artifact> nodeToBlossom;
-  private final Map<GraphModel.Artifact, List<GraphModel.Artifact>> blossomToNode;
+  // union-find over the groupIds of the dependency graph and the keys of the grouping rules
+  private final Map<String, Integer> groupKeyIds = new HashMap<>();
+  private final List<String> groupKeys = new ArrayList<>();
+  private int[] groupParent = new int[16];
+  private String[] groupRepresentative;
+
+  // the artifacts of the dependency graph and the index of their blossom, or -1
+  private final Map<GraphModel.Artifact, Integer> nodeIds = new HashMap<>();
+  private int[] nodeToBlossom = new int[0];
+  // the blossom nodes, the members of blossom b are in blossomMembers[blossomOffsets[b] ..
+  // blossomOffsets[b + 1])
+  private final Map<GraphModel.Artifact, Integer> blossomIds = new HashMap<>();
+  private GraphModel.Artifact[] blossomNodes = new GraphModel.Artifact[0];
+  private int[] blossomOffsets = new int[1];
+  private GraphModel.Artifact[] blossomMembers = new GraphModel.Artifact[0];
 
   public BlossomGraphCreator(
       Graph<GraphModel.Artifact, GraphModel.Dependency> depGraph, GraphModel.Artifact rootNode) {
+    this(depGraph, rootNode, DEFAULT_GROUPING_RULES);
+  }
+
+  public BlossomGraphCreator(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> depGraph,
+      GraphModel.Artifact rootNode,
+      List<BlossomGroupingRule> groupingRules) {
     this.depGraph = depGraph;
     this.rootNode = rootNode;
-    nodeToBlossom = new HashMap<>();
-    blossomToNode = new HashMap<>();
+    this.groupingRules = new ArrayList<>(groupingRules);
+    indexGroups();
   }
 
-  private static String getClearedGroupId(String nodeGroupId) {
-    // special case for springframework
-    if (StringUtils.startsWith(nodeGroupId, "org.springframework")) {
-      return "org.springframework";
+  private void indexGroups() {
+    for (GraphModel.Artifact artifact : depGraph.vertexSet()) {
+      final String groupId = artifact.getGroupId();
+      if (groupId == null || groupKeyIds.containsKey(groupId)) {
+        continue;
+      }
+      final int groupIdId = internGroupKey(groupId);
+      for (BlossomGroupingRule rule : groupingRules) {
+        final String key = rule.getGroupKey(groupId);
+        if (key != null) {
+          union(groupIdId, internGroupKey(key));
+        }
+      }
+    }
+    // the shortest key names the blossom, e.g., org.springframework
+    groupRepresentative = new String[groupKeys.size()];
+    for (int id = 0; id < groupKeys.size(); id++) {
+      final int root = find(id);
+      final String current = groupRepresentative[root];
+      final String candidate = groupKeys.get(id);
+      if (current == null
+          || candidate.length() < current.length()
+          || (candidate.length() == current.length() && candidate.compareTo(current) < 0)) {
+        groupRepresentative[root] = candidate;
+      }
     }
-    return nodeGroupId;
   }
 
-  private Map<String, List<GraphModel.Artifact>> getBlossomNodes(
-      Graph<GraphModel.Artifact, GraphModel.Dependency> depGraph, GraphModel.Artifact rootNode) {
-    // compute blossoms
-    final Map<String, List<GraphModel.Artifact>> blossomNodes =
-        depGraph.vertexSet()
-            .stream() // ignore the groupId of the project that is analyzed, e.g., multi module
-            // projects
-            .filter(x -> !StringUtils.equals(x.getGroupId(), rootNode.getGroupId()))
-            .collect(Collectors.groupingBy(x -> getClearedGroupId(x.getGroupId())));
-
-    // remove blossoms that only contain one node
-    for (Iterator<Map.Entry<String, List<GraphModel.Artifact>>> iter =
-            blossomNodes.entrySet().iterator();
-        iter.hasNext(); ) {
-      Map.Entry<String, List<GraphModel.Artifact>> curr = iter.next();
-      if (curr.getValue() == null || curr.getValue().size() < 2) {
-        iter.remove();
+  private int internGroupKey(String key) {
+    Integer id = groupKeyIds.get(key);
+    if (id == null) {
+      id = groupKeys.size();
+      groupKeyIds.put(key, id);
+      groupKeys.add(key);
+      if (id >= groupParent.length) {
+        groupParent = Arrays.copyOf(groupParent, groupParent.length * 2);
       }
+      groupParent[id] = id;
+    }
+    return id;
+  }
+
+  private int find(int id) {
+    while (groupParent[id] != id) {
+      // path halving
+      groupParent[id] = groupParent[groupParent[id]];
+      id = groupParent[id];
     }
-    return blossomNodes;
+    return id;
+  }
+
+  private void union(int first, int second) {
+    final int firstRoot = find(first);
+    final int secondRoot = find(second);
+    if (firstRoot != secondRoot) {
+      groupParent[secondRoot] = firstRoot;
+    }
+  }
+
+  private String getClearedGroupId(String nodeGroupId) {
+    if (nodeGroupId == null) {
+      return null;
+    }
+    Integer id = groupKeyIds.get(nodeGroupId);
+    String firstKey = null;
+    for (int i = 0; id == null && i < groupingRules.size(); i++) {
+      final String key = groupingRules.get(i).getGroupKey(nodeGroupId);
+      if (key != null) {
+        id = groupKeyIds.get(key);
+        if (firstKey == null) {
+          firstKey = key;
+        }
+      }
+    }
+    if (id == null) {
+      // groupId unknown to the dependency graph
+      return firstKey != null ? firstKey : nodeGroupId;
+    }
+    return groupRepresentative[find(id)];
   }
 
   public Graph<GraphModel.Artifact, GraphModel.Dependency> buildBlossomDepGraph() {
-    // create blossom-Graph for min-cut computation
-    @SuppressWarnings("unchecked")
-    final Graph<GraphModel.Artifact, GraphModel.Dependency> blossemedDepGraph =
-        (Graph<GraphModel.Artifact, GraphModel.Dependency>) ((AbstractBaseGraph) depGraph).clone();
+    // assign each artifact to its group, ignore the groupId of the project that is analyzed, e.g.,
+    // multi module projects
+    final int nrOfNodes = depGraph.vertexSet().size();
+    final GraphModel.Artifact[] nodes = new GraphModel.Artifact[nrOfNodes];
+    final int[] nodeGroup = new int[nrOfNodes];
+    final int[] groupSize = new int[groupKeys.size()];
+    for (GraphModel.Artifact artifact : depGraph.vertexSet()) {
+      final int nodeId = nodeIds.size();
+      nodeIds.put(artifact, nodeId);
+      nodes[nodeId] = artifact;
+      final String groupId = artifact.getGroupId();
+      if (groupId == null || StringUtils.equals(groupId, rootNode.getGroupId())) {
+        nodeGroup[nodeId] = -1;
+      } else {
+        nodeGroup[nodeId] = find(groupKeyIds.get(groupId));
+        groupSize[nodeGroup[nodeId]]++;
+      }
+    }
 
-    // compute the blossom nodes
-    final Map<String, List<GraphModel.Artifact>> groupBlossom =
-        getBlossomNodes(blossemedDepGraph, rootNode);
+    // create the blossom nodes for the groups with at least two nodes, in order of their first
+    // member
+    final int[] groupToBlossom = new int[groupKeys.size()];
+    Arrays.fill(groupToBlossom, -1);
+    nodeToBlossom = new int[nrOfNodes];
+    List<Integer> blossomSizes = new ArrayList<>();
+    for (int node = 0; node < nrOfNodes; node++) {
+      final int group = nodeGroup[node];
+      if (group < 0 || groupSize[group] < 2) {
+        nodeToBlossom[node] = -1;
+        continue;
+      }
+      if (groupToBlossom[group] < 0) {
+        groupToBlossom[group] = blossomSizes.size();
+        blossomSizes.add(groupSize[group]);
+      }
+      nodeToBlossom[node] = groupToBlossom[group];
+    }
+    final int nrOfBlossoms = blossomSizes.size();
+    blossomOffsets = new int[nrOfBlossoms + 1];
+    for (int b = 0; b < nrOfBlossoms; b++) {
+      blossomOffsets[b + 1] = blossomOffsets[b] + blossomSizes.get(b);
+    }
+    blossomMembers = new GraphModel.Artifact[blossomOffsets[nrOfBlossoms]];
+    final int[] next = Arrays.copyOf(blossomOffsets, nrOfBlossoms);
+    for (int node = 0; node < nrOfNodes; node++) {
+      if (nodeToBlossom[node] >= 0) {
+        blossomMembers[next[nodeToBlossom[node]]++] = nodes[node];
+      }
+    }
 
-    // create the blossom nodes
-    List<GraphModel.Artifact> artsToRemove = new ArrayList<>();
-    for (Map.Entry<String, List<GraphModel.Artifact>> entry : groupBlossom.entrySet()) {
-      // create the blossom node and
+    final Graph<GraphModel.Artifact, GraphModel.Dependency> blossemedDepGraph =
+        new DefaultDirectedGraph<>(
+            depGraph.getVertexSupplier(),
+            depGraph.getEdgeSupplier(),
+            depGraph.getType().isWeighted());
+    for (int node = 0; node < nrOfNodes; node++) {
+      if (nodeToBlossom[node] < 0) {
+        blossemedDepGraph.addVertex(nodes[node]);
+      }
+    }
+    blossomNodes = new GraphModel.Artifact[nrOfBlossoms];
+    for (int b = 0; b < nrOfBlossoms; b++) {
+      final GraphModel.Artifact firstMember = blossomMembers[blossomOffsets[b]];
       GraphModel.Artifact blossomNode = new GraphModel.Artifact();
-      blossomNode.setGroupId(entry.getKey());
+      blossomNode.setGroupId(getClearedGroupId(firstMember.getGroupId()));
       blossomNode.setArtifactId("blossomNode");
-      blossomNode.setVersion(entry.getValue().get(0).getVersion());
+      blossomNode.setVersion(firstMember.getVersion());
       blossomNode.setId(UUID.randomUUID().toString());
 
-      final Set<String> collect =
-          entry.getValue().stream()
-              .map(GraphModel.Artifact::getScopes)
-              .flatMap(List::stream)
-              .collect(Collectors.toSet());
-      blossomNode.setScopes(new ArrayList<>(collect));
+      Set<String> scopes = new LinkedHashSet<>();
+      for (int i = blossomOffsets[b]; i < blossomOffsets[b + 1]; i++) {
+        scopes.addAll(blossomMembers[i].getScopes());
+      }
+      blossomNode.setScopes(new ArrayList<>(scopes));
       blossemedDepGraph.addVertex(blossomNode);
+      blossomNodes[b] = blossomNode;
+      blossomIds.put(blossomNode, b);
+    }
 
-      for (GraphModel.Artifact artifact : entry.getValue()) {
-
-        // initialize the hashmaps for expand operation
-        nodeToBlossom.put(artifact, blossomNode);
-        final List<GraphModel.Artifact> artifacts =
-            blossomToNode.computeIfAbsent(blossomNode, (k) -> new ArrayList<>());
-        artifacts.add(artifact);
-
-        // redirect the edges
-        final Set<GraphModel.Dependency> dependencies = blossemedDepGraph.edgesOf(artifact);
-        for (GraphModel.Dependency depEdge : dependencies) {
-          GraphModel.Artifact edgeSource = blossemedDepGraph.getEdgeSource(depEdge);
-          GraphModel.Artifact edgeTarget = blossemedDepGraph.getEdgeTarget(depEdge);
-          // redirect the edges
-          if (edgeTarget == artifact) {
-            edgeTarget = blossomNode;
-          }
-          if (edgeSource == artifact) {
-            edgeSource = blossomNode;
-          }
-          // rm the old edge
-          blossemedDepGraph.removeEdge(depEdge);
-          artsToRemove.add(artifact);
-          blossemedDepGraph.addEdge(edgeSource, edgeTarget, depEdge);
-        }
+    // redirect the edges to the blossom nodes
+    for (GraphModel.Dependency depEdge : depGraph.edgeSet()) {
+      final GraphModel.Artifact edgeSource =
+          toQuotientNode(depGraph.getEdgeSource(depEdge), nodes);
+      final GraphModel.Artifact edgeTarget =
+          toQuotientNode(depGraph.getEdgeTarget(depEdge), nodes);
+      blossemedDepGraph.addEdge(edgeSource, edgeTarget, depEdge);
+      if (depGraph.getType().isWeighted()) {
+        blossemedDepGraph.setEdgeWeight(depEdge, depGraph.getEdgeWeight(depEdge));
       }
     }
 
-    artsToRemove.forEach(blossemedDepGraph::removeVertex);
-
     LOGGER.info(
         "Created blossom graph with v:{} and e:{} ",
         blossemedDepGraph.vertexSet().size(),
@@ -135,6 +261,12 @@ public class BlossomGraphCreator {
     return blossemedDepGraph;
   }
 
+  private GraphModel.Artifact toQuotientNode(
+      GraphModel.Artifact artifact, GraphModel.Artifact[] nodes) {
+    final int blossom = nodeToBlossom[nodeIds.get(artifact)];
+    return blossom < 0 ? nodes[nodeIds.get(artifact)] : blossomNodes[blossom];
+  }
+
   /**
    * Returns the expanded blossom nodes or null if it is not a blossom
    *
@@ -142,8 +274,12 @@ public class BlossomGraphCreator {
    * @return the expanded blossom or null
    */
   public Collection<GraphModel.Artifact> expandBlossomNode(GraphModel.Artifact blossom) {
-
-    return blossomToNode.get(blossom);
+    final Integer b = blossomIds.get(blossom);
+    if (b == null) {
+      return null;
+    }
+    return Collections.unmodifiableList(
+        Arrays.asList(blossomMembers).subList(blossomOffsets[b], blossomOffsets[b + 1]));
   }
 
   /**
@@ -153,8 +289,11 @@ public class BlossomGraphCreator {
    * @return the blossom node or null
    */
   public GraphModel.Artifact getBlossomNode(GraphModel.Artifact artifact) {
-
-    return nodeToBlossom.get(artifact);
+    final Integer nodeId = nodeIds.get(artifact);
+    if (nodeId == null || nodeToBlossom[nodeId] < 0) {
+      return null;
+    }
+    return blossomNodes[nodeToBlossom[nodeId]];
   }
 
   public boolean isBlossomNode(GraphModel.Artifact oneNode, GraphModel.Artifact secNode) {
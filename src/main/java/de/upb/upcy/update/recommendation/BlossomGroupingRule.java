@@ -0,0 +1,27 @@
+package de.upb.upcy.update.recommendation;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Rule deciding which groupIds are contracted into one blossom node. All groupIds mapped to the
+ * same key, directly or transitively via several rules, end up in the same blossom.
+ *
+ * @author adann
+ */
+@FunctionalInterface
+public interface BlossomGroupingRule {
+
+  /**
+   * @param groupId the groupId of an artifact
+   * @return the key of the blossom the groupId belongs to, or null if the rule does not apply
+   */
+  String getGroupKey(String groupId);
+
+  /**
+   * Groups all groupIds starting with the given prefix, e.g., org.springframework.boot and
+   * org.springframework.security into org.springframework
+   */
+  static BlossomGroupingRule prefix(String prefix) {
+    return groupId -> StringUtils.startsWith(groupId, prefix) ? prefix : null;
+  }
+}
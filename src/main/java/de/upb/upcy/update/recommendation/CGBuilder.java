@@ -1,24 +1,35 @@
 package de.upb.upcy.update.recommendation;
 
 import com.google.common.base.Stopwatch;
+import de.upb.upcy.update.recommendation.exception.SootStateCorruptedException;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import soot.G;
-import soot.MethodOrMethodContext;
 import soot.PackManager;
 import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.SourceLocator;
+import soot.Type;
 import soot.jimple.toolkits.callgraph.CallGraph;
-import soot.jimple.toolkits.callgraph.Edge;
 import soot.options.Options;
 
 /**
@@ -30,12 +41,50 @@ import soot.options.Options;
 public class CGBuilder {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CGBuilder.class);
+  // Soot's state is global, thus only one Soot user, e.g., a call graph construction, per process
+  private static final Object SOOT_LOCK = new Object();
+
+  // Timeout for the call graph construction, a value <= 0 disables the timeout
+  private static long SOOT_TIMEOUT_IN_SEC = -1;
+  // time given to the analysis thread to stop after the timeout
+  private static final long SOOT_STOP_GRACE_IN_SEC = 10;
+  // an analysis thread that did not stop after its timeout, guarded by SOOT_LOCK
+  private static Thread leakedSootThread;
+  // the process is killed by its client on timeout, thus the analysis runs unbounded in process
+  private static boolean boundedByClient = false;
+  // only keep calls from methods reachable from the application's methods
+  private static boolean PRUNE_UNREACHABLE_CALLS = false;
+  // keep Soot's Scene after a call graph construction for the next module with the same classpath
+  private static boolean keepScene = false;
+  // the library classpath of the kept Scene, null if there is none, guarded by SOOT_LOCK
+  private static List<String> keptClassPath;
+
+  static {
+    String timeOut = System.getenv("SOOT_TIMEOUT_SECONDS");
+    if (StringUtils.isNotBlank(timeOut)) {
+      try {
+        SOOT_TIMEOUT_IN_SEC = Long.parseLong(timeOut);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String pruneUnreachable = System.getenv("PRUNE_UNREACHABLE_CALLS");
+    if (StringUtils.isNotBlank(pruneUnreachable)) {
+      PRUNE_UNREACHABLE_CALLS = Boolean.parseBoolean(pruneUnreachable);
+    }
+  }
 
   private final Collection<String> classPathDirs;
   private final Collection<String> applicationClassDir;
   private final NodeMatchUtil nodeMatchUtil;
-  private SootCallGraphAdapter sootCallGraphAdapter;
   private Graph<String, CustomEdge> shrinkedCG;
+  private MethodTable methodTable;
+  private boolean partialCG = false;
+  // only analyze the application's classes, as fallback after the full analysis timed out
+  private boolean applicationOnly = false;
+  // call graph of an earlier run, whose calls out of the reused jars are taken over
+  private ShrinkedCGCodec.ShrinkedCG previousCG;
+  private Set<String> reusedLibs = Collections.emptySet();
 
   public CGBuilder(
       Collection<String> runtimeDir,
@@ -46,11 +95,107 @@ public class CGBuilder {
     this.nodeMatchUtil = nodeMatchUtil;
   }
 
-  public SootCallGraphAdapter getSootCallGraphAdapter() {
-    if (sootCallGraphAdapter == null) {
+  /**
+   * @return the bound of a call graph construction in seconds, including the grace period of the
+   *     analysis thread; a value <= 0 if unbounded
+   */
+  public static long getMaxAnalysisSeconds() {
+    return SOOT_TIMEOUT_IN_SEC <= 0
+        ? SOOT_TIMEOUT_IN_SEC
+        : SOOT_TIMEOUT_IN_SEC + SOOT_STOP_GRACE_IN_SEC;
+  }
+
+  /**
+   * Keeps Soot's Scene, i.e., the loaded library classes, their bodies and the hierarchy, after a
+   * call graph construction. The next construction reuses it, if its library classpath is identical
+   * and none of its application classes is loaded yet, e.g., for the next module of a project.
+   * Only for processes that construct call graphs one module after the other, the Scene grows with
+   * each module's classes.
+   */
+  public static void setKeepScene(boolean keep) {
+    synchronized (SOOT_LOCK) {
+      keepScene = keep;
+      if (!keep && keptClassPath != null) {
+        keptClassPath = null;
+        G.reset();
+      }
+    }
+  }
+
+  /**
+   * Runs the analysis unbounded in this process, for a process that is killed by its client if it
+   * does not respond in time, e.g., the SootAnalysisDaemon. Killing the process is the only way to
+   * stop Soot, it mostly ignores interrupts.
+   */
+  public static void setBoundedByClient(boolean bounded) {
+    synchronized (SOOT_LOCK) {
+      boundedByClient = bounded;
+    }
+  }
+
+  /**
+   * @return true, if an analysis thread did not stop after its timeout and still mutates Soot's
+   *     state; the process should be recycled then
+   */
+  public static boolean isSootStateCorrupted() {
+    synchronized (SOOT_LOCK) {
+      return leakedSootThread != null && leakedSootThread.isAlive();
+    }
+  }
+
+  /**
+   * Only analyzes the application's classes without the bodies of the libraries, thus the call
+   * graph only contains the calls out of the application. A cheap fallback after the full
+   * analysis timed out, the call graph is partial.
+   */
+  public void setApplicationOnly(boolean applicationOnly) {
+    this.applicationOnly = applicationOnly;
+  }
+
+  /** @return true, if the call graph construction timed out and the call graph is partial */
+  public boolean isPartialCG() {
+    return partialCG;
+  }
+
+  /**
+   * Reuses the calls of an earlier call graph, whose source is in one of the given (unchanged)
+   * jars. Soot then does not load the bodies of the reused jars' packages. A jar that called into a
+   * changed, e.g., re-versioned, or removed jar is not reused, as its calls into the new jar are
+   * not in the earlier call graph.
+   *
+   * @param previousCG the call graph of an earlier run, ignored if it is partial
+   * @param unchangedLibs the gavs of the jars that did not change since the earlier run
+   */
+  public void setPreviousCG(ShrinkedCGCodec.ShrinkedCG previousCG, Set<String> unchangedLibs) {
+    if (previousCG == null || previousCG.isPartialCG()) {
+      return;
+    }
+    final Graph<String, CustomEdge> previousGraph = previousCG.getGraph();
+    Set<String> reusableLibs = new HashSet<>();
+    for (String lib : unchangedLibs) {
+      if (!previousGraph.containsVertex(lib)) {
+        continue;
+      }
+      final boolean calleesUnchanged =
+          previousGraph.outgoingEdgesOf(lib).stream()
+              .allMatch(e -> unchangedLibs.contains(previousGraph.getEdgeTarget(e)));
+      if (calleesUnchanged) {
+        reusableLibs.add(lib);
+      }
+    }
+    LOGGER.info(
+        "[Analysis] Reusing the calls of #{} of #{} unchanged jars, the others call changed jars",
+        reusableLibs.size(),
+        unchangedLibs.size());
+    this.previousCG = previousCG;
+    this.reusedLibs = reusableLibs;
+  }
+
+  public MethodTable getMethodTable() {
+    if (methodTable == null) {
       throw new IllegalStateException("Run compute first");
     }
-    return sootCallGraphAdapter;
+    return methodTable;
   }
 
   public Graph<String, CustomEdge> getShrinkedCG() {
@@ -93,21 +238,123 @@ public class CGBuilder {
 
     // set the application classes
     Options.v().set_include(new ArrayList<>(packageNames));
+    // the calls out of reused jars are taken from the previous call graph, the calls out of the
+    // libraries are skipped if only the application is analyzed
+    final List<String> excludedPackages = getExcludedPackages(packageNames);
+    if (!excludedPackages.isEmpty()) {
+      LOGGER.info(
+          "[Soot] Excluding #{} packages of reused or library jars", excludedPackages.size());
+      Options.v().set_exclude(excludedPackages);
+    }
 
     Options.v().setPhaseOption("cg", "verbose:" + false);
     Options.v().setPhaseOption("cg", "safe-forname:" + false);
     Options.v().setPhaseOption("cg", "all-reachable:" + true);
   }
 
+  /**
+   * @return the packages (as Soot exclude patterns) that only occur in reused jars, or in any jar
+   *     if only the application is analyzed, and neither in a changed jar nor in the application,
+   *     nor as their prefix
+   */
+  private List<String> getExcludedPackages(Collection<String> appPKGs) {
+    if (!applicationOnly && (previousCG == null || reusedLibs.isEmpty())) {
+      return Collections.emptyList();
+    }
+    Set<String> otherPackages = new HashSet<>(appPKGs);
+    Set<String> reusedPackages = new TreeSet<>();
+    for (String cpEntry : classPathDirs) {
+      final String gav = nodeMatchUtil.toGav(cpEntry);
+      if (applicationOnly || reusedLibs.contains(gav)) {
+        reusedPackages.addAll(nodeMatchUtil.getPackagesOfGav(gav));
+      } else {
+        otherPackages.addAll(nodeMatchUtil.getPackagesOfGav(gav));
+      }
+    }
+    List<String> excludes = new ArrayList<>();
+    for (String pkg : reusedPackages) {
+      // the exclude pattern pkg.* also matches the sub packages
+      final boolean shared =
+          otherPackages.stream().anyMatch(o -> o.equals(pkg) || o.startsWith(pkg + "."));
+      if (!shared && StringUtils.isNotBlank(pkg)) {
+        excludes.add(pkg + ".*");
+      }
+    }
+    return excludes;
+  }
+
+  /**
+   * Computes the call graph, one at a time per process. If the analysis times out, or an earlier
+   * analysis thread still mutates Soot's state, the call graph is partial.
+   */
   public void computeCGs(Collection<String> appPKGs) {
+    synchronized (SOOT_LOCK) {
+      if (!releaseStoppedSootThread()) {
+        LOGGER.warn("[Analysis] A previous Soot analysis is still running, skipping analysis");
+        partialCG = true;
+        computeEmptyCG();
+        return;
+      }
+      computeCGsExclusively(appPKGs);
+    }
+  }
+
+  /**
+   * Runs an action that uses Soot's global state, e.g., sootdiff, exclusively with the other Soot
+   * users of the process, including the call graph constructions
+   *
+   * @throws SootStateCorruptedException if an analysis thread did not stop after its timeout, and
+   *     still runs; the process should exit then
+   */
+  public static void runExclusively(Runnable action) {
+    synchronized (SOOT_LOCK) {
+      if (!releaseStoppedSootThread()) {
+        throw new SootStateCorruptedException("A previous Soot analysis is still running");
+      }
+      // the action may reset Soot
+      keptClassPath = null;
+      action.run();
+    }
+  }
+
+  /**
+   * Checks for an analysis thread that did not stop after its timeout, since it mutates Soot. The
+   * thread already had its grace period, thus it is not awaited again.
+   *
+   * @return false, if the thread still runs
+   */
+  private static boolean releaseStoppedSootThread() {
+    if (leakedSootThread == null) {
+      return true;
+    }
+    if (leakedSootThread.isAlive()) {
+      return false;
+    }
+    LOGGER.info("[Soot] The previous Soot analysis stopped");
+    leakedSootThread = null;
+    keptClassPath = null;
+    G.reset();
+    return true;
+  }
+
+  private void computeCGsExclusively(Collection<String> appPKGs) {
 
     LOGGER.info("[Analysis] START Analysis of " + classPathDirs);
 
     LOGGER.info("[Setup] Started \n");
     Stopwatch stopwatch = Stopwatch.createStarted();
 
-    setUpSoot(
-        appPKGs, new ArrayList<>(this.classPathDirs), new ArrayList<>(this.applicationClassDir));
+    final List<String> classPath = new ArrayList<>(this.classPathDirs);
+    final List<String> applicationDirs = new ArrayList<>(this.applicationClassDir);
+    // a failed construction must not leave a kept Scene behind
+    final List<String> previousClassPath = keptClassPath;
+    keptClassPath = null;
+    if (canReuseScene(previousClassPath, classPath, applicationDirs)) {
+      LOGGER.info("[Soot] Reusing the Scene of the previous module with the same classpath");
+      prepareKeptScene(appPKGs, applicationDirs);
+    } else {
+      setUpSoot(appPKGs, classPath, applicationDirs);
+    }
 
     stopwatch.stop();
     LOGGER.info("[Setup] Complete {}", stopwatch.elapsed(TimeUnit.SECONDS));
@@ -118,14 +365,164 @@ public class CGBuilder {
     stopwatch.start();
 
     Scene.v().loadNecessaryClasses();
-    PackManager.v().runPacks();
+    partialCG = !runPacks() || applicationOnly;
     LOGGER.info("[Analysis] Took {}", stopwatch.elapsed(TimeUnit.SECONDS));
     stopwatch.stop();
 
-    final CallGraph callGraph = Scene.v().getCallGraph();
+    if (leakedSootThread != null) {
+      // neither read nor reset Soot's state while the thread mutates it
+      LOGGER.warn("[Analysis] Soot did not stop, continuing without call graph");
+      computeEmptyCG();
+      return;
+    }
+
+    // on timeout, use the edges Soot has computed so far
+    final CallGraph callGraph =
+        Scene.v().hasCallGraph() ? Scene.v().getCallGraph() : new CallGraph();
+
+    methodTable = new MethodTable();
+    shrinkedCG = shrinkCG(new SootCallGraphAdapter(callGraph, partialCG));
 
-    sootCallGraphAdapter = new SootCallGraphAdapter(callGraph);
-    shrinkedCG = shrinkCG(sootCallGraphAdapter);
+    // the shrinked CG only references method ids, thus Soot's global state can be released
+    if (keepScene && !partialCG && previousCG == null) {
+      keptClassPath = classPath;
+      releaseCallGraph();
+    } else {
+      releaseSoot();
+    }
+  }
+
+  /**
+   * @return true, if the kept Scene has the given library classpath, and contains none of the
+   *     classes in the application's class folders, e.g., of a sibling module with the same names
+   */
+  private boolean canReuseScene(
+      List<String> previousClassPath, List<String> classPath, List<String> applicationDirs) {
+    if (previousClassPath == null
+        || !previousClassPath.equals(classPath)
+        || previousCG != null
+        || applicationOnly) {
+      return false;
+    }
+    for (String applicationDir : applicationDirs) {
+      for (String className : SourceLocator.v().getClassesUnder(applicationDir)) {
+        if (Scene.v().containsClass(className)) {
+          LOGGER.info("[Soot] Class {} is already loaded, resetting the Scene", className);
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Configures the kept Scene for the next module, keeping the loaded library classes */
+  private void prepareKeptScene(Collection<String> packageNames, List<String> applicationDirs) {
+    // the previous module's methods are no entry points of this module
+    for (SootClass sootClass : new ArrayList<>(Scene.v().getApplicationClasses())) {
+      sootClass.setLibraryClass();
+    }
+    G.v().resetSpark();
+    Options.v().set_process_dir(applicationDirs);
+    Options.v().set_include(new ArrayList<>(packageNames));
+    // recompute the classpath from the options, including the new process dirs
+    Scene.v().setSootClassPath(null);
+  }
+
+  /** Releases the call graph and the hierarchy of the kept Scene, they change with the module */
+  private void releaseCallGraph() {
+    LOGGER.info("[Soot] Keeping the Scene, interned #{} methods", methodTable.size());
+    Scene.v().releaseCallGraph();
+    Scene.v().releasePointsToAnalysis();
+    Scene.v().releaseReachableMethods();
+    Scene.v().releaseActiveHierarchy();
+    Scene.v().releaseFastHierarchy();
+  }
+
+  /** Creates the call graph of the classpath's jars without any calls, e.g., without Soot */
+  private void computeEmptyCG() {
+    methodTable = new MethodTable();
+    shrinkedCG = shrinkCG(new SootCallGraphAdapter(new CallGraph(), true));
+  }
+
+  /**
+   * Runs Soot's packs, bounded by SOOT_TIMEOUT_SECONDS. On timeout the analysis thread is
+   * interrupted and given a grace period to stop; only then the partial call graph is read. Soot
+   * mostly ignores interrupts, a thread that did not stop is recorded as leaked.
+   *
+   * @return true, if the analysis completed in time
+   */
+  private boolean runPacks() {
+    if (SOOT_TIMEOUT_IN_SEC <= 0 || boundedByClient) {
+      PackManager.v().runPacks();
+      return true;
+    }
+    final FutureTask<Void> task =
+        new FutureTask<>(
+            () -> {
+              PackManager.v().runPacks();
+              return null;
+            });
+    Thread thread = new Thread(task, "soot-analysis");
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      task.get(SOOT_TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      LOGGER.warn("[Analysis] Call graph construction exceeded {}s", SOOT_TIMEOUT_IN_SEC);
+      stopAnalysisThread(task, thread);
+      LOGGER.warn("[Analysis] Continuing with partial call graph");
+      return false;
+    } catch (InterruptedException e) {
+      try {
+        stopAnalysisThread(task, thread);
+      } finally {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Soot analysis failed", e.getCause());
+    }
+  }
+
+  private static void stopAnalysisThread(FutureTask<Void> task, Thread thread) {
+    task.cancel(true);
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(SOOT_STOP_GRACE_IN_SEC));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    if (thread.isAlive()) {
+      LOGGER.warn(
+          "[Analysis] Soot did not stop within {}s after the timeout", SOOT_STOP_GRACE_IN_SEC);
+      leakedSootThread = thread;
+    }
+  }
+
+  private void releaseSoot() {
+    LOGGER.info("[Soot] Releasing Soot, interned #{} methods", methodTable.size());
+    G.reset();
+  }
+
+  private int toMethodId(SootCallGraphAdapter sootCallGraphAdapter, int method, int[] methodIds) {
+    if (methodIds[method] < 0) {
+      final SootMethod sootMethod = sootCallGraphAdapter.getMethod(method);
+      List<String> parameterTypes = new ArrayList<>(sootMethod.getParameterCount());
+      for (Type type : sootMethod.getParameterTypes()) {
+        parameterTypes.add(type.toQuotedString());
+      }
+      methodIds[method] =
+          methodTable.intern(
+              sootMethod.getSignature(),
+              sootMethod.getDeclaringClass().getName(),
+              sootMethod.getName(),
+              sootMethod.getReturnType().toQuotedString(),
+              parameterTypes);
+    }
+    return methodIds[method];
   }
 
   private @NotNull Graph<String, CustomEdge> shrinkCG(
@@ -136,32 +533,112 @@ public class CGBuilder {
     // create nodes for the jars and the project
     this.classPathDirs.forEach(
         abFileName -> shrinkedGraph.addVertex(nodeMatchUtil.toGav(abFileName)));
+    Set<String> applicationLibs = new HashSet<>();
     this.applicationClassDir.forEach(
-        abFileName -> shrinkedGraph.addVertex(nodeMatchUtil.toGav(abFileName)));
+        abFileName -> {
+          final String gav = nodeMatchUtil.toGav(abFileName);
+          applicationLibs.add(gav);
+          shrinkedGraph.addVertex(gav);
+        });
 
+    // resolve the library of each method once
+    final int nrOfMethods = sootCallGraphAdapter.getMethodCount();
+    final String[] methodLibs = new String[nrOfMethods];
+    final BitSet applicationMethods = new BitSet(nrOfMethods);
+    for (int m = 0; m < nrOfMethods; m++) {
+      methodLibs[m] =
+          nodeMatchUtil.getGavOfClass(
+              sootCallGraphAdapter.getMethod(m).getDeclaringClass().getName());
+      if (methodLibs[m] != null && applicationLibs.contains(methodLibs[m])) {
+        applicationMethods.set(m);
+      }
+    }
+    // the reachability through reused jars is unknown, thus do not prune then
+    final BitSet relevantMethods =
+        PRUNE_UNREACHABLE_CALLS && previousCG == null
+            ? sootCallGraphAdapter.reachableFrom(applicationMethods)
+            : null;
+    if (relevantMethods != null) {
+      LOGGER.info(
+          "[Analysis] #{} of #{} methods reachable from the application",
+          relevantMethods.cardinality(),
+          nrOfMethods);
+    }
+
+    final int[] methodIds = new int[nrOfMethods];
+    Arrays.fill(methodIds, -1);
     // iterate through the callgraph and add the edges to the shrinked
-    final Iterator<Edge> iterator = sootCallGraphAdapter.getCallGraph().iterator();
-    while (iterator.hasNext()) {
-      final Edge cgEdge = iterator.next();
-      final MethodOrMethodContext src = cgEdge.getSrc();
-      final MethodOrMethodContext tgt = cgEdge.getTgt();
+    for (int e = 0; e < sootCallGraphAdapter.getEdgeCount(); e++) {
+      final int src = sootCallGraphAdapter.getEdgeSourceIndex(e);
+      final int tgt = sootCallGraphAdapter.getEdgeTargetIndex(e);
+      if (relevantMethods != null && !relevantMethods.get(src)) {
+        continue;
+      }
       // add the edge
-      final String srcDeclClassName = src.method().getDeclaringClass().getName();
-      final String tgtDeclClassName = tgt.method().getDeclaringClass().getName();
-      final String srcVertexLib = nodeMatchUtil.getClassToGav().get(srcDeclClassName);
-      final String targetVertexLib = nodeMatchUtil.getClassToGav().get(tgtDeclClassName);
+      final String srcVertexLib = methodLibs[src];
+      final String targetVertexLib = methodLibs[tgt];
+      if (srcVertexLib == null || targetVertexLib == null) {
+        continue;
+      }
       CustomEdge edge = shrinkedGraph.getEdge(srcVertexLib, targetVertexLib);
-      if (edge == null && srcVertexLib != null && targetVertexLib != null) {
+      if (edge == null) {
         edge = new CustomEdge();
         shrinkedGraph.addEdge(srcVertexLib, targetVertexLib, edge);
-        // add the method to the edge
-        edge.getSrcTgtMethods().add(Pair.of(src.method(), tgt.method()));
-      } else if (edge != null) {
-        // add the method to the edge
-        edge.getSrcTgtMethods().add(Pair.of(src.method(), tgt.method()));
       }
+      // add the method to the edge
+      edge.addSrcTgtMethod(
+          toMethodId(sootCallGraphAdapter, src, methodIds),
+          toMethodId(sootCallGraphAdapter, tgt, methodIds));
     }
+    if (previousCG != null) {
+      mergePreviousCG(shrinkedGraph);
+    }
+    // remove duplicate calls, e.g., from multiple call sites
+    shrinkedGraph.edgeSet().forEach(CustomEdge::compact);
 
     return shrinkedGraph;
   }
+
+  /** Adds the calls of the previous call graph whose source is a reused jar */
+  private void mergePreviousCG(Graph<String, CustomEdge> shrinkedGraph) {
+    final Graph<String, CustomEdge> previousGraph = previousCG.getGraph();
+    final MethodTable previousMethods = previousCG.getMethodTable();
+    final int[] methodIds = new int[previousMethods.size()];
+    Arrays.fill(methodIds, -1);
+    int nrOfCalls = 0;
+    for (CustomEdge previousEdge : previousGraph.edgeSet()) {
+      final String srcVertexLib = previousGraph.getEdgeSource(previousEdge);
+      final String targetVertexLib = previousGraph.getEdgeTarget(previousEdge);
+      if (!reusedLibs.contains(srcVertexLib)
+          || !shrinkedGraph.containsVertex(srcVertexLib)
+          || !shrinkedGraph.containsVertex(targetVertexLib)) {
+        continue;
+      }
+      CustomEdge edge = shrinkedGraph.getEdge(srcVertexLib, targetVertexLib);
+      if (edge == null) {
+        edge = new CustomEdge();
+        shrinkedGraph.addEdge(srcVertexLib, targetVertexLib, edge);
+      }
+      for (int i = 0; i < previousEdge.size(); i++) {
+        edge.addSrcTgtMethod(
+            toMethodId(previousMethods, previousEdge.getSrcMethod(i), methodIds),
+            toMethodId(previousMethods, previousEdge.getTgtMethod(i), methodIds));
+      }
+      nrOfCalls += previousEdge.size();
+    }
+    LOGGER.info("[Analysis] Reused #{} calls of #{} unchanged jars", nrOfCalls, reusedLibs.size());
+  }
+
+  private int toMethodId(MethodTable previousMethods, int method, int[] methodIds) {
+    if (methodIds[method] < 0) {
+      methodIds[method] =
+          methodTable.intern(
+              previousMethods.getSignature(method),
+              previousMethods.getDeclaringClass(method),
+              previousMethods.getName(method),
+              previousMethods.getReturnType(method),
+              previousMethods.getParameterTypes(method));
+    }
+    return methodIds[method];
+  }
 }
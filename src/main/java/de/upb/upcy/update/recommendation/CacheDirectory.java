@@ -0,0 +1,135 @@
+package de.upb.upcy.update.recommendation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds the persistent caches shared by the processes of a host, e.g., in the tmpdir. A cache
+ * file is touched on each hit; once per process and folder, the files not used for
+ * CACHE_MAX_AGE_DAYS are deleted, and the least recently used ones until the folder is below
+ * CACHE_MAX_SIZE_MB.
+ *
+ * @author adann
+ */
+public final class CacheDirectory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CacheDirectory.class);
+
+  private static long MAX_AGE_IN_MILLIS = TimeUnit.DAYS.toMillis(14);
+  private static long MAX_SIZE_IN_BYTES = 1024L * 1024 * 1024;
+
+  static {
+    String maxAge = System.getenv("CACHE_MAX_AGE_DAYS");
+    if (StringUtils.isNotBlank(maxAge)) {
+      try {
+        MAX_AGE_IN_MILLIS = TimeUnit.DAYS.toMillis(Long.parseLong(maxAge));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String maxSize = System.getenv("CACHE_MAX_SIZE_MB");
+    if (StringUtils.isNotBlank(maxSize)) {
+      try {
+        MAX_SIZE_IN_BYTES = Long.parseLong(maxSize) * 1024 * 1024;
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private static final Set<Path> PRUNED = ConcurrentHashMap.newKeySet();
+
+  private CacheDirectory() {}
+
+  /** Marks the cache file as used, thus it is evicted last */
+  public static void touch(Path cacheFile) {
+    try {
+      Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // e.g., deleted concurrently, or read-only
+    }
+  }
+
+  /**
+   * Prunes the folder on the first call of this process, by {@link #prune(Path, String, long,
+   * long)} with the configured bounds
+   */
+  public static void pruneOnce(Path folder, String extension) {
+    if (PRUNED.add(folder.toAbsolutePath())) {
+      prune(folder, extension, MAX_AGE_IN_MILLIS, MAX_SIZE_IN_BYTES);
+    }
+  }
+
+  /**
+   * Deletes the cache files that were not used within the maximal age, and then the least recently
+   * used ones until the folder is below the maximal size. Other processes may use the folder
+   * concurrently, thus a deleted file is just a cache miss for them.
+   *
+   * @param folder the cache folder
+   * @param extension the extension of the cache files, other files are kept
+   * @param maxAgeInMillis the maximal age, a value < 0 disables the bound
+   * @param maxSizeInBytes the maximal size, a value < 0 disables the bound
+   * @return the number of deleted files
+   */
+  public static int prune(Path folder, String extension, long maxAgeInMillis, long maxSizeInBytes) {
+    if (!Files.isDirectory(folder)) {
+      return 0;
+    }
+    // the cache files and their size, most recently used first
+    List<Pair<Path, BasicFileAttributes>> files = new ArrayList<>();
+    try (Stream<Path> paths = Files.list(folder)) {
+      paths
+          .filter(p -> p.getFileName().toString().endsWith(extension))
+          .forEach(
+              p -> {
+                try {
+                  files.add(Pair.of(p, Files.readAttributes(p, BasicFileAttributes.class)));
+                } catch (IOException e) {
+                  // deleted concurrently
+                }
+              });
+    } catch (IOException e) {
+      LOGGER.warn("Failed to list cache folder {}", folder, e);
+      return 0;
+    }
+    files.sort(
+        Comparator.comparing(
+                (Pair<Path, BasicFileAttributes> p) -> p.getRight().lastModifiedTime())
+            .reversed());
+
+    final long now = System.currentTimeMillis();
+    long size = 0;
+    int deleted = 0;
+    for (Pair<Path, BasicFileAttributes> file : files) {
+      final long age = now - file.getRight().lastModifiedTime().toMillis();
+      size += file.getRight().size();
+      if ((maxAgeInMillis >= 0 && age > maxAgeInMillis)
+          || (maxSizeInBytes >= 0 && size > maxSizeInBytes)) {
+        try {
+          Files.deleteIfExists(file.getLeft());
+          deleted++;
+        } catch (IOException e) {
+          LOGGER.debug("Failed to delete cache file {}", file.getLeft(), e);
+        }
+      }
+    }
+    if (deleted > 0) {
+      LOGGER.info("Evicted #{} files from cache folder {}", deleted, folder);
+    }
+    return deleted;
+  }
+}
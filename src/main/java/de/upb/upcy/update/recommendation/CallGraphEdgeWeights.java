@@ -0,0 +1,79 @@
+package de.upb.upcy.update.recommendation;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.jgrapht.Graph;
+
+/**
+ * Derives the capacities of the (blossom) dependency edges from the shrinked call graph. An edge
+ * from A to B gets the capacity {@code 1 + ln(1 + #calls) + ln(1 + #called methods)} for the calls
+ * from A's classes into B's classes. Cutting an edge means A keeps its version while B is updated,
+ * thus edges with many and diverse calls are expensive to cut and the min-cut prefers edges that
+ * are less likely to produce violations. The capacities are rounded to integers: the search finds
+ * alternative min-cuts by raising a cut edge's capacity by 1 and keeping the next cut of equal
+ * weight, which real-valued capacities almost never have.
+ *
+ * @author adann
+ */
+public class CallGraphEdgeWeights {
+
+  private final Graph<String, CustomEdge> shrinkedCG;
+  private final BlossomGraphCreator blossomGraphCreator;
+  private final NodeMatchUtil nodeMatchUtil;
+
+  public CallGraphEdgeWeights(
+      Graph<String, CustomEdge> shrinkedCG,
+      BlossomGraphCreator blossomGraphCreator,
+      NodeMatchUtil nodeMatchUtil) {
+    this.shrinkedCG = shrinkedCG;
+    this.blossomGraphCreator = blossomGraphCreator;
+    this.nodeMatchUtil = nodeMatchUtil;
+  }
+
+  /**
+   * @param depGraph the (blossom) dependency graph
+   * @return the capacity of each edge
+   */
+  public Map<GraphModel.Dependency, Double> compute(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> depGraph) {
+    Map<GraphModel.Dependency, Double> weights = new HashMap<>();
+    for (GraphModel.Dependency edge : depGraph.edgeSet()) {
+      final Collection<GraphModel.Artifact> sources = expand(depGraph.getEdgeSource(edge));
+      final Collection<GraphModel.Artifact> targets = expand(depGraph.getEdgeTarget(edge));
+      int nrOfCalls = 0;
+      BitSet calledMethods = new BitSet();
+      for (GraphModel.Artifact source : sources) {
+        final String sourceGav = nodeMatchUtil.toGav(source);
+        if (shrinkedCG == null || !shrinkedCG.containsVertex(sourceGav)) {
+          continue;
+        }
+        for (GraphModel.Artifact target : targets) {
+          final CustomEdge calls = shrinkedCG.getEdge(sourceGav, nodeMatchUtil.toGav(target));
+          if (calls == null) {
+            continue;
+          }
+          nrOfCalls += calls.size();
+          for (int i = 0; i < calls.size(); i++) {
+            calledMethods.set(calls.getTgtMethod(i));
+          }
+        }
+      }
+      final long capacity =
+          Math.round(1.0 + Math.log1p(nrOfCalls) + Math.log1p(calledMethods.cardinality()));
+      weights.put(edge, (double) capacity);
+    }
+    return weights;
+  }
+
+  private Collection<GraphModel.Artifact> expand(GraphModel.Artifact artifact) {
+    final Collection<GraphModel.Artifact> members = blossomGraphCreator.expandBlossomNode(artifact);
+    if (members != null) {
+      return members;
+    }
+    return Collections.singletonList(artifact);
+  }
+}
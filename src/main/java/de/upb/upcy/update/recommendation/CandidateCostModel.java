@@ -0,0 +1,44 @@
+package de.upb.upcy.update.recommendation;
+
+/**
+ * Cost of evaluating a (cut, version) candidate in the min-cut search, candidates with lower cost
+ * are evaluated first. An evaluation is a Neo4j query and, if the query finds an update subgraph,
+ * a compatibility check.
+ *
+ * @author adann
+ */
+public interface CandidateCostModel {
+
+  /**
+   * Evaluates the cuts in the order they are discovered and the versions in the given order, i.e.,
+   * a breadth-first search over the cuts
+   */
+  CandidateCostModel FIFO =
+      (cut, orgGav, candidateGav, versionRank) -> cut.getSequence() * 1e6 + versionRank;
+
+  /**
+   * @param cut the min-cut
+   * @param orgGav the gav of the library to update
+   * @param candidateGav the gav of the library in the candidate version
+   * @param versionRank the position of the candidate version in the list of newer versions
+   * @return the cost, lower is evaluated first
+   */
+  double cost(CutCandidate cut, String orgGav, String candidateGav, int versionRank);
+
+  /**
+   * Called after a candidate has been evaluated
+   *
+   * @param orgGav the gav of the library to update
+   * @param candidateGav the gav of the library in the candidate version
+   * @param nrOfViolations the number of violations of the update
+   */
+  default void recordEvaluation(String orgGav, String candidateGav, int nrOfViolations) {}
+
+  /**
+   * @return true if {@link #cost} uses {@link CutCandidate#getCrossingCalls()}, otherwise they are
+   *     not counted
+   */
+  default boolean usesCrossingCalls() {
+    return false;
+  }
+}
@@ -1,16 +1,91 @@
 package de.upb.upcy.update.recommendation;
 
-import java.util.ArrayList;
-import java.util.List;
-import org.apache.commons.lang3.tuple.Pair;
-import soot.SootMethod;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 
-/** Edge in the unified dependency graph, containing the call edges source and targets */
+/**
+ * Edge in the unified dependency graph, containing the call edges source and targets. The calls
+ * are stored as pairs of method ids (see {@link MethodTable}) in a flat int array: {@code
+ * [src0, tgt0, src1, tgt1, ...]}.
+ */
 public class CustomEdge {
 
-  private final List<Pair<SootMethod, SootMethod>> srcTgtMethods = new ArrayList<>();
+  private int[] srcTgtMethods = new int[8];
+  private int size = 0;
 
-  public List<Pair<SootMethod, SootMethod>> getSrcTgtMethods() {
-    return srcTgtMethods;
+  /**
+   * Adds the call from srcMethod to tgtMethod; duplicates are removed by {@link #compact()}
+   *
+   * @param srcMethod the id of the calling method
+   * @param tgtMethod the id of the called method
+   */
+  public void addSrcTgtMethod(int srcMethod, int tgtMethod) {
+    if (2 * size + 2 > srcTgtMethods.length) {
+      srcTgtMethods = Arrays.copyOf(srcTgtMethods, Math.max(8, srcTgtMethods.length * 2));
+    }
+    srcTgtMethods[2 * size] = srcMethod;
+    srcTgtMethods[2 * size + 1] = tgtMethod;
+    size++;
+  }
+
+  /** @return the number of calls along this edge */
+  public int size() {
+    return size;
+  }
+
+  public int getSrcMethod(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return srcTgtMethods[2 * index];
+  }
+
+  public int getTgtMethod(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return srcTgtMethods[2 * index + 1];
+  }
+
+  /** Sorts the calls, removes duplicate (src, tgt) pairs and trims the backing array */
+  public void compact() {
+    long[] packed = new long[size];
+    for (int i = 0; i < size; i++) {
+      packed[i] =
+          ((long) srcTgtMethods[2 * i] << 32) | (srcTgtMethods[2 * i + 1] & 0xFFFFFFFFL);
+    }
+    Arrays.sort(packed);
+    int[] compacted = new int[2 * size];
+    int newSize = 0;
+    for (int i = 0; i < packed.length; i++) {
+      if (i > 0 && packed[i] == packed[i - 1]) {
+        continue;
+      }
+      compacted[2 * newSize] = (int) (packed[i] >>> 32);
+      compacted[2 * newSize + 1] = (int) packed[i];
+      newSize++;
+    }
+    this.srcTgtMethods = Arrays.copyOf(compacted, 2 * newSize);
+    this.size = newSize;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(size);
+    for (int i = 0; i < 2 * size; i++) {
+      out.writeInt(srcTgtMethods[i]);
+    }
+  }
+
+  static CustomEdge read(DataInputStream in) throws IOException {
+    CustomEdge customEdge = new CustomEdge();
+    final int size = in.readInt();
+    customEdge.srcTgtMethods = new int[Math.max(8, 2 * size)];
+    for (int i = 0; i < 2 * size; i++) {
+      customEdge.srcTgtMethods[i] = in.readInt();
+    }
+    customEdge.size = size;
+    return customEdge;
   }
 }
@@ -0,0 +1,87 @@
+package de.upb.upcy.update.recommendation;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A discovered min-(s,t)-cut, which is evaluated against the candidate versions of the library to
+ * update
+ *
+ * @author adann
+ */
+public class CutCandidate {
+
+  private final int sequence;
+  private final double weight;
+  private final Set<GraphModel.Dependency> cutEdges;
+  // the target nodes of the cut edges, may be blossom nodes
+  private final List<GraphModel.Artifact> cuttedNodes;
+  // the sink partition, may contain blossom nodes
+  private final Set<GraphModel.Artifact> sinkPartition;
+  // the source partition, blossom nodes are expanded
+  private final Set<GraphModel.Artifact> sourcePartition;
+  // the number of calls from not updated libraries into updated libraries
+  private final int crossingCalls;
+
+  private int failedVersions = 0;
+  private boolean done = false;
+
+  public CutCandidate(
+      int sequence,
+      double weight,
+      Set<GraphModel.Dependency> cutEdges,
+      List<GraphModel.Artifact> cuttedNodes,
+      Set<GraphModel.Artifact> sinkPartition,
+      Set<GraphModel.Artifact> sourcePartition,
+      int crossingCalls) {
+    this.sequence = sequence;
+    this.weight = weight;
+    this.cutEdges = cutEdges;
+    this.cuttedNodes = cuttedNodes;
+    this.sinkPartition = sinkPartition;
+    this.sourcePartition = sourcePartition;
+    this.crossingCalls = crossingCalls;
+  }
+
+  /** @return the order in which the cut was discovered */
+  public int getSequence() {
+    return sequence;
+  }
+
+  public double getWeight() {
+    return weight;
+  }
+
+  public Set<GraphModel.Dependency> getCutEdges() {
+    return cutEdges;
+  }
+
+  public List<GraphModel.Artifact> getCuttedNodes() {
+    return cuttedNodes;
+  }
+
+  public Set<GraphModel.Artifact> getSinkPartition() {
+    return sinkPartition;
+  }
+
+  public Set<GraphModel.Artifact> getSourcePartition() {
+    return sourcePartition;
+  }
+
+  public int getCrossingCalls() {
+    return crossingCalls;
+  }
+
+  int incFailedVersions() {
+    return ++failedVersions;
+  }
+
+  boolean isDone() {
+    return done;
+  }
+
+  void setDone(boolean done) {
+    this.done = done;
+  }
+}
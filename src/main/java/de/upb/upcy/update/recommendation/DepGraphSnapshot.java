@@ -0,0 +1,305 @@
+package de.upb.upcy.update.recommendation;
+
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.base.graph.GraphParser;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of a parsed dependency graph, to avoid parsing the (large) JSON of the
+ * depgraph-maven-plugin in every process. All strings are interned into one table and referenced
+ * by int ids; artifacts and dependencies are stored as fixed records of these ids. The snapshot is
+ * written on the first parse, keyed by path, size and modification time of the JSON file, and is
+ * memory-mapped on later loads. The cache folder is bounded by {@link CacheDirectory}.
+ *
+ * @author adann
+ */
+public final class DepGraphSnapshot {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DepGraphSnapshot.class);
+
+  private static final int MAGIC = 0x55434447;
+  private static final int FORMAT_VERSION = 1;
+  private static final int NULL_ID = -1;
+  private static final String SNAPSHOT_EXTENSION = ".dgs";
+
+  private static Path CACHE_DIR =
+      Paths.get(System.getProperty("java.io.tmpdir")).resolve("upcy-depgraph-snapshots");
+  // DEPGRAPH_SNAPSHOT_CACHE=off always parses the JSON, e.g., to compare both paths
+  private static boolean ENABLED = true;
+
+  static {
+    String cacheDir = System.getenv("DEPGRAPH_SNAPSHOT_CACHE");
+    if (StringUtils.isNotBlank(cacheDir)) {
+      if (StringUtils.equalsIgnoreCase(cacheDir, "off")) {
+        ENABLED = false;
+      } else {
+        CACHE_DIR = Paths.get(cacheDir);
+      }
+    }
+  }
+
+  private DepGraphSnapshot() {}
+
+  /**
+   * Loads the dependency graph from its snapshot, or parses the JSON file and writes the snapshot
+   *
+   * @param jsonDepGraph the JSON file created by the depgraph-maven-plugin
+   * @return the dependency graph, as {@link GraphParser#parseGraph(Path)}
+   */
+  public static Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+      parseGraph(Path jsonDepGraph) throws IOException {
+    if (!ENABLED) {
+      return GraphParser.parseGraph(jsonDepGraph);
+    }
+    CacheDirectory.pruneOnce(CACHE_DIR, SNAPSHOT_EXTENSION);
+    final Path snapshotFile = getSnapshotFile(jsonDepGraph);
+    if (snapshotFile != null && Files.isRegularFile(snapshotFile)) {
+      try {
+        final Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+            pairGraph = read(snapshotFile);
+        CacheDirectory.touch(snapshotFile);
+        return pairGraph;
+      } catch (IOException | RuntimeException e) {
+        LOGGER.warn("Ignoring corrupt dependency graph snapshot {}", snapshotFile);
+      }
+    }
+    final Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+        pairGraph = GraphParser.parseGraph(jsonDepGraph);
+    if (snapshotFile != null) {
+      try {
+        write(snapshotFile, pairGraph.getLeft(), pairGraph.getRight());
+      } catch (IOException e) {
+        LOGGER.warn("Failed to write dependency graph snapshot {}", snapshotFile, e);
+      }
+    }
+    return pairGraph;
+  }
+
+  private static Path getSnapshotFile(Path jsonDepGraph) {
+    try {
+      final Path absolute = jsonDepGraph.toAbsolutePath();
+      return CACHE_DIR.resolve(
+          absolute.getFileName()
+              + "_"
+              + Integer.toHexString(absolute.toString().hashCode())
+              + "_"
+              + Files.size(absolute)
+              + "_"
+              + Files.getLastModifiedTime(absolute).toMillis()
+              + SNAPSHOT_EXTENSION);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  public static void write(
+      Path snapshotFile,
+      DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> depGraph,
+      GraphModel graphModel)
+      throws IOException {
+    // intern the strings and encode the records first, the string table is written up front
+    Map<String, Integer> stringIds = new HashMap<>();
+    List<String> strings = new ArrayList<>();
+    Map<GraphModel.Artifact, Integer> vertexIds = new IdentityHashMap<>();
+    List<int[]> artifactRecords = new ArrayList<>(depGraph.vertexSet().size());
+    for (GraphModel.Artifact artifact : depGraph.vertexSet()) {
+      vertexIds.put(artifact, vertexIds.size());
+      final List<String> scopes = nullToEmpty(artifact.getScopes());
+      final List<String> types = nullToEmpty(artifact.getTypes());
+      int[] artifactRecord = new int[8 + scopes.size() + types.size()];
+      int i = 0;
+      artifactRecord[i++] = intern(artifact.getId(), stringIds, strings);
+      artifactRecord[i++] = artifact.getNumericId();
+      artifactRecord[i++] = intern(artifact.getGroupId(), stringIds, strings);
+      artifactRecord[i++] = intern(artifact.getArtifactId(), stringIds, strings);
+      artifactRecord[i++] = intern(artifact.getVersion(), stringIds, strings);
+      artifactRecord[i++] = artifact.isOptional() ? 1 : 0;
+      artifactRecord[i++] = scopes.size();
+      for (String scope : scopes) {
+        artifactRecord[i++] = intern(scope, stringIds, strings);
+      }
+      artifactRecord[i++] = types.size();
+      for (String type : types) {
+        artifactRecord[i++] = intern(type, stringIds, strings);
+      }
+      artifactRecords.add(artifactRecord);
+    }
+    List<int[]> dependencyRecords = new ArrayList<>(depGraph.edgeSet().size());
+    for (GraphModel.Dependency dependency : depGraph.edgeSet()) {
+      dependencyRecords.add(
+          new int[] {
+            vertexIds.get(depGraph.getEdgeSource(dependency)),
+            vertexIds.get(depGraph.getEdgeTarget(dependency)),
+            intern(dependency.getFrom(), stringIds, strings),
+            intern(dependency.getTo(), stringIds, strings),
+            dependency.getNumericFrom(),
+            dependency.getNumericTo(),
+            dependency.getResolution() == null
+                ? NULL_ID
+                : intern(dependency.getResolution().name(), stringIds, strings)
+          });
+    }
+    final int graphName =
+        intern(graphModel == null ? null : graphModel.getGraphName(), stringIds, strings);
+
+    Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+    // write to a temp file first, other processes may read the snapshot concurrently
+    final Path tmpFile =
+        Files.createTempFile(snapshotFile.toAbsolutePath().getParent(), "dgs", ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(strings.size());
+        for (String string : strings) {
+          final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+        out.writeInt(graphName);
+        out.writeInt(artifactRecords.size());
+        for (int[] artifactRecord : artifactRecords) {
+          for (int value : artifactRecord) {
+            out.writeInt(value);
+          }
+        }
+        out.writeInt(dependencyRecords.size());
+        for (int[] dependencyRecord : dependencyRecords) {
+          for (int value : dependencyRecord) {
+            out.writeInt(value);
+          }
+        }
+      }
+      Files.move(
+          tmpFile,
+          snapshotFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  public static Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+      read(Path snapshotFile) throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a dependency graph snapshot: " + snapshotFile);
+      }
+      final int version = buffer.getInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported dependency graph snapshot version: " + version);
+      }
+      final String[] strings = new String[buffer.getInt()];
+      byte[] bytes = new byte[64];
+      for (int i = 0; i < strings.length; i++) {
+        final int length = buffer.getInt();
+        if (length > bytes.length) {
+          bytes = new byte[Math.max(length, 2 * bytes.length)];
+        }
+        buffer.get(bytes, 0, length);
+        strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+      GraphModel graphModel = new GraphModel();
+      graphModel.setGraphName(string(strings, buffer.getInt()));
+
+      DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> depGraph =
+          new DefaultDirectedGraph<>(GraphModel.Dependency.class);
+      final GraphModel.Artifact[] artifacts = new GraphModel.Artifact[buffer.getInt()];
+      for (int v = 0; v < artifacts.length; v++) {
+        GraphModel.Artifact artifact = new GraphModel.Artifact();
+        artifact.setId(string(strings, buffer.getInt()));
+        artifact.setNumericId(buffer.getInt());
+        artifact.setGroupId(string(strings, buffer.getInt()));
+        artifact.setArtifactId(string(strings, buffer.getInt()));
+        artifact.setVersion(string(strings, buffer.getInt()));
+        artifact.setOptional(buffer.getInt() != 0);
+        artifact.setScopes(readStrings(strings, buffer));
+        artifact.setTypes(readStrings(strings, buffer));
+        depGraph.addVertex(artifact);
+        artifacts[v] = artifact;
+      }
+      final int nrOfDependencies = buffer.getInt();
+      List<GraphModel.Dependency> dependencies = new ArrayList<>(nrOfDependencies);
+      // the resolution is stored by name, thus the snapshot survives reordering the enum
+      Map<String, GraphModel.ResolutionType> resolutions = new HashMap<>();
+      for (int e = 0; e < nrOfDependencies; e++) {
+        final GraphModel.Artifact source = artifacts[buffer.getInt()];
+        final GraphModel.Artifact target = artifacts[buffer.getInt()];
+        GraphModel.Dependency dependency = new GraphModel.Dependency();
+        dependency.setFrom(string(strings, buffer.getInt()));
+        dependency.setTo(string(strings, buffer.getInt()));
+        dependency.setNumericFrom(buffer.getInt());
+        dependency.setNumericTo(buffer.getInt());
+        final String resolution = string(strings, buffer.getInt());
+        dependency.setResolution(
+            resolution == null
+                ? null
+                : resolutions.computeIfAbsent(resolution, GraphModel.ResolutionType::valueOf));
+        depGraph.addEdge(source, target, dependency);
+        dependencies.add(dependency);
+      }
+      graphModel.setArtifacts(new ArrayList<>(depGraph.vertexSet()));
+      graphModel.setDependencies(dependencies);
+      return Pair.of(depGraph, graphModel);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Truncated dependency graph snapshot: " + snapshotFile, e);
+    }
+  }
+
+  private static List<String> readStrings(String[] strings, MappedByteBuffer buffer) {
+    final int size = buffer.getInt();
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(strings[buffer.getInt()]);
+    }
+    return values;
+  }
+
+  private static String string(String[] strings, int id) {
+    return id == NULL_ID ? null : strings[id];
+  }
+
+  private static int intern(String value, Map<String, Integer> stringIds, List<String> strings) {
+    if (value == null) {
+      return NULL_ID;
+    }
+    return stringIds.computeIfAbsent(
+        value,
+        v -> {
+          strings.add(v);
+          return strings.size() - 1;
+        });
+  }
+
+  private static <T> List<T> nullToEmpty(List<T> list) {
+    return list == null ? Collections.emptyList() : list;
+  }
+}
@@ -0,0 +1,189 @@
+package de.upb.upcy.update.recommendation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Soot-independent table of the methods referenced by the shrinked call graph. Each method is
+ * interned once by its signature and afterwards referenced by an int id, e.g., in {@link
+ * CustomEdge} and {@link de.upb.upcy.update.recommendation.check.Violation}. Class and type names
+ * are shared through a string pool.
+ *
+ * <p>Interning is not thread-safe; the table is filled once while shrinking the call graph and
+ * only read afterwards.
+ *
+ * @author adann
+ */
+public class MethodTable {
+
+  /** Reserved id for the pseudo call reported by forward violations */
+  public static final int FORWARD_VIOLATION_CALL = 0;
+
+  private static final String FORWARD_VIOLATION_SIGNATURE = "FORWARD_VIOLATION_CALL";
+  private static final String[] NO_PARAMETERS = new String[0];
+
+  private final Map<String, Integer> signatureToId = new HashMap<>();
+  private final Map<String, String> stringPool = new HashMap<>();
+
+  private final List<String> signatures = new ArrayList<>();
+  private final List<String> declaringClasses = new ArrayList<>();
+  private final List<String> names = new ArrayList<>();
+  private final List<String> returnTypes = new ArrayList<>();
+  private final List<String[]> parameterTypes = new ArrayList<>();
+
+  public MethodTable() {
+    intern(
+        FORWARD_VIOLATION_SIGNATURE,
+        "",
+        FORWARD_VIOLATION_SIGNATURE,
+        "void",
+        Collections.singletonList("void"));
+  }
+
+  /**
+   * Returns the id of the method with the given signature, adding it to the table if necessary
+   *
+   * @param signature the unique method signature, e.g., Soot's {@code <cls: ret name(params)>}
+   * @param declaringClass the fully qualified name of the declaring class
+   * @param name the method name
+   * @param returnType the (quoted) return type
+   * @param parameters the (quoted) parameter types
+   * @return the id of the method
+   */
+  public int intern(
+      String signature,
+      String declaringClass,
+      String name,
+      String returnType,
+      List<String> parameters) {
+    final Integer existing = signatureToId.get(signature);
+    if (existing != null) {
+      return existing;
+    }
+    final int id = signatures.size();
+    signatures.add(signature);
+    declaringClasses.add(pool(declaringClass));
+    names.add(pool(name));
+    returnTypes.add(pool(returnType));
+    if (parameters == null || parameters.isEmpty()) {
+      parameterTypes.add(NO_PARAMETERS);
+    } else {
+      final String[] params = new String[parameters.size()];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = pool(parameters.get(i));
+      }
+      parameterTypes.add(params);
+    }
+    signatureToId.put(signature, id);
+    return id;
+  }
+
+  private String pool(String value) {
+    if (value == null) {
+      return null;
+    }
+    final String pooled = stringPool.putIfAbsent(value, value);
+    return pooled == null ? value : pooled;
+  }
+
+  /**
+   * Returns the id of a method already in the table, or -1
+   *
+   * @param signature the method signature
+   * @return the id or -1 if the method is unknown
+   */
+  public int getId(String signature) {
+    final Integer id = signatureToId.get(signature);
+    return id == null ? -1 : id;
+  }
+
+  public int size() {
+    return signatures.size();
+  }
+
+  public String getSignature(int id) {
+    return signatures.get(id);
+  }
+
+  public String getDeclaringClass(int id) {
+    return declaringClasses.get(id);
+  }
+
+  public String getName(int id) {
+    return names.get(id);
+  }
+
+  public String getReturnType(int id) {
+    return returnTypes.get(id);
+  }
+
+  public int getParameterCount(int id) {
+    return parameterTypes.get(id).length;
+  }
+
+  public String getParameterType(int id, int index) {
+    return parameterTypes.get(id)[index];
+  }
+
+  public List<String> getParameterTypes(int id) {
+    return Collections.unmodifiableList(Arrays.asList(parameterTypes.get(id)));
+  }
+
+  /**
+   * Resolves the given method ids to their signatures
+   *
+   * @param ids the method ids
+   * @return the signatures in the order of the ids
+   */
+  public List<String> resolve(Collection<Integer> ids) {
+    List<String> resolved = new ArrayList<>(ids.size());
+    for (Integer id : ids) {
+      resolved.add(getSignature(id));
+    }
+    return resolved;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(size());
+    // the reserved entries are created by the constructor
+    for (int id = FORWARD_VIOLATION_CALL + 1; id < size(); id++) {
+      out.writeUTF(signatures.get(id));
+      out.writeUTF(declaringClasses.get(id));
+      out.writeUTF(names.get(id));
+      out.writeUTF(returnTypes.get(id));
+      final String[] params = parameterTypes.get(id);
+      out.writeInt(params.length);
+      for (String param : params) {
+        out.writeUTF(param);
+      }
+    }
+  }
+
+  static MethodTable read(DataInputStream in) throws IOException {
+    MethodTable methodTable = new MethodTable();
+    final int size = in.readInt();
+    for (int id = FORWARD_VIOLATION_CALL + 1; id < size; id++) {
+      final String signature = in.readUTF();
+      final String declaringClass = in.readUTF();
+      final String name = in.readUTF();
+      final String returnType = in.readUTF();
+      final int nrOfParams = in.readInt();
+      List<String> params = new ArrayList<>(nrOfParams);
+      for (int i = 0; i < nrOfParams; i++) {
+        params.add(in.readUTF());
+      }
+      if (methodTable.intern(signature, declaringClass, name, returnType, params) != id) {
+        throw new IOException("Duplicate method in method table: " + signature);
+      }
+    }
+    return methodTable;
+  }
+}
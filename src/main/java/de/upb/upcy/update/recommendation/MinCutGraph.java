@@ -0,0 +1,502 @@
+package de.upb.upcy.update.recommendation;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+import org.jgrapht.alg.flow.EdmondsKarpMFImpl;
+import org.jgrapht.alg.interfaces.MinimumSTCutAlgorithm;
+import org.jgrapht.graph.AsUndirectedGraph;
+import org.jgrapht.graph.AsWeightedGraph;
+import org.jgrapht.graph.DirectedPseudograph;
+import org.jgrapht.graph.WeightedPseudograph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The undirected, weighted view of the (blossom) dependency graph the min-(s,t)-cut is computed
+ * on. Weights are always set on the original {@link GraphModel.Dependency} edges.
+ *
+ * <p>With MINCUT_COARSENING enabled, the graph is coarsened before computing the cut:
+ *
+ * <ul>
+ *   <li>vertices not connected to the library to update are dropped
+ *   <li>degree-1 leaves (and thus dangling subtrees) outside the s-t region are peeled off
+ *   <li>chains of degree-2 vertices are collapsed into a single edge with the minimal weight
+ * </ul>
+ *
+ * The cut is computed on the coarse graph and mapped back: cut chains are cut at the same edge
+ * Edmonds-Karp would pick on the original graph, and removed vertices are assigned to the
+ * partition they would end up in.
+ *
+ * <p>For multiple sinks, the sinks are contracted into the first one before computing the cut,
+ * which yields the min-cut separating the source from all sinks.
+ *
+ * @author adann
+ */
+public class MinCutGraph {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MinCutGraph.class);
+
+  private static boolean MINCUT_COARSENING = false;
+
+  static {
+    String coarsening = System.getenv("MINCUT_COARSENING");
+    if (StringUtils.isNotBlank(coarsening)) {
+      MINCUT_COARSENING = Boolean.parseBoolean(coarsening);
+    }
+  }
+
+  private final Graph<GraphModel.Artifact, GraphModel.Dependency> directedGraph;
+  // the graph with the sinks contracted into the sink, the cut is computed on
+  private final Graph<GraphModel.Artifact, GraphModel.Dependency> contractedGraph;
+  private final GraphModel.Artifact source;
+  private final GraphModel.Artifact sink;
+  private final Set<GraphModel.Artifact> sinks;
+  private final Graph<GraphModel.Artifact, GraphModel.Dependency> cutGraph;
+  private final MinimumSTCutAlgorithm<GraphModel.Artifact, GraphModel.Dependency> minCutAlgorithm;
+  private final boolean coarsened;
+
+  // the initial and the current weights of the original edges
+  private final Map<GraphModel.Dependency, Double> baseWeights = new HashMap<>();
+  private final Map<GraphModel.Dependency, Double> weights = new HashMap<>();
+  // collapsed chains, keyed by their first edge
+  private final Map<GraphModel.Dependency, Chain> chains = new LinkedHashMap<>();
+  // the chain of each collapsed edge, null for the edges of hanging cycles
+  private final Map<GraphModel.Dependency, GraphModel.Dependency> chainOfEdge = new HashMap<>();
+  // removed vertices, in removal order, and the vertex they hang on
+  private final List<GraphModel.Artifact> peeledVertices = new ArrayList<>();
+  private final List<GraphModel.Artifact> cycleVertices = new ArrayList<>();
+  private final Map<GraphModel.Artifact, GraphModel.Artifact> anchors = new HashMap<>();
+
+  private Set<GraphModel.Dependency> cutEdges;
+  private Set<GraphModel.Artifact> sourcePartition;
+  private Set<GraphModel.Artifact> sinkPartition;
+
+  public MinCutGraph(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> directedGraph,
+      GraphModel.Artifact source,
+      GraphModel.Artifact sink,
+      Map<GraphModel.Dependency, Double> initWeights) {
+    this(directedGraph, source, sink, initWeights, MINCUT_COARSENING);
+  }
+
+  public MinCutGraph(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> directedGraph,
+      GraphModel.Artifact source,
+      Set<GraphModel.Artifact> sinks,
+      Map<GraphModel.Dependency, Double> initWeights) {
+    this(directedGraph, source, sinks, initWeights, MINCUT_COARSENING);
+  }
+
+  public MinCutGraph(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> directedGraph,
+      GraphModel.Artifact source,
+      GraphModel.Artifact sink,
+      Map<GraphModel.Dependency, Double> initWeights,
+      boolean coarsen) {
+    this(directedGraph, source, Collections.singleton(sink), initWeights, coarsen);
+  }
+
+  /**
+   * @param directedGraph the (blossom) dependency graph
+   * @param source the root node
+   * @param sinks the libraries to update
+   * @param initWeights the initial edge weights, edges without a weight start with 1
+   * @param coarsen coarsen the graph before computing the cut
+   */
+  public MinCutGraph(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> directedGraph,
+      GraphModel.Artifact source,
+      Set<GraphModel.Artifact> sinks,
+      Map<GraphModel.Dependency, Double> initWeights,
+      boolean coarsen) {
+    if (sinks.isEmpty() || sinks.contains(source)) {
+      throw new IllegalArgumentException("The sinks must be non-empty and exclude the source");
+    }
+    this.directedGraph = directedGraph;
+    this.source = source;
+    this.sinks = new LinkedHashSet<>(sinks);
+    this.sink = this.sinks.iterator().next();
+    this.contractedGraph = this.sinks.size() == 1 ? directedGraph : contractSinks();
+    directedGraph
+        .edgeSet()
+        .forEach(
+            x -> baseWeights.put(x, initWeights == null ? 1.0 : initWeights.getOrDefault(x, 1.0)));
+    weights.putAll(baseWeights);
+
+    Graph<GraphModel.Artifact, GraphModel.Dependency> coarseGraph = null;
+    if (coarsen) {
+      coarseGraph = coarsen();
+    }
+    if (coarseGraph != null) {
+      this.cutGraph = coarseGraph;
+      this.coarsened = true;
+      LOGGER.info(
+          "Coarsened min-cut graph from v:{} e:{} to v:{} e:{}",
+          directedGraph.vertexSet().size(),
+          directedGraph.edgeSet().size(),
+          cutGraph.vertexSet().size(),
+          cutGraph.edgeSet().size());
+    } else {
+      this.cutGraph =
+          new AsWeightedGraph<>(new AsUndirectedGraph<>(contractedGraph), new HashMap<>(weights));
+      this.coarsened = false;
+    }
+    this.minCutAlgorithm = new EdmondsKarpMFImpl<>(cutGraph);
+  }
+
+  /** @return the graph with all sinks merged into the first one, edges between sinks are dropped */
+  private Graph<GraphModel.Artifact, GraphModel.Dependency> contractSinks() {
+    Graph<GraphModel.Artifact, GraphModel.Dependency> contracted =
+        new DirectedPseudograph<>(GraphModel.Dependency.class);
+    for (GraphModel.Artifact v : directedGraph.vertexSet()) {
+      if (v == sink || !sinks.contains(v)) {
+        contracted.addVertex(v);
+      }
+    }
+    for (GraphModel.Dependency e : directedGraph.edgeSet()) {
+      final GraphModel.Artifact src = toContracted(directedGraph.getEdgeSource(e));
+      final GraphModel.Artifact tgt = toContracted(directedGraph.getEdgeTarget(e));
+      if (src != tgt) {
+        contracted.addEdge(src, tgt, e);
+      }
+    }
+    return contracted;
+  }
+
+  private GraphModel.Artifact toContracted(GraphModel.Artifact v) {
+    return sinks.contains(v) ? sink : v;
+  }
+
+  /** @return the coarse graph, or null if source and sink are not connected */
+  private Graph<GraphModel.Artifact, GraphModel.Dependency> coarsen() {
+    final Graph<GraphModel.Artifact, GraphModel.Dependency> undirected =
+        new AsUndirectedGraph<>(contractedGraph);
+
+    // 1. only keep the vertices connected to the library to update
+    Set<GraphModel.Artifact> alive = new LinkedHashSet<>();
+    Queue<GraphModel.Artifact> worklist = new ArrayDeque<>();
+    alive.add(sink);
+    worklist.add(sink);
+    while (!worklist.isEmpty()) {
+      final GraphModel.Artifact v = worklist.poll();
+      for (GraphModel.Dependency e : undirected.edgesOf(v)) {
+        final GraphModel.Artifact w = Graphs.getOppositeVertex(undirected, e, v);
+        if (alive.add(w)) {
+          worklist.add(w);
+        }
+      }
+    }
+    if (!alive.contains(source)) {
+      return null;
+    }
+
+    // 2. peel off the degree-1 leaves, self-loops never contribute to a cut
+    Map<GraphModel.Artifact, Integer> degree = new HashMap<>();
+    for (GraphModel.Artifact v : alive) {
+      final int d = aliveEdges(undirected, alive, v).size();
+      degree.put(v, d);
+      if (d <= 1 && v != source && v != sink) {
+        worklist.add(v);
+      }
+    }
+    while (!worklist.isEmpty()) {
+      final GraphModel.Artifact v = worklist.poll();
+      if (!alive.contains(v)) {
+        continue;
+      }
+      final List<GraphModel.Dependency> edges = aliveEdges(undirected, alive, v);
+      alive.remove(v);
+      peeledVertices.add(v);
+      for (GraphModel.Dependency e : edges) {
+        final GraphModel.Artifact w = Graphs.getOppositeVertex(undirected, e, v);
+        anchors.put(v, w);
+        final int d = degree.merge(w, -1, Integer::sum);
+        if (d <= 1 && w != source && w != sink) {
+          worklist.add(w);
+        }
+      }
+    }
+
+    // 3. collapse the chains of degree-2 vertices
+    Set<GraphModel.Artifact> visited = new HashSet<>();
+    Set<GraphModel.Artifact> chainInner = new HashSet<>();
+    for (GraphModel.Artifact v : alive) {
+      if (visited.contains(v) || !isChainVertex(undirected, alive, degree, v)) {
+        continue;
+      }
+      final List<GraphModel.Dependency> edges = aliveEdges(undirected, alive, v);
+      Chain left = walkChain(undirected, alive, degree, v, edges.get(0));
+      Chain right = walkChain(undirected, alive, degree, v, edges.get(1));
+      // path: left end ... v ... right end
+      Chain chain = new Chain();
+      for (int i = left.vertices.size() - 1; i >= 0; i--) {
+        chain.vertices.add(left.vertices.get(i));
+        chain.edges.add(left.edges.get(i));
+      }
+      chain.vertices.add(v);
+      chain.vertices.addAll(right.vertices);
+      chain.edges.addAll(right.edges);
+
+      final int n = chain.edges.size();
+      final GraphModel.Artifact start = chain.vertices.get(0);
+      final GraphModel.Artifact end = chain.vertices.get(n);
+      for (int j = 1; j < n; j++) {
+        visited.add(chain.vertices.get(j));
+        chainInner.add(chain.vertices.get(j));
+      }
+      if (start == end) {
+        // a cycle hanging on a single vertex is never cut
+        for (int j = 1; j < n; j++) {
+          anchors.put(chain.vertices.get(j), start);
+          cycleVertices.add(chain.vertices.get(j));
+        }
+        chain.edges.forEach(e -> chainOfEdge.put(e, null));
+        continue;
+      }
+      final GraphModel.Dependency representative = chain.edges.get(0);
+      chains.put(representative, chain);
+      chain.edges.forEach(e -> chainOfEdge.put(e, representative));
+    }
+    alive.removeAll(chainInner);
+
+    // 4. build the coarse graph
+    Graph<GraphModel.Artifact, GraphModel.Dependency> coarseGraph =
+        new WeightedPseudograph<>(GraphModel.Dependency.class);
+    alive.forEach(coarseGraph::addVertex);
+    for (GraphModel.Dependency e : contractedGraph.edgeSet()) {
+      if (chainOfEdge.containsKey(e)) {
+        final Chain chain = chains.get(e);
+        if (chain != null) {
+          coarseGraph.addEdge(chain.vertices.get(0), chain.vertices.get(chain.edges.size()), e);
+          coarseGraph.setEdgeWeight(e, chainWeight(chain));
+        }
+        continue;
+      }
+      final GraphModel.Artifact src = contractedGraph.getEdgeSource(e);
+      final GraphModel.Artifact tgt = contractedGraph.getEdgeTarget(e);
+      if (src != tgt && alive.contains(src) && alive.contains(tgt)) {
+        coarseGraph.addEdge(src, tgt, e);
+        coarseGraph.setEdgeWeight(e, weights.get(e));
+      }
+    }
+    return coarseGraph;
+  }
+
+  private boolean isChainVertex(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> undirected,
+      Set<GraphModel.Artifact> alive,
+      Map<GraphModel.Artifact, Integer> degree,
+      GraphModel.Artifact v) {
+    if (v == source || v == sink || !alive.contains(v) || degree.get(v) != 2) {
+      return false;
+    }
+    final List<GraphModel.Dependency> edges = aliveEdges(undirected, alive, v);
+    // two distinct neighbors, parallel edges are not a chain
+    return Graphs.getOppositeVertex(undirected, edges.get(0), v)
+        != Graphs.getOppositeVertex(undirected, edges.get(1), v);
+  }
+
+  private static List<GraphModel.Dependency> aliveEdges(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> undirected,
+      Set<GraphModel.Artifact> alive,
+      GraphModel.Artifact v) {
+    List<GraphModel.Dependency> edges = new ArrayList<>(2);
+    for (GraphModel.Dependency e : undirected.edgesOf(v)) {
+      final GraphModel.Artifact w = Graphs.getOppositeVertex(undirected, e, v);
+      if (w != v && alive.contains(w)) {
+        edges.add(e);
+      }
+    }
+    return edges;
+  }
+
+  /**
+   * Walks from the chain vertex v over the given edge until the first vertex that is not a chain
+   * vertex
+   *
+   * @return the walked edges and the vertices reached by them
+   */
+  private Chain walkChain(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> undirected,
+      Set<GraphModel.Artifact> alive,
+      Map<GraphModel.Artifact, Integer> degree,
+      GraphModel.Artifact v,
+      GraphModel.Dependency edge) {
+    Chain walk = new Chain();
+    GraphModel.Artifact current = v;
+    GraphModel.Dependency currentEdge = edge;
+    while (true) {
+      final GraphModel.Artifact next = Graphs.getOppositeVertex(undirected, currentEdge, current);
+      walk.edges.add(currentEdge);
+      walk.vertices.add(next);
+      if (next == v || !isChainVertex(undirected, alive, degree, next)) {
+        return walk;
+      }
+      for (GraphModel.Dependency e : aliveEdges(undirected, alive, next)) {
+        if (e != currentEdge) {
+          currentEdge = e;
+          break;
+        }
+      }
+      current = next;
+    }
+  }
+
+  private double chainWeight(Chain chain) {
+    double min = Double.MAX_VALUE;
+    for (GraphModel.Dependency e : chain.edges) {
+      min = Math.min(min, weights.get(e));
+    }
+    return min;
+  }
+
+  /** @return the edges the min-cut can be computed on */
+  public Set<GraphModel.Dependency> edgeSet() {
+    return cutGraph.edgeSet();
+  }
+
+  public GraphModel.Artifact getEdgeTarget(GraphModel.Dependency edge) {
+    return directedGraph.getEdgeTarget(edge);
+  }
+
+  /** @return the initial weight of the edge */
+  public double getBaseWeight(GraphModel.Dependency edge) {
+    return baseWeights.getOrDefault(edge, Graph.DEFAULT_EDGE_WEIGHT);
+  }
+
+  public double getEdgeWeight(GraphModel.Dependency edge) {
+    if (!coarsened) {
+      return cutGraph.getEdgeWeight(edge);
+    }
+    return weights.getOrDefault(edge, Graph.DEFAULT_EDGE_WEIGHT);
+  }
+
+  public void setEdgeWeight(GraphModel.Dependency edge, double weight) {
+    if (!coarsened) {
+      cutGraph.setEdgeWeight(edge, weight);
+      return;
+    }
+    weights.put(edge, weight);
+    final GraphModel.Dependency representative =
+        chainOfEdge.containsKey(edge) ? chainOfEdge.get(edge) : edge;
+    if (representative == null || !cutGraph.containsEdge(representative)) {
+      // the edge is never cut
+      return;
+    }
+    final Chain chain = chains.get(representative);
+    cutGraph.setEdgeWeight(representative, chain == null ? weight : chainWeight(chain));
+  }
+
+  /**
+   * Computes the min-(s,t)-cut between the source and the sinks, afterwards the cut edges and
+   * partitions refer to the original graph
+   *
+   * @return the weight of the cut
+   */
+  public double calculateMinCut() {
+    final double cutWeight = minCutAlgorithm.calculateMinCut(source, sink);
+    if (!coarsened) {
+      cutEdges = minCutAlgorithm.getCutEdges();
+      sourcePartition = minCutAlgorithm.getSourcePartition();
+      sinkPartition = minCutAlgorithm.getSinkPartition();
+      if (sinks.size() > 1) {
+        // the contracted sinks
+        sinkPartition = new HashSet<>(sinkPartition);
+        sinkPartition.addAll(sinks);
+      }
+      return cutWeight;
+    }
+
+    final Set<GraphModel.Artifact> coarseSource = minCutAlgorithm.getSourcePartition();
+    sourcePartition = new HashSet<>(coarseSource);
+    sinkPartition = new HashSet<>(minCutAlgorithm.getSinkPartition());
+    cutEdges = new LinkedHashSet<>();
+    for (GraphModel.Dependency e : minCutAlgorithm.getCutEdges()) {
+      if (!chains.containsKey(e)) {
+        cutEdges.add(e);
+      }
+    }
+
+    for (Chain chain : chains.values()) {
+      final int n = chain.edges.size();
+      final boolean startInSource = coarseSource.contains(chain.vertices.get(0));
+      final boolean endInSource = coarseSource.contains(chain.vertices.get(n));
+      if (startInSource == endInSource) {
+        for (int j = 1; j < n; j++) {
+          (startInSource ? sourcePartition : sinkPartition).add(chain.vertices.get(j));
+        }
+        continue;
+      }
+      // the flow saturates the chain, Edmonds-Karp cuts the first minimal edge seen from the
+      // source side
+      final double min = chainWeight(chain);
+      int cut = -1;
+      for (int step = 0; step < n && cut < 0; step++) {
+        final int i = startInSource ? step : n - 1 - step;
+        if (weights.get(chain.edges.get(i)) == min) {
+          cut = i;
+        }
+      }
+      cutEdges.add(chain.edges.get(cut));
+      for (int j = 1; j < n; j++) {
+        final boolean inSource = startInSource ? j <= cut : j > cut;
+        (inSource ? sourcePartition : sinkPartition).add(chain.vertices.get(j));
+      }
+    }
+
+    // removed vertices end up in the partition of the vertex they hang on
+    for (GraphModel.Artifact v : cycleVertices) {
+      addToPartitionOf(v, anchors.get(v));
+    }
+    for (int i = peeledVertices.size() - 1; i >= 0; i--) {
+      final GraphModel.Artifact v = peeledVertices.get(i);
+      addToPartitionOf(v, anchors.get(v));
+    }
+    // vertices not connected to the source are not reachable from it
+    for (GraphModel.Artifact v : directedGraph.vertexSet()) {
+      if (!sourcePartition.contains(v)) {
+        sinkPartition.add(v);
+      }
+    }
+    return cutWeight;
+  }
+
+  private void addToPartitionOf(GraphModel.Artifact v, GraphModel.Artifact anchor) {
+    if (anchor != null && sourcePartition.contains(anchor)) {
+      sourcePartition.add(v);
+    } else {
+      sinkPartition.add(v);
+    }
+  }
+
+  public Set<GraphModel.Dependency> getCutEdges() {
+    return cutEdges;
+  }
+
+  public Set<GraphModel.Artifact> getSourcePartition() {
+    return sourcePartition;
+  }
+
+  public Set<GraphModel.Artifact> getSinkPartition() {
+    return sinkPartition;
+  }
+
+  /** A path of vertices and the edges between them, edge i connects vertex i and i + 1 */
+  private static class Chain {
+    private final List<GraphModel.Artifact> vertices = new ArrayList<>();
+    private final List<GraphModel.Dependency> edges = new ArrayList<>();
+  }
+}
@@ -3,16 +3,25 @@ package de.upb.upcy.update.recommendation;
 import de.upb.maven.ecosystem.persistence.model.DependencyRelation;
 import de.upb.maven.ecosystem.persistence.model.MvnArtifactNode;
 import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.update.recommendation.classindex.ClassIndex;
+import de.upb.upcy.update.recommendation.classindex.JarClassReader;
+import de.upb.upcy.update.recommendation.classindex.JarClasses;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Stream;
@@ -32,8 +41,7 @@ public class NodeMatchUtil {
   private static final Logger LOGGER = LoggerFactory.getLogger(NodeMatchUtil.class);
 
   private final GraphModel.Artifact rootNode;
-  private final HashMap<String, String> classToGav = new HashMap<>();
-  private final HashMap<String, Set<String>> GavToClasses = new HashMap<>();
+  private final ClassIndex classIndex = new ClassIndex();
 
   public NodeMatchUtil(GraphModel.Artifact rootNode) {
     this.rootNode = rootNode;
@@ -81,12 +89,28 @@ public class NodeMatchUtil {
     return classNames;
   }
 
-  public HashMap<String, String> getClassToGav() {
-    return classToGav;
+  /**
+   * @param className the fully qualified class name
+   * @return the GAV of the classpath entry containing the class, or null
+   */
+  public String getGavOfClass(String className) {
+    return classIndex.getGav(className);
   }
 
-  public HashMap<String, Set<String>> getGavToClasses() {
-    return GavToClasses;
+  /**
+   * @param gav the GAV of a classpath entry
+   * @return the packages of the classes in the classpath entry
+   */
+  public Set<String> getPackagesOfGav(String gav) {
+    return classIndex.getPackages(gav);
+  }
+
+  /**
+   * @param gav the GAV of a classpath entry
+   * @return the fully qualified names of the classes in the classpath entry, or null
+   */
+  public Set<String> getClassesOfGav(String gav) {
+    return classIndex.getClassNames(gav);
   }
 
   public Optional<String> findInDepGraphByGav(
@@ -96,16 +120,38 @@ public class NodeMatchUtil {
   }
 
   public void computeJarAndClassMapping(Collection<String> runtimeDir) throws IOException {
-
-    // setup compute class mapping
-    for (String cpEntry : runtimeDir) {
-      final Set<String> classNamesFromJarFile = getClassNamesFromJarFileOrDir(new File(cpEntry));
-
-      String jarFileName = toGav(cpEntry);
-      this.GavToClasses.put(jarFileName, classNamesFromJarFile);
-      for (String clName : classNamesFromJarFile) {
-        classToGav.put(clName, jarFileName);
+    if (runtimeDir.isEmpty()) {
+      return;
+    }
+    // read the classpath entries in parallel, but merge them in classpath order
+    final ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            Math.min(runtimeDir.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      List<Future<JarClasses>> futures = new ArrayList<>();
+      for (String cpEntry : runtimeDir) {
+        futures.add(
+            executorService.submit(
+                () -> JarClassReader.read(Paths.get(cpEntry), classIndex::internPackage)));
+      }
+      int i = 0;
+      for (String cpEntry : runtimeDir) {
+        final JarClasses jarClasses;
+        try {
+          jarClasses = futures.get(i++).get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException("Failed reading classes of " + cpEntry, e.getCause());
+        }
+        classIndex.add(toGav(cpEntry), jarClasses);
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading classpath", e);
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
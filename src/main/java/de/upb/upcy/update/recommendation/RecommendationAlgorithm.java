@@ -1,6 +1,5 @@
 package de.upb.upcy.update.recommendation;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Stopwatch;
 import de.upb.maven.ecosystem.persistence.dao.DaoMvnArtifactNode;
 import de.upb.maven.ecosystem.persistence.dao.DoaMvnArtifactNodeImpl;
@@ -8,16 +7,22 @@ import de.upb.maven.ecosystem.persistence.dao.Neo4JConnector;
 import de.upb.maven.ecosystem.persistence.model.DependencyRelation;
 import de.upb.maven.ecosystem.persistence.model.MvnArtifactNode;
 import de.upb.upcy.base.graph.GraphModel;
-import de.upb.upcy.base.graph.GraphParser;
 import de.upb.upcy.base.mvn.MavenInvokerProject;
-import de.upb.upcy.base.mvn.MavenSearchAPIClient;
 import de.upb.upcy.update.recommendation.check.UpdateCheck;
 import de.upb.upcy.update.recommendation.check.Violation;
+import de.upb.upcy.update.recommendation.compatabilityparser.CompatabilityCheck;
 import de.upb.upcy.update.recommendation.cypher.CypherQueryCreator;
+import de.upb.upcy.update.recommendation.cypher.PathBounds;
+import de.upb.upcy.update.recommendation.daemon.SootDaemonClient;
 import de.upb.upcy.update.recommendation.exception.CompatabilityComputeException;
 import de.upb.upcy.update.recommendation.exception.EmptyCallGraphException;
+import de.upb.upcy.update.recommendation.incremental.IncrementalCache;
+import de.upb.upcy.update.recommendation.versions.VersionIndex;
+import de.upb.upcy.update.recommendation.versions.VersionOrdinals;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -27,30 +32,40 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.jgrapht.Graph;
-import org.jgrapht.alg.flow.EdmondsKarpMFImpl;
-import org.jgrapht.alg.interfaces.MinimumSTCutAlgorithm;
 import org.jgrapht.graph.AsSubgraph;
-import org.jgrapht.graph.AsUndirectedGraph;
-import org.jgrapht.graph.AsWeightedGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.DefaultAttribute;
 import org.jgrapht.nio.dot.DOTExporter;
 import org.jgrapht.traverse.BreadthFirstIterator;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.exceptions.Neo4jException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,13 +78,55 @@ import org.slf4j.LoggerFactory;
 public class RecommendationAlgorithm {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RecommendationAlgorithm.class);
-  private final DaoMvnArtifactNode doaMvnArtifactNode;
+
+  // derive the min-cut's edge weights from the calls along the dependency edges, instead of 1
+  private static boolean CALL_GRAPH_EDGE_WEIGHTS = false;
+  // order the (cut, version) candidates by their predicted violations, instead of discovery order
+  private static boolean BEST_FIRST_SEARCH = false;
+  // max number of evaluated candidates per update request, a value <= 0 means unbounded
+  private static int MAX_EVALUATIONS = -1;
+  // number of min-cuts discovered ahead before evaluating the cheapest candidate, if best-first
+  private static final int CUT_LOOKAHEAD = 8;
+  // number of update requests of a module computed concurrently by runBatch
+  private static int BATCH_THREADS = 4;
+
+  static {
+    String edgeWeights = System.getenv("MINCUT_EDGE_WEIGHTS");
+    if (StringUtils.isNotBlank(edgeWeights)) {
+      CALL_GRAPH_EDGE_WEIGHTS = StringUtils.equalsIgnoreCase(edgeWeights, "callgraph");
+    }
+    String search = System.getenv("MINCUT_SEARCH");
+    if (StringUtils.isNotBlank(search)) {
+      BEST_FIRST_SEARCH = StringUtils.equalsIgnoreCase(search, "bestfirst");
+    }
+    String batchThreads = System.getenv("RECOMMENDATION_THREADS");
+    if (StringUtils.isNotBlank(batchThreads)) {
+      try {
+        BATCH_THREADS = Integer.parseInt(batchThreads);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String maxEvaluations = System.getenv("MINCUT_MAX_EVALUATIONS");
+    if (StringUtils.isNotBlank(maxEvaluations)) {
+      try {
+        MAX_EVALUATIONS = Integer.parseInt(maxEvaluations);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  // the Neo4j driver is thread-safe, its DAO is not documented to be, thus one per batch thread
+  private final ThreadLocal<DaoMvnArtifactNode> doaMvnArtifactNode;
 
   private final MavenInvokerProject mavenInvokerProject;
   private NodeMatchUtil nodeMatchUtil;
   private Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
       pairGraph;
   private Graph<String, CustomEdge> shrinkedCG;
+  private MethodTable methodTable;
+  private boolean partialCG;
   private boolean isInitialized;
   private DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> depGraph;
   private GraphModel.Artifact rootNode;
@@ -77,7 +134,30 @@ public class RecommendationAlgorithm {
   private Graph<GraphModel.Artifact, GraphModel.Dependency> blossemedDepGraph;
   private BlossomGraphCreator blossomGraphCreator;
   private CypherQueryCreator cypherQueryCreator;
-  private String targetGav;
+  // the compile-only views of the dependency and the blossom graph, shared by all requests
+  private AsSubgraph<GraphModel.Artifact, GraphModel.Dependency> depSubGraphOnlyCompileAndIncluded;
+  private AsSubgraph<GraphModel.Artifact, GraphModel.Dependency> blossomGraphCompileOnly;
+  // port of a running SootAnalysisDaemon, a value <= 0 computes the call graph in this process
+  private int sootDaemonPort = -1;
+  // snapshot of the module's last analysis, to reuse the call graph of unchanged jars
+  private IncrementalCache incrementalCache;
+  // gavs of the classpath entries that are new or changed since the last analysis
+  private Set<String> changedClassPathEntries = Collections.emptySet();
+  // shared across the update requests, to learn from earlier evaluations
+  private CandidateCostModel costModel =
+      BEST_FIRST_SEARCH ? new WeightedCandidateCostModel() : CandidateCostModel.FIFO;
+
+  // caches shared by the requests of the module, requests for the same key wait for each other
+  private final ConcurrentMap<
+          String,
+          CompletableFuture<Optional<DefaultDirectedGraph<MvnArtifactNode, DependencyRelation>>>>
+      updateSubGraphCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Set<GraphModel.Artifact>, CompletableFuture<Set<GraphModel.Artifact>>>
+      expandedPartitionCache = new ConcurrentHashMap<>();
+  // the bounds of the DEPENDS_ON patterns that found solutions, shared by the requests
+  private final PathBounds pathBounds = new PathBounds();
+  // the incompatibilities per version pair, shared by the requests
+  private final CompatabilityCheck compatabilityCheck = new CompatabilityCheck();
 
   public RecommendationAlgorithm(MavenInvokerProject mavenInvokerProject, Path depGraphJsonFile)
       throws IOException {
@@ -85,12 +165,40 @@ public class RecommendationAlgorithm {
     Driver driver = Neo4JConnector.getDriver();
     LOGGER.info("Connected successfully to Neo4j");
 
-    doaMvnArtifactNode = new DoaMvnArtifactNodeImpl(driver);
+    doaMvnArtifactNode = ThreadLocal.withInitial(() -> new DoaMvnArtifactNodeImpl(driver));
     this.mavenInvokerProject = mavenInvokerProject;
     this.pairGraph = getDepGraph(depGraphJsonFile);
     this.isInitialized = false;
   }
 
+  public void setSootDaemonPort(int sootDaemonPort) {
+    this.sootDaemonPort = sootDaemonPort;
+  }
+
+  public void setCostModel(CandidateCostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  public void setIncrementalCache(IncrementalCache incrementalCache) {
+    this.incrementalCache = incrementalCache;
+  }
+
+  public DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> getDependencyGraph() {
+    return pairGraph.getLeft();
+  }
+
+  public MethodTable getMethodTable() {
+    return methodTable;
+  }
+
+  /**
+   * @return the gavs of the classpath entries that are new or changed since the analysis stored in
+   *     the incremental cache, empty if no cache is set
+   */
+  public Set<String> getChangedClassPathEntries() {
+    return Collections.unmodifiableSet(changedClassPathEntries);
+  }
+
   // kick out non-compile dependencies and junit
   public static boolean isRelevantCompileDependency(GraphModel.Artifact artifact) {
     final boolean compile = artifact.getScopes().contains("compile");
@@ -102,7 +210,8 @@ public class RecommendationAlgorithm {
 
   public Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
   getDepGraph(Path jsonDepGraph) throws IOException {
-    pairGraph = GraphParser.parseGraph(jsonDepGraph);
+    // parsing the JSON dominates the startup of large modules, thus use the binary snapshot
+    pairGraph = DepGraphSnapshot.parseGraph(jsonDepGraph);
     return pairGraph;
   }
 
@@ -129,22 +238,9 @@ public class RecommendationAlgorithm {
       final String rootNodeGav = this.nodeMatchUtil.toGav(rootNode);
 
       // get the applications / rootNodes packages
-      final Set<String> classFQNs = nodeMatchUtil.getGavToClasses().get(rootNodeGav);
-      Set<String> applicationPkgs = Collections.emptySet();
-      if (classFQNs == null || classFQNs.isEmpty()) {
+      final Set<String> applicationPkgs = nodeMatchUtil.getPackagesOfGav(rootNodeGav);
+      if (applicationPkgs.isEmpty()) {
         LOGGER.error("Empty Class names for application");
-      } else {
-        applicationPkgs =
-            classFQNs.stream()
-                .map(
-                    fqn -> {
-                      final int index = fqn.lastIndexOf(".");
-                      if (index > 0) {
-                        return fqn.substring(0, index);
-                      }
-                      return fqn;
-                    })
-                .collect(Collectors.toSet());
       }
       // separate into classpath and application classes
       List<String> classPath = new ArrayList<>();
@@ -162,22 +258,137 @@ public class RecommendationAlgorithm {
       // build blossom graph
       blossomGraphCreator = new BlossomGraphCreator(depGraph, rootNode);
       blossemedDepGraph = blossomGraphCreator.buildBlossomDepGraph();
-      cypherQueryCreator = new CypherQueryCreator(blossomGraphCreator, nodeMatchUtil);
+      cypherQueryCreator =
+          new CypherQueryCreator(
+              blossomGraphCreator, nodeMatchUtil, VersionOrdinals.getInstance());
+      initCompileOnlyGraphs();
 
       // compute the input
-      CGBuilder cgBuilder = new CGBuilder(classPath, applicationClassDir, nodeMatchUtil);
-      cgBuilder.computeCGs(applicationPkgs);
-      shrinkedCG = cgBuilder.getShrinkedCG();
+      if (incrementalCache != null) {
+        computeCGIncrementally(moduleClassPath, classPath, applicationClassDir, applicationPkgs);
+      }
+      boolean applicationOnlyCG = false;
+      if (shrinkedCG == null && sootDaemonPort > 0) {
+        try {
+          final ShrinkedCGCodec.ShrinkedCG cg =
+              SootDaemonClient.computeCG(
+                  sootDaemonPort, rootNode, classPath, applicationClassDir, applicationPkgs);
+          shrinkedCG = cg.getGraph();
+          methodTable = cg.getMethodTable();
+          partialCG = cg.isPartialCG();
+        } catch (SocketTimeoutException e) {
+          // the daemon has been killed, the full analysis would not finish in process either
+          LOGGER.error("Soot daemon timed out, computing the application's calls in process");
+          applicationOnlyCG = true;
+        } catch (IOException e) {
+          LOGGER.error("Soot daemon failed, computing call graph in process", e);
+        }
+      }
+      if (shrinkedCG == null) {
+        CGBuilder cgBuilder = new CGBuilder(classPath, applicationClassDir, nodeMatchUtil);
+        cgBuilder.setApplicationOnly(applicationOnlyCG);
+        cgBuilder.computeCGs(applicationPkgs);
+        shrinkedCG = cgBuilder.getShrinkedCG();
+        methodTable = cgBuilder.getMethodTable();
+        partialCG = cgBuilder.isPartialCG();
+      }
 
       // set isInitialized
       this.isInitialized = true;
     }
   }
 
+  /**
+   * Computes the call graph reusing the snapshot of the last analysis: if no classpath entry
+   * changed, the stored call graph is used as is, otherwise Soot only analyzes the changed jars and
+   * the calls out of the unchanged jars are taken from the snapshot. Stores the new snapshot.
+   */
+  private void computeCGIncrementally(
+      Collection<String> moduleClassPath,
+      List<String> classPath,
+      List<String> applicationClassDir,
+      Set<String> applicationPkgs) {
+    Map<String, String> fingerprints = new LinkedHashMap<>();
+    for (String cpEntry : moduleClassPath) {
+      fingerprints.put(nodeMatchUtil.toGav(cpEntry), IncrementalCache.fingerprint(cpEntry));
+    }
+    final Map<String, String> previousFingerprints = incrementalCache.loadClassPath();
+    final ShrinkedCGCodec.ShrinkedCG previousCG =
+        previousFingerprints.isEmpty() ? null : incrementalCache.loadCallGraph();
+
+    changedClassPathEntries = new HashSet<>();
+    Set<String> unchangedLibs = new HashSet<>();
+    for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+      if (previousCG != null
+          && entry.getValue() != null
+          && entry.getValue().equals(previousFingerprints.get(entry.getKey()))) {
+        unchangedLibs.add(entry.getKey());
+      } else {
+        changedClassPathEntries.add(entry.getKey());
+      }
+    }
+    if (previousCG != null
+        && !previousCG.isPartialCG()
+        && changedClassPathEntries.isEmpty()
+        && fingerprints.keySet().equals(previousFingerprints.keySet())) {
+      LOGGER.info("Classpath unchanged, reusing the call graph of the last analysis");
+      shrinkedCG = previousCG.getGraph();
+      methodTable = previousCG.getMethodTable();
+      partialCG = false;
+      return;
+    }
+    LOGGER.info(
+        "Reusing the calls of #{} unchanged classpath entries, #{} changed",
+        unchangedLibs.size(),
+        changedClassPathEntries.size());
+    CGBuilder cgBuilder = new CGBuilder(classPath, applicationClassDir, nodeMatchUtil);
+    cgBuilder.setPreviousCG(previousCG, unchangedLibs);
+    cgBuilder.computeCGs(applicationPkgs);
+    shrinkedCG = cgBuilder.getShrinkedCG();
+    methodTable = cgBuilder.getMethodTable();
+    partialCG = cgBuilder.isPartialCG();
+    try {
+      incrementalCache.storeCallGraph(shrinkedCG, methodTable, partialCG);
+      incrementalCache.storeClassPath(fingerprints);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to store the call graph snapshot", e);
+    }
+  }
+
+  private void initCompileOnlyGraphs() {
+    depSubGraphOnlyCompileAndIncluded =
+        new AsSubgraph<>(
+            depGraph,
+            depGraph.vertexSet().stream()
+                .filter(RecommendationAlgorithm::isRelevantCompileDependency)
+                .collect(Collectors.toSet()),
+            depGraph.edgeSet().stream()
+                .filter(x -> x.getResolution() == GraphModel.ResolutionType.INCLUDED)
+                .collect(Collectors.toSet()));
+
+    // export graph for debugging
+    final DOTExporter<GraphModel.Artifact, GraphModel.Dependency> objectObjectDOTExporter =
+        new DOTExporter<>();
+    objectObjectDOTExporter.setVertexAttributeProvider(
+        v -> {
+          Map<String, Attribute> map = new LinkedHashMap<>();
+          map.put("label", DefaultAttribute.createAttribute(v.toGav()));
+          return map;
+        });
+
+    objectObjectDOTExporter.exportGraph(blossemedDepGraph, new File("out.dot"));
+
+    blossomGraphCompileOnly =
+        new AsSubgraph<>(
+            blossemedDepGraph,
+            blossemedDepGraph.vertexSet().stream()
+                .filter(RecommendationAlgorithm::isRelevantCompileDependency)
+                .collect(Collectors.toSet()),
+            blossemedDepGraph.edgeSet());
+  }
+
   public List<UpdateSuggestion> run(String gavOfLibraryToUpdate, String targetGav)
       throws MavenInvokerProject.BuildToolException {
-    this.targetGav = targetGav;
-
     final String[] targetGavSplit = targetGav.split(":");
     if (targetGavSplit.length < 2) {
       LOGGER.error("TargetGAV does not contain a valid version information");
@@ -215,7 +426,8 @@ public class RecommendationAlgorithm {
             lowerVersionBound);
 
     UpdateSuggestion simpleUpdateSuggestion =
-        getSimpleUpdateSuggestion(libToUpdateInDepGraph, newerVersions);
+        getSimpleUpdateSuggestion(libToUpdateInDepGraph, targetGav, newerVersions);
+    markPartialCallGraph(simpleUpdateSuggestion);
     // get the weight -- if weight 0-- we are done
     if (simpleUpdateSuggestion.getStatus() == UpdateSuggestion.SuggestionStatus.SUCCESS
         && (simpleUpdateSuggestion.getViolations() == null
@@ -228,15 +440,251 @@ public class RecommendationAlgorithm {
     // else we have violations continue with the min-cut approach
     // call min-cut and get update suggestions
     final List<UpdateSuggestion> minCutUpdateSuggestions =
-        this.computeUpdateUsingMinCut(libToUpdateInDepGraph, newerVersions);
+        this.computeUpdateUsingMinCut(libToUpdateInDepGraph, targetGav, newerVersions);
+    minCutUpdateSuggestions.forEach(this::markPartialCallGraph);
     updateSuggestions.addAll(minCutUpdateSuggestions);
 
     LOGGER.info("Done with min-cut");
     return updateSuggestions;
   }
 
+  /**
+   * Computes the update suggestions for all update requests of the module. The requests run
+   * concurrently and share the module's call graph, the version lists, the Neo4j update subgraphs,
+   * the compatibility information and the expanded blossom partitions. Duplicate requests are
+   * computed once. Each thread uses its own Neo4j DAO over the shared, thread-safe driver; the
+   * MongoDB lookups and the in-process Soot users, e.g., sootdiff, are serialized per process.
+   *
+   * @param requests pairs of the gav of the library to update and the target gav
+   * @return the results in the order of the requests
+   */
+  public List<BatchResult> runBatch(List<Pair<String, String>> requests)
+      throws MavenInvokerProject.BuildToolException {
+    Map<Pair<String, String>, BatchResult> results = new HashMap<>();
+    try {
+      runBatch(requests, r -> results.put(Pair.of(r.getOrgGav(), r.getTargetGav()), r));
+    } catch (IOException e) {
+      // cannot happen, the sink does not write
+      throw new UncheckedIOException(e);
+    }
+    return requests.stream().map(results::get).collect(Collectors.toList());
+  }
+
+  /**
+   * Like {@link #runBatch(List)}, but passes the result of each request to the sink as soon as it
+   * is computed, thus in the order of completion. The sink is called by the calling thread only.
+   *
+   * @param requests pairs of the gav of the library to update and the target gav
+   * @param sink receives one result per request, a duplicate request's result is passed for each
+   *     occurrence
+   * @throws IOException if the sink failed, the remaining requests are cancelled
+   */
+  public void runBatch(List<Pair<String, String>> requests, BatchResultSink sink)
+      throws MavenInvokerProject.BuildToolException, IOException {
+    if (requests.isEmpty()) {
+      return;
+    }
+    // init once, before the requests share the project
+    this.initProject();
+
+    final int nrOfThreads = Math.max(1, Math.min(BATCH_THREADS, requests.size()));
+    LOGGER.info("Running #{} update requests with #{} threads", requests.size(), nrOfThreads);
+    ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads);
+    try {
+      CompletionService<List<UpdateSuggestion>> completionService =
+          new ExecutorCompletionService<>(executorService);
+      Map<Pair<String, String>, Integer> occurrences = new HashMap<>();
+      Map<Future<List<UpdateSuggestion>>, Pair<String, String>> pending = new LinkedHashMap<>();
+      for (Pair<String, String> request : requests) {
+        if (occurrences.merge(request, 1, Integer::sum) == 1) {
+          pending.put(
+              completionService.submit(() -> run(request.getLeft(), request.getRight())),
+              request);
+        }
+      }
+      while (!pending.isEmpty()) {
+        Future<List<UpdateSuggestion>> future;
+        try {
+          future = completionService.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          for (Pair<String, String> request : pending.values()) {
+            emit(sink, request, occurrences.get(request), Collections.emptyList(), e);
+          }
+          return;
+        }
+        final Pair<String, String> request = pending.remove(future);
+        List<UpdateSuggestion> updateSuggestions = Collections.emptyList();
+        Exception error = null;
+        try {
+          updateSuggestions = future.get();
+        } catch (ExecutionException e) {
+          error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          error = e;
+        }
+        emit(sink, request, occurrences.get(request), updateSuggestions, error);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void emit(
+      BatchResultSink sink,
+      Pair<String, String> request,
+      int occurrences,
+      List<UpdateSuggestion> updateSuggestions,
+      Exception error)
+      throws IOException {
+    for (int i = 0; i < occurrences; i++) {
+      sink.accept(
+          new BatchResult(request.getLeft(), request.getRight(), updateSuggestions, error));
+    }
+  }
+
+  /**
+   * Computes one joint update for all given libraries, instead of one update per library. The
+   * min-cut separates the root from all libraries, and each candidate is checked with a single
+   * Neo4j query and a single compatibility check. The candidate versions are tried in lockstep:
+   * the i-th candidate updates each library to its i-th newer version, or its newest one.
+   *
+   * @param updates pairs of the gav of the library to update and the target gav
+   * @return the update suggestions of the joint update, the gavs are separated by ';'
+   */
+  public List<UpdateSuggestion> runJoint(List<Pair<String, String>> updates)
+      throws MavenInvokerProject.BuildToolException {
+    if (updates.isEmpty()) {
+      return Collections.emptyList();
+    }
+    this.initProject();
+
+    List<GraphModel.Artifact> libsToUpdate = new ArrayList<>();
+    List<List<String>> newerVersionsPerLib = new ArrayList<>();
+    List<String> targetGavs = new ArrayList<>();
+    for (Pair<String, String> update : updates) {
+      final String gavOfLibraryToUpdate = update.getLeft();
+      final String[] targetGavSplit = update.getRight().split(":");
+      if (targetGavSplit.length < 3) {
+        LOGGER.error("TargetGAV does not contain a valid version information");
+        return Collections.emptyList();
+      }
+      final GraphModel.Artifact libToUpdateInDepGraph =
+          nodeMatchUtil
+              .findInDepGraphByGav(gavOfLibraryToUpdate, depGraph, true)
+              .orElseThrow(
+                  () ->
+                      new IllegalStateException(
+                          "Cannot find library to update with gav: " + gavOfLibraryToUpdate));
+      if (isRelevantCompileDependency(libToUpdateInDepGraph)) {
+        LOGGER.error("Only compile dependencies are currently supported");
+        return Collections.emptyList();
+      }
+      if (libsToUpdate.contains(libToUpdateInDepGraph)) {
+        LOGGER.warn("Duplicate library to update: {}", gavOfLibraryToUpdate);
+        continue;
+      }
+      libsToUpdate.add(libToUpdateInDepGraph);
+      targetGavs.add(update.getRight());
+      newerVersionsPerLib.add(
+          getArtifactsWithNewerVersion(
+              libToUpdateInDepGraph.getGroupId(),
+              libToUpdateInDepGraph.getArtifactId(),
+              targetGavSplit[2]));
+    }
+    final String targetGav = String.join(";", targetGavs);
+
+    // the candidate versions, in lockstep
+    List<Map<GraphModel.Artifact, String>> versionAssignments = new ArrayList<>();
+    final boolean versionsMissing = newerVersionsPerLib.stream().anyMatch(List::isEmpty);
+    final int nrOfAssignments =
+        versionsMissing ? 0 : newerVersionsPerLib.stream().mapToInt(List::size).max().orElse(0);
+    for (int i = 0; i < nrOfAssignments; i++) {
+      Map<GraphModel.Artifact, String> versions = new LinkedHashMap<>();
+      for (int lib = 0; lib < libsToUpdate.size(); lib++) {
+        final List<String> newerVersions = newerVersionsPerLib.get(lib);
+        versions.put(
+            libsToUpdate.get(lib), newerVersions.get(Math.min(i, newerVersions.size() - 1)));
+      }
+      versionAssignments.add(versions);
+    }
+
+    final List<UpdateSuggestion> updateSuggestions =
+        computeUpdateUsingMinCut(libsToUpdate, targetGav, versionAssignments);
+    updateSuggestions.forEach(this::markPartialCallGraph);
+    LOGGER.info("Done with joint min-cut");
+    return updateSuggestions;
+  }
+
+  /**
+   * Runs {@link #runJoint(List)} as a single request of a batch
+   *
+   * @param updates pairs of the gav of the library to update and the target gav
+   * @return the result of the joint update, the gavs are separated by ';'
+   */
+  public BatchResult runJointBatch(List<Pair<String, String>> updates)
+      throws MavenInvokerProject.BuildToolException {
+    this.initProject();
+    final String orgGav = updates.stream().map(Pair::getLeft).collect(Collectors.joining(";"));
+    final String targetGav = updates.stream().map(Pair::getRight).collect(Collectors.joining(";"));
+    try {
+      return new BatchResult(orgGav, targetGav, runJoint(updates), null);
+    } catch (RuntimeException e) {
+      return new BatchResult(orgGav, targetGav, Collections.emptyList(), e);
+    }
+  }
+
+  /**
+   * Groups the update requests of a module that are updated together: the requests updating
+   * libraries of the same group to the same target version, e.g., the artifacts of a framework
+   * released together. A group updates each library at most once.
+   *
+   * @param requests pairs of the gav of the library to update and the target gav
+   * @return the groups in the order of their first request, the other requests as groups of size 1
+   */
+  public static List<List<Pair<String, String>>> groupJointUpdates(
+      List<Pair<String, String>> requests) {
+    Map<String, List<Pair<String, String>>> groups = new LinkedHashMap<>();
+    int nrOfSingles = 0;
+    for (Pair<String, String> request : requests) {
+      final String[] orgGav = request.getLeft().split(":");
+      final String[] targetGav = request.getRight().split(":");
+      if (orgGav.length < 3 || targetGav.length < 3) {
+        groups.put("#" + nrOfSingles++, new ArrayList<>(Collections.singletonList(request)));
+        continue;
+      }
+      final List<Pair<String, String>> group =
+          groups.computeIfAbsent(
+              orgGav[0] + ":" + targetGav[targetGav.length - 1], k -> new ArrayList<>());
+      final boolean libInGroup =
+          group.stream().anyMatch(x -> StringUtils.equals(x.getLeft().split(":")[1], orgGav[1]));
+      if (libInGroup) {
+        groups.put("#" + nrOfSingles++, new ArrayList<>(Collections.singletonList(request)));
+      } else {
+        group.add(request);
+      }
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  private void markPartialCallGraph(UpdateSuggestion updateSuggestion) {
+    if (!partialCG) {
+      return;
+    }
+    updateSuggestion.setPartialCallGraph(true);
+    List<String> messages = new ArrayList<>();
+    if (updateSuggestion.getMessages() != null) {
+      messages.addAll(updateSuggestion.getMessages());
+    }
+    messages.add("Call graph construction timed out, violations may be incomplete");
+    updateSuggestion.setMessages(messages);
+  }
+
   private UpdateSuggestion getSimpleUpdateSuggestion(
-      GraphModel.Artifact libToUpdateInDepGraph, Collection<String> newerVersions) {
+      GraphModel.Artifact libToUpdateInDepGraph,
+      String targetGav,
+      Collection<String> newerVersions) {
 
     // 1. check simple update
     // get the library to update and check which nodes are not updated
@@ -245,15 +693,6 @@ public class RecommendationAlgorithm {
     // only check on compile and included edges, since we want to find out which libraries are
     // included by the libToUpdate
 
-    final AsSubgraph<GraphModel.Artifact, GraphModel.Dependency> depSubGraphOnlyCompileAndIncluded =
-        new AsSubgraph<>(
-            depGraph,
-            depGraph.vertexSet().stream()
-                .filter(RecommendationAlgorithm::isRelevantCompileDependency)
-                .collect(Collectors.toSet()),
-            depGraph.edgeSet().stream()
-                .filter(x -> x.getResolution() == GraphModel.ResolutionType.INCLUDED)
-                .collect(Collectors.toSet()));
     BreadthFirstIterator<GraphModel.Artifact, GraphModel.Dependency> breadthFirstIterator =
         new BreadthFirstIterator<>(depSubGraphOnlyCompileAndIncluded, libToUpdateInDepGraph);
     while (breadthFirstIterator.hasNext()) {
@@ -270,16 +709,16 @@ public class RecommendationAlgorithm {
     DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> updateSubGraph = null;
     String pickedVersion = "";
     for (String newVersion : newerVersions) {
-      String neo4jQuery =
-          cypherQueryCreator.createNeo4JQuery(
-              depSubGraphOnlyCompileAndIncluded,
-              Collections.singleton(libToUpdateInDepGraph),
-              Collections.singleton(libToUpdateInDepGraph),
-              libToUpdateInDepGraph,
-              newVersion);
-      LOGGER.trace(neo4jQuery);
       // query neo4j and get the update subgraph
-      updateSubGraph = doaMvnArtifactNode.getGraph(neo4jQuery);
+      updateSubGraph =
+          queryUpdateSubGraph(
+              attempt ->
+                  cypherQueryCreator.createNeo4JQuery(
+                      depSubGraphOnlyCompileAndIncluded,
+                      Collections.singleton(libToUpdateInDepGraph),
+                      Collections.singleton(libToUpdateInDepGraph),
+                      Collections.singletonMap(libToUpdateInDepGraph, newVersion),
+                      attempt));
 
       if (updateSubGraph != null && !updateSubGraph.vertexSet().isEmpty()) {
         // we found a solution
@@ -302,12 +741,14 @@ public class RecommendationAlgorithm {
     UpdateCheck updateCheck =
         new UpdateCheck(
             shrinkedCG,
+            methodTable,
             depGraph,
             unUpdatedNodes,
             updateSubGraph,
             nodeMatchUtil,
             blossomGraphCreator,
-            false);
+            false,
+            compatabilityCheck);
 
     final Collection<Violation> simpleUpdateViolations;
 
@@ -359,40 +800,48 @@ public class RecommendationAlgorithm {
   }
 
   private List<UpdateSuggestion> computeUpdateUsingMinCut(
-      GraphModel.Artifact libToUpdateInDepGraph, List<String> newerVersions) {
+      GraphModel.Artifact libToUpdateInDepGraph, String targetGav, List<String> newerVersions) {
+    List<Map<GraphModel.Artifact, String>> versionAssignments = new ArrayList<>();
+    for (String newerVersion : newerVersions) {
+      versionAssignments.add(Collections.singletonMap(libToUpdateInDepGraph, newerVersion));
+    }
+    return computeUpdateUsingMinCut(
+        Collections.singletonList(libToUpdateInDepGraph), targetGav, versionAssignments);
+  }
+
+  /**
+   * Searches the min-cuts separating the root from all libraries to update for an update without
+   * violations
+   *
+   * @param libsToUpdate the libraries to update
+   * @param targetGav the target gavs, separated by ';'
+   * @param versionAssignments the candidate target versions of the libraries, in order
+   * @return the update suggestions, the last one is the best found
+   */
+  private List<UpdateSuggestion> computeUpdateUsingMinCut(
+      List<GraphModel.Artifact> libsToUpdate,
+      String targetGav,
+      List<Map<GraphModel.Artifact, String>> versionAssignments) {
 
     LOGGER.info("Compute Min-Cut solution");
     List<UpdateSuggestion> updateSuggestions = new ArrayList<>();
-    // export graph for debugging
-    final DOTExporter<GraphModel.Artifact, GraphModel.Dependency> objectObjectDOTExporter =
-        new DOTExporter<>();
-    objectObjectDOTExporter.setVertexAttributeProvider(
-        v -> {
-          Map<String, Attribute> map = new LinkedHashMap<>();
-          map.put("label", DefaultAttribute.createAttribute(v.toGav()));
-          return map;
-        });
-
-    objectObjectDOTExporter.exportGraph(blossemedDepGraph, new File("out.dot"));
-
-    final AsSubgraph<GraphModel.Artifact, GraphModel.Dependency> blossomGraphCompileOnly =
-        new AsSubgraph<>(
-            blossemedDepGraph,
-            blossemedDepGraph.vertexSet().stream()
-                .filter(RecommendationAlgorithm::isRelevantCompileDependency)
-                .collect(Collectors.toSet()),
-            blossemedDepGraph.edgeSet());
 
-    // use the blossom-graph for the min-cut
-    // init all edge weights
-    Map<GraphModel.Dependency, Double> initWeights = new HashMap<>();
-    blossomGraphCompileOnly.edgeSet().forEach(x -> initWeights.put(x, 1.0));
-
-    final AsWeightedGraph<GraphModel.Artifact, GraphModel.Dependency> unDirectedDepGraph =
-        new AsWeightedGraph<>(new AsUndirectedGraph<>(blossomGraphCompileOnly), initWeights);
+    Set<GraphModel.Artifact> libsToUpdateForMincut = new LinkedHashSet<>();
+    for (GraphModel.Artifact libToUpdateInDepGraph : libsToUpdate) {
+      final GraphModel.Artifact blossomNode =
+          blossomGraphCreator.getBlossomNode(libToUpdateInDepGraph);
+      libsToUpdateForMincut.add(blossomNode != null ? blossomNode : libToUpdateInDepGraph);
+    }
 
-    MinimumSTCutAlgorithm<GraphModel.Artifact, GraphModel.Dependency> minimumSTCutAlgorithm =
-        new EdmondsKarpMFImpl<>(unDirectedDepGraph);
+    // use the blossom-graph for the min-cut, init all edge weights
+    Map<GraphModel.Dependency, Double> initWeights = null;
+    if (CALL_GRAPH_EDGE_WEIGHTS) {
+      initWeights =
+          new CallGraphEdgeWeights(shrinkedCG, blossomGraphCreator, nodeMatchUtil)
+              .compute(blossomGraphCompileOnly);
+    }
+    final MinCutGraph unDirectedDepGraph =
+        new MinCutGraph(blossomGraphCompileOnly, rootNode, libsToUpdateForMincut, initWeights);
 
     Queue<GraphModel.Dependency> edgeWorklist = new ArrayDeque<>();
 
@@ -408,312 +857,484 @@ public class RecommendationAlgorithm {
     unDirectedDepGraph.setEdgeWeight(randEdge, randEdgeWeight - 1);
     edgeWorklist.add(randEdge);
 
-    boolean zeroViolationFound = false;
     double minCutWeight = Double.MAX_VALUE;
 
     HashSet<MinCut> computedMinCuts = new HashSet<>();
+    final String orgGav =
+        libsToUpdate.stream().map(GraphModel.Artifact::toGav).collect(Collectors.joining(";"));
+    // the candidate (cut, version) pairs, cheapest first
+    PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+    int nrOfCuts = 0;
+    int nrOfEvaluations = 0;
+    boolean zeroViolationFound = false;
+    // only a best-first search ranks the candidates of several cuts, the FIFO order evaluates the
+    // cuts in discovery order, thus it discovers the next cut once the candidates are evaluated
+    final boolean lookahead = costModel != CandidateCostModel.FIFO;
+
+    while (!zeroViolationFound
+        && (MAX_EVALUATIONS <= 0 || nrOfEvaluations < MAX_EVALUATIONS)
+        && (!edgeWorklist.isEmpty() || !candidates.isEmpty())) {
+
+      // discover further min-cuts, computing a cut is cheap compared to evaluating one
+      int newCuts = 0;
+      while ((lookahead ? newCuts < CUT_LOOKAHEAD : candidates.isEmpty())
+          && !edgeWorklist.isEmpty()) {
+        final GraphModel.Dependency curEdge = edgeWorklist.poll();
+
+        // inc the edge weight to compute all potential min-cuts
+        final double edgeWeight = unDirectedDepGraph.getEdgeWeight(curEdge);
+        unDirectedDepGraph.setEdgeWeight(curEdge, edgeWeight + 1);
+
+        final double cutWeight = unDirectedDepGraph.calculateMinCut();
+        if (cutWeight <= minCutWeight) {
+          // should only be possible in the first round
+          minCutWeight = cutWeight;
+          LOGGER.info("found min-cut with weight: {}", minCutWeight);
+        } else {
+          // it is NOT another min-cut; since the weight is higher
+          LOGGER.trace("more weight then min-cut");
+          // Reduce weight again
+          unDirectedDepGraph.setEdgeWeight(curEdge, unDirectedDepGraph.getBaseWeight(curEdge));
+          continue;
+        }
+        final Set<GraphModel.Dependency> cutEdges = unDirectedDepGraph.getCutEdges();
+
+        final Set<GraphModel.Artifact> sinkPartition = unDirectedDepGraph.getSinkPartition();
+        final Set<GraphModel.Artifact> sourcePartition = unDirectedDepGraph.getSourcePartition();
+        // store the min-cut, and check if we computed a duplicate
+        MinCut minCut = new MinCut(cutWeight, cutEdges, sinkPartition, sourcePartition);
+        if (!computedMinCuts.add(minCut)) {
+          LOGGER.error("Already computed min-cut");
+          continue;
+        }
+        // the cut edges are the starting points for the next min-cuts
+        edgeWorklist.addAll(cutEdges);
 
-    while (!zeroViolationFound && !edgeWorklist.isEmpty()) {
-      final GraphModel.Dependency curEdge = edgeWorklist.poll();
-
-      // inc the edge weight to compute all potential min-cuts
-      final double edgeWeight = unDirectedDepGraph.getEdgeWeight(curEdge);
-      unDirectedDepGraph.setEdgeWeight(curEdge, edgeWeight + 1);
-
-      GraphModel.Artifact libToUpdateForMincut = libToUpdateInDepGraph;
-      final GraphModel.Artifact blossomNode =
-          blossomGraphCreator.getBlossomNode(libToUpdateForMincut);
-      if (blossomNode != null) {
-        libToUpdateForMincut = blossomNode;
+        // get the nodes in the sink -- that are the tgt nodes of the cutted edges
+        List<GraphModel.Artifact> cuttedNodes = new ArrayList<>();
+        for (GraphModel.Dependency cutEdge : cutEdges) {
+          final GraphModel.Artifact edgeTarget = unDirectedDepGraph.getEdgeTarget(cutEdge);
+          cuttedNodes.add(edgeTarget);
+        }
+        // also expand the blossom Nodes in the un-updated nodes -- akka the source partition
+        final Set<GraphModel.Artifact> expandedSourcePartition =
+            expandBlossomNodes(sourcePartition);
+
+        CutCandidate cut =
+            new CutCandidate(
+                nrOfCuts++,
+                cutWeight,
+                cutEdges,
+                cuttedNodes,
+                sinkPartition,
+                expandedSourcePartition,
+                costModel.usesCrossingCalls()
+                    ? countCrossingCalls(expandedSourcePartition, sinkPartition)
+                    : 0);
+        newCuts++;
+        if (versionAssignments.isEmpty()) {
+          updateSuggestions.add(createNoNeo4jEntrySuggestion(orgGav, targetGav, cut));
+          continue;
+        }
+        for (int i = 0; i < versionAssignments.size(); i++) {
+          final String candidateGav = toUpdateGav(versionAssignments.get(i));
+          candidates.add(
+              new Candidate(
+                  cut, versionAssignments.get(i), costModel.cost(cut, orgGav, candidateGav, i)));
+        }
       }
 
-      final double cutWeight =
-          minimumSTCutAlgorithm.calculateMinCut(rootNode, libToUpdateForMincut);
-      if (cutWeight <= minCutWeight) {
-        // should only be possible in the first round
-        minCutWeight = cutWeight;
-        LOGGER.info("found min-cut with weight: {}", minCutWeight);
-      } else {
-        // it is NOT another min-cut; since the weight is higher
-        LOGGER.trace("more weight then min-cut");
-        // Reduce weight again
-        unDirectedDepGraph.setEdgeWeight(curEdge, 1);
+      final Candidate candidate = candidates.poll();
+      if (candidate == null) {
         continue;
       }
-      final Set<GraphModel.Dependency> cutEdges = minimumSTCutAlgorithm.getCutEdges();
-
-      final Set<GraphModel.Artifact> sinkPartition = minimumSTCutAlgorithm.getSinkPartition();
-      final Set<GraphModel.Artifact> sourcePartition = minimumSTCutAlgorithm.getSourcePartition();
-      // store the min-cut, and check if we computed a duplicate
-      MinCut minCut = new MinCut(cutWeight, cutEdges, sinkPartition, sourcePartition);
-      if (!computedMinCuts.add(minCut)) {
-        LOGGER.error("Already computed min-cut");
+      final CutCandidate cut = candidate.cut;
+      if (cut.isDone()) {
+        // another version of this cut has already been evaluated
         continue;
       }
+      nrOfEvaluations++;
 
-      // get the nodes in the sink -- that are the tgt nodes of the cutted edges
-      List<GraphModel.Artifact> cuttedNodes = new ArrayList<>();
-      for (GraphModel.Dependency cutEdge : cutEdges) {
-        final GraphModel.Artifact edgeTarget = unDirectedDepGraph.getEdgeTarget(cutEdge);
-        cuttedNodes.add(edgeTarget);
-      }
-      // also expand the blossom Nodes in the un-updated nodes -- akka the source partition
-      {
-        Set<GraphModel.Artifact> expandedNodes = new HashSet<>();
-        for (Iterator<GraphModel.Artifact> iter = sourcePartition.iterator(); iter.hasNext(); ) {
-          GraphModel.Artifact sourceNode = iter.next();
-          final Collection<GraphModel.Artifact> artifacts =
-              blossomGraphCreator.expandBlossomNode(sourceNode);
-          if (artifacts != null && !artifacts.isEmpty()) {
-            // we have a blossom node
-            expandedNodes.addAll(artifacts);
-            // remove it from the sink and add the org nodes
-            iter.remove();
-          }
-        }
-        // add the expanded nodes to the source partion
-        sourcePartition.addAll(expandedNodes);
-      }
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      LOGGER.info("Neo4j Query Started");
+      // query neo4j and get the update subgraph
+      final DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> updateSubGraph =
+          queryUpdateSubGraph(
+              attempt ->
+                  cypherQueryCreator.createNeo4JQuery(
+                      depGraph,
+                      cut.getSinkPartition(),
+                      new HashSet<>(cut.getCuttedNodes()),
+                      candidate.versions,
+                      attempt));
+      stopwatch.stop();
+      LOGGER.info("Query took: {}", stopwatch.elapsed(TimeUnit.MILLISECONDS));
 
-      DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> updateSubGraph = null;
-      String pickedVersion = "";
-      for (String newVersion : newerVersions) {
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        LOGGER.info("Neo4j Query Started");
-        String neo4jQuery =
-            cypherQueryCreator.createNeo4JQuery(
-                depGraph,
-                sinkPartition,
-                new HashSet<>(cuttedNodes),
-                libToUpdateInDepGraph,
-                newVersion);
-        LOGGER.trace(neo4jQuery);
-        // query neo4j and get the update subgraph
-        updateSubGraph = doaMvnArtifactNode.getGraph(neo4jQuery);
-        stopwatch.stop();
-        LOGGER.info("Query took: {}", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-
-        if (updateSubGraph != null && !updateSubGraph.vertexSet().isEmpty()) {
-          // we found a solution
-          pickedVersion = newVersion;
-          break;
-        }
-      }
       // could not find solution
       if (updateSubGraph == null || updateSubGraph.vertexSet().isEmpty()) {
-        LOGGER.error("No solution found in NEO4j");
-
-        UpdateSuggestion failedUpdate = new UpdateSuggestion();
-        failedUpdate.setNaiveUpdate(false);
-        failedUpdate.setOrgGav(libToUpdateInDepGraph.toGav());
-        failedUpdate.setTargetGav(targetGav);
-        failedUpdate.setSimpleUpdate(false);
-        failedUpdate.setCutWeight((int) Math.round(minCutWeight));
-        failedUpdate.setStatus(UpdateSuggestion.SuggestionStatus.NO_NEO4J_ENTRY);
-        failedUpdate.setNrOfViolations(-1);
-        // DO not return but search in the next min-cut
-        // return Collections.singletonList(failedUpdate);
-        updateSuggestions.add(failedUpdate);
-
-        // add the edges to the worklist and continue search
-        // they are increased in the worklist step
-        edgeWorklist.addAll(cutEdges);
+        if (cut.incFailedVersions() == versionAssignments.size()) {
+          LOGGER.error("No solution found in NEO4j");
+          // DO not return but search in the next min-cut
+          updateSuggestions.add(createNoNeo4jEntrySuggestion(orgGav, targetGav, cut));
+        }
         continue;
       }
+      // we found a solution
+      cut.setDone(true);
+
+      final UpdateSuggestion minCutUpdateSuggestion =
+          checkMinCutUpdate(
+              orgGav, targetGav, toUpdateGav(candidate.versions), cut, updateSubGraph);
+      final Collection<Violation> updateViolations = minCutUpdateSuggestion.getViolations();
+      costModel.recordEvaluation(
+          orgGav,
+          minCutUpdateSuggestion.getUpdateGav(),
+          minCutUpdateSuggestion.getNrOfViolations());
+      // add last to avoid changes in set ..
+      updateSuggestions.add(minCutUpdateSuggestion);
 
-      LOGGER.debug("Check Min-Cut Update");
-
-      //  add update step info
-      UpdateSuggestion minCutUpdateSuggestion = new UpdateSuggestion();
-      minCutUpdateSuggestion.setOrgGav(libToUpdateInDepGraph.toGav());
-      minCutUpdateSuggestion.setSimpleUpdate(false);
-      minCutUpdateSuggestion.setNaiveUpdate(false);
-      String updateGav =
-          libToUpdateInDepGraph.getGroupId()
-              + ":"
-              + libToUpdateInDepGraph.getArtifactId()
-              + ":"
-              + pickedVersion;
-      minCutUpdateSuggestion.setTargetGav(targetGav);
-      minCutUpdateSuggestion.setUpdateGav(updateGav);
-      minCutUpdateSuggestion.setCutWeight((int) Math.round(minCutWeight));
-
-      UpdateCheck updateCheck =
-          new UpdateCheck(
-              shrinkedCG,
-              depGraph,
-              sourcePartition,
-              updateSubGraph,
-              nodeMatchUtil,
-              blossomGraphCreator,
-              true);
-      Collection<Violation> updateViolations = null;
-      try {
-        //  -- the update nodes are the cut nodes
-        Set<GraphModel.Artifact> expandedCuttedNodes = new HashSet<>();
-        for (GraphModel.Artifact cutNode : cuttedNodes) {
-          {
-            final Collection<GraphModel.Artifact> artifacts =
-                blossomGraphCreator.expandBlossomNode(cutNode);
-            if (artifacts != null) {
-              // is a blossom node
-              expandedCuttedNodes.addAll(artifacts);
-            } else {
-              expandedCuttedNodes.add(cutNode);
-            }
-          }
-        }
-        updateViolations = updateCheck.computeViolation(expandedCuttedNodes);
-        minCutUpdateSuggestion.setViolations(updateViolations);
-        minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.SUCCESS);
-        minCutUpdateSuggestion.setNrOfViolations(
-            Math.toIntExact(
-                updateViolations.stream().filter(x -> x.getViolatedCalls().size() > 0).count()));
-        minCutUpdateSuggestion.setNrOfViolatedCalls(
-            updateViolations.stream()
-                .mapToInt(x -> x == null ? 0 : x.getViolatedCalls().size())
-                .sum());
-        LOGGER.info("Found Min-Cut Update with violations: {}", updateViolations.size());
-      } catch (CompatabilityComputeException e) {
-        minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.FAILED_SIGTEST);
-        minCutUpdateSuggestion.setNrOfViolations(-1);
-        minCutUpdateSuggestion.setNrOfViolatedCalls(-1);
-      } catch (EmptyCallGraphException e) {
-        minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.EMPTY_CG);
-        minCutUpdateSuggestion.setNrOfViolations(-1);
-        minCutUpdateSuggestion.setNrOfViolatedCalls(-1);
+      // check the weight of violations ...; if 0 (no violations) done; else compute further
+      // min-cuts
+      if (updateViolations == null || updateViolations.isEmpty()) {
+        // we found a perfect solution stop
+        zeroViolationFound = true;
       }
+    }
+    if (!zeroViolationFound && MAX_EVALUATIONS > 0 && nrOfEvaluations >= MAX_EVALUATIONS) {
+      LOGGER.info("Stopped min-cut search after {} evaluations", nrOfEvaluations);
+    }
+    return updateSuggestions;
+  }
 
-      // avoid duplicate update steps
-      Set<Pair<String, String>> updateSteps = new HashSet<>();
-
-      // for each updated lib compute the update step
-      // only the "root" nodes of the sink partition are actually updated- --> transformed to direct
-      // dependencies
-      {
-        // FIX in version 1.6 -- output for blossom and cutted nodes
-        DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> finalUpdateSubGraph =
-            updateSubGraph;
-        final List<MvnArtifactNode> rootNodesOfSubGraph =
-            updateSubGraph.vertexSet().stream()
-                .filter(x -> finalUpdateSubGraph.inDegreeOf(x) == 0)
-                .collect(Collectors.toList());
-        // add the cutted nodes to the list
-        Set<GraphModel.Artifact> expandedCuttedNodes = new HashSet<>();
-        // expand the cutted nodes, so get all the blossoms
-        for (GraphModel.Artifact artifact : cuttedNodes) {
-          final Collection<GraphModel.Artifact> artifacts =
-              blossomGraphCreator.expandBlossomNode(artifact);
-          if (artifacts != null && !artifacts.isEmpty()) {
-            expandedCuttedNodes.addAll(artifacts);
-          } else {
-            expandedCuttedNodes.add(artifact);
-          }
+  /** @return the gavs of the libraries in the given versions, separated by ';' */
+  private static String toUpdateGav(Map<GraphModel.Artifact, String> versions) {
+    return versions.entrySet().stream()
+        .map(
+            x -> x.getKey().getGroupId() + ":" + x.getKey().getArtifactId() + ":" + x.getValue())
+        .collect(Collectors.joining(";"));
+  }
+
+  private UpdateSuggestion createNoNeo4jEntrySuggestion(
+      String orgGav, String targetGav, CutCandidate cut) {
+    UpdateSuggestion failedUpdate = new UpdateSuggestion();
+    failedUpdate.setNaiveUpdate(false);
+    failedUpdate.setOrgGav(orgGav);
+    failedUpdate.setTargetGav(targetGav);
+    failedUpdate.setSimpleUpdate(false);
+    failedUpdate.setCutWeight((int) Math.round(cut.getWeight()));
+    failedUpdate.setStatus(UpdateSuggestion.SuggestionStatus.NO_NEO4J_ENTRY);
+    failedUpdate.setNrOfViolations(-1);
+    return failedUpdate;
+  }
+
+  /** @return the number of calls from the source partition's into the sink partition's libs */
+  private int countCrossingCalls(
+      Set<GraphModel.Artifact> sourcePartition, Set<GraphModel.Artifact> sinkPartition) {
+    if (shrinkedCG == null) {
+      return 0;
+    }
+    Set<String> sourceGavs = new HashSet<>();
+    sourcePartition.forEach(x -> sourceGavs.add(nodeMatchUtil.toGav(x)));
+    Set<String> sinkGavs = new HashSet<>();
+    expandBlossomNodes(sinkPartition).forEach(x -> sinkGavs.add(nodeMatchUtil.toGav(x)));
+    int crossingCalls = 0;
+    // only the calls into the sink's libs, instead of all edges of the call graph
+    for (String sinkGav : sinkGavs) {
+      if (!shrinkedCG.containsVertex(sinkGav)) {
+        continue;
+      }
+      for (CustomEdge edge : shrinkedCG.incomingEdgesOf(sinkGav)) {
+        if (sourceGavs.contains(shrinkedCG.getEdgeSource(edge))) {
+          crossingCalls += edge.size();
         }
+      }
+    }
+    return crossingCalls;
+  }
 
-        for (MvnArtifactNode sinkRootNode : rootNodesOfSubGraph) {
-
-          // the gav in the update subgraph
-          final Optional<GraphModel.Artifact> first =
-              nodeMatchUtil.findInDepGraph(sinkRootNode, depGraph, false);
-
-          if (!first.isPresent()) {
-            LOGGER.error(
-                "Could not find update for node {} in updateSubGraph",
-                sinkRootNode.getGroup() + ":" + sinkRootNode.getArtifact());
-          } else {
-            String tGav =
-                first.get().getGroupId()
-                    + ":"
-                    + first.get().getArtifactId()
-                    + ":"
-                    + first.get().getVersion();
-            updateSteps.add(
-                Pair.of(
-                    tGav,
-                    sinkRootNode.getGroup()
-                        + ":"
-                        + sinkRootNode.getArtifact()
-                        + ":"
-                        + sinkRootNode.getVersion()));
-          }
-          // TODO add the blossom update steps
+  private UpdateSuggestion checkMinCutUpdate(
+      String orgGav,
+      String targetGav,
+      String updateGav,
+      CutCandidate cut,
+      DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> updateSubGraph) {
+    final Set<GraphModel.Artifact> sourcePartition = cut.getSourcePartition();
+    // expand the cutted nodes, so get all the blossoms
+    final Set<GraphModel.Artifact> expandedCuttedNodes = expandBlossomNodes(cut.getCuttedNodes());
+
+    LOGGER.debug("Check Min-Cut Update");
+
+    //  add update step info
+    UpdateSuggestion minCutUpdateSuggestion = new UpdateSuggestion();
+    minCutUpdateSuggestion.setOrgGav(orgGav);
+    minCutUpdateSuggestion.setSimpleUpdate(false);
+    minCutUpdateSuggestion.setNaiveUpdate(false);
+    minCutUpdateSuggestion.setTargetGav(targetGav);
+    minCutUpdateSuggestion.setUpdateGav(updateGav);
+    minCutUpdateSuggestion.setCutWeight((int) Math.round(cut.getWeight()));
+
+    UpdateCheck updateCheck =
+        new UpdateCheck(
+            shrinkedCG,
+            methodTable,
+            depGraph,
+            sourcePartition,
+            updateSubGraph,
+            nodeMatchUtil,
+            blossomGraphCreator,
+            true,
+            compatabilityCheck);
+    Collection<Violation> updateViolations = null;
+    try {
+      //  -- the update nodes are the cut nodes
+      updateViolations = updateCheck.computeViolation(expandedCuttedNodes);
+      minCutUpdateSuggestion.setViolations(updateViolations);
+      minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.SUCCESS);
+      minCutUpdateSuggestion.setNrOfViolations(
+          Math.toIntExact(
+              updateViolations.stream().filter(x -> x.getViolatedCalls().size() > 0).count()));
+      minCutUpdateSuggestion.setNrOfViolatedCalls(
+          updateViolations.stream()
+              .mapToInt(x -> x == null ? 0 : x.getViolatedCalls().size())
+              .sum());
+      LOGGER.info("Found Min-Cut Update with violations: {}", updateViolations.size());
+    } catch (CompatabilityComputeException e) {
+      minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.FAILED_SIGTEST);
+      minCutUpdateSuggestion.setNrOfViolations(-1);
+      minCutUpdateSuggestion.setNrOfViolatedCalls(-1);
+    } catch (EmptyCallGraphException e) {
+      minCutUpdateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.EMPTY_CG);
+      minCutUpdateSuggestion.setNrOfViolations(-1);
+      minCutUpdateSuggestion.setNrOfViolatedCalls(-1);
+    }
+
+    // avoid duplicate update steps
+    Set<Pair<String, String>> updateSteps = new HashSet<>();
+
+    // for each updated lib compute the update step
+    // only the "root" nodes of the sink partition are actually updated- --> transformed to direct
+    // dependencies
+    {
+      // FIX in version 1.6 -- output for blossom and cutted nodes
+      DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> finalUpdateSubGraph =
+          updateSubGraph;
+      final List<MvnArtifactNode> rootNodesOfSubGraph =
+          updateSubGraph.vertexSet().stream()
+              .filter(x -> finalUpdateSubGraph.inDegreeOf(x) == 0)
+              .collect(Collectors.toList());
+
+      for (MvnArtifactNode sinkRootNode : rootNodesOfSubGraph) {
+
+        // the gav in the update subgraph
+        final Optional<GraphModel.Artifact> first =
+            nodeMatchUtil.findInDepGraph(sinkRootNode, depGraph, false);
+
+        if (!first.isPresent()) {
+          LOGGER.error(
+              "Could not find update for node {} in updateSubGraph",
+              sinkRootNode.getGroup() + ":" + sinkRootNode.getArtifact());
+        } else {
+          String tGav =
+              first.get().getGroupId()
+                  + ":"
+                  + first.get().getArtifactId()
+                  + ":"
+                  + first.get().getVersion();
+          updateSteps.add(
+              Pair.of(
+                  tGav,
+                  sinkRootNode.getGroup()
+                      + ":"
+                      + sinkRootNode.getArtifact()
+                      + ":"
+                      + sinkRootNode.getVersion()));
         }
+        // TODO add the blossom update steps
+      }
 
-        // find the corresponding nodes for the cutted nodes, and check those for updates, too
-        for (GraphModel.Artifact artifact : expandedCuttedNodes) {
-          Optional<MvnArtifactNode> first =
-              nodeMatchUtil.findInNeo4jGraph(artifact, finalUpdateSubGraph, false);
+      // find the corresponding nodes for the cutted nodes, and check those for updates, too
+      for (GraphModel.Artifact artifact : expandedCuttedNodes) {
+        Optional<MvnArtifactNode> first =
+            nodeMatchUtil.findInNeo4jGraph(artifact, finalUpdateSubGraph, false);
 
-          if (!first.isPresent()) {
-            // for deps migrated to other group or artifact
-            first = nodeMatchUtil.findLooseInNeo4jGraph(artifact, finalUpdateSubGraph, false);
-          }
-          if (first.isPresent()) {
-            String tGav =
-                artifact.getGroupId()
-                    + ":"
-                    + artifact.getArtifactId()
-                    + ":"
-                    + artifact.getVersion();
-            updateSteps.add(
-                Pair.of(
-                    tGav,
-                    first.get().getGroup()
-                        + ":"
-                        + first.get().getArtifact()
-                        + ":"
-                        + first.get().getVersion()));
-          }
+        if (!first.isPresent()) {
+          // for deps migrated to other group or artifact
+          first = nodeMatchUtil.findLooseInNeo4jGraph(artifact, finalUpdateSubGraph, false);
+        }
+        if (first.isPresent()) {
+          String tGav =
+              artifact.getGroupId()
+                  + ":"
+                  + artifact.getArtifactId()
+                  + ":"
+                  + artifact.getVersion();
+          updateSteps.add(
+              Pair.of(
+                  tGav,
+                  first.get().getGroup()
+                      + ":"
+                      + first.get().getArtifact()
+                      + ":"
+                      + first.get().getVersion()));
         }
       }
+    }
 
-      minCutUpdateSuggestion.setUpdateSteps(new ArrayList<>(updateSteps));
-      // add last to avoid changes in set ..
-      updateSuggestions.add(minCutUpdateSuggestion);
+    minCutUpdateSuggestion.setUpdateSteps(new ArrayList<>(updateSteps));
+    return minCutUpdateSuggestion;
+  }
 
-      // check the weight of violations ...; if 0 (no violations) done; else compute further
-      // min-cuts
-      if (updateViolations == null || updateViolations.isEmpty()) {
-        // we found a perfect solution stop
-        zeroViolationFound = true;
+  /**
+   * Expands the blossom nodes in the given nodes to their members, the expansion is cached and
+   * shared by the requests of the module
+   *
+   * @param nodes the nodes, may contain blossom nodes
+   * @return the unmodifiable set of the nodes with the blossom nodes replaced by their members
+   */
+  private Set<GraphModel.Artifact> expandBlossomNodes(Collection<GraphModel.Artifact> nodes) {
+    return computeOnce(
+        expandedPartitionCache,
+        Collections.unmodifiableSet(new HashSet<>(nodes)),
+        () -> {
+          Set<GraphModel.Artifact> expandedNodes = new HashSet<>();
+          for (GraphModel.Artifact node : nodes) {
+            final Collection<GraphModel.Artifact> artifacts =
+                blossomGraphCreator.expandBlossomNode(node);
+            if (artifacts != null && !artifacts.isEmpty()) {
+              // is a blossom node
+              expandedNodes.addAll(artifacts);
+            } else {
+              expandedNodes.add(node);
+            }
+          }
+          return Collections.unmodifiableSet(expandedNodes);
+        });
+  }
 
-      } else {
-        // add the edges to the worklist and continue search
-        edgeWorklist.addAll(cutEdges);
+  /**
+   * Queries Neo4j for the update subgraph, the result is cached and shared by the requests of the
+   * module
+   *
+   * @param neo4jQuery the cypher query
+   * @return the update subgraph or null
+   */
+  private DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> queryUpdateSubGraph(
+      String neo4jQuery) {
+    return computeOnce(
+            updateSubGraphCache,
+            neo4jQuery,
+            () -> Optional.ofNullable(doaMvnArtifactNode.get().getGraph(neo4jQuery)))
+        .orElse(null);
+  }
+
+  /**
+   * Queries Neo4j for the update subgraph, starting with tight bounds of the DEPENDS_ON patterns,
+   * which are widened while no solution is found. A failed query, e.g., by a timeout, is not
+   * widened, as wider bounds only make it more expensive.
+   *
+   * @param queryCreator creates the cypher query with the bounds of an attempt
+   * @return the update subgraph or null
+   */
+  private DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> queryUpdateSubGraph(
+      Function<PathBounds.Attempt, String> queryCreator) {
+    final PathBounds.Attempt attempt = pathBounds.newAttempt();
+    while (true) {
+      final String neo4jQuery = queryCreator.apply(attempt);
+      LOGGER.trace(neo4jQuery);
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      DefaultDirectedGraph<MvnArtifactNode, DependencyRelation> updateSubGraph;
+      try {
+        updateSubGraph = queryUpdateSubGraph(neo4jQuery);
+      } catch (Neo4jException e) {
+        LOGGER.warn(
+            "Query attempt #{} with path bounds {} failed, not widening",
+            attempt.getNr(),
+            attempt,
+            e);
+        return null;
+      }
+      stopwatch.stop();
+      final boolean found = updateSubGraph != null && !updateSubGraph.vertexSet().isEmpty();
+      LOGGER.info(
+          "Query attempt #{} with path bounds {} (total {}) took {} ms, found: {}",
+          attempt.getNr(),
+          attempt,
+          attempt.getTotalBound(),
+          stopwatch.elapsed(TimeUnit.MILLISECONDS),
+          found);
+      if (found) {
+        attempt.succeeded();
+        return updateSubGraph;
+      }
+      if (updateSubGraph == null) {
+        // the query failed
+        return null;
+      }
+      if (!attempt.widen()) {
+        attempt.exhausted();
+        return updateSubGraph;
       }
     }
-    return updateSuggestions;
   }
 
-  private List<String> getArtifactsWithNewerVersion(
-      String group, String artifact, String lowerBoundVersion) {
-    DefaultArtifactVersion defaultArtifactVersion = new DefaultArtifactVersion(lowerBoundVersion);
-
-    // number of artifacts that directly depends on this dependency
-    // number of updates
-    // check maven central for update version
-    JsonNode listOfArtifacts = null;
+  /** Computes the value once per key, concurrent callers with the same key wait for the result */
+  private static <K, V> V computeOnce(
+      ConcurrentMap<K, CompletableFuture<V>> cache, K key, Supplier<V> supplier) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    final CompletableFuture<V> cached = cache.putIfAbsent(key, future);
+    if (cached != null) {
+      return cached.join();
+    }
     try {
-      JsonNode response = MavenSearchAPIClient.getListOfArtifacts(group, artifact);
-      listOfArtifacts = response.at("/response/docs");
-    } catch (IOException e) {
-      LOGGER.error("Failed to retrieve version from maven central", e);
+      final V value = supplier.get();
+      future.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      // do not cache failures, later callers retry
+      cache.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
     }
-    if (listOfArtifacts == null || listOfArtifacts.isNull() || listOfArtifacts.isEmpty()) {
-      LOGGER.error("Found no artifacts to update");
-      return Collections.emptyList();
+  }
+
+  /** Receives the results of {@link #runBatch(List, BatchResultSink)} */
+  public interface BatchResultSink {
+    void accept(BatchResult batchResult) throws IOException;
+  }
+
+  /** The result of an update request computed by {@link #runBatch(List)} */
+  @Data
+  @AllArgsConstructor
+  public static class BatchResult {
+    private String orgGav;
+    private String targetGav;
+    private List<UpdateSuggestion> updateSuggestions;
+    // the exception thrown by the request, or null
+    private Exception error;
+  }
+
+  /** A min-cut and the versions of the libraries to update, ordered by their cost */
+  private static class Candidate implements Comparable<Candidate> {
+    private final CutCandidate cut;
+    // the target version of each library to update
+    private final Map<GraphModel.Artifact, String> versions;
+    private final double cost;
+
+    Candidate(CutCandidate cut, Map<GraphModel.Artifact, String> versions, double cost) {
+      this.cut = cut;
+      this.versions = versions;
+      this.cost = cost;
     }
-    List<String> newerVersions = new ArrayList<>();
-    // get the ones with a newer version
-    for (Iterator<JsonNode> iterator = listOfArtifacts.iterator(); iterator.hasNext(); ) {
-      final JsonNode next = iterator.next();
-      final DefaultArtifactVersion nextVersion = new DefaultArtifactVersion(next.get("v").asText());
 
-      if (nextVersion.compareTo(defaultArtifactVersion) >= 0) {
-        newerVersions.add(next.get("v").asText());
-      }
+    @Override
+    public int compareTo(Candidate other) {
+      return Double.compare(cost, other.cost);
     }
-    return newerVersions;
+  }
+
+  private List<String> getArtifactsWithNewerVersion(
+      String group, String artifact, String lowerBoundVersion) {
+    // the versions are fetched once per library and host, see VersionIndex
+    return VersionIndex.getInstance().getNewerVersions(group, artifact, lowerBoundVersion);
   }
 }
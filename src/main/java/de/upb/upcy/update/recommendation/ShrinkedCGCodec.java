@@ -0,0 +1,105 @@
+package de.upb.upcy.update.recommendation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+/**
+ * Binary encoding of a shrinked call graph together with its {@link MethodTable}, e.g., to pass it
+ * between processes or to store it on disk.
+ *
+ * @author adann
+ */
+public final class ShrinkedCGCodec {
+
+  private static final int MAGIC = 0x55434347;
+  private static final int FORMAT_VERSION = 1;
+
+  private ShrinkedCGCodec() {}
+
+  public static void write(
+      DataOutputStream out,
+      Graph<String, CustomEdge> shrinkedCG,
+      MethodTable methodTable,
+      boolean partialCG)
+      throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeBoolean(partialCG);
+    methodTable.write(out);
+
+    Map<String, Integer> vertexIds = new HashMap<>();
+    out.writeInt(shrinkedCG.vertexSet().size());
+    for (String vertex : shrinkedCG.vertexSet()) {
+      vertexIds.put(vertex, vertexIds.size());
+      out.writeUTF(vertex);
+    }
+    out.writeInt(shrinkedCG.edgeSet().size());
+    for (CustomEdge edge : shrinkedCG.edgeSet()) {
+      out.writeInt(vertexIds.get(shrinkedCG.getEdgeSource(edge)));
+      out.writeInt(vertexIds.get(shrinkedCG.getEdgeTarget(edge)));
+      edge.write(out);
+    }
+    out.flush();
+  }
+
+  public static ShrinkedCG read(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not an encoded shrinked call graph");
+    }
+    final int version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported shrinked call graph version: " + version);
+    }
+    final boolean partialCG = in.readBoolean();
+    final MethodTable methodTable = MethodTable.read(in);
+
+    Graph<String, CustomEdge> shrinkedCG = new DefaultDirectedGraph<>(CustomEdge.class);
+    final int nrOfVertices = in.readInt();
+    List<String> vertices = new ArrayList<>(nrOfVertices);
+    for (int i = 0; i < nrOfVertices; i++) {
+      final String vertex = in.readUTF();
+      vertices.add(vertex);
+      shrinkedCG.addVertex(vertex);
+    }
+    final int nrOfEdges = in.readInt();
+    for (int i = 0; i < nrOfEdges; i++) {
+      final String source = vertices.get(in.readInt());
+      final String target = vertices.get(in.readInt());
+      shrinkedCG.addEdge(source, target, CustomEdge.read(in));
+    }
+    return new ShrinkedCG(shrinkedCG, methodTable, partialCG);
+  }
+
+  /** A decoded shrinked call graph */
+  public static class ShrinkedCG {
+    private final Graph<String, CustomEdge> graph;
+    private final MethodTable methodTable;
+    private final boolean partialCG;
+
+    public ShrinkedCG(
+        Graph<String, CustomEdge> graph, MethodTable methodTable, boolean partialCG) {
+      this.graph = graph;
+      this.methodTable = methodTable;
+      this.partialCG = partialCG;
+    }
+
+    public Graph<String, CustomEdge> getGraph() {
+      return graph;
+    }
+
+    public MethodTable getMethodTable() {
+      return methodTable;
+    }
+
+    public boolean isPartialCG() {
+      return partialCG;
+    }
+  }
+}
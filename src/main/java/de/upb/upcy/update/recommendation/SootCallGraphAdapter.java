@@ -1,230 +1,339 @@
 package de.upb.upcy.update.recommendation;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import org.jgrapht.graph.AbstractBaseGraph;
+import java.util.function.Supplier;
+import org.jgrapht.Graph;
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
 import org.jgrapht.graph.DefaultGraphType;
-import org.jgrapht.util.SupplierUtil;
-import soot.MethodOrMethodContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import soot.SootMethod;
-import soot.Unit;
 import soot.jimple.toolkits.callgraph.CallGraph;
 import soot.jimple.toolkits.callgraph.Edge;
 
 /**
- * Utility class to use Soot's call graph with the jGraphT library *
+ * Utility class to use Soot's call graph with the jGraphT library. The call graph is indexed once
+ * into primitive adjacency arrays (compressed sparse rows for the incoming and outgoing edges of
+ * each method), thus degrees are O(1) and edge sets are views without copying. The adapter is a
+ * read-only snapshot and stays valid after Soot's global state has been reset.
  *
  * @author adann Created by adann on 25.10.16.
  */
-public class SootCallGraphAdapter extends AbstractBaseGraph<Object, Edge> {
-
-  private final CallGraph callGraph;
-  private Set<Object> methodVertexSet;
+public class SootCallGraphAdapter extends AbstractGraph<SootMethod, Edge> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SootCallGraphAdapter.class);
+
+  private static final GraphType GRAPH_TYPE =
+      new DefaultGraphType.Builder()
+          .directed()
+          .allowCycles(true)
+          .allowSelfLoops(true)
+          .allowMultipleEdges(true)
+          .weighted(false)
+          .modifiable(false)
+          .build();
+
+  private final Map<SootMethod, Integer> methodIndex = new LinkedHashMap<>();
+  private final SootMethod[] methods;
+  private final Edge[] edges;
+  private final int[] edgeSrc;
+  private final int[] edgeTgt;
+  // edge indices grouped by source / target method, the group of method m is in [offsets[m],
+  // offsets[m + 1])
+  private final int[] outOffsets;
+  private final int[] outEdges;
+  private final int[] inOffsets;
+  private final int[] inEdges;
+
+  private final Set<SootMethod> vertexSetView;
+  private final Set<Edge> edgeSetView;
 
   public SootCallGraphAdapter(CallGraph callGraph) {
-    super(
-        null,
-        SupplierUtil.createSupplier(Edge.class),
-        new DefaultGraphType.Builder()
-            .allowCycles(true)
-            .allowSelfLoops(true)
-            .allowMultipleEdges(true)
-            .directed()
-            .build());
-    this.callGraph = callGraph;
-    this.vertexSet();
+    this(callGraph, false);
   }
 
-  public CallGraph getCallGraph() {
-    return callGraph;
-  }
+  /**
+   * @param callGraph Soot's call graph
+   * @param partial true, if the analysis thread may still modify the call graph, e.g., after a
+   *     timeout; the snapshot then contains the edges read until the first failure
+   */
+  public SootCallGraphAdapter(CallGraph callGraph, boolean partial) {
+    List<Edge> edgeList = new ArrayList<>(callGraph.size());
+    final Iterator<Edge> iterator = callGraph.iterator();
+    while (iterator.hasNext()) {
+      final Edge cgEdge;
+      try {
+        cgEdge = iterator.next();
+      } catch (RuntimeException e) {
+        if (!partial) {
+          throw e;
+        }
+        LOGGER.warn("[Analysis] Stopped reading partial call graph", e);
+        break;
+      }
+      if (cgEdge == null || cgEdge.src() == null || cgEdge.tgt() == null) {
+        continue;
+      }
+      edgeList.add(cgEdge);
+    }
 
-  @Override
-  public int inDegreeOf(Object obj) {
+    final int nrOfEdges = edgeList.size();
+    edges = edgeList.toArray(new Edge[0]);
+    edgeSrc = new int[nrOfEdges];
+    edgeTgt = new int[nrOfEdges];
+    for (int i = 0; i < nrOfEdges; i++) {
+      edgeSrc[i] = indexOf(edges[i].src());
+      edgeTgt[i] = indexOf(edges[i].tgt());
+    }
+    methods = methodIndex.keySet().toArray(new SootMethod[0]);
 
-    if (obj instanceof SootMethod) {
-      SootMethod method = (SootMethod) obj;
-      int i = 0;
-      Iterator<Edge> it = callGraph.edgesInto(method);
-      while (it.hasNext()) {
-        i++;
-        it.next();
-      }
+    outOffsets = new int[methods.length + 1];
+    outEdges = new int[nrOfEdges];
+    groupEdges(edgeSrc, outOffsets, outEdges);
+    inOffsets = new int[methods.length + 1];
+    inEdges = new int[nrOfEdges];
+    groupEdges(edgeTgt, inOffsets, inEdges);
+
+    vertexSetView = Collections.unmodifiableSet(methodIndex.keySet());
+    edgeSetView = new EdgeSetView(null, 0, nrOfEdges);
+  }
 
-      return i;
-    } else {
-      throw new RuntimeException("Not a method");
+  private int indexOf(SootMethod method) {
+    Integer index = methodIndex.get(method);
+    if (index == null) {
+      index = methodIndex.size();
+      methodIndex.put(method, index);
     }
+    return index;
   }
 
-  @Override
-  public Set<Edge> incomingEdgesOf(Object obj) {
-    if (obj instanceof SootMethod) {
-      SootMethod method = (SootMethod) obj;
-      Set<Edge> edges = new HashSet<>();
-      Iterator<Edge> it = callGraph.edgesInto(method);
-      while (it.hasNext()) {
-        edges.add(it.next());
-      }
-      return edges;
-    } else if (obj instanceof Unit) {
-      throw new RuntimeException("Error");
-    } else {
-      throw new RuntimeException("Error");
+  // counting sort of the edge indices by the given endpoint
+  private static void groupEdges(int[] endpoints, int[] offsets, int[] grouped) {
+    for (int endpoint : endpoints) {
+      offsets[endpoint + 1]++;
+    }
+    for (int i = 0; i < offsets.length - 1; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    final int[] next = new int[offsets.length - 1];
+    System.arraycopy(offsets, 0, next, 0, next.length);
+    for (int edge = 0; edge < endpoints.length; edge++) {
+      grouped[next[endpoints[edge]]++] = edge;
     }
   }
 
-  @Override
-  public int outDegreeOf(Object obj) {
+  // --- primitive, index-based access
 
-    if (obj instanceof SootMethod) {
-      SootMethod method = (SootMethod) obj;
-      int i = 0;
-      Iterator<Edge> it = callGraph.edgesOutOf(method);
-      while (it.hasNext()) {
-        i++;
-        it.next();
-      }
+  public int getMethodCount() {
+    return methods.length;
+  }
+
+  public int getEdgeCount() {
+    return edges.length;
+  }
 
-      return i;
-    } else if (obj instanceof Unit) {
+  /** @return the index of the method, or -1 if it is not in the call graph */
+  public int getMethodIndex(SootMethod method) {
+    final Integer index = methodIndex.get(method);
+    return index == null ? -1 : index;
+  }
+
+  public SootMethod getMethod(int methodIndex) {
+    return methods[methodIndex];
+  }
+
+  public Edge getEdge(int edgeIndex) {
+    return edges[edgeIndex];
+  }
 
-      Unit unit = (Unit) obj;
-      int i = 0;
-      Iterator<Edge> it = callGraph.edgesOutOf(unit);
-      while (it.hasNext()) {
-        i++;
-        it.next();
+  public int getEdgeSourceIndex(int edgeIndex) {
+    return edgeSrc[edgeIndex];
+  }
+
+  public int getEdgeTargetIndex(int edgeIndex) {
+    return edgeTgt[edgeIndex];
+  }
+
+  /**
+   * Computes the methods reachable from the given methods along the call edges
+   *
+   * @param entryMethods the indices of the entry methods
+   * @return the indices of the reachable methods, including the entry methods
+   */
+  public BitSet reachableFrom(BitSet entryMethods) {
+    BitSet reachable = new BitSet(methods.length);
+    int[] worklist = new int[methods.length];
+    int size = 0;
+    for (int m = entryMethods.nextSetBit(0); m >= 0; m = entryMethods.nextSetBit(m + 1)) {
+      reachable.set(m);
+      worklist[size++] = m;
+    }
+    while (size > 0) {
+      final int m = worklist[--size];
+      for (int i = outOffsets[m]; i < outOffsets[m + 1]; i++) {
+        final int tgt = edgeTgt[outEdges[i]];
+        if (!reachable.get(tgt)) {
+          reachable.set(tgt);
+          worklist[size++] = tgt;
+        }
       }
+    }
+    return reachable;
+  }
 
-      return i;
+  // --- jgrapht graph view
 
-    } else {
-      throw new RuntimeException("Call graph adapter failed");
+  private int requireIndex(Object vertex) {
+    if (vertex instanceof SootMethod) {
+      final Integer index = methodIndex.get(vertex);
+      if (index != null) {
+        return index;
+      }
     }
+    throw new IllegalArgumentException("no such vertex in graph: " + vertex);
   }
 
   @Override
-  public Set<Edge> outgoingEdgesOf(Object obj) {
-
-    if (obj instanceof SootMethod) {
-      SootMethod method = (SootMethod) obj;
-      Set<Edge> edges = new HashSet<>();
-      Iterator<Edge> it = callGraph.edgesOutOf(method);
-      while (it.hasNext()) {
-        edges.add(it.next());
+  public Set<Edge> getAllEdges(SootMethod sourceVertex, SootMethod targetVertex) {
+    final Integer src = methodIndex.get(sourceVertex);
+    final Integer tgt = methodIndex.get(targetVertex);
+    if (src == null || tgt == null) {
+      return null;
+    }
+    Set<Edge> result = new LinkedHashSet<>();
+    for (int i = outOffsets[src]; i < outOffsets[src + 1]; i++) {
+      if (edgeTgt[outEdges[i]] == tgt) {
+        result.add(edges[outEdges[i]]);
       }
-      return edges;
-    } else if (obj instanceof Unit) {
-      Unit unit = (Unit) obj;
-      Set<Edge> edges = new HashSet<>();
-      Iterator<Edge> it = callGraph.edgesOutOf(unit);
-      while (it.hasNext()) {
-        edges.add(it.next());
+    }
+    return result;
+  }
+
+  @Override
+  public Edge getEdge(SootMethod sourceVertex, SootMethod targetVertex) {
+    final Integer src = methodIndex.get(sourceVertex);
+    final Integer tgt = methodIndex.get(targetVertex);
+    if (src == null || tgt == null) {
+      return null;
+    }
+    for (int i = outOffsets[src]; i < outOffsets[src + 1]; i++) {
+      if (edgeTgt[outEdges[i]] == tgt) {
+        return edges[outEdges[i]];
       }
-      return edges;
-    } else {
-      throw new RuntimeException("awdwa");
     }
+    return null;
   }
 
   @Override
-  public Set<Edge> getAllEdges(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public Supplier<SootMethod> getVertexSupplier() {
+    return null;
   }
 
   @Override
-  public Edge getEdge(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public Supplier<Edge> getEdgeSupplier() {
+    return null;
   }
 
   @Override
-  public Edge addEdge(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public Edge addEdge(SootMethod sourceVertex, SootMethod targetVertex) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
   }
 
   @Override
-  public boolean addEdge(Object method, Object v1, Edge edge) {
-    throw new RuntimeException("Unsupported Operation");
+  public boolean addEdge(SootMethod sourceVertex, SootMethod targetVertex, Edge edge) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
   }
 
   @Override
-  public boolean addVertex(Object method) {
-    throw new RuntimeException("Unsupported Operation");
+  public SootMethod addVertex() {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
   }
 
   @Override
-  public boolean containsEdge(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public boolean addVertex(SootMethod method) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
   }
 
   @Override
   public boolean containsEdge(Edge edge) {
-    throw new RuntimeException("Unsupported Operation");
+    return edgeSetView.contains(edge);
   }
 
   @Override
-  public boolean containsVertex(Object method) {
-    return methodVertexSet.contains(method);
+  public boolean containsVertex(SootMethod method) {
+    return methodIndex.containsKey(method);
   }
 
   @Override
   public Set<Edge> edgeSet() {
-    //  callGraph.getEdges();
-    return null;
+    return edgeSetView;
   }
 
   @Override
-  public Set<Edge> edgesOf(Object method) {
-    throw new RuntimeException("Unsupported Operation");
+  public int degreeOf(SootMethod method) {
+    return inDegreeOf(method) + outDegreeOf(method);
   }
 
   @Override
-  public boolean removeAllEdges(Collection<? extends Edge> collection) {
-    throw new RuntimeException("Unsupported Operation");
+  public Set<Edge> edgesOf(SootMethod method) {
+    Set<Edge> result = new LinkedHashSet<>(incomingEdgesOf(method));
+    result.addAll(outgoingEdgesOf(method));
+    return result;
   }
 
   @Override
-  public Set<Edge> removeAllEdges(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public int inDegreeOf(SootMethod method) {
+    final int index = requireIndex(method);
+    return inOffsets[index + 1] - inOffsets[index];
   }
 
   @Override
-  public boolean removeAllVertices(Collection<?> collection) {
-    throw new RuntimeException("Unsupported Operation");
+  public Set<Edge> incomingEdgesOf(SootMethod method) {
+    final int index = requireIndex(method);
+    return new EdgeSetView(inEdges, inOffsets[index], inOffsets[index + 1]);
   }
 
   @Override
-  public Edge removeEdge(Object method, Object v1) {
-    throw new RuntimeException("Unsupported Operation");
+  public int outDegreeOf(SootMethod method) {
+    final int index = requireIndex(method);
+    return outOffsets[index + 1] - outOffsets[index];
   }
 
   @Override
-  public boolean removeEdge(Edge edge) {
-    throw new RuntimeException("Unsupported Operation");
+  public Set<Edge> outgoingEdgesOf(SootMethod method) {
+    final int index = requireIndex(method);
+    return new EdgeSetView(outEdges, outOffsets[index], outOffsets[index + 1]);
   }
 
   @Override
-  public boolean removeVertex(Object method) {
-    throw new RuntimeException("Unsupported Operation");
+  public Edge removeEdge(SootMethod sourceVertex, SootMethod targetVertex) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
   }
 
   @Override
-  public Set<Object> vertexSet() {
-    if (methodVertexSet != null) {
-      return methodVertexSet;
-    }
-    methodVertexSet = new HashSet<>();
-    Iterator<MethodOrMethodContext> it = callGraph.sourceMethods();
-    while (it.hasNext()) {
-      MethodOrMethodContext m = it.next();
-      methodVertexSet.add(m.method());
-      methodVertexSet.add(m.context());
-    }
+  public boolean removeEdge(Edge edge) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
+  }
 
-    return methodVertexSet;
+  @Override
+  public boolean removeVertex(SootMethod method) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
+  }
+
+  @Override
+  public Set<SootMethod> vertexSet() {
+    return vertexSetView;
   }
 
   @Override
@@ -237,8 +346,89 @@ public class SootCallGraphAdapter extends AbstractBaseGraph<Object, Edge> {
     return edge.tgt();
   }
 
+  @Override
+  public GraphType getType() {
+    return GRAPH_TYPE;
+  }
+
   @Override
   public double getEdgeWeight(Edge edge) {
-    return 0;
+    return Graph.DEFAULT_EDGE_WEIGHT;
+  }
+
+  @Override
+  public void setEdgeWeight(Edge edge, double weight) {
+    throw new UnsupportedOperationException("The call graph adapter is read-only");
+  }
+
+  /** Read-only view on a range of edge indices, or on all edges if no index array is given */
+  private class EdgeSetView extends AbstractSet<Edge> {
+    private final int[] edgeIndices;
+    private final int from;
+    private final int to;
+
+    EdgeSetView(int[] edgeIndices, int from, int to) {
+      this.edgeIndices = edgeIndices;
+      this.from = from;
+      this.to = to;
+    }
+
+    private int edgeAt(int position) {
+      return edgeIndices == null ? position : edgeIndices[position];
+    }
+
+    @Override
+    public Iterator<Edge> iterator() {
+      return new Iterator<Edge>() {
+        private int position = from;
+
+        @Override
+        public boolean hasNext() {
+          return position < to;
+        }
+
+        @Override
+        public Edge next() {
+          if (position >= to) {
+            throw new NoSuchElementException();
+          }
+          return edges[edgeAt(position++)];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Edge)) {
+        return false;
+      }
+      final Edge edge = (Edge) o;
+      final Integer src = methodIndex.get(edge.src());
+      if (src == null) {
+        return false;
+      }
+      // the edges of a method are a contiguous range in outEdges
+      for (int i = outOffsets[src]; i < outOffsets[src + 1]; i++) {
+        final int candidate = outEdges[i];
+        if (edges[candidate] == edge && (edgeIndices == null || inRange(candidate))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean inRange(int edgeIndex) {
+      for (int position = from; position < to; position++) {
+        if (edgeIndices[position] == edgeIndex) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 }
@@ -33,6 +33,8 @@ public class UpdateSuggestion {
 
   @CsvBindByName private boolean isSimpleUpdate;
   @CsvBindByName private boolean isNaiveUpdate;
+  // the call graph construction timed out, violations are computed on a partial call graph
+  @CsvBindByName private boolean isPartialCallGraph;
   @CsvBindByName private SuggestionStatus status;
   @CsvBindByName private List<String> messages;
   // corresponds to the number of libraries with which we have violations
@@ -0,0 +1,98 @@
+package de.upb.upcy.update.recommendation;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+
+/**
+ * Weighted sum of the signals predicting that a (cut, version) candidate produces violations:
+ *
+ * <ul>
+ *   <li>the weight of the cut
+ *   <li>the number of calls from not updated into updated libraries crossing the cut
+ *   <li>the semantic version distance between the original and the candidate version
+ *   <li>the mean number of violations previous evaluations of the same version transition had
+ * </ul>
+ *
+ * The history is kept per instance, thus sharing an instance across the update requests of a
+ * module lets later requests learn from earlier ones.
+ *
+ * @author adann
+ */
+public class WeightedCandidateCostModel implements CandidateCostModel {
+
+  private final double cutWeightFactor;
+  private final double crossingCallsFactor;
+  private final double versionDistanceFactor;
+  private final double historyFactor;
+
+  // version transition -> {nr of evaluations, sum of violations}
+  private final Map<String, int[]> history = new HashMap<>();
+
+  public WeightedCandidateCostModel() {
+    this(0.5, 1.0, 0.5, 1.0);
+  }
+
+  public WeightedCandidateCostModel(
+      double cutWeightFactor,
+      double crossingCallsFactor,
+      double versionDistanceFactor,
+      double historyFactor) {
+    this.cutWeightFactor = cutWeightFactor;
+    this.crossingCallsFactor = crossingCallsFactor;
+    this.versionDistanceFactor = versionDistanceFactor;
+    this.historyFactor = historyFactor;
+  }
+
+  @Override
+  public synchronized double cost(
+      CutCandidate cut, String orgGav, String candidateGav, int versionRank) {
+    double cost =
+        cutWeightFactor * cut.getWeight()
+            + crossingCallsFactor * Math.log1p(cut.getCrossingCalls())
+            + versionDistanceFactor * Math.log1p(versionDistance(orgGav, candidateGav));
+    final int[] stats = history.get(orgGav + "->" + candidateGav);
+    if (stats != null && stats[0] > 0) {
+      cost += historyFactor * Math.log1p((double) stats[1] / stats[0]);
+    }
+    // tie-break in discovery order
+    return cost + cut.getSequence() * 1e-9 + versionRank * 1e-12;
+  }
+
+  @Override
+  public boolean usesCrossingCalls() {
+    return crossingCallsFactor != 0;
+  }
+
+  @Override
+  public synchronized void recordEvaluation(
+      String orgGav, String candidateGav, int nrOfViolations) {
+    final int[] stats = history.computeIfAbsent(orgGav + "->" + candidateGav, k -> new int[2]);
+    stats[0]++;
+    stats[1] += Math.max(0, nrOfViolations);
+  }
+
+  static int versionDistance(String orgGav, String candidateGav) {
+    // joint updates of multiple libraries, separated by ';'
+    final String[] orgGavs = orgGav.split(";");
+    final String[] candidateGavs = candidateGav.split(";");
+    if (orgGavs.length > 1 && orgGavs.length == candidateGavs.length) {
+      int distance = 0;
+      for (int i = 0; i < orgGavs.length; i++) {
+        distance += versionDistance(orgGavs[i], candidateGavs[i]);
+      }
+      return distance;
+    }
+    final DefaultArtifactVersion orgVersion = new DefaultArtifactVersion(version(orgGav));
+    final DefaultArtifactVersion candidateVersion =
+        new DefaultArtifactVersion(version(candidateGav));
+    return 100 * Math.abs(candidateVersion.getMajorVersion() - orgVersion.getMajorVersion())
+        + 10 * Math.abs(candidateVersion.getMinorVersion() - orgVersion.getMinorVersion())
+        + Math.abs(candidateVersion.getIncrementalVersion() - orgVersion.getIncrementalVersion());
+  }
+
+  private static String version(String gav) {
+    final int index = gav.lastIndexOf(':');
+    return index < 0 ? gav : gav.substring(index + 1);
+  }
+}
@@ -6,6 +6,7 @@ import de.upb.maven.ecosystem.persistence.model.MvnArtifactNode;
 import de.upb.upcy.base.graph.GraphModel;
 import de.upb.upcy.update.recommendation.BlossomGraphCreator;
 import de.upb.upcy.update.recommendation.CustomEdge;
+import de.upb.upcy.update.recommendation.MethodTable;
 import de.upb.upcy.update.recommendation.NodeMatchUtil;
 import de.upb.upcy.update.recommendation.compatabilityparser.CompatabilityCheck;
 import de.upb.upcy.update.recommendation.compatabilityparser.Incompatibility;
@@ -25,14 +26,12 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.interfaces.ShortestPathAlgorithm;
 import org.jgrapht.alg.shortestpath.BFSShortestPath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import soot.SootMethod;
 
 /**
  * Compute violations for a given update using the CompatibilityCheck
@@ -43,9 +42,10 @@ public class UpdateCheck {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(UpdateCheck.class);
 
-  private final CompatabilityCheck COMPATABILITY_CHECK = CompatabilityCheck.getInstance();
+  private final CompatabilityCheck compatabilityCheck;
 
   private final Graph<String, CustomEdge> shrinkedCG;
+  private final MethodTable methodTable;
   private final Graph<GraphModel.Artifact, GraphModel.Dependency> dependencyGraph;
 
   private final Graph<MvnArtifactNode, DependencyRelation> updateSubGraph;
@@ -60,13 +60,16 @@ public class UpdateCheck {
 
   public UpdateCheck(
       Graph<String, CustomEdge> shrinkedCG,
+      MethodTable methodTable,
       Graph<GraphModel.Artifact, GraphModel.Dependency> dependencyGraph,
       Collection<GraphModel.Artifact> unUpdatedNodes,
       Graph<MvnArtifactNode, DependencyRelation> updateSubGraph,
       NodeMatchUtil nodeMatchUtil,
       BlossomGraphCreator blossomGraphCreator,
-      boolean treatBlossomNodesAsCompatible) {
+      boolean treatBlossomNodesAsCompatible,
+      CompatabilityCheck compatabilityCheck) {
     this.shrinkedCG = shrinkedCG;
+    this.methodTable = methodTable;
     this.dependencyGraph = dependencyGraph;
     this.updateSubGraph = updateSubGraph;
     this.nodeMatchUtil = nodeMatchUtil;
@@ -80,6 +83,7 @@ public class UpdateCheck {
     this.blossomGraphCreator = blossomGraphCreator;
     // if the blossom nodes are updated together, they are compatible
     this.treatBlossomNodesAsCompatible = treatBlossomNodesAsCompatible;
+    this.compatabilityCheck = compatabilityCheck;
   }
 
   public static SigTestMethod parseSigTestMethodSignature(final String qualifiedMethod) {
@@ -120,19 +124,21 @@ public class UpdateCheck {
     return sigTestMethod;
   }
 
-  public static List<SootMethod> getSourceBinEdgeViolation(
-      Collection<? extends Incompatibility> incompatibilities, CustomEdge customEdge)
+  public static List<Integer> getSourceBinEdgeViolation(
+      Collection<? extends Incompatibility> incompatibilities,
+      CustomEdge customEdge,
+      MethodTable methodTable)
       throws CompatabilityComputeException {
     if (incompatibilities == null) {
       LOGGER.error("Incompatibilities is NULL");
       throw new CompatabilityComputeException("Incompatibilities is NULL");
     }
 
-    List<SootMethod> violatedCalls = new ArrayList<>();
-    for (Pair<SootMethod, SootMethod> srcTgtMethod : customEdge.getSrcTgtMethods()) {
+    List<Integer> violatedCalls = new ArrayList<>();
+    for (int i = 0; i < customEdge.size(); i++) {
       // keep in mind, that also a class maybe delete
-      final SootMethod tgtMethod = srcTgtMethod.getRight();
-      final String tgtClass = tgtMethod.getDeclaringClass().getName();
+      final int tgtMethod = customEdge.getTgtMethod(i);
+      final String tgtClass = methodTable.getDeclaringClass(tgtMethod);
 
       final List<SigTestIncompatibility> incComClasses =
           incompatibilities.stream()
@@ -167,25 +173,26 @@ public class UpdateCheck {
           final SigTestMethod sigTestMethod = parseSigTestMethodSignature(methodName);
           // check if it matches the soot method
           // check if method name matches
-          if (StringUtils.equals(tgtMethod.getName(), sigTestMethod.name)) {
+          if (StringUtils.equals(methodTable.getName(tgtMethod), sigTestMethod.name)) {
             // check if return type matches
             if (StringUtils.equals(
-                tgtMethod.getReturnType().toQuotedString(), sigTestMethod.returnType)) {
+                methodTable.getReturnType(tgtMethod), sigTestMethod.returnType)) {
               // check if parameters matches
-              if (tgtMethod.getParameterCount() == sigTestMethod.parameters.size()) {
+              final int parameterCount = methodTable.getParameterCount(tgtMethod);
+              if (parameterCount == sigTestMethod.parameters.size()) {
                 boolean parameterMatch = true;
-                for (int i = 0; i < tgtMethod.getParameterCount(); i++) {
+                for (int j = 0; j < parameterCount; j++) {
                   parameterMatch &=
                       StringUtils.equals(
-                          tgtMethod.getParameterType(i).toQuotedString(),
-                          sigTestMethod.parameters.get(i));
+                          methodTable.getParameterType(tgtMethod, j),
+                          sigTestMethod.parameters.get(j));
                 }
                 if (parameterMatch) {
                   violatedCalls.add(tgtMethod);
 
                   LOGGER.debug(
                       "Matching SootMethod {} with SigTestMethod {}",
-                      tgtMethod.getSignature(),
+                      methodTable.getSignature(tgtMethod),
                       methodName);
                   break;
                 }
@@ -343,13 +350,13 @@ public class UpdateCheck {
         // Future -- refine forward compatability check
         return Collections.singletonList(
             new ForwardViolation(
-                Collections.emptyList(),
                 orgDepNode.toGav(),
                 newDepNode.getGroup()
                     + ":"
                     + newDepNode.getArtifact()
                     + ":"
-                    + newDepNode.getVersion()));
+                    + newDepNode.getVersion(),
+                methodTable));
       }
     }
   }
@@ -424,12 +431,12 @@ public class UpdateCheck {
       return Collections.emptyList();
     }
 
-    List<SootMethod> violatedCalls = new ArrayList<>();
+    List<Integer> violatedCalls = new ArrayList<>();
 
     // get compatability info from the database
     // get the infos from sigtest and sootdiff
     Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>> compatabilityInfo =
-        COMPATABILITY_CHECK.getCompatabilityInfo(
+        compatabilityCheck.getCompatabilityInfo(
             orgDepNode.getGroupId(),
             orgDepNode.getArtifactId(),
             orgDepNode.getVersion(),
@@ -456,7 +463,7 @@ public class UpdateCheck {
 
       try {
         LOGGER.debug("Check Semantic Edges");
-        final List<SootMethod> semEdgeViolation =
+        final List<Integer> semEdgeViolation =
             getSemanticEdgeViolation(
                 compatabilityInfo.get(Parser.COMPATABILITY_TYPE.SEMANTIC),
                 violatedEdgeSource.getValue());
@@ -471,20 +478,22 @@ public class UpdateCheck {
       // is src or binary
       if (checkSrc) {
         LOGGER.debug("Check Src Edges");
-        final List<SootMethod> sourceBinEdgeViolation =
+        final List<Integer> sourceBinEdgeViolation =
             getSourceBinEdgeViolation(
                 compatabilityInfo.get(Parser.COMPATABILITY_TYPE.SRC),
-                violatedEdgeSource.getValue());
+                violatedEdgeSource.getValue(),
+                methodTable);
 
         violatedCalls.addAll(sourceBinEdgeViolation);
       }
 
       if (checkBin) {
         LOGGER.debug("Check Bin Edges");
-        final List<SootMethod> sourceBinEdgeViolation =
+        final List<Integer> sourceBinEdgeViolation =
             getSourceBinEdgeViolation(
                 compatabilityInfo.get(Parser.COMPATABILITY_TYPE.BINARY),
-                violatedEdgeSource.getValue());
+                violatedEdgeSource.getValue(),
+                methodTable);
 
         violatedCalls.addAll(sourceBinEdgeViolation);
       }
@@ -495,12 +504,13 @@ public class UpdateCheck {
         new Violation(
             violatedCalls,
             orgDepNode.toGav(),
-            newDepNode.getGroup() + ":" + newDepNode.getArtifact() + ":" + newDepNode.getVersion());
+            newDepNode.getGroup() + ":" + newDepNode.getArtifact() + ":" + newDepNode.getVersion(),
+            methodTable);
 
     return Collections.singletonList(violation);
   }
 
-  private List<SootMethod> getSemanticEdgeViolation(
+  private List<Integer> getSemanticEdgeViolation(
       Collection<? extends Incompatibility> incompatabilities, CustomEdge customEdge)
       throws CompatabilityComputeException {
     if (incompatabilities == null) {
@@ -514,12 +524,12 @@ public class UpdateCheck {
             .map(x -> (SootMethodIncompatibility) x)
             .collect(Collectors.toList());
 
-    List<SootMethod> violatedCalls = new ArrayList<>();
-    for (Pair<SootMethod, SootMethod> srcTgtMethod : customEdge.getSrcTgtMethods()) {
-      final SootMethod tgtMeth = srcTgtMethod.getRight();
+    List<Integer> violatedCalls = new ArrayList<>();
+    for (int i = 0; i < customEdge.size(); i++) {
+      final int tgtMeth = customEdge.getTgtMethod(i);
       for (SootMethodIncompatibility sootMethodIncompatability : sootMethodIncompatibilities) {
         if (StringUtils.equals(
-            tgtMeth.getSignature(), sootMethodIncompatability.getStartMethod())) {
+            methodTable.getSignature(tgtMeth), sootMethodIncompatability.getStartMethod())) {
           violatedCalls.add(tgtMeth);
         }
       }
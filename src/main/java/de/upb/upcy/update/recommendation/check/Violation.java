@@ -1,14 +1,38 @@
 package de.upb.upcy.update.recommendation.check;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.upb.upcy.update.recommendation.MethodTable;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import soot.SootMethod;
+import lombok.EqualsAndHashCode;
 
+/**
+ * A violation between two versions of a library. The violated calls are ids into the {@link
+ * MethodTable} of the shrinked call graph and can be resolved with {@link
+ * #getViolatedCallSignatures()}.
+ */
 @AllArgsConstructor
 @Data
 public class Violation {
-  private final List<SootMethod> violatedCalls;
+  private final List<Integer> violatedCalls;
   private final String orgLib;
   private final String updatedLib;
+  @JsonIgnore @EqualsAndHashCode.Exclude private final MethodTable methodTable;
+
+  @JsonIgnore
+  public List<String> getViolatedCallSignatures() {
+    return methodTable.resolve(violatedCalls);
+  }
+
+  @Override
+  public String toString() {
+    return "Violation(violatedCalls="
+        + getViolatedCallSignatures()
+        + ", orgLib="
+        + orgLib
+        + ", updatedLib="
+        + updatedLib
+        + ")";
+  }
 }
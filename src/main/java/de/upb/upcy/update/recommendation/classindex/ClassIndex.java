@@ -0,0 +1,99 @@
+package de.upb.upcy.update.recommendation.classindex;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps fully qualified class names to the GAV of the classpath entry containing them. Classes are
+ * stored per package, and package names are interned, so no full class name string is kept per
+ * class.
+ *
+ * <p>The package pool ({@link #internPackage(String)}) may be used concurrently while reading
+ * jars; merging via {@link #add(String, JarClasses)} must happen sequentially in classpath order.
+ *
+ * @author adann
+ */
+public class ClassIndex {
+
+  private final Map<String, String> packagePool = new ConcurrentHashMap<>();
+  // package -> simple class name -> gav
+  private final Map<String, Map<String, String>> packageToClasses = new HashMap<>();
+  private final Map<String, Set<String>> gavToPackages = new HashMap<>();
+  private final Map<String, JarClasses> gavToJarClasses = new HashMap<>();
+
+  public String internPackage(String packageName) {
+    final String pooled = packagePool.putIfAbsent(packageName, packageName);
+    return pooled == null ? packageName : pooled;
+  }
+
+  /**
+   * Adds the classes of a classpath entry; later entries overwrite classes of earlier ones, as in
+   * the original classpath order
+   *
+   * @param gav the GAV of the classpath entry
+   * @param jarClasses the classes of the entry
+   */
+  public void add(String gav, JarClasses jarClasses) {
+    gavToJarClasses.put(gav, jarClasses);
+    final Set<String> packages = gavToPackages.computeIfAbsent(gav, k -> new HashSet<>());
+    for (Map.Entry<String, List<String>> entry :
+        jarClasses.getPackageToSimpleNames().entrySet()) {
+      packages.add(entry.getKey());
+      final Map<String, String> classes =
+          packageToClasses.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+      for (String simpleName : entry.getValue()) {
+        classes.put(simpleName, gav);
+      }
+    }
+  }
+
+  /**
+   * @param className the fully qualified class name
+   * @return the GAV of the classpath entry containing the class, or null
+   */
+  public String getGav(String className) {
+    final int index = className.lastIndexOf('.');
+    final String packageName = index > 0 ? className.substring(0, index) : "";
+    final Map<String, String> classes = packageToClasses.get(packageName);
+    if (classes == null) {
+      return null;
+    }
+    return classes.get(index > 0 ? className.substring(index + 1) : className);
+  }
+
+  /**
+   * @param gav the GAV of a classpath entry
+   * @return the packages of the classes in that entry
+   */
+  public Set<String> getPackages(String gav) {
+    final Set<String> packages = gavToPackages.get(gav);
+    return packages == null ? Collections.emptySet() : Collections.unmodifiableSet(packages);
+  }
+
+  /**
+   * Materializes the fully qualified names of the classes of a classpath entry
+   *
+   * @param gav the GAV of a classpath entry
+   * @return the fully qualified class names, or null if the GAV is unknown
+   */
+  public Set<String> getClassNames(String gav) {
+    final JarClasses jarClasses = gavToJarClasses.get(gav);
+    if (jarClasses == null) {
+      return null;
+    }
+    Set<String> classNames = new HashSet<>();
+    for (Map.Entry<String, List<String>> entry :
+        jarClasses.getPackageToSimpleNames().entrySet()) {
+      for (String simpleName : entry.getValue()) {
+        classNames.add(
+            entry.getKey().isEmpty() ? simpleName : entry.getKey() + "." + simpleName);
+      }
+    }
+    return classNames;
+  }
+}
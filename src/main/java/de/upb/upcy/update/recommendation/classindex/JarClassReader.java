@@ -0,0 +1,274 @@
+package de.upb.upcy.update.recommendation.classindex;
+
+import de.upb.upcy.update.recommendation.CacheDirectory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the class names of a classpath entry. Archives are read directly from their zip central
+ * directory, which is memory-mapped, without opening or inflating any entry. The result for an
+ * archive is persisted in a cache folder keyed by path, size and modification time, thus modules
+ * sharing the same jars reuse it. The folder is bounded by {@link CacheDirectory}.
+ *
+ * @author adann
+ */
+public final class JarClassReader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JarClassReader.class);
+
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int CEN_SIGNATURE = 0x02014b50;
+  private static final int EOCD_MIN_SIZE = 22;
+  private static final int CEN_HEADER_SIZE = 46;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.US_ASCII);
+  private static final String CACHE_EXTENSION = ".idx";
+
+  private static Path CACHE_DIR =
+      Paths.get(System.getProperty("java.io.tmpdir")).resolve("upcy-class-index");
+
+  static {
+    String cacheDir = System.getenv("CLASS_INDEX_CACHE");
+    if (StringUtils.isNotBlank(cacheDir)) {
+      CACHE_DIR = Paths.get(cacheDir);
+    }
+  }
+
+  private JarClassReader() {}
+
+  /**
+   * Reads the classes of a jar, war, zip or class folder
+   *
+   * @param cpEntry the classpath entry
+   * @param packagePool the pool to intern package names
+   * @return the contained classes
+   */
+  public static JarClasses read(Path cpEntry, Function<String, String> packagePool)
+      throws IOException {
+    final String fileName = cpEntry.getFileName().toString();
+    if (Files.isRegularFile(cpEntry)
+        && (fileName.endsWith("jar") || fileName.endsWith("war") || fileName.endsWith("zip"))) {
+      CacheDirectory.pruneOnce(CACHE_DIR, CACHE_EXTENSION);
+      final Path cacheFile = getCacheFile(cpEntry);
+      if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+        try (DataInputStream in =
+            new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+          final JarClasses jarClasses = JarClasses.read(in, packagePool);
+          CacheDirectory.touch(cacheFile);
+          return jarClasses;
+        } catch (IOException e) {
+          LOGGER.warn("Ignoring corrupt class index cache file {}", cacheFile);
+        }
+      }
+      JarClasses jarClasses;
+      try {
+        jarClasses = readCentralDirectory(cpEntry, packagePool);
+      } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        // e.g., zip64 archives
+        LOGGER.debug("Falling back to JarFile for {}: {}", cpEntry, e.getMessage());
+        jarClasses = readJarFile(cpEntry, packagePool);
+      }
+      if (cacheFile != null) {
+        writeCache(cacheFile, jarClasses);
+      }
+      return jarClasses;
+    }
+    if (Files.isDirectory(cpEntry)) {
+      return readDirectory(cpEntry, packagePool);
+    }
+
+    LOGGER.warn("Did not found classes for {}", cpEntry);
+    return new JarClasses();
+  }
+
+  static JarClasses readCentralDirectory(Path archive, Function<String, String> packagePool)
+      throws IOException {
+    JarClasses jarClasses = new JarClasses();
+    try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+      final long fileSize = channel.size();
+      if (fileSize < EOCD_MIN_SIZE) {
+        throw new IOException("Not a zip file: " + archive);
+      }
+      // the end of central directory record is within the last 64k + 22 bytes
+      final int tailSize = (int) Math.min(fileSize, EOCD_MIN_SIZE + MAX_COMMENT_SIZE);
+      ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+      while (tail.hasRemaining()) {
+        if (channel.read(tail, fileSize - tailSize + tail.position()) < 0) {
+          throw new IOException("Unexpected end of file: " + archive);
+        }
+      }
+      int eocd = -1;
+      for (int i = tailSize - EOCD_MIN_SIZE; i >= 0; i--) {
+        if (tail.getInt(i) == EOCD_SIGNATURE) {
+          eocd = i;
+          break;
+        }
+      }
+      if (eocd < 0) {
+        throw new IOException("No end of central directory found: " + archive);
+      }
+      final int nrOfEntries = Short.toUnsignedInt(tail.getShort(eocd + 10));
+      final long cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+      final long cenOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+      if (nrOfEntries == 0xFFFF || cenOffset == 0xFFFFFFFFL || cenSize == 0xFFFFFFFFL) {
+        throw new IOException("Zip64 archives are not supported: " + archive);
+      }
+
+      final MappedByteBuffer cen =
+          channel.map(FileChannel.MapMode.READ_ONLY, cenOffset, cenSize);
+      cen.order(ByteOrder.LITTLE_ENDIAN);
+      int pos = 0;
+      byte[] nameBuffer = new byte[256];
+      for (int entry = 0; entry < nrOfEntries; entry++) {
+        if (cen.getInt(pos) != CEN_SIGNATURE) {
+          throw new IOException("Invalid central directory header in " + archive);
+        }
+        final int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+        final int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+        final int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+        final int nameStart = pos + CEN_HEADER_SIZE;
+        if (endsWithClassSuffix(cen, nameStart, nameLength)) {
+          if (nameBuffer.length < nameLength) {
+            nameBuffer = new byte[nameLength];
+          }
+          int lastSlash = -1;
+          for (int i = 0; i < nameLength; i++) {
+            byte b = cen.get(nameStart + i);
+            if (b == '/') {
+              lastSlash = i;
+              b = '.';
+            }
+            nameBuffer[i] = b;
+          }
+          final String packageName =
+              lastSlash < 0
+                  ? ""
+                  : packagePool.apply(
+                      new String(nameBuffer, 0, lastSlash, StandardCharsets.UTF_8));
+          final String simpleName =
+              new String(
+                  nameBuffer,
+                  lastSlash + 1,
+                  nameLength - lastSlash - 1 - CLASS_SUFFIX.length,
+                  StandardCharsets.UTF_8);
+          jarClasses.add(packageName, simpleName);
+        }
+        pos = nameStart + nameLength + extraLength + commentLength;
+      }
+    }
+    return jarClasses;
+  }
+
+  private static boolean endsWithClassSuffix(ByteBuffer buffer, int start, int length) {
+    if (length <= CLASS_SUFFIX.length) {
+      return false;
+    }
+    final int suffixStart = start + length - CLASS_SUFFIX.length;
+    for (int i = 0; i < CLASS_SUFFIX.length; i++) {
+      if (buffer.get(suffixStart + i) != CLASS_SUFFIX[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static JarClasses readJarFile(Path archive, Function<String, String> packagePool)
+      throws IOException {
+    JarClasses jarClasses = new JarClasses();
+    try (JarFile jarFile = new JarFile(archive.toFile())) {
+      Enumeration<JarEntry> e = jarFile.entries();
+      while (e.hasMoreElements()) {
+        JarEntry jarEntry = e.nextElement();
+        if (jarEntry.getName().endsWith(".class")) {
+          addClassFile(jarEntry.getName(), jarClasses, packagePool);
+        }
+      }
+    }
+    return jarClasses;
+  }
+
+  private static JarClasses readDirectory(Path start, Function<String, String> packagePool)
+      throws IOException {
+    JarClasses jarClasses = new JarClasses();
+    try (Stream<Path> paths = Files.walk(start)) {
+      paths.forEach(
+          f -> {
+            if (f.getFileName().toString().endsWith(".class")) {
+              final Path relativize = start.relativize(f);
+              addClassFile(
+                  relativize.toString().replace(f.getFileSystem().getSeparator(), "/"),
+                  jarClasses,
+                  packagePool);
+            }
+          });
+    }
+    return jarClasses;
+  }
+
+  private static void addClassFile(
+      String entryName, JarClasses jarClasses, Function<String, String> packagePool) {
+    final int lastSlash = entryName.lastIndexOf('/');
+    final String packageName =
+        lastSlash < 0 ? "" : packagePool.apply(entryName.substring(0, lastSlash).replace('/', '.'));
+    jarClasses.add(
+        packageName,
+        entryName.substring(lastSlash + 1, entryName.length() - CLASS_SUFFIX.length));
+  }
+
+  private static Path getCacheFile(Path archive) {
+    try {
+      final Path absolute = archive.toAbsolutePath();
+      return CACHE_DIR.resolve(
+          absolute.getFileName()
+              + "_"
+              + Integer.toHexString(absolute.toString().hashCode())
+              + "_"
+              + Files.size(absolute)
+              + "_"
+              + Files.getLastModifiedTime(absolute).toMillis()
+              + CACHE_EXTENSION);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void writeCache(Path cacheFile, JarClasses jarClasses) {
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      // write to a temp file first, other processes may read the cache concurrently
+      final Path tmpFile = Files.createTempFile(cacheFile.getParent(), "idx", ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        jarClasses.write(out);
+      }
+      Files.move(
+          tmpFile,
+          cacheFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.debug("Failed to write class index cache file {}", cacheFile, e);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package de.upb.upcy.update.recommendation.classindex;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The classes contained in a single classpath entry (jar or class folder), grouped by their
+ * package. Package names are shared through the pool of the {@link ClassIndex}, thus a class name
+ * is only stored as its simple name.
+ *
+ * @author adann
+ */
+public class JarClasses {
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final Map<String, List<String>> packageToSimpleNames = new HashMap<>();
+  private int nrOfClasses = 0;
+
+  void add(String packageName, String simpleName) {
+    packageToSimpleNames.computeIfAbsent(packageName, k -> new ArrayList<>()).add(simpleName);
+    nrOfClasses++;
+  }
+
+  public Map<String, List<String>> getPackageToSimpleNames() {
+    return Collections.unmodifiableMap(packageToSimpleNames);
+  }
+
+  public int size() {
+    return nrOfClasses;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(packageToSimpleNames.size());
+    for (Map.Entry<String, List<String>> entry : packageToSimpleNames.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for (String simpleName : entry.getValue()) {
+        out.writeUTF(simpleName);
+      }
+    }
+  }
+
+  static JarClasses read(DataInputStream in, Function<String, String> packagePool)
+      throws IOException {
+    final int version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported class index version: " + version);
+    }
+    JarClasses jarClasses = new JarClasses();
+    final int nrOfPackages = in.readInt();
+    for (int i = 0; i < nrOfPackages; i++) {
+      final String packageName = packagePool.apply(in.readUTF());
+      final int nrOfClasses = in.readInt();
+      for (int j = 0; j < nrOfClasses; j++) {
+        jarClasses.add(packageName, in.readUTF());
+      }
+    }
+    return jarClasses;
+  }
+}
@@ -7,7 +7,9 @@ import de.upb.upcy.base.sigtest.db.MongoDBHandler;
 import de.upb.upcy.base.sigtest.db.model.check.SigTestCheckDBDoc;
 import de.upb.upcy.base.sigtest.db.model.generate.SigTestDBDoc;
 import de.upb.upcy.base.sigtest.db.model.sootdiff.CallGraphCheckDoc;
+import de.upb.upcy.update.recommendation.CGBuilder;
 import de.upb.upcy.update.recommendation.exception.CompatabilityComputeException;
+import de.upb.upcy.update.recommendation.exception.SootStateCorruptedException;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -20,12 +22,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Get the incompatibilities between two versions of a library, using SigTest and the MongoDB with
- * API incompatibilities
+ * API incompatibilities. An instance caches the incompatibilities per version pair, thus it is
+ * scoped to a module's analysis.
  *
  * @author adann
  */
@@ -33,17 +40,19 @@ public class CompatabilityCheck {
 
   public static final Logger LOGGER = LoggerFactory.getLogger(CompatabilityCheck.class);
 
-  private static CompatabilityCheck instance = null;
+  // the MongoDBHandler is a process-wide singleton without a thread-safety guarantee, thus its
+  // lookups are serialized; each version pair is computed once per cache anyway
+  private static final Object MONGO_LOCK = new Object();
+
   private final MongoDBHandler mongoDBHandler = MongoDBHandler.getInstance();
 
-  private CompatabilityCheck() {}
+  // the compatibility info per version pair, concurrent requests for a pair wait for each other
+  private final ConcurrentMap<
+          String,
+          CompletableFuture<Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>>>>
+      pairCache = new ConcurrentHashMap<>();
 
-  public static CompatabilityCheck getInstance() {
-    if (instance == null) {
-      instance = new CompatabilityCheck();
-    }
-    return instance;
-  }
+  public CompatabilityCheck() {}
 
   private static void generateSigTest(
       SigTestDBDoc baseVersion, SigTestDBDoc nextVersion, int mode) {
@@ -67,6 +76,32 @@ public class CompatabilityCheck {
       String nextArtifact,
       String nextVersion,
       int mode) {
+    // sootdiff runs Soot in-process, thus exclusively with the process' other Soot users
+    try {
+      CGBuilder.runExclusively(
+          () ->
+              generateSigTestExclusively(
+                  baseGroup,
+                  baseArtifact,
+                  baseVersion,
+                  nextGroup,
+                  nextArtifact,
+                  nextVersion,
+                  mode));
+    } catch (SootStateCorruptedException e) {
+      // the pair's compatibility is not computed, the process is recycled after the module
+      LOGGER.error("Skipped computing the compatibility, Soot is still busy", e);
+    }
+  }
+
+  private static void generateSigTestExclusively(
+      String baseGroup,
+      String baseArtifact,
+      String baseVersion,
+      String nextGroup,
+      String nextArtifact,
+      String nextVersion,
+      int mode) {
     try {
       // create the input file
 
@@ -125,6 +160,10 @@ public class CompatabilityCheck {
     return result.get(0);
   }
 
+  /**
+   * Returns the incompatibilities between the base and the next version. The result is computed
+   * once per version pair; failed computations are not cached.
+   */
   public Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>> getCompatabilityInfo(
       String baseGroup,
       String baseArtifact,
@@ -133,6 +172,58 @@ public class CompatabilityCheck {
       String nextArtifact,
       String nextVersion)
       throws CompatabilityComputeException {
+    final String key =
+        baseGroup
+            + ":"
+            + baseArtifact
+            + ":"
+            + baseVersion
+            + "->"
+            + nextGroup
+            + ":"
+            + nextArtifact
+            + ":"
+            + nextVersion;
+    CompletableFuture<Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>>>
+        future = new CompletableFuture<>();
+    final CompletableFuture<Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>>>
+        cached = pairCache.putIfAbsent(key, future);
+    if (cached != null) {
+      try {
+        return cached.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof CompatabilityComputeException) {
+          throw (CompatabilityComputeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      final Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>> info;
+      synchronized (MONGO_LOCK) {
+        info =
+            Collections.unmodifiableMap(
+                computeCompatabilityInfo(
+                    baseGroup, baseArtifact, baseVersion, nextGroup, nextArtifact, nextVersion));
+      }
+      future.complete(info);
+      return info;
+    } catch (CompatabilityComputeException | RuntimeException e) {
+      pairCache.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private Map<Parser.COMPATABILITY_TYPE, Collection<? extends Incompatibility>>
+      computeCompatabilityInfo(
+          String baseGroup,
+          String baseArtifact,
+          String baseVersion,
+          String nextGroup,
+          String nextArtifact,
+          String nextVersion)
+          throws CompatabilityComputeException {
     MainComputeIncompatibilities mainComputeInCompatibilities = null;
 
     SigTestDBDoc base = mongoDBHandler.findBy(baseGroup, baseArtifact, baseVersion);
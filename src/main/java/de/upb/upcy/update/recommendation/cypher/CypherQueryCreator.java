@@ -3,9 +3,11 @@ package de.upb.upcy.update.recommendation.cypher;
 import de.upb.upcy.base.graph.GraphModel;
 import de.upb.upcy.update.recommendation.BlossomGraphCreator;
 import de.upb.upcy.update.recommendation.NodeMatchUtil;
+import de.upb.upcy.update.recommendation.versions.VersionOrdinals;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,10 +30,23 @@ public class CypherQueryCreator {
   private static final Logger LOGGER = LoggerFactory.getLogger(CypherQueryCreator.class);
   private final BlossomGraphCreator blossomGraphCreator;
   private final NodeMatchUtil nodeMatchUtil;
+  private final VersionOrdinals versionOrdinals;
 
   public CypherQueryCreator(BlossomGraphCreator blossomGraphCreator, NodeMatchUtil nodeMatchUtil) {
+    this(blossomGraphCreator, nodeMatchUtil, null);
+  }
+
+  /**
+   * @param versionOrdinals the provisioned version ordinals for the lower bounds of the versions,
+   *     null compares the version strings
+   */
+  public CypherQueryCreator(
+      BlossomGraphCreator blossomGraphCreator,
+      NodeMatchUtil nodeMatchUtil,
+      VersionOrdinals versionOrdinals) {
     this.blossomGraphCreator = blossomGraphCreator;
     this.nodeMatchUtil = nodeMatchUtil;
+    this.versionOrdinals = versionOrdinals;
   }
 
   /**
@@ -48,6 +63,32 @@ public class CypherQueryCreator {
       final Set<GraphModel.Artifact> cuttedNodes,
       final GraphModel.Artifact libToUpdateInDepGraph,
       final String targetVersion) {
+    return createNeo4JQuery(
+        depGraphfinal,
+        sinkPartition,
+        cuttedNodes,
+        Collections.singletonMap(libToUpdateInDepGraph, targetVersion),
+        null);
+  }
+
+  /**
+   * Creates a single query for updating multiple libraries jointly, the sink partition must
+   * contain all of them
+   *
+   * @param depGraphfinal the dependency graph
+   * @param sinkPartition the sink partition
+   * @param cuttedNodes the target nodes of the cut edges
+   * @param targetVersions the libraries to update and their target versions
+   * @param pathBounds the bounds of the DEPENDS_ON patterns in this attempt, null uses fixed
+   *     bounds
+   * @return the cypher query
+   */
+  public String createNeo4JQuery(
+      final Graph<GraphModel.Artifact, GraphModel.Dependency> depGraphfinal,
+      final Set<GraphModel.Artifact> sinkPartition,
+      final Set<GraphModel.Artifact> cuttedNodes,
+      final Map<GraphModel.Artifact, String> targetVersions,
+      final PathBounds.Attempt pathBounds) {
 
     // use simple dijskstra for now
     ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPathAlgorithm =
@@ -138,22 +179,19 @@ public class CypherQueryCreator {
     // generate the neo4j query constraints
     // relationship name counter
 
-    final List<GraphModel.Artifact> predDepNodeOfLibToUpdate =
-        nodeToRoots.get(libToUpdateInDepGraph);
-    MatchUpdateNodeQuery constAndSubGraph =
-        generateLibToUpdateConstraints(libToUpdateInDepGraph, targetVersion);
-
     List<SinkRootQuery> queries =
         createSinkRootNodeConstraints(
-            libToUpdateInDepGraph,
-            nodeToRoots,
-            targetVersion,
-            shortestPathAlgorithm,
-            projectRootNode);
+            targetVersions, nodeToRoots, shortestPathAlgorithm, projectRootNode, pathBounds);
 
     HashSet<GraphModel.Artifact> boundNodes = new HashSet<>();
-    String matchQuery = constAndSubGraph.generateQuery(boundNodes);
-    boundNodes.addAll(constAndSubGraph.getBoundNodes());
+    List<String> matchQueries = new ArrayList<>();
+    for (Map.Entry<GraphModel.Artifact, String> entry : targetVersions.entrySet()) {
+      MatchUpdateNodeQuery constAndSubGraph =
+          generateLibToUpdateConstraints(entry.getKey(), entry.getValue());
+      matchQueries.add(constAndSubGraph.generateQuery(boundNodes));
+      boundNodes.addAll(constAndSubGraph.getBoundNodes());
+    }
+    String matchQuery = String.join("\n", matchQueries);
 
     // subgraph matching should be at the end to improve performance, first select and then subgraph
     // match
@@ -164,12 +202,13 @@ public class CypherQueryCreator {
             .sorted(
                 (x1, x2) -> {
                   // if x1 < x2 = -1; x1 ==x2 = 0, else 1
-                  if (x1.getSharedNode() == libToUpdateInDepGraph
-                      && x2.getSharedNode() == libToUpdateInDepGraph) {
+                  final boolean x1IsLib = isLibToUpdate(targetVersions, x1.getSharedNode());
+                  final boolean x2IsLib = isLibToUpdate(targetVersions, x2.getSharedNode());
+                  if (x1IsLib && x2IsLib) {
                     return 0;
-                  } else if (x1.getSharedNode() == libToUpdateInDepGraph) {
+                  } else if (x1IsLib) {
                     return 1;
-                  } else if (x2.getSharedNode() == libToUpdateInDepGraph) {
+                  } else if (x2IsLib) {
                     return -1;
                   } else {
                     // we don't care
@@ -198,12 +237,22 @@ public class CypherQueryCreator {
         + "RETURN *";
   }
 
+  private static boolean isLibToUpdate(
+      Map<GraphModel.Artifact, String> targetVersions, GraphModel.Artifact node) {
+    for (GraphModel.Artifact libToUpdate : targetVersions.keySet()) {
+      if (libToUpdate == node) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private List<SinkRootQuery> createSinkRootNodeConstraints(
-      GraphModel.Artifact libToUpdateInDepGraph,
+      Map<GraphModel.Artifact, String> targetVersions,
       HashMap<GraphModel.Artifact, List<GraphModel.Artifact>> nodeToRoots,
-      String targetVersion,
       ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPathAlgorithm,
-      GraphModel.Artifact projectRootNode) {
+      GraphModel.Artifact projectRootNode,
+      PathBounds.Attempt pathBounds) {
 
     List<SinkRootQuery> queries = new ArrayList<>();
     // 2. then generate the constraints only for nodes with >=2 roots,
@@ -231,10 +280,11 @@ public class CypherQueryCreator {
           new SinkRootQuery(
               sinkRoots,
               sharedNode,
-              libToUpdateInDepGraph,
+              targetVersions,
               blossomGraphCreator,
-              targetVersion,
-              shortestPathAlgorithm);
+              shortestPathAlgorithm,
+              versionOrdinals,
+              pathBounds);
       queries.add(sinkRootQuery);
     }
     // filter queries that have the same targetBlossom and the same sourceBlossom
@@ -265,7 +315,7 @@ public class CypherQueryCreator {
 
       for (SinkRootQuery rootQuery : sortedQueriesBySharedNode) {
         // don't touch the libToUpdate Query
-        if (rootQuery.getSharedNode() == libToUpdateInDepGraph) {
+        if (isLibToUpdate(targetVersions, rootQuery.getSharedNode())) {
           //  not so nice but works
           continue;
         }
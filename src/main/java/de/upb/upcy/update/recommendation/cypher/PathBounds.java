@@ -0,0 +1,161 @@
+package de.upb.upcy.update.recommendation.cypher;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Adaptive upper bounds of the variable-length DEPENDS_ON patterns between a root and a shared
+ * node. A query starts with the path length observed in the project's dependency graph, but at
+ * least MIN_PATH_LENGTH, and is widened up to MAX_PATH_LENGTH only if it returns no solution, as
+ * wide bounds explode the expansion in Neo4j. The bounds that found a solution are remembered per
+ * (root, shared node) library pair, and used as the start of later queries of the module; the pairs
+ * without a solution even at MAX_PATH_LENGTH start there.
+ *
+ * @author adann
+ */
+public class PathBounds {
+
+  private static int MIN_PATH_LENGTH = 5;
+  private static int MAX_PATH_LENGTH = 8;
+
+  static {
+    String minPathLength = System.getenv("MIN_PATH_LENGTH");
+    if (StringUtils.isNotBlank(minPathLength)) {
+      try {
+        MIN_PATH_LENGTH = Integer.parseInt(minPathLength);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String pathLength = System.getenv("MAX_PATH_LENGTH");
+    if (StringUtils.isNotBlank(pathLength)) {
+      try {
+        MAX_PATH_LENGTH = Math.max(1, Integer.parseInt(pathLength));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  private final int minPathLength;
+  private final int maxPathLength;
+  // the bounds that found a solution, by (root, shared node) library pair
+  private final ConcurrentMap<String, Integer> workingBounds = new ConcurrentHashMap<>();
+  // the pairs that found no solution at the maximal path length
+  private final Set<String> exhaustedBounds = ConcurrentHashMap.newKeySet();
+
+  public PathBounds() {
+    this(MIN_PATH_LENGTH, MAX_PATH_LENGTH);
+  }
+
+  public PathBounds(int minPathLength, int maxPathLength) {
+    this.minPathLength = minPathLength;
+    this.maxPathLength = maxPathLength;
+  }
+
+  /** @return the fixed bound of a pattern, if the bounds are not adapted */
+  static int getFixedBound(int observedPathLength) {
+    return Math.max(observedPathLength, MIN_PATH_LENGTH);
+  }
+
+  private static String getKey(GraphModel.Artifact root, GraphModel.Artifact sharedNode) {
+    return root.getGroupId()
+        + ":"
+        + root.getArtifactId()
+        + "->"
+        + sharedNode.getGroupId()
+        + ":"
+        + sharedNode.getArtifactId();
+  }
+
+  /** @return a new attempt, i.e., the bounds of a query to be widened until it finds a solution */
+  public Attempt newAttempt() {
+    return new Attempt();
+  }
+
+  /** The bounds used by the patterns of a query, not thread-safe */
+  public class Attempt {
+    private final Map<String, Integer> bounds = new HashMap<>();
+    private int nr = 1;
+
+    private Attempt() {}
+
+    /**
+     * @param root the start of the pattern
+     * @param sharedNode the end of the pattern
+     * @param observedPathLength the length of the path in the project's dependency graph
+     * @return the upper bound of the pattern in this attempt
+     */
+    public int getBound(
+        GraphModel.Artifact root, GraphModel.Artifact sharedNode, int observedPathLength) {
+      return bounds.computeIfAbsent(
+          getKey(root, sharedNode),
+          key -> {
+            final int initial = Math.max(1, Math.max(observedPathLength, minPathLength));
+            if (exhaustedBounds.contains(key)) {
+              return Math.max(initial, maxPathLength);
+            }
+            final Integer workingBound = workingBounds.get(key);
+            return workingBound == null ? initial : Math.max(initial, workingBound);
+          });
+    }
+
+    /**
+     * Doubles the bounds of the patterns, up to the maximal path length
+     *
+     * @return false if all bounds are already maximal, thus a further attempt is pointless
+     */
+    public boolean widen() {
+      boolean widened = false;
+      for (Map.Entry<String, Integer> entry : bounds.entrySet()) {
+        if (entry.getValue() < maxPathLength) {
+          entry.setValue(Math.min(maxPathLength, 2 * entry.getValue()));
+          widened = true;
+        }
+      }
+      if (widened) {
+        nr++;
+      }
+      return widened;
+    }
+
+    /** Remembers the bounds, as they found a solution */
+    public void succeeded() {
+      for (Map.Entry<String, Integer> entry : bounds.entrySet()) {
+        workingBounds.merge(entry.getKey(), entry.getValue(), Math::max);
+      }
+    }
+
+    /**
+     * Remembers the maximal bounds, as they found no solution, thus later queries do not widen them
+     * again
+     */
+    public void exhausted() {
+      for (Map.Entry<String, Integer> entry : bounds.entrySet()) {
+        if (entry.getValue() >= maxPathLength) {
+          exhaustedBounds.add(entry.getKey());
+        }
+      }
+    }
+
+    /** @return the number of this attempt, starting at 1 */
+    public int getNr() {
+      return nr;
+    }
+
+    /** @return the sum of the bounds, a proxy for the expansion in Neo4j */
+    public int getTotalBound() {
+      return bounds.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public String toString() {
+      return bounds.toString();
+    }
+  }
+}
@@ -4,8 +4,10 @@ import static java.util.stream.Collectors.groupingBy;
 
 import de.upb.upcy.base.graph.GraphModel;
 import de.upb.upcy.update.recommendation.BlossomGraphCreator;
+import de.upb.upcy.update.recommendation.versions.VersionOrdinals;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -20,13 +22,13 @@ import org.jgrapht.alg.interfaces.ShortestPathAlgorithm;
 public class SinkRootQuery implements CypherQuery {
 
   private static final int SUBGRAPH_LIMIT = 10;
-  private static int MIN_PATH_LENGTH = 5;
+  private static int SUBGRAPH_PATH_LENGTH = 3;
 
   static {
-    String pathLength = System.getenv("MIN_PATH_LENGTH");
-    if (StringUtils.isNotBlank(pathLength)) {
+    String subGraphPathLength = System.getenv("SUBGRAPH_PATH_LENGTH");
+    if (StringUtils.isNotBlank(subGraphPathLength)) {
       try {
-        MIN_PATH_LENGTH = Integer.parseInt(pathLength);
+        SUBGRAPH_PATH_LENGTH = Integer.parseInt(subGraphPathLength);
       } catch (NumberFormatException e) {
         // nothing
       }
@@ -35,11 +37,15 @@ public class SinkRootQuery implements CypherQuery {
 
   private final Map<GraphModel.Artifact, List<GraphModel.Artifact>> sinkRoots;
   private final GraphModel.Artifact sharedNode;
-  private final GraphModel.Artifact libToUpdateInDepGraph;
+  // the libraries to update and their target versions
+  private final Map<GraphModel.Artifact, String> targetVersions;
   private final BlossomGraphCreator blossomGraphCreator;
   private final Set<GraphModel.Artifact> nodesBoundInThisQuery = new HashSet<>();
-  private final String targetVersion;
   private final ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPath;
+  // null compares the version strings
+  private final VersionOrdinals versionOrdinals;
+  // null uses the fixed bounds of PathBounds.getFixedBound
+  private final PathBounds.Attempt pathBounds;
 
   public SinkRootQuery(
       Map<GraphModel.Artifact, List<GraphModel.Artifact>> sinkRoots,
@@ -48,12 +54,86 @@ public class SinkRootQuery implements CypherQuery {
       BlossomGraphCreator blossomGraphCreator,
       String targetVersion,
       ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPath) {
+    this(
+        sinkRoots,
+        sharedNode,
+        Collections.singletonMap(libToUpdateInDepGraph, targetVersion),
+        blossomGraphCreator,
+        shortestPath);
+  }
+
+  /** @param targetVersions the libraries to update jointly and their target versions */
+  public SinkRootQuery(
+      Map<GraphModel.Artifact, List<GraphModel.Artifact>> sinkRoots,
+      GraphModel.Artifact sharedNode,
+      Map<GraphModel.Artifact, String> targetVersions,
+      BlossomGraphCreator blossomGraphCreator,
+      ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPath) {
+    this(sinkRoots, sharedNode, targetVersions, blossomGraphCreator, shortestPath, null, null);
+  }
+
+  /**
+   * @param targetVersions the libraries to update jointly and their target versions
+   * @param versionOrdinals the provisioned version ordinals for the lower bounds, or null
+   * @param pathBounds the adaptive bounds of the DEPENDS_ON patterns, or null
+   */
+  public SinkRootQuery(
+      Map<GraphModel.Artifact, List<GraphModel.Artifact>> sinkRoots,
+      GraphModel.Artifact sharedNode,
+      Map<GraphModel.Artifact, String> targetVersions,
+      BlossomGraphCreator blossomGraphCreator,
+      ShortestPathAlgorithm<GraphModel.Artifact, GraphModel.Dependency> shortestPath,
+      VersionOrdinals versionOrdinals,
+      PathBounds.Attempt pathBounds) {
     this.sinkRoots = sinkRoots;
     this.sharedNode = sharedNode;
-    this.libToUpdateInDepGraph = libToUpdateInDepGraph;
+    this.targetVersions = targetVersions;
     this.blossomGraphCreator = blossomGraphCreator;
-    this.targetVersion = targetVersion;
     this.shortestPath = shortestPath;
+    this.versionOrdinals = versionOrdinals;
+    this.pathBounds = pathBounds;
+  }
+
+  /** @return the upper bound of the DEPENDS_ON pattern from the root to the shared node */
+  private int getPathBound(GraphModel.Artifact root, int observedPathLength) {
+    if (pathBounds == null) {
+      return PathBounds.getFixedBound(observedPathLength);
+    }
+    return pathBounds.getBound(root, sharedNode, observedPathLength);
+  }
+
+  private boolean isLibToUpdate(GraphModel.Artifact node) {
+    for (GraphModel.Artifact libToUpdate : targetVersions.keySet()) {
+      if (libToUpdate == node) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the target version of the library to update in the same blossom, or null */
+  private String getBlossomTargetVersion(GraphModel.Artifact node) {
+    for (Map.Entry<GraphModel.Artifact, String> entry : targetVersions.entrySet()) {
+      if (blossomGraphCreator.isBlossomNode(entry.getKey(), node)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  /** @return the constraint for the versions not older than the node's version */
+  private String getLowerBoundExpression(GraphModel.Artifact node) {
+    final String nodeName = Utils.getNodeNameForCypher(node);
+    if (versionOrdinals != null) {
+      final Long ordinal =
+          versionOrdinals.getLowerBoundOrdinal(
+              node.getGroupId(), node.getArtifactId(), node.getVersion());
+      if (ordinal != null) {
+        return VersionOrdinals.lowerBoundPredicate(nodeName, ordinal);
+      }
+    }
+    // could not be provisioned, fall back to comparing the version strings lexicographically
+    return String.format("%1$s.version >= \"%2$s\"", nodeName, node.getVersion());
   }
 
   public Map<GraphModel.Artifact, List<GraphModel.Artifact>> getSinkRoots() {
@@ -70,16 +150,16 @@ public class SinkRootQuery implements CypherQuery {
 
       GraphModel.Artifact rootNode = (GraphModel.Artifact) sinkRoots.keySet().toArray()[0];
       // if the root node is equal the library to update or both nodes belong to the same framework
-      if ((rootNode == libToUpdateInDepGraph
-              || blossomGraphCreator.isBlossomNode(rootNode, sharedNode))
-          && sharedNode == libToUpdateInDepGraph) {
+      if ((rootNode == sharedNode || blossomGraphCreator.isBlossomNode(rootNode, sharedNode))
+          && isLibToUpdate(sharedNode)) {
         // get the subgraph for the node to update, as it is a root node
         return String.format(
-            "MATCH %2$s = ((%1$s:MvnArtifact)-[:DEPENDS_ON*0..3 {scope:\"COMPILE\"}]->(%3$s:MvnArtifact))",
-            Utils.getNodeNameForCypher(libToUpdateInDepGraph),
-            Utils.getPathName(libToUpdateInDepGraph, null),
-            Utils.getNodeNameForCypher(null));
-      } else if (sharedNode == libToUpdateInDepGraph) {
+            "MATCH %2$s = ((%1$s:MvnArtifact)-[:DEPENDS_ON*0..%4$s {scope:\"COMPILE\"}]->(%3$s:MvnArtifact))",
+            Utils.getNodeNameForCypher(sharedNode),
+            Utils.getPathName(sharedNode, null),
+            Utils.getNodeNameForCypher(null),
+            SUBGRAPH_PATH_LENGTH);
+      } else if (isLibToUpdate(sharedNode)) {
 
         final Collection<GraphModel.Artifact> artifacts =
             blossomGraphCreator.expandBlossomNode(rootNode);
@@ -111,14 +191,14 @@ public class SinkRootQuery implements CypherQuery {
         }
         //  -- avoid duplicate here with LIMIT 1
         // generate easy match subgraph
-        final String pathName = Utils.getPathName(rootNode, libToUpdateInDepGraph);
+        final String pathName = Utils.getPathName(rootNode, sharedNode);
         final String format =
             String.format(
                 "MATCH %2$s = ((%1$s:MvnArtifact)-[:DEPENDS_ON*0..%4$s {scope:\"COMPILE\"}]->(%3$s:MvnArtifact))",
                 Utils.getNodeNameForCypher(rootNode),
                 pathName,
-                Utils.getNodeNameForCypher(libToUpdateInDepGraph),
-                Math.max(pathLength, MIN_PATH_LENGTH));
+                Utils.getNodeNameForCypher(sharedNode),
+                getPathBound(rootNode, pathLength));
 
         String whereExpression;
         if (boundNodes.contains(rootNode)) {
@@ -128,11 +208,12 @@ public class SinkRootQuery implements CypherQuery {
           // for the shared node
           whereExpression =
               String.format(
-                  "%1$s.group=\"%2$s\" AND  %1$s.artifact=\"%3$s\" AND %1$s.version >= \"%4$s\" ",
-                  Utils.getNodeNameForCypher(rootNode),
-                  rootNode.getGroupId(),
-                  rootNode.getArtifactId(),
-                  rootNode.getVersion());
+                      "%1$s.group=\"%2$s\" AND  %1$s.artifact=\"%3$s\" AND ",
+                      Utils.getNodeNameForCypher(rootNode),
+                      rootNode.getGroupId(),
+                      rootNode.getArtifactId())
+                  + getLowerBoundExpression(rootNode)
+                  + " ";
           nodesBoundInThisQuery.add(sharedNode);
         }
 
@@ -219,7 +300,7 @@ public class SinkRootQuery implements CypherQuery {
                 pathName,
                 Utils.getNodeNameForCypher(rNode),
                 sharedNodeName,
-                Math.max(pathLength, MIN_PATH_LENGTH));
+                getPathBound(rNode, pathLength));
         pathNameAndExpression.put(pathName, expression);
       }
       List<String> nodeWhereConditions = new ArrayList<>();
@@ -235,11 +316,12 @@ public class SinkRootQuery implements CypherQuery {
                 "%1$s.group = \"%2$s\" AND %1$s.artifact = \"%3$s\" ",
                 sharedNodeName, sharedNode.getGroupId(), sharedNode.getArtifactId());
 
-        if (blossomGraphCreator.isBlossomNode(libToUpdateInDepGraph, sharedNode)) {
+        final String sharedNodeVersion = getBlossomTargetVersion(sharedNode);
+        if (sharedNodeVersion != null) {
           // use the same targetVersion
           whereSharedNode =
               whereSharedNode
-                  + String.format("AND %1$s.version=\"%2$s\"", sharedNodeName, targetVersion);
+                  + String.format("AND %1$s.version=\"%2$s\"", sharedNodeName, sharedNodeVersion);
         }
 
         nodeWhereConditions.add(whereSharedNode);
@@ -259,19 +341,16 @@ public class SinkRootQuery implements CypherQuery {
                   "%1$s.group=\"%2$s\" AND  %1$s.artifact=\"%3$s\" ",
                   Utils.getNodeNameForCypher(rNode), rNode.getGroupId(), rNode.getArtifactId());
 
-          if (blossomGraphCreator.isBlossomNode(libToUpdateInDepGraph, rNode)) {
+          final String rNodeVersion = getBlossomTargetVersion(rNode);
+          if (rNodeVersion != null) {
             // use the same targetVersion
             whereExpression =
                 whereExpression
                     + String.format(
                         "AND %1$s.version=\"%2$s\"",
-                        Utils.getNodeNameForCypher(rNode), targetVersion);
+                        Utils.getNodeNameForCypher(rNode), rNodeVersion);
           } else {
-            whereExpression =
-                whereExpression
-                    + String.format(
-                        "AND %1$s.version >= \"%2$s\"",
-                        Utils.getNodeNameForCypher(rNode), rNode.getVersion());
+            whereExpression = whereExpression + "AND " + getLowerBoundExpression(rNode);
           }
 
           nodeWhereConditions.add(whereExpression);
@@ -345,8 +424,8 @@ public class SinkRootQuery implements CypherQuery {
             ret
                 + "\n"
                 + String.format(
-                    "MATCH %1$s = ((%2$s:MvnArtifact)-[:DEPENDS_ON*0..3 {scope:\"COMPILE\"}]->(:MvnArtifact))",
-                    pathName, nodeNameForCypher);
+                    "MATCH %1$s = ((%2$s:MvnArtifact)-[:DEPENDS_ON*0..%3$s {scope:\"COMPILE\"}]->(:MvnArtifact))",
+                    pathName, nodeNameForCypher, SUBGRAPH_PATH_LENGTH);
       }
 
       return "CALL{ "
@@ -0,0 +1,201 @@
+package de.upb.upcy.update.recommendation.daemon;
+
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.update.recommendation.CGBuilder;
+import de.upb.upcy.update.recommendation.NodeMatchUtil;
+import de.upb.upcy.update.recommendation.ShrinkedCGCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived analysis process, computing the shrinked call graphs of the modules of a project on
+ * request. The daemon only listens on the loopback interface and handles one module at a time.
+ * The daemon keeps Soot's Scene, i.e., the loaded library classes, their bodies and the hierarchy,
+ * if the next module has the same library classpath, which is common for the modules of a project.
+ * Otherwise, Soot's global state is reset, since Soot cannot unload classes and modules may depend
+ * on different versions of the same library.
+ *
+ * <p>The daemon exits after SOOT_DAEMON_MAX_MODULES modules, if the used heap exceeds
+ * SOOT_DAEMON_MAX_HEAP_RATIO after a module, or if it is idle for SOOT_DAEMON_IDLE_SECONDS. {@link
+ * SootDaemonClient} restarts it on demand.
+ *
+ * @author adann
+ */
+public class SootAnalysisDaemon {
+
+  static final String PORT_PREFIX = "SOOT_DAEMON_PORT=";
+  static final int PROTOCOL_VERSION = 2;
+  static final byte COMPUTE_CG = 1;
+  static final byte SHUTDOWN = 2;
+  static final byte STATUS_OK = 0;
+  static final byte STATUS_ERROR = 1;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SootAnalysisDaemon.class);
+
+  private static int MAX_MODULES = 10;
+  private static double MAX_HEAP_RATIO = 0.75;
+  private static int IDLE_TIMEOUT_IN_SEC = 3600;
+
+  static {
+    String maxModules = System.getenv("SOOT_DAEMON_MAX_MODULES");
+    if (StringUtils.isNotBlank(maxModules)) {
+      try {
+        MAX_MODULES = Integer.parseInt(maxModules);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String maxHeapRatio = System.getenv("SOOT_DAEMON_MAX_HEAP_RATIO");
+    if (StringUtils.isNotBlank(maxHeapRatio)) {
+      try {
+        MAX_HEAP_RATIO = Double.parseDouble(maxHeapRatio);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String idleTimeout = System.getenv("SOOT_DAEMON_IDLE_SECONDS");
+    if (StringUtils.isNotBlank(idleTimeout)) {
+      try {
+        IDLE_TIMEOUT_IN_SEC = Integer.parseInt(idleTimeout);
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    CGBuilder.setKeepScene(true);
+    // the client kills the daemon on timeout, Soot cannot be stopped in process
+    CGBuilder.setBoundedByClient(true);
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverSocket.setSoTimeout(Math.max(0, IDLE_TIMEOUT_IN_SEC) * 1000);
+      // the client reads the port from the first line of stdout
+      System.out.println(PORT_PREFIX + serverSocket.getLocalPort());
+      System.out.flush();
+
+      int handledModules = 0;
+      while (true) {
+        try (Socket socket = serverSocket.accept()) {
+          if (!handle(socket)) {
+            break;
+          }
+        } catch (SocketTimeoutException e) {
+          LOGGER.info("Idle for {}s, shutting down", IDLE_TIMEOUT_IN_SEC);
+          break;
+        } catch (IOException e) {
+          LOGGER.error("Failed to handle request", e);
+        }
+        handledModules++;
+        if (MAX_MODULES > 0 && handledModules >= MAX_MODULES) {
+          LOGGER.info("Handled {} modules, recycling", handledModules);
+          break;
+        }
+        if (isUnderMemoryPressure()) {
+          LOGGER.info("Under memory pressure, recycling");
+          break;
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Failed to open daemon socket", e);
+    }
+    System.exit(0);
+  }
+
+  /** @return false, if the daemon should shut down */
+  private static boolean handle(Socket socket) throws IOException {
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    // the client kills the daemon by its pid, if the request does not complete in time
+    out.writeLong(ProcessHandle.current().pid());
+    out.flush();
+
+    final int protocolVersion = in.readInt();
+    if (protocolVersion != PROTOCOL_VERSION) {
+      writeError(out, "Unsupported protocol version: " + protocolVersion);
+      return true;
+    }
+    final byte command = in.readByte();
+    if (command == SHUTDOWN) {
+      LOGGER.info("Shutdown requested");
+      out.writeByte(STATUS_OK);
+      out.flush();
+      return false;
+    }
+    if (command != COMPUTE_CG) {
+      writeError(out, "Unknown command: " + command);
+      return true;
+    }
+
+    GraphModel.Artifact rootNode = new GraphModel.Artifact();
+    rootNode.setGroupId(in.readUTF());
+    rootNode.setArtifactId(in.readUTF());
+    rootNode.setVersion(in.readUTF());
+    final List<String> classPath = readStrings(in);
+    final List<String> applicationClassDir = readStrings(in);
+    final List<String> applicationPkgs = readStrings(in);
+
+    final CGBuilder cgBuilder;
+    try {
+      NodeMatchUtil nodeMatchUtil = new NodeMatchUtil(rootNode);
+      List<String> moduleClassPath = new ArrayList<>(classPath);
+      moduleClassPath.addAll(applicationClassDir);
+      nodeMatchUtil.computeJarAndClassMapping(moduleClassPath);
+
+      cgBuilder = new CGBuilder(classPath, applicationClassDir, nodeMatchUtil);
+      cgBuilder.computeCGs(applicationPkgs);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Failed computing call graph for {}", rootNode, e);
+      writeError(out, e.toString());
+      return true;
+    }
+
+    out.writeByte(STATUS_OK);
+    ShrinkedCGCodec.write(
+        out, cgBuilder.getShrinkedCG(), cgBuilder.getMethodTable(), cgBuilder.isPartialCG());
+    return true;
+  }
+
+  private static boolean isUnderMemoryPressure() {
+    final Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    final long used = runtime.totalMemory() - runtime.freeMemory();
+    return used > MAX_HEAP_RATIO * runtime.maxMemory();
+  }
+
+  private static void writeError(DataOutputStream out, String message) throws IOException {
+    out.writeByte(STATUS_ERROR);
+    out.writeUTF(StringUtils.abbreviate(StringUtils.defaultString(message), 1024));
+    out.flush();
+  }
+
+  static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  static List<String> readStrings(DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(in.readUTF());
+    }
+    return values;
+  }
+}
@@ -0,0 +1,214 @@
+package de.upb.upcy.update.recommendation.daemon;
+
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.update.recommendation.CGBuilder;
+import de.upb.upcy.update.recommendation.ShrinkedCGCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts the {@link SootAnalysisDaemon} and requests shrinked call graphs from it. The daemon
+ * recycles itself, thus {@link #ensureRunning()} must be called before handing out the port.
+ *
+ * @author adann
+ */
+public class SootDaemonClient implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SootDaemonClient.class);
+
+  private static final long SHUTDOWN_WAIT_IN_SEC = 10;
+  // time for loading the classes and transferring the call graph, on top of the analysis bound
+  private static final long READ_TIMEOUT_MARGIN_IN_SEC = 300;
+
+  // additional JVM arguments for the daemon, e.g., -Xmx
+  private static List<String> JVM_ARGS = new ArrayList<>();
+
+  static {
+    String jvmArgs = System.getenv("SOOT_DAEMON_JVM_ARGS");
+    if (StringUtils.isNotBlank(jvmArgs)) {
+      JVM_ARGS = Arrays.asList(StringUtils.split(jvmArgs));
+    }
+  }
+
+  /** @return the read timeout of a request in millis, derived from SOOT_TIMEOUT_SECONDS */
+  private static int getReadTimeoutMillis() {
+    final long maxAnalysisSeconds = CGBuilder.getMaxAnalysisSeconds();
+    if (maxAnalysisSeconds <= 0) {
+      // as unbounded as the analysis in process
+      return 0;
+    }
+    return (int)
+        Math.min(
+            Integer.MAX_VALUE,
+            TimeUnit.SECONDS.toMillis(maxAnalysisSeconds + READ_TIMEOUT_MARGIN_IN_SEC));
+  }
+
+  private Process process;
+  private int port = -1;
+
+  /**
+   * Starts the daemon, if it is not running (anymore)
+   *
+   * @return the port the daemon listens on
+   */
+  public synchronized int ensureRunning() throws IOException {
+    if (process != null && process.isAlive()) {
+      return port;
+    }
+    if (process != null) {
+      LOGGER.info("Soot daemon exited with {}, restarting", process.exitValue());
+    }
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(JVM_ARGS);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(SootAnalysisDaemon.class.getName());
+
+    process =
+        new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    port = -1;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(SootAnalysisDaemon.PORT_PREFIX)) {
+        port = Integer.parseInt(line.substring(SootAnalysisDaemon.PORT_PREFIX.length()).trim());
+        break;
+      }
+      System.out.println(line);
+    }
+    if (port < 0) {
+      process.destroyForcibly();
+      throw new IOException("Soot daemon did not report its port");
+    }
+    // forward the daemon's log output
+    Thread drain =
+        new Thread(
+            () -> {
+              try {
+                String l;
+                while ((l = reader.readLine()) != null) {
+                  System.out.println(l);
+                }
+              } catch (IOException e) {
+                // daemon exited
+              }
+            },
+            "soot-daemon-output");
+    drain.setDaemon(true);
+    drain.start();
+    LOGGER.info("Started Soot daemon on port {}", port);
+    return port;
+  }
+
+  /**
+   * Requests the shrinked call graph of a module from the daemon listening on the given port
+   *
+   * @param port the daemon's port
+   * @param rootNode the module's root node
+   * @param classPath the libraries' classpath entries
+   * @param applicationClassDir the module's class folders
+   * @param applicationPkgs the module's packages
+   * @return the decoded shrinked call graph
+   * @throws SocketTimeoutException if the daemon did not respond in time; then it is killed, and
+   *     restarted by {@link #ensureRunning()}
+   * @throws IOException if the daemon is not reachable, failed or died during the request
+   */
+  public static ShrinkedCGCodec.ShrinkedCG computeCG(
+      int port,
+      GraphModel.Artifact rootNode,
+      Collection<String> classPath,
+      Collection<String> applicationClassDir,
+      Collection<String> applicationPkgs)
+      throws IOException {
+    long pid = -1;
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setSoTimeout(getReadTimeoutMillis());
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(SootAnalysisDaemon.PROTOCOL_VERSION);
+      out.writeByte(SootAnalysisDaemon.COMPUTE_CG);
+      out.writeUTF(StringUtils.defaultString(rootNode.getGroupId()));
+      out.writeUTF(StringUtils.defaultString(rootNode.getArtifactId()));
+      out.writeUTF(StringUtils.defaultString(rootNode.getVersion()));
+      SootAnalysisDaemon.writeStrings(out, classPath);
+      SootAnalysisDaemon.writeStrings(out, applicationClassDir);
+      SootAnalysisDaemon.writeStrings(out, applicationPkgs);
+      out.flush();
+
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      pid = in.readLong();
+      if (in.readByte() != SootAnalysisDaemon.STATUS_OK) {
+        throw new IOException("Soot daemon failed: " + in.readUTF());
+      }
+      return ShrinkedCGCodec.read(in);
+    } catch (SocketTimeoutException e) {
+      LOGGER.error("Soot daemon did not respond within {}ms, killing it", getReadTimeoutMillis());
+      kill(pid);
+      throw e;
+    }
+  }
+
+  private static void kill(long pid) {
+    if (pid < 0) {
+      return;
+    }
+    ProcessHandle.of(pid)
+        .ifPresent(
+            handle -> {
+              handle.destroyForcibly();
+              try {
+                handle.onExit().get(SHUTDOWN_WAIT_IN_SEC, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } catch (ExecutionException | TimeoutException e) {
+                LOGGER.warn("Soot daemon {} did not exit", pid);
+              }
+            });
+  }
+
+  @Override
+  public synchronized void close() {
+    if (process == null || !process.isAlive()) {
+      return;
+    }
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(SootAnalysisDaemon.PROTOCOL_VERSION);
+      out.writeByte(SootAnalysisDaemon.SHUTDOWN);
+      out.flush();
+      socket.getInputStream().read();
+      if (!process.waitFor(SHUTDOWN_WAIT_IN_SEC, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    } catch (IOException e) {
+      process.destroyForcibly();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package de.upb.upcy.update.recommendation.exception;
+
+/**
+ * Exception indicating that a Soot analysis thread did not stop after its timeout, thus it may
+ * still mutate Soot's global state; the process should not run further analyses and exit
+ *
+ * @author adann
+ */
+public class SootStateCorruptedException extends IllegalStateException {
+  public SootStateCorruptedException(String s) {
+    super(s);
+  }
+}
@@ -0,0 +1,160 @@
+package de.upb.upcy.update.recommendation.incremental;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+
+/**
+ * Difference between two dependency graphs of the same module. Nodes are identified by groupId and
+ * artifactId; a node is changed if its version, its scopes, or its outgoing dependencies (target
+ * and resolution) differ.
+ *
+ * @author adann
+ */
+public class DepGraphDiff {
+
+  private final Set<String> addedNodes;
+  private final Set<String> removedNodes;
+  private final Set<String> changedNodes;
+
+  private DepGraphDiff(Set<String> addedNodes, Set<String> removedNodes, Set<String> changedNodes) {
+    this.addedNodes = addedNodes;
+    this.removedNodes = removedNodes;
+    this.changedNodes = changedNodes;
+  }
+
+  public static DepGraphDiff compute(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> oldGraph,
+      Graph<GraphModel.Artifact, GraphModel.Dependency> newGraph) {
+    final Map<String, String> oldSignatures = signatures(oldGraph);
+    final Map<String, String> newSignatures = signatures(newGraph);
+
+    Set<String> added = new TreeSet<>(newSignatures.keySet());
+    added.removeAll(oldSignatures.keySet());
+    Set<String> removed = new TreeSet<>(oldSignatures.keySet());
+    removed.removeAll(newSignatures.keySet());
+    Set<String> changed = new TreeSet<>();
+    for (Map.Entry<String, String> entry : newSignatures.entrySet()) {
+      final String oldSignature = oldSignatures.get(entry.getKey());
+      if (oldSignature != null && !oldSignature.equals(entry.getValue())) {
+        changed.add(entry.getKey());
+      }
+    }
+    return new DepGraphDiff(added, removed, changed);
+  }
+
+  public static String toKey(GraphModel.Artifact artifact) {
+    return artifact.getGroupId() + ":" + artifact.getArtifactId();
+  }
+
+  private static Map<String, String> signatures(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> graph) {
+    Map<String, Set<String>> nodeSignatures = new HashMap<>();
+    for (GraphModel.Artifact artifact : graph.vertexSet()) {
+      Set<String> children = new TreeSet<>();
+      for (GraphModel.Dependency dependency : graph.outgoingEdgesOf(artifact)) {
+        children.add(toKey(graph.getEdgeTarget(dependency)) + "@" + dependency.getResolution());
+      }
+      final List<String> scopes =
+          artifact.getScopes() == null
+              ? Collections.emptyList()
+              : artifact.getScopes().stream().sorted().collect(Collectors.toList());
+      // the same artifact may occur multiple times, e.g., with different classifiers
+      nodeSignatures
+          .computeIfAbsent(toKey(artifact), k -> new TreeSet<>())
+          .add(artifact.getVersion() + "|" + scopes + "|" + children);
+    }
+    Map<String, String> signatures = new HashMap<>();
+    nodeSignatures.forEach((key, value) -> signatures.put(key, String.join(";", value)));
+    return signatures;
+  }
+
+  /**
+   * The region of a library is the part of the graph an update of the library depends on: the
+   * library and its dependencies, and all their dependents up to the root.
+   *
+   * @param graph the dependency graph
+   * @param libKey the groupId:artifactId of the library
+   * @return the keys of the nodes in the region, empty if the library is not in the graph
+   */
+  public static Set<String> region(
+      Graph<GraphModel.Artifact, GraphModel.Dependency> graph, String libKey) {
+    Set<GraphModel.Artifact> descendants = new HashSet<>();
+    Deque<GraphModel.Artifact> worklist = new ArrayDeque<>();
+    for (GraphModel.Artifact artifact : graph.vertexSet()) {
+      if (libKey.equals(toKey(artifact)) && descendants.add(artifact)) {
+        worklist.add(artifact);
+      }
+    }
+    while (!worklist.isEmpty()) {
+      for (GraphModel.Artifact successor : Graphs.successorListOf(graph, worklist.poll())) {
+        if (descendants.add(successor)) {
+          worklist.add(successor);
+        }
+      }
+    }
+    Set<GraphModel.Artifact> region = new HashSet<>(descendants);
+    worklist.addAll(descendants);
+    while (!worklist.isEmpty()) {
+      for (GraphModel.Artifact predecessor : Graphs.predecessorListOf(graph, worklist.poll())) {
+        if (region.add(predecessor)) {
+          worklist.add(predecessor);
+        }
+      }
+    }
+    return region.stream().map(DepGraphDiff::toKey).collect(Collectors.toSet());
+  }
+
+  /** @return the keys of all added, removed or changed nodes */
+  public Set<String> getTouchedNodes() {
+    Set<String> touched = new TreeSet<>(addedNodes);
+    touched.addAll(removedNodes);
+    touched.addAll(changedNodes);
+    return touched;
+  }
+
+  /**
+   * @param touchedNodes the touched nodes, e.g., {@link #getTouchedNodes()}
+   * @param regions the regions of a library in the old and the new graph
+   * @return the touched nodes within the regions
+   */
+  public static Set<String> touchedInRegions(
+      Set<String> touchedNodes, Collection<Set<String>> regions) {
+    Set<String> touchedInRegions = new TreeSet<>();
+    for (Set<String> region : regions) {
+      for (String node : region) {
+        if (touchedNodes.contains(node)) {
+          touchedInRegions.add(node);
+        }
+      }
+    }
+    return touchedInRegions;
+  }
+
+  public boolean isEmpty() {
+    return addedNodes.isEmpty() && removedNodes.isEmpty() && changedNodes.isEmpty();
+  }
+
+  public Set<String> getAddedNodes() {
+    return Collections.unmodifiableSet(addedNodes);
+  }
+
+  public Set<String> getRemovedNodes() {
+    return Collections.unmodifiableSet(removedNodes);
+  }
+
+  public Set<String> getChangedNodes() {
+    return Collections.unmodifiableSet(changedNodes);
+  }
+}
@@ -0,0 +1,222 @@
+package de.upb.upcy.update.recommendation.incremental;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.base.mvn.MavenInvokerProject;
+import de.upb.upcy.update.recommendation.RecommendationAlgorithm;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Re-analysis of a module whose dependency graph changed since the last analysis. The new
+ * dependency graph is diffed against the stored one, and only the update requests whose region
+ * (see {@link DepGraphDiff#region}) contains a changed node or jar are recomputed; the suggestions
+ * of the other requests are taken from the {@link IncrementalCache}. The call graph is reused for
+ * the unchanged jars, too.
+ *
+ * @author adann
+ */
+public class IncrementalAnalysis {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalAnalysis.class);
+
+  private final RecommendationAlgorithm recommendationAlgorithm;
+  private final IncrementalCache incrementalCache;
+  private final Path depGraphJsonFile;
+
+  public IncrementalAnalysis(
+      RecommendationAlgorithm recommendationAlgorithm,
+      IncrementalCache incrementalCache,
+      Path depGraphJsonFile) {
+    this.recommendationAlgorithm = recommendationAlgorithm;
+    this.incrementalCache = incrementalCache;
+    this.depGraphJsonFile = depGraphJsonFile;
+    recommendationAlgorithm.setIncrementalCache(incrementalCache);
+  }
+
+  /**
+   * Computes the update suggestions of the requests, reusing the ones of the last analysis where
+   * possible, and writes the delta report. The reused results are passed to the sink first, the
+   * computed ones as soon as they are computed.
+   *
+   * @param requests pairs of the gav of the library to update and the target gav
+   * @param deltaReportFile the file to write the delta report to, or null
+   * @param sink receives one result per request
+   */
+  public void run(
+      List<Pair<String, String>> requests,
+      Path deltaReportFile,
+      RecommendationAlgorithm.BatchResultSink sink)
+      throws MavenInvokerProject.BuildToolException, IOException {
+    final Optional<
+            Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>>
+        oldGraph = incrementalCache.loadDepGraph();
+    recommendationAlgorithm.initProject();
+    final DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> newGraph =
+        recommendationAlgorithm.getDependencyGraph();
+
+    DeltaReport deltaReport =
+        new DeltaReport(
+            oldGraph.isPresent(),
+            Collections.emptySet(),
+            Collections.emptySet(),
+            Collections.emptySet(),
+            new TreeSet<>(recommendationAlgorithm.getChangedClassPathEntries()),
+            new ArrayList<>());
+    Set<String> touchedNodes = new TreeSet<>();
+    Map<Pair<String, String>, List<UpdateSuggestion>> previousSuggestions =
+        Collections.emptyMap();
+    if (oldGraph.isPresent()) {
+      final DepGraphDiff diff = DepGraphDiff.compute(oldGraph.get().getLeft(), newGraph);
+      deltaReport.setAddedNodes(diff.getAddedNodes());
+      deltaReport.setRemovedNodes(diff.getRemovedNodes());
+      deltaReport.setChangedNodes(diff.getChangedNodes());
+      touchedNodes.addAll(diff.getTouchedNodes());
+      // a changed jar, e.g., a rebuilt snapshot or the application's classes, touches its node
+      for (String gav : recommendationAlgorithm.getChangedClassPathEntries()) {
+        touchedNodes.add(toKey(gav));
+      }
+      previousSuggestions =
+          incrementalCache.loadSuggestions(recommendationAlgorithm.getMethodTable());
+    }
+
+    // decide per request whether the last result can be reused
+    Map<Pair<String, String>, RequestDelta> deltas = new LinkedHashMap<>();
+    for (Pair<String, String> request : requests) {
+      if (deltas.containsKey(request)) {
+        continue;
+      }
+      final RequestDelta delta;
+      if (!oldGraph.isPresent() || !previousSuggestions.containsKey(request)) {
+        delta =
+            new RequestDelta(
+                request.getLeft(), request.getRight(), Status.NEW, Collections.emptySet(), true);
+      } else {
+        final String libKey = toKey(request.getLeft());
+        final Set<String> newRegion = DepGraphDiff.region(newGraph, libKey);
+        final Set<String> touchedInRegions =
+            DepGraphDiff.touchedInRegions(
+                touchedNodes,
+                Arrays.asList(DepGraphDiff.region(oldGraph.get().getLeft(), libKey), newRegion));
+        final boolean reuse = touchedInRegions.isEmpty() && !newRegion.isEmpty();
+        delta =
+            new RequestDelta(
+                request.getLeft(),
+                request.getRight(),
+                reuse ? Status.REUSED : Status.RECOMPUTED,
+                touchedInRegions,
+                !reuse);
+      }
+      deltas.put(request, delta);
+    }
+    final List<Pair<String, String>> toCompute =
+        requests.stream()
+            .filter(r -> deltas.get(r).getStatus() != Status.REUSED)
+            .collect(Collectors.toList());
+    LOGGER.info(
+        "Incremental analysis: reusing #{} of #{} update requests",
+        deltas.values().stream().filter(d -> d.getStatus() == Status.REUSED).count(),
+        deltas.size());
+
+    // the suggestions are converted before the sink, as it may modify them
+    final ObjectMapper objectMapper = SuggestionModule.createObjectMapper(null);
+    final Map<Pair<String, String>, List<UpdateSuggestion>> previous = previousSuggestions;
+    Map<Pair<String, String>, JsonNode> suggestionsToStore = new LinkedHashMap<>();
+    final RecommendationAlgorithm.BatchResultSink storingSink =
+        batchResult -> {
+          final Pair<String, String> request =
+              Pair.of(batchResult.getOrgGav(), batchResult.getTargetGav());
+          if (batchResult.getError() == null && !suggestionsToStore.containsKey(request)) {
+            final JsonNode suggestions =
+                objectMapper.valueToTree(batchResult.getUpdateSuggestions());
+            final RequestDelta delta = deltas.get(request);
+            if (delta.getStatus() == Status.RECOMPUTED) {
+              delta.setResultChanged(
+                  !suggestions.equals(objectMapper.valueToTree(previous.get(request))));
+            }
+            suggestionsToStore.put(request, suggestions);
+          }
+          sink.accept(batchResult);
+        };
+    for (Pair<String, String> request : requests) {
+      if (deltas.get(request).getStatus() == Status.REUSED) {
+        storingSink.accept(
+            new RecommendationAlgorithm.BatchResult(
+                request.getLeft(), request.getRight(), previous.get(request), null));
+      }
+    }
+    recommendationAlgorithm.runBatch(toCompute, storingSink);
+    deltaReport.getRequests().addAll(deltas.values());
+
+    try {
+      incrementalCache.storeSuggestionTrees(suggestionsToStore);
+      // store the graph last, thus stale suggestions are only ever compared to an older graph
+      incrementalCache.storeDepGraph(depGraphJsonFile);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to store the snapshot for the incremental analysis", e);
+    }
+    if (deltaReportFile != null) {
+      try {
+        new ObjectMapper()
+            .writerWithDefaultPrettyPrinter()
+            .writeValue(deltaReportFile.toFile(), deltaReport);
+      } catch (IOException e) {
+        LOGGER.error("Failed to write the delta report {}", deltaReportFile, e);
+      }
+    }
+  }
+
+  private static String toKey(String gav) {
+    return Arrays.stream(gav.split(":")).limit(2).collect(Collectors.joining(":"));
+  }
+
+  public enum Status {
+    // no result of an earlier analysis
+    NEW,
+    // no node in the library's region changed
+    REUSED,
+    // a node in the library's region changed
+    RECOMPUTED
+  }
+
+  /** The changes since the last analysis and how each request was handled */
+  @Data
+  @AllArgsConstructor
+  public static class DeltaReport {
+    private boolean hasPreviousAnalysis;
+    private Set<String> addedNodes;
+    private Set<String> removedNodes;
+    private Set<String> changedNodes;
+    private Set<String> changedClassPathEntries;
+    private List<RequestDelta> requests;
+  }
+
+  @Data
+  @AllArgsConstructor
+  public static class RequestDelta {
+    private String orgGav;
+    private String targetGav;
+    private Status status;
+    // the touched nodes in the library's region that caused the recomputation
+    private Set<String> touchedNodes;
+    private boolean resultChanged;
+  }
+}
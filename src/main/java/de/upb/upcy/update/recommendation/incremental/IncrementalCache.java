@@ -0,0 +1,256 @@
+package de.upb.upcy.update.recommendation.incremental;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.base.graph.GraphParser;
+import de.upb.upcy.update.recommendation.CustomEdge;
+import de.upb.upcy.update.recommendation.MethodTable;
+import de.upb.upcy.update.recommendation.ShrinkedCGCodec;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of a module's last analysis: the dependency graph, the fingerprints of the classpath
+ * entries, the shrinked call graph and the update suggestions per request. The snapshot is stored
+ * in a folder per module, each file is replaced atomically, and a missing or corrupt file is
+ * treated as a cache miss.
+ *
+ * @author adann
+ */
+public class IncrementalCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalCache.class);
+
+  private static final String DEP_GRAPH_FILE = "dependency-graph.json";
+  private static final String CLASS_PATH_FILE = "classpath.json";
+  private static final String CALL_GRAPH_FILE = "callgraph.bin";
+  private static final String SUGGESTIONS_FILE = "suggestions.json";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final Path moduleCacheDir;
+
+  public IncrementalCache(Path cacheDir, String moduleName) {
+    this.moduleCacheDir = cacheDir.resolve(moduleName);
+  }
+
+  /**
+   * Fingerprint of a classpath entry, for a jar its size and modification time, for a class folder
+   * the hash over the sizes and modification times of all contained files
+   *
+   * @param cpEntry the absolute path of the jar or class folder
+   * @return the fingerprint or null if the entry does not exist
+   */
+  public static String fingerprint(String cpEntry) {
+    final Path path = Paths.get(cpEntry);
+    try {
+      if (Files.isRegularFile(path)) {
+        return Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+      }
+      if (Files.isDirectory(path)) {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (Stream<Path> files = Files.walk(path)) {
+          for (Path file :
+              files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+            digest.update(
+                (path.relativize(file)
+                        + ":"
+                        + Files.size(file)
+                        + ":"
+                        + Files.getLastModifiedTime(file).toMillis()
+                        + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+          }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+          builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      LOGGER.warn("Failed to fingerprint {}", cpEntry, e);
+    }
+    return null;
+  }
+
+  public Optional<
+          Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>>
+      loadDepGraph() {
+    final Path file = moduleCacheDir.resolve(DEP_GRAPH_FILE);
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(GraphParser.parseGraph(file));
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Ignoring corrupt dependency graph snapshot {}", file);
+      return Optional.empty();
+    }
+  }
+
+  public void storeDepGraph(Path depGraphJsonFile) throws IOException {
+    writeAtomically(DEP_GRAPH_FILE, out -> Files.copy(depGraphJsonFile, out));
+  }
+
+  /** @return the fingerprints of the last analysis, keyed by the gav of the classpath entry */
+  public Map<String, String> loadClassPath() {
+    final Path file = moduleCacheDir.resolve(CLASS_PATH_FILE);
+    if (!Files.isRegularFile(file)) {
+      return Collections.emptyMap();
+    }
+    try {
+      return OBJECT_MAPPER.readValue(file.toFile(), new TypeReference<Map<String, String>>() {});
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring corrupt classpath snapshot {}", file);
+      return Collections.emptyMap();
+    }
+  }
+
+  public void storeClassPath(Map<String, String> fingerprints) throws IOException {
+    writeAtomically(CLASS_PATH_FILE, out -> OBJECT_MAPPER.writeValue(out, fingerprints));
+  }
+
+  /** @return the shrinked call graph of the last analysis, or null */
+  public ShrinkedCGCodec.ShrinkedCG loadCallGraph() {
+    final Path file = moduleCacheDir.resolve(CALL_GRAPH_FILE);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      return ShrinkedCGCodec.read(in);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Ignoring corrupt call graph snapshot {}", file);
+      return null;
+    }
+  }
+
+  public void storeCallGraph(
+      Graph<String, CustomEdge> shrinkedCG, MethodTable methodTable, boolean partialCG)
+      throws IOException {
+    writeAtomically(
+        CALL_GRAPH_FILE,
+        out ->
+            ShrinkedCGCodec.write(
+                new DataOutputStream(new BufferedOutputStream(out)),
+                shrinkedCG,
+                methodTable,
+                partialCG));
+  }
+
+  /**
+   * Loads the update suggestions of the last analysis. The violated calls are mapped onto the
+   * given method table; requests whose calls are no longer in the table are dropped.
+   *
+   * @param methodTable the method table of the current call graph
+   * @return the update suggestions keyed by the request
+   */
+  public Map<Pair<String, String>, List<UpdateSuggestion>> loadSuggestions(
+      MethodTable methodTable) {
+    final Path file = moduleCacheDir.resolve(SUGGESTIONS_FILE);
+    if (!Files.isRegularFile(file)) {
+      return Collections.emptyMap();
+    }
+    final ObjectMapper objectMapper = SuggestionModule.createObjectMapper(methodTable);
+    Map<Pair<String, String>, List<UpdateSuggestion>> suggestions = new LinkedHashMap<>();
+    try {
+      final JsonNode root = objectMapper.readTree(file.toFile());
+      for (JsonNode entry : root) {
+        final Pair<String, String> request =
+            Pair.of(entry.path("orgGav").asText(), entry.path("targetGav").asText());
+        try {
+          List<UpdateSuggestion> updateSuggestions =
+              objectMapper
+                  .readerFor(new TypeReference<List<UpdateSuggestion>>() {})
+                  .readValue(entry.path("suggestions"));
+          suggestions.put(request, updateSuggestions);
+        } catch (IOException e) {
+          LOGGER.debug("Dropping stale suggestions for {}", request, e);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring corrupt suggestions snapshot {}", file);
+      return Collections.emptyMap();
+    }
+    return suggestions;
+  }
+
+  public void storeSuggestions(Map<Pair<String, String>, List<UpdateSuggestion>> suggestions)
+      throws IOException {
+    final ObjectMapper objectMapper = SuggestionModule.createObjectMapper(null);
+    Map<Pair<String, String>, JsonNode> suggestionTrees = new LinkedHashMap<>();
+    for (Map.Entry<Pair<String, String>, List<UpdateSuggestion>> entry : suggestions.entrySet()) {
+      suggestionTrees.put(entry.getKey(), objectMapper.valueToTree(entry.getValue()));
+    }
+    storeSuggestionTrees(suggestionTrees);
+  }
+
+  /**
+   * Like {@link #storeSuggestions(Map)}, with the suggestions already converted by the object
+   * mapper of {@link SuggestionModule#createObjectMapper}
+   */
+  public void storeSuggestionTrees(Map<Pair<String, String>, JsonNode> suggestions)
+      throws IOException {
+    final ObjectMapper objectMapper = SuggestionModule.createObjectMapper(null);
+    List<Map<String, Object>> entries = new ArrayList<>(suggestions.size());
+    for (Map.Entry<Pair<String, String>, JsonNode> entry : suggestions.entrySet()) {
+      Map<String, Object> jsonEntry = new LinkedHashMap<>();
+      jsonEntry.put("orgGav", entry.getKey().getLeft());
+      jsonEntry.put("targetGav", entry.getKey().getRight());
+      jsonEntry.put("suggestions", entry.getValue());
+      entries.add(jsonEntry);
+    }
+    writeAtomically(SUGGESTIONS_FILE, out -> objectMapper.writeValue(out, entries));
+  }
+
+  private void writeAtomically(String fileName, OutputWriter writer) throws IOException {
+    Files.createDirectories(moduleCacheDir);
+    // write to a temp file first, a crash must not leave a truncated snapshot behind
+    final Path tmpFile = Files.createTempFile(moduleCacheDir, fileName, ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmpFile)) {
+        writer.write(out);
+      }
+      Files.move(
+          tmpFile,
+          moduleCacheDir.resolve(fileName),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  @FunctionalInterface
+  private interface OutputWriter {
+    void write(OutputStream out) throws IOException;
+  }
+}
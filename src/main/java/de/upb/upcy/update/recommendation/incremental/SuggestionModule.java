@@ -0,0 +1,118 @@
+package de.upb.upcy.update.recommendation.incremental;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import de.upb.upcy.update.recommendation.MethodTable;
+import de.upb.upcy.update.recommendation.check.ForwardViolation;
+import de.upb.upcy.update.recommendation.check.Violation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Jackson (de-)serializers to store update suggestions across runs. The method ids of a violation
+ * are only valid for one method table, thus the violated calls are stored by signature and mapped
+ * onto the method table of the current call graph when loaded.
+ *
+ * @author adann
+ */
+final class SuggestionModule extends SimpleModule {
+
+  private SuggestionModule(MethodTable methodTable) {
+    super("SuggestionModule");
+    addSerializer(Violation.class, new ViolationSerializer());
+    addDeserializer(Violation.class, new ViolationDeserializer(methodTable));
+    addSerializer(Pair.class, new PairSerializer());
+    addDeserializer(Pair.class, new PairDeserializer());
+  }
+
+  /**
+   * @param methodTable the method table to resolve the violated calls against, may be null if the
+   *     mapper is only used for writing
+   */
+  static ObjectMapper createObjectMapper(MethodTable methodTable) {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new SuggestionModule(methodTable));
+    return objectMapper;
+  }
+
+  private static class ViolationSerializer extends JsonSerializer<Violation> {
+    @Override
+    public void serialize(Violation value, JsonGenerator gen, SerializerProvider serializers)
+        throws IOException {
+      gen.writeStartObject();
+      gen.writeBooleanField("forward", value instanceof ForwardViolation);
+      gen.writeStringField("orgLib", value.getOrgLib());
+      gen.writeStringField("updatedLib", value.getUpdatedLib());
+      gen.writeArrayFieldStart("violatedCalls");
+      for (String signature : value.getViolatedCallSignatures()) {
+        gen.writeString(signature);
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+  }
+
+  private static class ViolationDeserializer extends JsonDeserializer<Violation> {
+    private final MethodTable methodTable;
+
+    ViolationDeserializer(MethodTable methodTable) {
+      this.methodTable = methodTable;
+    }
+
+    @Override
+    public Violation deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      if (methodTable == null) {
+        throw JsonMappingException.from(p, "No method table to resolve the violated calls");
+      }
+      final JsonNode node = p.getCodec().readTree(p);
+      final String orgLib = node.path("orgLib").asText(null);
+      final String updatedLib = node.path("updatedLib").asText(null);
+      if (node.path("forward").asBoolean()) {
+        return new ForwardViolation(orgLib, updatedLib, methodTable);
+      }
+      List<Integer> violatedCalls = new ArrayList<>();
+      for (JsonNode call : node.path("violatedCalls")) {
+        final int id = methodTable.getId(call.asText());
+        if (id < 0) {
+          throw JsonMappingException.from(p, "Unknown method: " + call.asText());
+        }
+        violatedCalls.add(id);
+      }
+      return new Violation(violatedCalls, orgLib, updatedLib, methodTable);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static class PairSerializer extends JsonSerializer<Pair> {
+    @Override
+    public void serialize(Pair value, JsonGenerator gen, SerializerProvider serializers)
+        throws IOException {
+      gen.writeStartArray();
+      gen.writeObject(value.getLeft());
+      gen.writeObject(value.getRight());
+      gen.writeEndArray();
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static class PairDeserializer extends JsonDeserializer<Pair> {
+    @Override
+    public Pair deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      final JsonNode node = p.getCodec().readTree(p);
+      if (!node.isArray() || node.size() != 2) {
+        throw JsonMappingException.from(p, "Expected a pair [left, right]");
+      }
+      return Pair.of(node.get(0).asText(null), node.get(1).asText(null));
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.upb.upcy.base.mvn.MavenSearchAPIClient;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queries the versions from the search API of Maven Central
+ *
+ * @author adann
+ */
+public class MavenCentralVersionSource implements VersionSource {
+
+  @Override
+  public List<String> getVersions(String group, String artifact) throws IOException {
+    JsonNode response = MavenSearchAPIClient.getListOfArtifacts(group, artifact);
+    final JsonNode listOfArtifacts = response.at("/response/docs");
+    List<String> versions = new ArrayList<>();
+    for (JsonNode next : listOfArtifacts) {
+      versions.add(next.get("v").asText());
+    }
+    return versions;
+  }
+}
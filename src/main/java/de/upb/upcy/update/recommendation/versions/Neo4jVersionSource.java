@@ -0,0 +1,46 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.Neo4jException;
+
+/**
+ * Queries the versions from the artifacts of the Neo4j dataset, which is also queried for the
+ * update subgraphs, thus the versions match the ones the recommendation can find
+ *
+ * @author adann
+ */
+public class Neo4jVersionSource implements VersionSource {
+
+  private static final String QUERY =
+      "MATCH (n:MvnArtifact) WHERE n.group = $group AND n.artifact = $artifact"
+          + " AND n.classifier = \"null\" RETURN DISTINCT n.version AS version";
+
+  private final Driver driver;
+
+  public Neo4jVersionSource(Driver driver) {
+    this.driver = driver;
+  }
+
+  @Override
+  public List<String> getVersions(String group, String artifact) throws IOException {
+    List<String> versions = new ArrayList<>();
+    try (Session session = driver.session()) {
+      final Result result =
+          session.run(QUERY, Values.parameters("group", group, "artifact", artifact));
+      while (result.hasNext()) {
+        final Record record = result.next();
+        versions.add(record.get("version").asString());
+      }
+    } catch (Neo4jException e) {
+      throw new IOException("Failed to query versions of " + group + ":" + artifact, e);
+    }
+    return versions;
+  }
+}
@@ -0,0 +1,373 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import de.upb.maven.ecosystem.persistence.dao.Neo4JConnector;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The released versions per library (group, artifact), sorted and parsed once, such that the newer
+ * versions of a request are found by binary search. The versions are fetched from a {@link
+ * VersionSource} (VERSION_SOURCE: central, neo4j, or offline), and persisted per library in
+ * VERSION_INDEX_DIR, thus later runs and other processes on the host do not query again. Entries
+ * older than VERSION_INDEX_TTL_HOURS are refreshed; if the source fails, the stale entry is used.
+ * In offline mode, only persisted or imported ({@link #importSnapshot(Path)}) entries are used.
+ *
+ * @author adann
+ */
+public class VersionIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VersionIndex.class);
+
+  private static final String FETCHED_PREFIX = "# fetched ";
+  private static final String ENTRY_EXTENSION = ".versions";
+
+  private static String VERSION_INDEX_DIR = null;
+  private static long TTL_IN_MILLIS = TimeUnit.DAYS.toMillis(7);
+  private static String VERSION_SOURCE = "central";
+
+  static {
+    String indexDir = System.getenv("VERSION_INDEX_DIR");
+    if (StringUtils.isNotBlank(indexDir)) {
+      VERSION_INDEX_DIR = indexDir;
+    }
+    String ttl = System.getenv("VERSION_INDEX_TTL_HOURS");
+    if (StringUtils.isNotBlank(ttl)) {
+      try {
+        TTL_IN_MILLIS = TimeUnit.HOURS.toMillis(Long.parseLong(ttl));
+      } catch (NumberFormatException e) {
+        // nothing
+      }
+    }
+    String source = System.getenv("VERSION_SOURCE");
+    if (StringUtils.isNotBlank(source)) {
+      VERSION_SOURCE = source.trim().toLowerCase();
+    }
+  }
+
+  private static VersionIndex instance;
+
+  private final Path indexDir;
+  private final VersionSource source;
+  private final long ttlInMillis;
+  // requests for the same library wait for each other
+  private final ConcurrentMap<String, CompletableFuture<Versions>> entries =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param indexDir the folder of the persisted entries, null keeps them in memory only
+   * @param source the source of the versions, null for offline mode
+   * @param ttlInMillis the age after which an entry is refreshed from the source
+   */
+  public VersionIndex(Path indexDir, VersionSource source, long ttlInMillis) {
+    this.indexDir = indexDir;
+    this.source = source;
+    this.ttlInMillis = ttlInMillis;
+  }
+
+  /** @return the index of this process, configured by the environment */
+  public static synchronized VersionIndex getInstance() {
+    if (instance == null) {
+      VersionSource source;
+      switch (VERSION_SOURCE) {
+        case "offline":
+          source = null;
+          break;
+        case "neo4j":
+          source = new Neo4jVersionSource(Neo4JConnector.getDriver());
+          break;
+        default:
+          source = new MavenCentralVersionSource();
+      }
+      final Path indexDir = VERSION_INDEX_DIR == null ? null : Paths.get(VERSION_INDEX_DIR);
+      instance = new VersionIndex(indexDir, source, TTL_IN_MILLIS);
+      LOGGER.info("Using version index {} with source {}", indexDir, VERSION_SOURCE);
+    }
+    return instance;
+  }
+
+  /**
+   * @param group the group id
+   * @param artifact the artifact id
+   * @param lowerBoundVersion the lowest version to return
+   * @return the versions not older than the bound, newest first; empty if the library is unknown
+   */
+  public List<String> getNewerVersions(String group, String artifact, String lowerBoundVersion) {
+    final Versions versions = getVersions(group, artifact);
+    final int from = versions.ordinalOf(new DefaultArtifactVersion(lowerBoundVersion));
+    List<String> newerVersions = new ArrayList<>(versions.size() - from);
+    for (int i = versions.size() - 1; i >= from; i--) {
+      newerVersions.add(versions.get(i));
+    }
+    return newerVersions;
+  }
+
+  /** @return the versions of the library, sorted by their ordinal */
+  public Versions getVersions(String group, String artifact) {
+    final String key = group + ":" + artifact;
+    final CompletableFuture<Versions> future = entries.get(key);
+    if (future != null) {
+      final Versions cached;
+      try {
+        cached = future.join();
+      } catch (CompletionException e) {
+        // the loading caller failed and removed the entry
+        return getVersions(group, artifact);
+      }
+      if (!isStale(cached)) {
+        return cached;
+      }
+      // the first caller refreshes the stale entry, the others wait for it
+      final CompletableFuture<Versions> refresh = new CompletableFuture<>();
+      if (!entries.replace(key, future, refresh)) {
+        return getVersions(group, artifact);
+      }
+      return load(group, artifact, refresh, cached);
+    }
+    final CompletableFuture<Versions> load = new CompletableFuture<>();
+    if (entries.putIfAbsent(key, load) != null) {
+      return getVersions(group, artifact);
+    }
+    return load(group, artifact, load, null);
+  }
+
+  private Versions load(
+      String group, String artifact, CompletableFuture<Versions> future, Versions stale) {
+    Versions versions = stale;
+    try {
+      if (versions == null) {
+        versions = readEntry(group, artifact);
+      }
+      if (versions == null || isStale(versions)) {
+        versions = fetch(group, artifact, versions);
+      }
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+      entries.remove(group + ":" + artifact, future);
+      throw e;
+    }
+    future.complete(versions);
+    return versions;
+  }
+
+  private boolean isStale(Versions versions) {
+    return source != null
+        && ttlInMillis >= 0
+        && System.currentTimeMillis() - versions.getFetchedAt() > ttlInMillis;
+  }
+
+  private Versions fetch(String group, String artifact, Versions stale) {
+    if (source == null) {
+      if (stale == null) {
+        LOGGER.error("No versions of {}:{} in the offline index", group, artifact);
+        return Versions.EMPTY;
+      }
+      return stale;
+    }
+    final List<String> fetched;
+    try {
+      fetched = source.getVersions(group, artifact);
+    } catch (IOException e) {
+      if (stale != null) {
+        LOGGER.warn("Failed to refresh versions of {}:{}, using stale entry", group, artifact, e);
+        // retried after the ttl, or by the next run
+        return stale.withFetchedAt(System.currentTimeMillis());
+      }
+      LOGGER.error("Failed to retrieve versions of {}:{}", group, artifact, e);
+      // neither persisted nor fresh, thus the next request retries
+      return Versions.EMPTY;
+    }
+    final Versions versions = Versions.of(fetched, System.currentTimeMillis());
+    writeEntry(group, artifact, versions);
+    return versions;
+  }
+
+  private Path getEntryFile(String group, String artifact) {
+    return indexDir.resolve(group).resolve(artifact + ENTRY_EXTENSION);
+  }
+
+  private Versions readEntry(String group, String artifact) {
+    if (indexDir == null) {
+      return null;
+    }
+    final Path entryFile = getEntryFile(group, artifact);
+    if (!Files.exists(entryFile)) {
+      return null;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(entryFile, StandardCharsets.UTF_8)) {
+      final String header = reader.readLine();
+      if (header == null || !header.startsWith(FETCHED_PREFIX)) {
+        LOGGER.warn("Ignoring invalid version index entry {}", entryFile);
+        return null;
+      }
+      final long fetchedAt = Long.parseLong(header.substring(FETCHED_PREFIX.length()).trim());
+      List<String> versions = new ArrayList<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          versions.add(line);
+        }
+      }
+      return Versions.of(versions, fetchedAt);
+    } catch (IOException | NumberFormatException e) {
+      LOGGER.warn("Failed to read version index entry {}", entryFile, e);
+      return null;
+    }
+  }
+
+  private void writeEntry(String group, String artifact, Versions versions) {
+    if (indexDir == null) {
+      return;
+    }
+    final Path entryFile = getEntryFile(group, artifact);
+    try {
+      Files.createDirectories(entryFile.getParent());
+      // other processes may read the entry concurrently
+      final Path tmpFile = Files.createTempFile(entryFile.getParent(), artifact, ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+        writer.write(FETCHED_PREFIX + versions.getFetchedAt());
+        writer.newLine();
+        for (int i = 0; i < versions.size(); i++) {
+          writer.write(versions.get(i));
+          writer.newLine();
+        }
+      }
+      Files.move(
+          tmpFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to write version index entry {}", entryFile, e);
+    }
+  }
+
+  /**
+   * Imports a snapshot of versions, e.g., exported from the Neo4j dataset, with a line {@code
+   * group:artifact:version} per version. The versions are merged with the persisted ones.
+   *
+   * @param snapshot the snapshot file
+   * @return the number of imported libraries
+   */
+  public int importSnapshot(Path snapshot) throws IOException {
+    Map<String, Set<String>> versionsPerLib = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] gav = StringUtils.split(line.trim(), ':');
+        if (gav.length != 3) {
+          continue;
+        }
+        versionsPerLib
+            .computeIfAbsent(gav[0] + ":" + gav[1], k -> new LinkedHashSet<>())
+            .add(gav[2]);
+      }
+    }
+    final long fetchedAt = Files.getLastModifiedTime(snapshot).toMillis();
+    for (Map.Entry<String, Set<String>> lib : versionsPerLib.entrySet()) {
+      final String group = StringUtils.substringBefore(lib.getKey(), ":");
+      final String artifact = StringUtils.substringAfter(lib.getKey(), ":");
+      final Versions persisted = readEntry(group, artifact);
+      Collection<String> versions = lib.getValue();
+      long entryFetchedAt = fetchedAt;
+      if (persisted != null) {
+        versions.addAll(Arrays.asList(persisted.versions));
+        entryFetchedAt = Math.max(fetchedAt, persisted.getFetchedAt());
+      }
+      final Versions merged = Versions.of(versions, entryFetchedAt);
+      writeEntry(group, artifact, merged);
+      entries.put(lib.getKey(), CompletableFuture.completedFuture(merged));
+    }
+    LOGGER.info("Imported versions of #{} libraries from {}", versionsPerLib.size(), snapshot);
+    return versionsPerLib.size();
+  }
+
+  /** The versions of a library, sorted ascending; the position of a version is its ordinal */
+  public static final class Versions {
+    static final Versions EMPTY = new Versions(new String[0], new DefaultArtifactVersion[0], 0);
+
+    private final String[] versions;
+    private final DefaultArtifactVersion[] parsed;
+    private final long fetchedAt;
+
+    private Versions(String[] versions, DefaultArtifactVersion[] parsed, long fetchedAt) {
+      this.versions = versions;
+      this.parsed = parsed;
+      this.fetchedAt = fetchedAt;
+    }
+
+    static Versions of(Collection<String> versions, long fetchedAt) {
+      List<Pair<String, DefaultArtifactVersion>> parsed = new ArrayList<>();
+      for (String version : new LinkedHashSet<>(versions)) {
+        parsed.add(Pair.of(version, new DefaultArtifactVersion(version)));
+      }
+      parsed.sort(Comparator.comparing(Pair::getRight));
+      final String[] sorted = new String[parsed.size()];
+      final DefaultArtifactVersion[] sortedParsed = new DefaultArtifactVersion[parsed.size()];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = parsed.get(i).getLeft();
+        sortedParsed[i] = parsed.get(i).getRight();
+      }
+      return new Versions(sorted, sortedParsed, fetchedAt);
+    }
+
+    Versions withFetchedAt(long fetchedAt) {
+      return new Versions(versions, parsed, fetchedAt);
+    }
+
+    public int size() {
+      return versions.length;
+    }
+
+    /** @return the version with the given ordinal */
+    public String get(int ordinal) {
+      return versions[ordinal];
+    }
+
+    /** @return the epoch millis at which the versions were fetched from the source */
+    public long getFetchedAt() {
+      return fetchedAt;
+    }
+
+    /**
+     * @param version the version to look up
+     * @return the ordinal of the version, or of the next newer one if it is unknown; {@link
+     *     #size()} if all are older
+     */
+    public int ordinalOf(DefaultArtifactVersion version) {
+      int low = 0;
+      int high = parsed.length;
+      // the first version not older than the given one
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (parsed[mid].compareTo(version) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import de.upb.maven.ecosystem.persistence.dao.Neo4JConnector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The numeric version ordinals of the MvnArtifact nodes in Neo4j. The ordinal of a version is its
+ * position among the versions of its library (group, artifact) in Maven's ComparableVersion order,
+ * thus, unlike the lexicographic comparison of the version strings, {@code 1.10} is newer than
+ * {@code 1.9}. With the composite index on (group, artifact, versionOrdinal), lower bounds on the
+ * version become index-backed range predicates. The ordinals are provisioned by {@link
+ * #provision()}; a library with nodes without an ordinal, e.g., versions ingested after the
+ * provisioning, is provisioned again when its ordinals are first read by a process. Renumbering
+ * only shifts the ordinals of newer versions up, thus ordinals cached by other processes only
+ * widen their lower bounds.
+ *
+ * @author adann
+ */
+public class VersionOrdinals {
+
+  public static final String PROPERTY = "versionOrdinal";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VersionOrdinals.class);
+
+  private static final String INDEX_QUERY =
+      "CREATE INDEX mvn_artifact_version_ordinal IF NOT EXISTS FOR (n:MvnArtifact)"
+          + " ON (n.group, n.artifact, n."
+          + PROPERTY
+          + ")";
+  private static final String LIBRARIES_QUERY =
+      "MATCH (n:MvnArtifact) RETURN DISTINCT n.group AS group, n.artifact AS artifact";
+  private static final String VERSIONS_QUERY =
+      "MATCH (n:MvnArtifact) WHERE n.group = $group AND n.artifact = $artifact"
+          + " RETURN DISTINCT n.version AS version";
+  private static final String SET_ORDINALS_QUERY =
+      "UNWIND $ordinals AS o MATCH (n:MvnArtifact)"
+          + " WHERE n.group = $group AND n.artifact = $artifact AND n.version = o.version"
+          + " SET n."
+          + PROPERTY
+          + " = o.ordinal";
+  private static final String ORDINALS_QUERY =
+      "MATCH (n:MvnArtifact) WHERE n.group = $group AND n.artifact = $artifact"
+          + " RETURN DISTINCT n.version AS version, n."
+          + PROPERTY
+          + " AS ordinal";
+
+  private static boolean USE_VERSION_ORDINALS = true;
+
+  static {
+    String useOrdinals = System.getenv("USE_VERSION_ORDINALS");
+    if (StringUtils.isNotBlank(useOrdinals)) {
+      USE_VERSION_ORDINALS = Boolean.parseBoolean(useOrdinals);
+    }
+  }
+
+  private static VersionOrdinals instance;
+
+  private final Driver driver;
+  // the provisioned ordinals per library, sorted ascending; empty if they could not be provisioned
+  private final ConcurrentMap<String, List<Pair<DefaultArtifactVersion, Long>>> ordinals =
+      new ConcurrentHashMap<>();
+
+  public VersionOrdinals(Driver driver) {
+    this.driver = driver;
+  }
+
+  /** @return the ordinals of this process, or null if disabled by USE_VERSION_ORDINALS */
+  public static synchronized VersionOrdinals getInstance() {
+    if (!USE_VERSION_ORDINALS) {
+      return null;
+    }
+    if (instance == null) {
+      instance = new VersionOrdinals(Neo4JConnector.getDriver());
+    }
+    return instance;
+  }
+
+  /**
+   * @param group the group id
+   * @param artifact the artifact id
+   * @param version the lower bound
+   * @return the ordinal of the version, or of the next newer one if it is not in the dataset; null
+   *     if the library's ordinals could not be provisioned
+   */
+  public Long getLowerBoundOrdinal(String group, String artifact, String version) {
+    final List<Pair<DefaultArtifactVersion, Long>> libOrdinals =
+        ordinals.computeIfAbsent(group + ":" + artifact, k -> queryOrdinals(group, artifact));
+    if (libOrdinals.isEmpty()) {
+      return null;
+    }
+    return lowerBound(libOrdinals, new DefaultArtifactVersion(version));
+  }
+
+  /**
+   * @param nodeName the name of the node in the Cypher query
+   * @param ordinal the lower bound ordinal, see {@link #getLowerBoundOrdinal(String, String,
+   *     String)}
+   * @return the index-backed range predicate for the versions not older than the lower bound
+   */
+  public static String lowerBoundPredicate(String nodeName, long ordinal) {
+    return String.format("%1$s.%2$s >= %3$d", nodeName, PROPERTY, ordinal);
+  }
+
+  static long lowerBound(
+      List<Pair<DefaultArtifactVersion, Long>> libOrdinals, DefaultArtifactVersion version) {
+    int low = 0;
+    int high = libOrdinals.size();
+    // the first version not older than the given one
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (libOrdinals.get(mid).getLeft().compareTo(version) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    if (low == libOrdinals.size()) {
+      // all are older
+      return libOrdinals.get(low - 1).getRight() + 1;
+    }
+    return libOrdinals.get(low).getRight();
+  }
+
+  private List<Pair<DefaultArtifactVersion, Long>> queryOrdinals(String group, String artifact) {
+    Map<String, Long> versionOrdinals = new HashMap<>();
+    int unprovisioned = 0;
+    try (Session session = driver.session()) {
+      final Result result =
+          session.run(ORDINALS_QUERY, Values.parameters("group", group, "artifact", artifact));
+      while (result.hasNext()) {
+        final Record record = result.next();
+        final Value ordinal = record.get("ordinal");
+        if (ordinal.isNull()) {
+          unprovisioned++;
+        }
+        versionOrdinals.put(
+            record.get("version").asString(), ordinal.isNull() ? null : ordinal.asLong());
+      }
+      if (unprovisioned > 0) {
+        LOGGER.info(
+            "Provisioning version ordinals of {}:{}, #{} of #{} versions have none",
+            group,
+            artifact,
+            unprovisioned,
+            versionOrdinals.size());
+        versionOrdinals = provision(session, group, artifact, versionOrdinals.keySet());
+      }
+    } catch (Neo4jException e) {
+      LOGGER.warn("Failed to provision version ordinals of {}:{}", group, artifact, e);
+      return new ArrayList<>();
+    }
+    List<Pair<DefaultArtifactVersion, Long>> libOrdinals = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : versionOrdinals.entrySet()) {
+      libOrdinals.add(Pair.of(new DefaultArtifactVersion(entry.getKey()), entry.getValue()));
+    }
+    libOrdinals.sort(Comparator.comparing(Pair::getRight));
+    return libOrdinals;
+  }
+
+  /** @return the ordinal per version, in Maven's ComparableVersion order */
+  static Map<String, Long> computeOrdinals(Collection<String> versions) {
+    final VersionIndex.Versions sorted = VersionIndex.Versions.of(versions, 0);
+    Map<String, Long> versionOrdinals = new HashMap<>();
+    for (int i = 0; i < sorted.size(); i++) {
+      versionOrdinals.put(sorted.get(i), (long) i);
+    }
+    return versionOrdinals;
+  }
+
+  /**
+   * Creates the index and sets the ordinals of all MvnArtifact nodes, library by library
+   *
+   * @return the number of libraries
+   */
+  public int provision() {
+    try (Session session = driver.session()) {
+      session.run(INDEX_QUERY).consume();
+      List<Pair<String, String>> libraries = new ArrayList<>();
+      final Result result = session.run(LIBRARIES_QUERY);
+      while (result.hasNext()) {
+        final Record record = result.next();
+        libraries.add(Pair.of(record.get("group").asString(), record.get("artifact").asString()));
+      }
+      LOGGER.info("Provisioning version ordinals of #{} libraries", libraries.size());
+
+      int done = 0;
+      for (Pair<String, String> library : libraries) {
+        final Result versionResult =
+            session.run(
+                VERSIONS_QUERY,
+                Values.parameters("group", library.getLeft(), "artifact", library.getRight()));
+        List<String> versions = new ArrayList<>();
+        while (versionResult.hasNext()) {
+          versions.add(versionResult.next().get("version").asString());
+        }
+        provision(session, library.getLeft(), library.getRight(), versions);
+        if (++done % 1000 == 0) {
+          LOGGER.info("Provisioned #{} of #{} libraries", done, libraries.size());
+        }
+      }
+      // the ordinals changed
+      ordinals.clear();
+      return libraries.size();
+    }
+  }
+
+  /**
+   * Sets the ordinals of the library's nodes
+   *
+   * @return the ordinal per version
+   */
+  private static Map<String, Long> provision(
+      Session session, String group, String artifact, Collection<String> versions) {
+    final Map<String, Long> versionOrdinals = computeOrdinals(versions);
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : versionOrdinals.entrySet()) {
+      Map<String, Object> row = new HashMap<>();
+      row.put("version", entry.getKey());
+      row.put("ordinal", entry.getValue());
+      rows.add(row);
+    }
+    session
+        .run(
+            SET_ORDINALS_QUERY,
+            Values.parameters("group", group, "artifact", artifact, "ordinals", rows))
+        .consume();
+    return versionOrdinals;
+  }
+}
@@ -0,0 +1,20 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A source of the released versions of a library, to populate the {@link VersionIndex}
+ *
+ * @author adann
+ */
+public interface VersionSource {
+
+  /**
+   * @param group the group id
+   * @param artifact the artifact id
+   * @return the versions, in any order
+   * @throws IOException if the source is not reachable
+   */
+  List<String> getVersions(String group, String artifact) throws IOException;
+}
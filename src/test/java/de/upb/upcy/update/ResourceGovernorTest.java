@@ -0,0 +1,42 @@
+package de.upb.upcy.update;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ResourceGovernorTest {
+
+  @Test(timeout = 10000)
+  public void admitsWithinBudget() throws Exception {
+    final ResourceGovernor governor = new ResourceGovernor(4, 8192);
+    final ResourceGovernor.Lease build = governor.acquire("build", 4, 4096);
+
+    final CountDownLatch admitted = new CountDownLatch(1);
+    Thread module =
+        new Thread(
+            () -> {
+              try (ResourceGovernor.Lease lease = governor.acquire("module", 1, 4096)) {
+                admitted.countDown();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    module.start();
+    // all cores are leased
+    assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+
+    build.close();
+    // closing twice does not release twice
+    build.close();
+    assertTrue(admitted.await(5, TimeUnit.SECONDS));
+    module.join();
+
+    // a request exceeding the budget runs alone
+    try (ResourceGovernor.Lease lease = governor.acquire("huge", 64, 65536)) {
+      assertTrue(lease != null);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package de.upb.upcy.update.dockerize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import net.lingala.zip4j.ZipFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectInputArchiveTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void extractsProjectsOnDemand() throws Exception {
+    final Path input = temporaryFolder.newFolder("input").toPath();
+    for (String project : new String[] {"a_x", "b_y", "c_z"}) {
+      final Path projectFolder =
+          Files.createDirectories(input.resolve("projects").resolve(project));
+      Files.write(projectFolder.resolve("COMMIT"), Collections.singletonList(project));
+    }
+    final Path archive = temporaryFolder.getRoot().toPath().resolve("input.zip");
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      zipFile.addFolder(input.resolve("projects").toFile());
+    }
+
+    final Path outputDir = temporaryFolder.newFolder("output").toPath();
+    try (ProjectInputArchive inputArchive = new ProjectInputArchive(archive, outputDir, 2)) {
+      final Path a = inputArchive.getProject("a_x");
+      assertEquals(outputDir.resolve("projects").resolve("a_x"), a);
+      assertEquals(Collections.singletonList("a_x"), Files.readAllLines(a.resolve("COMMIT")));
+      assertFalse(Files.exists(outputDir.resolve("projects").resolve("b_y")));
+
+      inputArchive.release("a_x");
+      inputArchive.getProject("b_y");
+      inputArchive.release("b_y");
+      inputArchive.getProject("a_x");
+      inputArchive.release("a_x");
+      // evicts the least recently used project
+      inputArchive.getProject("c_z");
+      assertTrue(Files.exists(a.resolve("COMMIT")));
+      assertFalse(Files.exists(outputDir.resolve("projects").resolve("b_y")));
+
+      // keeps projects in use
+      inputArchive.getProject("b_y");
+      assertTrue(Files.exists(outputDir.resolve("projects").resolve("c_z")));
+    }
+  }
+}
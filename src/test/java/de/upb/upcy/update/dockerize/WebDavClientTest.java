@@ -0,0 +1,154 @@
+package de.upb.upcy.update.dockerize;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WebDavClientTest {
+
+  private static final String ETAG = "\"v1\"";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final byte[] content = new byte[256 * 1024];
+  private final List<String> ranges = new ArrayList<>();
+  private final List<Integer> statuses = new ArrayList<>();
+  private byte[] uploaded;
+  private boolean truncateNext = false;
+  private HttpServer server;
+  private WebDavClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    new Random(42).nextBytes(content);
+    final String digest =
+        Base64.getEncoder()
+            .encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          try {
+            if (exchange.getRequestMethod().equals("PUT")) {
+              uploaded = readAll(exchange.getRequestBody());
+              respond(exchange, 201, new byte[0], 0);
+              return;
+            }
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Digest", "SHA-256=" + digest);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+              respond(exchange, 304, null, 0);
+              return;
+            }
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range);
+            int offset = 0;
+            if (range != null && ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+              offset = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+              exchange
+                  .getResponseHeaders()
+                  .add(
+                      "Content-Range",
+                      "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+            }
+            respond(exchange, offset > 0 ? 206 : 200, content, offset);
+          } catch (IOException e) {
+            // the truncated response
+            exchange.close();
+          }
+        });
+    server.start();
+    client =
+        new WebDavClient(
+            "http://localhost:" + server.getAddress().getPort(), "user", "pass", 3, 10);
+  }
+
+  @After
+  public void tearDown() {
+    client.close();
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, int status, byte[] body, int offset)
+      throws IOException {
+    statuses.add(status);
+    if (body == null) {
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+      return;
+    }
+    final int length = body.length - offset;
+    exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      if (truncateNext) {
+        truncateNext = false;
+        out.write(body, offset, length / 2);
+        out.flush();
+        throw new IOException("connection lost");
+      }
+      out.write(body, offset, length);
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void resumesInterruptedDownload() throws Exception {
+    final Path target = temporaryFolder.getRoot().toPath().resolve("input.zip");
+    truncateNext = true;
+    client.downloadFile("input.zip", target);
+
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertEquals(2, ranges.size());
+    assertTrue(ranges.get(1).startsWith("bytes="));
+    assertEquals(Integer.valueOf(206), statuses.get(1));
+  }
+
+  @Test
+  public void skipsUnchangedDownload() throws Exception {
+    final Path target = temporaryFolder.getRoot().toPath().resolve("input.zip");
+    client.downloadFile("input.zip", target);
+    client.downloadFile("input.zip", target);
+
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertEquals(Integer.valueOf(304), statuses.get(statuses.size() - 1));
+    assertEquals(1, ranges.size());
+  }
+
+  @Test
+  public void streamsUpload() throws Exception {
+    final Path file = temporaryFolder.newFile("results.zip").toPath();
+    Files.write(file, content);
+    client.uploadFile(file.toFile());
+
+    assertArrayEquals(content, uploaded);
+  }
+}
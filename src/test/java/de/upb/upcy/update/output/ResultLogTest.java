@@ -0,0 +1,139 @@
+package de.upb.upcy.update.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultLogTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static UpdateSuggestion suggestion(String orgGav, String updateGav) {
+    UpdateSuggestion updateSuggestion = new UpdateSuggestion();
+    updateSuggestion.setProjectName("module");
+    updateSuggestion.setOrgGav(orgGav);
+    updateSuggestion.setUpdateGav(updateGav);
+    updateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.SUCCESS);
+    return updateSuggestion;
+  }
+
+  @Test
+  public void recoversTornTail() throws Exception {
+    final Path logFile = temporaryFolder.getRoot().toPath().resolve("module.log");
+    try (ResultLog resultLog = ResultLog.create(logFile)) {
+      resultLog.append(suggestion("g:a:1.0", "g:a:2.0"));
+      resultLog.commit("module", "g:a:1.0", "g:a:2.0");
+      resultLog.append(suggestion("g:b:1.0", "g:b:2.0"));
+      resultLog.commit("module", "g:b:1.0", "g:b:2.0");
+    }
+    // cut the last record in half, as a crash while appending
+    final long size = Files.size(logFile);
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 10);
+    }
+
+    try (ResultLog resultLog = ResultLog.open(logFile)) {
+      assertEquals(1, resultLog.getRowCount());
+      assertEquals(
+          Collections.singleton(Pair.of("g:a:1.0", "g:a:2.0")),
+          resultLog.getCommittedRequests("module"));
+      resultLog.append(suggestion("g:c:1.0", "g:c:2.0"));
+    }
+    try (ResultLog.Cursor cursor = new ResultLog.Cursor(logFile)) {
+      assertEquals(2, countRows(cursor));
+    }
+  }
+
+  @Test
+  public void dropsRowsOfUncommittedRequests() throws Exception {
+    final Path logFile = temporaryFolder.getRoot().toPath().resolve("module.log");
+    try (ResultLog resultLog = ResultLog.create(logFile)) {
+      resultLog.append(suggestion("g:a:1.0", "g:a:2.0"));
+      resultLog.commit("module", "g:a:1.0", "g:a:2.0");
+      resultLog.commit("other", "g:b:1.0", "g:b:2.0");
+      // interrupted before its commit
+      resultLog.append(suggestion("g:c:1.0", "g:c:2.0"));
+      resultLog.append(suggestion("g:c:1.0", "g:c:3.0"));
+    }
+
+    try (ResultLog resultLog = ResultLog.open(logFile)) {
+      assertEquals(1, resultLog.getRowCount());
+      assertEquals(
+          Collections.singleton(Pair.of("g:a:1.0", "g:a:2.0")),
+          resultLog.getCommittedRequests("module"));
+      assertEquals(
+          Collections.singleton(Pair.of("g:b:1.0", "g:b:2.0")),
+          resultLog.getCommittedRequests("other"));
+    }
+    try (ResultLog.Cursor cursor = new ResultLog.Cursor(logFile)) {
+      assertEquals(1, countRows(cursor));
+    }
+  }
+
+  @Test
+  public void exportsLogsWithSingleHeader() throws Exception {
+    final Path first = temporaryFolder.getRoot().toPath().resolve("first.log");
+    final Path second = temporaryFolder.getRoot().toPath().resolve("second.log");
+    try (ResultLog resultLog = ResultLog.create(first)) {
+      resultLog.append(suggestion("g:a:1.0", "g:a:2.0"));
+    }
+    try (ResultLog resultLog = ResultLog.create(second)) {
+      resultLog.append(suggestion("g:b:1.0", "g:b:2.0"));
+      resultLog.append(suggestion("g:c:1.0", "g:c:2.0"));
+    }
+
+    final Path csvFile = temporaryFolder.getRoot().toPath().resolve("results.csv");
+    assertEquals(3, ResultLog.exportCsv(Arrays.asList(first, second), csvFile));
+    final List<String> lines = Files.readAllLines(csvFile);
+    assertEquals(4, lines.size());
+    assertEquals(1, lines.stream().filter(l -> l.contains("ORGGAV")).count());
+  }
+
+  @Test
+  public void rejectsOversizedRecords() throws Exception {
+    final Path logFile = temporaryFolder.getRoot().toPath().resolve("module.log");
+    try (ResultLog resultLog = ResultLog.create(logFile)) {
+      resultLog.append(suggestion("g:a:1.0", "g:a:2.0"));
+      resultLog.setMaxRecordSize(1024);
+      final UpdateSuggestion oversized =
+          suggestion("g:b:1.0", "g:b:" + StringUtils.repeat('1', 2048));
+      try {
+        resultLog.append(oversized);
+        fail("Appended a record exceeding the maximal size");
+      } catch (IOException e) {
+        // expected
+      }
+      resultLog.append(suggestion("g:c:1.0", "g:c:2.0"));
+      resultLog.commit("module", "g:c:1.0", "g:c:2.0");
+      assertEquals(2, resultLog.getRowCount());
+    }
+    // the rejected record does not hide the following ones
+    try (ResultLog resultLog = ResultLog.open(logFile)) {
+      assertEquals(2, resultLog.getRowCount());
+    }
+  }
+
+  private static int countRows(ResultLog.Cursor cursor) throws Exception {
+    int rows = 0;
+    while (cursor.next() != null) {
+      rows++;
+    }
+    assertNull(cursor.next());
+    return rows;
+  }
+}
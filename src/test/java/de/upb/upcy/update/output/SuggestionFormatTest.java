@@ -0,0 +1,86 @@
+package de.upb.upcy.update.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import de.upb.upcy.update.recommendation.MethodTable;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import de.upb.upcy.update.recommendation.check.ForwardViolation;
+import de.upb.upcy.update.recommendation.check.Violation;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SuggestionFormatTest {
+
+  private static final String CALL = "<a.B: void foo(int)>";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static UpdateSuggestion suggestion(String orgGav) {
+    MethodTable methodTable = new MethodTable();
+    final int id =
+        methodTable.intern(CALL, "a.B", "foo", "void", Collections.singletonList("int"));
+    UpdateSuggestion updateSuggestion = new UpdateSuggestion();
+    updateSuggestion.setProjectName("module");
+    updateSuggestion.setOrgGav(orgGav);
+    updateSuggestion.setUpdateGav("g:a:2.0");
+    updateSuggestion.setStatus(UpdateSuggestion.SuggestionStatus.SUCCESS);
+    updateSuggestion.setSimpleUpdate(true);
+    updateSuggestion.setNrOfViolations(2);
+    updateSuggestion.setUpdateSteps(Collections.singletonList(Pair.of("g:b:1.0", "g:b:1.1")));
+    updateSuggestion.setViolations(
+        Arrays.asList(
+            new Violation(Arrays.asList(id, id), "g:b:1.0", "g:b:1.1", methodTable),
+            new ForwardViolation("g:c:1.0", "g:c:2.0", methodTable)));
+    return updateSuggestion;
+  }
+
+  private void assertRoundTrip(SuggestionFormat format) throws Exception {
+    final Path dir = temporaryFolder.getRoot().toPath();
+    final Path first = dir.resolve("first" + format.getFileExtension());
+    final Path second = dir.resolve("second" + format.getFileExtension());
+    try (SuggestionWriter writer = format.createWriter(first)) {
+      writer.write(suggestion("g:a:1.0"));
+    }
+    try (SuggestionWriter writer = format.createWriter(second)) {
+      writer.write(suggestion("g:a:1.1"));
+    }
+    final Path merged = dir.resolve("all" + format.getFileExtension());
+    format.concat(Arrays.asList(first, second), merged);
+
+    try (SuggestionReader reader = format.createReader(merged, true)) {
+      for (String orgGav : Arrays.asList("g:a:1.0", "g:a:1.1")) {
+        final SuggestionRecord record = reader.next();
+        assertEquals(orgGav, record.getOrgGav());
+        assertEquals(UpdateSuggestion.SuggestionStatus.SUCCESS, record.getStatus());
+        assertTrue(record.isSimpleUpdate());
+        assertEquals(2, record.getNrOfViolations());
+        assertArrayEquals(new String[] {"g:b:1.0", "g:b:1.1"}, record.getUpdateSteps().get(0));
+        assertEquals(2, record.getViolations().size());
+        assertEquals(Arrays.asList(CALL, CALL), record.getViolations().get(0).getViolatedCalls());
+        assertTrue(record.getViolations().get(1).isForward());
+      }
+      assertNull(reader.next());
+    }
+    try (SuggestionReader reader = format.createReader(merged, false)) {
+      assertTrue(reader.next().getViolations().isEmpty());
+    }
+  }
+
+  @Test
+  public void jsonLinesRoundTrip() throws Exception {
+    assertRoundTrip(SuggestionFormat.JSONL);
+  }
+
+  @Test
+  public void columnarRoundTrip() throws Exception {
+    assertRoundTrip(SuggestionFormat.COLUMNAR);
+  }
+}
@@ -0,0 +1,45 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CacheDirectoryTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Path createFile(Path folder, String name, int size, long ageInMillis)
+      throws Exception {
+    final Path file = folder.resolve(name);
+    Files.write(file, new byte[size]);
+    Files.setLastModifiedTime(
+        file, FileTime.fromMillis(System.currentTimeMillis() - ageInMillis));
+    return file;
+  }
+
+  @Test
+  public void evictsOldAndLeastRecentlyUsedFiles() throws Exception {
+    final Path folder = temporaryFolder.newFolder("cache").toPath();
+    final Path expired = createFile(folder, "expired.idx", 10, TimeUnit.DAYS.toMillis(30));
+    final Path old = createFile(folder, "old.idx", 100, TimeUnit.HOURS.toMillis(2));
+    final Path recent = createFile(folder, "recent.idx", 100, TimeUnit.HOURS.toMillis(1));
+    final Path other = createFile(folder, "other.txt", 1000, TimeUnit.DAYS.toMillis(30));
+
+    CacheDirectory.touch(old);
+    assertEquals(2, CacheDirectory.prune(folder, ".idx", TimeUnit.DAYS.toMillis(7), 150));
+
+    assertFalse(Files.exists(expired));
+    // touched, thus used more recently
+    assertTrue(Files.exists(old));
+    assertFalse(Files.exists(recent));
+    assertTrue(Files.exists(other));
+  }
+}
@@ -0,0 +1,96 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.junit.Test;
+
+public class CallGraphEdgeWeightsTest {
+
+  private final DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> depGraph =
+      new DefaultDirectedGraph<>(GraphModel.Dependency.class);
+  private final Graph<String, CustomEdge> shrinkedCG = new DefaultDirectedGraph<>(CustomEdge.class);
+  private final Map<String, GraphModel.Artifact> artifacts = new HashMap<>();
+
+  private GraphModel.Artifact artifact(String name) {
+    return artifacts.computeIfAbsent(
+        name,
+        n -> {
+          GraphModel.Artifact artifact = new GraphModel.Artifact();
+          artifact.setId(n);
+          artifact.setNumericId(artifacts.size());
+          artifact.setGroupId("g");
+          artifact.setArtifactId(n);
+          artifact.setVersion("1.0");
+          depGraph.addVertex(artifact);
+          shrinkedCG.addVertex("g:" + n + ":1.0");
+          return artifact;
+        });
+  }
+
+  /** Adds the dependency, and the calls from the methods 0, 1, .. to the given methods */
+  private GraphModel.Dependency dependency(String from, String to, int... calledMethods) {
+    final GraphModel.Artifact src = artifact(from);
+    final GraphModel.Artifact tgt = artifact(to);
+    GraphModel.Dependency dependency = new GraphModel.Dependency();
+    dependency.setFrom(from);
+    dependency.setTo(to);
+    dependency.setNumericFrom(src.getNumericId());
+    dependency.setNumericTo(tgt.getNumericId());
+    depGraph.addEdge(src, tgt, dependency);
+    CustomEdge calls = new CustomEdge();
+    for (int i = 0; i < calledMethods.length; i++) {
+      calls.addSrcTgtMethod(i, calledMethods[i]);
+    }
+    shrinkedCG.addEdge("g:" + from + ":1.0", "g:" + to + ":1.0", calls);
+    return dependency;
+  }
+
+  /**
+   * Enumerates the min-cuts like the recommendation's search: raises a cut edge by 1, and keeps
+   * the next cut if it is not heavier than the min-cut
+   */
+  private static Set<Set<GraphModel.Dependency>> enumerateMinCuts(MinCutGraph minCutGraph) {
+    Set<Set<GraphModel.Dependency>> cuts = new HashSet<>();
+    final double minCutWeight = minCutGraph.calculateMinCut();
+    cuts.add(new HashSet<>(minCutGraph.getCutEdges()));
+    Queue<GraphModel.Dependency> edgeWorklist = new ArrayDeque<>(minCutGraph.getCutEdges());
+    while (!edgeWorklist.isEmpty()) {
+      final GraphModel.Dependency edge = edgeWorklist.poll();
+      minCutGraph.setEdgeWeight(edge, minCutGraph.getEdgeWeight(edge) + 1);
+      if (minCutGraph.calculateMinCut() > minCutWeight) {
+        minCutGraph.setEdgeWeight(edge, minCutGraph.getBaseWeight(edge));
+      } else if (cuts.add(new HashSet<>(minCutGraph.getCutEdges()))) {
+        edgeWorklist.addAll(minCutGraph.getCutEdges());
+      }
+    }
+    return cuts;
+  }
+
+  @Test
+  public void keepsTiesOfSimilarCalls() {
+    // 1 + ln(4) + ln(4) = 3.77 and 1 + ln(5) + ln(3) = 3.71
+    final GraphModel.Dependency rootToA = dependency("root", "a", 1, 2, 3);
+    final GraphModel.Dependency aToLib = dependency("a", "lib", 1, 2, 1, 2);
+    final Map<GraphModel.Dependency, Double> weights =
+        new CallGraphEdgeWeights(
+                shrinkedCG,
+                new BlossomGraphCreator(depGraph, artifact("root")),
+                new NodeMatchUtil(artifact("root")))
+            .compute(depGraph);
+    assertEquals(4.0, weights.get(rootToA), 0);
+    assertEquals(4.0, weights.get(aToLib), 0);
+
+    final Set<Set<GraphModel.Dependency>> cuts =
+        enumerateMinCuts(new MinCutGraph(depGraph, artifact("root"), artifact("lib"), weights));
+    assertEquals(2, cuts.size());
+  }
+}
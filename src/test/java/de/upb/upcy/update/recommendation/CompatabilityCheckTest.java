@@ -14,14 +14,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Ignore;
 import org.junit.Test;
-import soot.BooleanType;
-import soot.SootClass;
-import soot.SootMethod;
-import soot.Type;
-import soot.VoidType;
 
 @Ignore // only works with real db currently
 public class CompatabilityCheckTest {
@@ -133,11 +127,14 @@ public class CompatabilityCheckTest {
     // okhttp3.internal.ws.WebSocketExtensions.newMessageInflater(boolean)
 
     { // should NOT match
-      final SootClass sootClass = new SootClass("okhttp3.internal.ws.WebSocketExtensions");
-      final SootMethod newMessageInflater =
-          new SootMethod("newMessageInflater", Collections.emptyList(), VoidType.v());
-      newMessageInflater.setDeclaringClass(sootClass);
-      newMessageInflater.setDeclared(true);
+      final MethodTable methodTable = new MethodTable();
+      final int newMessageInflater =
+          methodTable.intern(
+              "<okhttp3.internal.ws.WebSocketExtensions: void newMessageInflater()>",
+              "okhttp3.internal.ws.WebSocketExtensions",
+              "newMessageInflater",
+              "void",
+              Collections.emptyList());
 
       ArrayList<String> methodName = new ArrayList<>();
       methodName.add(
@@ -150,24 +147,22 @@ public class CompatabilityCheckTest {
               Collections.emptyList());
 
       CustomEdge customEdge = new CustomEdge();
-      customEdge.getSrcTgtMethods().add(Pair.of(null, newMessageInflater));
+      customEdge.addSrcTgtMethod(newMessageInflater, newMessageInflater);
 
-      final List<SootMethod> sourceBinEdgeViolation =
+      final List<Integer> sourceBinEdgeViolation =
           UpdateCheck.getSourceBinEdgeViolation(
-              Collections.singletonList(incompatibility), customEdge);
+              Collections.singletonList(incompatibility), customEdge, methodTable);
       assertTrue(sourceBinEdgeViolation.isEmpty());
     }
     {
-      final SootClass sootClassRet = new SootClass("okhttp3.internal.ws.MessageInflater");
-
-      final SootClass sootClass = new SootClass("okhttp3.internal.ws.WebSocketExtensions");
-      ArrayList<Type> params = new ArrayList<>();
-      params.add(BooleanType.v());
-
-      final SootMethod newMessageInflater =
-          new SootMethod("newMessageInflater", params, sootClassRet.getType());
-      newMessageInflater.setDeclaringClass(sootClass);
-      newMessageInflater.setDeclared(true);
+      final MethodTable methodTable = new MethodTable();
+      final int newMessageInflater =
+          methodTable.intern(
+              "<okhttp3.internal.ws.WebSocketExtensions: okhttp3.internal.ws.MessageInflater newMessageInflater(boolean)>",
+              "okhttp3.internal.ws.WebSocketExtensions",
+              "newMessageInflater",
+              "okhttp3.internal.ws.MessageInflater",
+              Collections.singletonList("boolean"));
 
       ArrayList<String> methodName = new ArrayList<>();
       methodName.add(
@@ -180,11 +175,11 @@ public class CompatabilityCheckTest {
               Collections.emptyList());
 
       CustomEdge customEdge = new CustomEdge();
-      customEdge.getSrcTgtMethods().add(Pair.of(null, newMessageInflater));
+      customEdge.addSrcTgtMethod(newMessageInflater, newMessageInflater);
 
       final List<Incompatibility> incompatabilities = Collections.singletonList(incompatibility);
-      final List<SootMethod> sourceBinEdgeViolation =
-          UpdateCheck.getSourceBinEdgeViolation(incompatabilities, customEdge);
+      final List<Integer> sourceBinEdgeViolation =
+          UpdateCheck.getSourceBinEdgeViolation(incompatabilities, customEdge, methodTable);
       assertFalse(sourceBinEdgeViolation.isEmpty());
     }
   }
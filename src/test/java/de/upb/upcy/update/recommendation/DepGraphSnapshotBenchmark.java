@@ -0,0 +1,126 @@
+package de.upb.upcy.update.recommendation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.base.graph.GraphParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+/**
+ * Compares loading a dependency graph from the depgraph-maven-plugin JSON with loading it from
+ * its {@link DepGraphSnapshot}.
+ *
+ * <p>Usage: {@code DepGraphSnapshotBenchmark [<dependency-graph.json> | <nrOfArtifacts>]}, without
+ * a JSON file a synthetic graph is generated.
+ */
+public class DepGraphSnapshotBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 20;
+
+  public static void main(String[] args) throws IOException {
+    Path jsonFile;
+    if (args.length > 0 && Files.isRegularFile(Paths.get(args[0]))) {
+      jsonFile = Paths.get(args[0]);
+    } else {
+      final int nrOfArtifacts = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+      jsonFile = Files.createTempFile("dependency-graph", ".json");
+      jsonFile.toFile().deleteOnExit();
+      writeSyntheticGraph(jsonFile, nrOfArtifacts, 3, 42);
+    }
+    final Path snapshotFile = Files.createTempFile("dependency-graph", ".dgs");
+    snapshotFile.toFile().deleteOnExit();
+    final Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+        pairGraph = GraphParser.parseGraph(jsonFile);
+    DepGraphSnapshot.write(snapshotFile, pairGraph.getLeft(), pairGraph.getRight());
+
+    System.out.printf(
+        "Graph with #%d artifacts and #%d dependencies, JSON %d KB, snapshot %d KB%n",
+        pairGraph.getLeft().vertexSet().size(),
+        pairGraph.getLeft().edgeSet().size(),
+        Files.size(jsonFile) / 1024,
+        Files.size(snapshotFile) / 1024);
+
+    final double jsonMillis = measure(() -> GraphParser.parseGraph(jsonFile));
+    final double snapshotMillis = measure(() -> DepGraphSnapshot.read(snapshotFile));
+    System.out.printf("JSON:     %.2f ms/load%n", jsonMillis);
+    System.out.printf("Snapshot: %.2f ms/load%n", snapshotMillis);
+    System.out.printf("Speedup:  %.1fx%n", jsonMillis / snapshotMillis);
+  }
+
+  private static double measure(Loader loader) throws IOException {
+    int checksum = 0;
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      checksum += loader.load().getLeft().edgeSet().size();
+    }
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      checksum += loader.load().getLeft().edgeSet().size();
+    }
+    final long elapsed = System.nanoTime() - start;
+    // keep the loads from being optimized away
+    if (checksum == 42) {
+      System.out.println();
+    }
+    return elapsed / 1_000_000.0 / ITERATIONS;
+  }
+
+  /**
+   * Writes a random dependency graph in the depgraph-maven-plugin JSON format, each artifact
+   * depends on up to the given number of artifacts with a higher id
+   */
+  static void writeSyntheticGraph(Path jsonFile, int nrOfArtifacts, int maxDeps, long seed)
+      throws IOException {
+    Random random = new Random(seed);
+    List<Map<String, Object>> artifacts = new ArrayList<>(nrOfArtifacts);
+    for (int i = 0; i < nrOfArtifacts; i++) {
+      Map<String, Object> artifact = new LinkedHashMap<>();
+      final String groupId = "org.example.group" + (i % 97);
+      final String artifactId = "artifact-" + i;
+      artifact.put("id", groupId + ":" + artifactId + ":jar");
+      artifact.put("numericId", i + 1);
+      artifact.put("groupId", groupId);
+      artifact.put("artifactId", artifactId);
+      artifact.put("version", "1." + (i % 13) + ".0");
+      artifact.put("optional", false);
+      artifact.put("scopes", Collections.singletonList(i % 5 == 0 ? "test" : "compile"));
+      artifact.put("types", Collections.singletonList("jar"));
+      artifacts.add(artifact);
+    }
+    List<Map<String, Object>> dependencies = new ArrayList<>();
+    for (int from = 0; from < nrOfArtifacts - 1; from++) {
+      final int nrOfDeps = from == 0 ? maxDeps : random.nextInt(maxDeps + 1);
+      for (int d = 0; d < nrOfDeps; d++) {
+        final int to = from + 1 + random.nextInt(Math.min(50, nrOfArtifacts - from - 1));
+        Map<String, Object> dependency = new LinkedHashMap<>();
+        dependency.put("from", artifacts.get(from).get("id"));
+        dependency.put("to", artifacts.get(to).get("id"));
+        dependency.put("numericFrom", from);
+        dependency.put("numericTo", to);
+        dependency.put("resolution", random.nextInt(4) == 0 ? "OMITTED_FOR_DUPLICATE" : "INCLUDED");
+        dependencies.add(dependency);
+      }
+    }
+    Map<String, Object> graph = new LinkedHashMap<>();
+    graph.put("graphName", "synthetic");
+    graph.put("artifacts", artifacts);
+    graph.put("dependencies", dependencies);
+    new ObjectMapper().writeValue(jsonFile.toFile(), graph);
+  }
+
+  @FunctionalInterface
+  private interface Loader {
+    Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel> load()
+        throws IOException;
+  }
+}
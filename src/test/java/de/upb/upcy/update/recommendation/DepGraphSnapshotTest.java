@@ -0,0 +1,48 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+
+import de.upb.upcy.base.graph.GraphModel;
+import de.upb.upcy.base.graph.GraphParser;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DepGraphSnapshotTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Set<String> toEdgeStrings(
+      DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> depGraph) {
+    return depGraph.edgeSet().stream()
+        .map(
+            e ->
+                depGraph.getEdgeSource(e).toGav()
+                    + "->"
+                    + depGraph.getEdgeTarget(e).toGav()
+                    + ":"
+                    + e.getResolution())
+        .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void snapshotEqualsParsedJson() throws Exception {
+    final Path jsonFile = temporaryFolder.newFile("module_dependency-graph.json").toPath();
+    DepGraphSnapshotBenchmark.writeSyntheticGraph(jsonFile, 200, 3, 7);
+    final Path snapshotFile = temporaryFolder.getRoot().toPath().resolve("module.dgs");
+
+    final Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+        parsed = GraphParser.parseGraph(jsonFile);
+    DepGraphSnapshot.write(snapshotFile, parsed.getLeft(), parsed.getRight());
+    final Pair<DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency>, GraphModel>
+        loaded = DepGraphSnapshot.read(snapshotFile);
+
+    assertEquals(parsed.getLeft().vertexSet(), loaded.getLeft().vertexSet());
+    assertEquals(toEdgeStrings(parsed.getLeft()), toEdgeStrings(loaded.getLeft()));
+  }
+}
@@ -0,0 +1,44 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class MethodTableTest {
+
+  @Test
+  public void internReturnsSameId() {
+    MethodTable methodTable = new MethodTable();
+    final int first =
+        methodTable.intern(
+            "<a.B: void foo(int)>", "a.B", "foo", "void", Collections.singletonList("int"));
+    final int second =
+        methodTable.intern(
+            "<a.B: void foo(int)>", "a.B", "foo", "void", Collections.singletonList("int"));
+    assertEquals(first, second);
+    assertEquals("a.B", methodTable.getDeclaringClass(first));
+    assertEquals("int", methodTable.getParameterType(first, 0));
+    assertEquals(
+        Collections.singletonList("<a.B: void foo(int)>"),
+        methodTable.resolve(Collections.singletonList(first)));
+  }
+
+  @Test
+  public void compactRemovesDuplicateCalls() {
+    CustomEdge customEdge = new CustomEdge();
+    for (int i = 0; i < 20; i++) {
+      customEdge.addSrcTgtMethod(i % 3, 7);
+    }
+    customEdge.compact();
+    assertEquals(3, customEdge.size());
+    assertEquals(
+        Arrays.asList(0, 1, 2),
+        Arrays.asList(
+            customEdge.getSrcMethod(0), customEdge.getSrcMethod(1), customEdge.getSrcMethod(2)));
+    assertEquals(7, customEdge.getTgtMethod(2));
+    customEdge.addSrcTgtMethod(4, 5);
+    assertEquals(4, customEdge.size());
+  }
+}
@@ -0,0 +1,163 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import de.upb.upcy.base.graph.GraphModel;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MinCutGraphTest {
+
+  private DefaultDirectedGraph<GraphModel.Artifact, GraphModel.Dependency> graph;
+  private Map<String, GraphModel.Artifact> artifacts;
+  private Map<GraphModel.Dependency, Double> weights;
+
+  @Before
+  public void setUp() {
+    graph = new DefaultDirectedGraph<>(GraphModel.Dependency.class);
+    artifacts = new HashMap<>();
+    weights = new HashMap<>();
+  }
+
+  private GraphModel.Artifact artifact(String name) {
+    return artifacts.computeIfAbsent(
+        name,
+        n -> {
+          GraphModel.Artifact artifact = new GraphModel.Artifact();
+          artifact.setId(n);
+          artifact.setNumericId(artifacts.size());
+          artifact.setGroupId("g");
+          artifact.setArtifactId(n);
+          artifact.setVersion("1.0");
+          graph.addVertex(artifact);
+          return artifact;
+        });
+  }
+
+  private GraphModel.Dependency dependency(String from, String to, double weight) {
+    final GraphModel.Artifact src = artifact(from);
+    final GraphModel.Artifact tgt = artifact(to);
+    GraphModel.Dependency dependency = new GraphModel.Dependency();
+    dependency.setFrom(from);
+    dependency.setTo(to);
+    dependency.setNumericFrom(src.getNumericId());
+    dependency.setNumericTo(tgt.getNumericId());
+    graph.addEdge(src, tgt, dependency);
+    weights.put(dependency, weight);
+    return dependency;
+  }
+
+  private Set<GraphModel.Artifact> sinks(String... names) {
+    Set<GraphModel.Artifact> sinks = new LinkedHashSet<>();
+    for (String name : names) {
+      sinks.add(artifact(name));
+    }
+    return sinks;
+  }
+
+  /** Compares the cut on the coarsened graph with the cut on the original graph */
+  private void assertSameCut(Set<GraphModel.Artifact> sinks) {
+    final MinCutGraph original = new MinCutGraph(graph, artifact("root"), sinks, weights, false);
+    final MinCutGraph coarsened = new MinCutGraph(graph, artifact("root"), sinks, weights, true);
+    assertSameCut(original, coarsened);
+  }
+
+  private static void assertSameCut(MinCutGraph original, MinCutGraph coarsened) {
+    assertEquals(original.calculateMinCut(), coarsened.calculateMinCut(), 1e-9);
+    assertEquals(original.getSourcePartition(), coarsened.getSourcePartition());
+    assertEquals(original.getSinkPartition(), coarsened.getSinkPartition());
+    assertEquals(original.getCutEdges(), coarsened.getCutEdges());
+  }
+
+  @Test
+  public void collapsesChains() {
+    dependency("root", "a", 3);
+    dependency("a", "b", 1);
+    dependency("b", "c", 2);
+    dependency("c", "lib", 4);
+    dependency("root", "d", 5);
+    dependency("d", "e", 7);
+    dependency("e", "lib", 6);
+
+    assertSameCut(sinks("lib"));
+  }
+
+  @Test
+  public void peelsLeavesAndDanglingSubtrees() {
+    dependency("root", "a", 2);
+    dependency("a", "lib", 3);
+    dependency("root", "b", 4);
+    dependency("b", "lib", 1);
+    // leaves on both sides of the cut
+    dependency("a", "leaf1", 5);
+    dependency("lib", "leaf2", 6);
+    // a dangling subtree
+    dependency("root", "x", 7);
+    dependency("x", "y", 8);
+    dependency("x", "z", 9);
+    dependency("y", "w", 10);
+    // not connected at all
+    dependency("u", "v", 11);
+
+    assertSameCut(sinks("lib"));
+  }
+
+  @Test
+  public void dropsHangingCycles() {
+    dependency("root", "h", 9);
+    dependency("h", "lib", 2);
+    dependency("root", "k", 3);
+    dependency("k", "lib", 4);
+    // cycles hanging on a vertex of each side
+    dependency("h", "c1", 5);
+    dependency("c1", "c2", 6);
+    dependency("c2", "h", 7);
+    dependency("lib", "c3", 8);
+    dependency("c3", "c4", 1);
+    dependency("c4", "lib", 10);
+
+    assertSameCut(sinks("lib"));
+  }
+
+  @Test
+  public void contractsSeveralSinks() {
+    dependency("root", "a", 6);
+    dependency("a", "lib1", 2);
+    dependency("a", "lib2", 3);
+    dependency("root", "b", 7);
+    dependency("b", "c", 1);
+    dependency("c", "lib2", 6);
+    dependency("lib1", "lib2", 4);
+    dependency("lib2", "leaf", 8);
+
+    assertSameCut(sinks("lib1", "lib2"));
+  }
+
+  @Test
+  public void updatesChainWeights() {
+    final GraphModel.Dependency cheapest = dependency("root", "a", 1);
+    dependency("a", "b", 2);
+    dependency("b", "lib", 3);
+    dependency("root", "c", 10);
+    dependency("c", "lib", 9);
+    final MinCutGraph original =
+        new MinCutGraph(graph, artifact("root"), sinks("lib"), weights, false);
+    final MinCutGraph coarsened =
+        new MinCutGraph(graph, artifact("root"), sinks("lib"), weights, true);
+    assertSameCut(original, coarsened);
+    assertTrue(coarsened.getCutEdges().contains(cheapest));
+
+    // the cut moves within the chain
+    original.setEdgeWeight(cheapest, 20);
+    coarsened.setEdgeWeight(cheapest, 20);
+    assertSameCut(original, coarsened);
+    assertFalse(coarsened.getCutEdges().contains(cheapest));
+  }
+}
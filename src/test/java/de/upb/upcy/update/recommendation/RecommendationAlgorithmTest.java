@@ -0,0 +1,73 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+public class RecommendationAlgorithmTest {
+
+  @Test
+  public void groupsLibrariesOfTheSameGroupAndTargetVersion() {
+    final Pair<String, String> core =
+        Pair.of(
+            "com.fasterxml.jackson.core:jackson-core:2.9.0",
+            "com.fasterxml.jackson.core:jackson-core:2.13.0");
+    final Pair<String, String> commons =
+        Pair.of("commons-io:commons-io:2.4", "commons-io:commons-io:2.11.0");
+    final Pair<String, String> databind =
+        Pair.of(
+            "com.fasterxml.jackson.core:jackson-databind:2.9.1",
+            "com.fasterxml.jackson.core:jackson-databind:2.13.0");
+
+    final List<List<Pair<String, String>>> groups =
+        RecommendationAlgorithm.groupJointUpdates(Arrays.asList(core, commons, databind));
+
+    assertEquals(
+        Arrays.asList(Arrays.asList(core, databind), Collections.singletonList(commons)), groups);
+  }
+
+  @Test
+  public void keepsOtherTargetVersionsSingle() {
+    final Pair<String, String> core =
+        Pair.of(
+            "com.fasterxml.jackson.core:jackson-core:2.9.0",
+            "com.fasterxml.jackson.core:jackson-core:2.13.0");
+    final Pair<String, String> databind =
+        Pair.of(
+            "com.fasterxml.jackson.core:jackson-databind:2.9.0",
+            "com.fasterxml.jackson.core:jackson-databind:2.12.0");
+
+    final List<List<Pair<String, String>>> groups =
+        RecommendationAlgorithm.groupJointUpdates(Arrays.asList(core, databind));
+
+    assertEquals(
+        Arrays.asList(Collections.singletonList(core), Collections.singletonList(databind)),
+        groups);
+  }
+
+  @Test
+  public void updatesEachLibraryOncePerGroup() {
+    final Pair<String, String> core =
+        Pair.of("org.slf4j:slf4j-api:1.7.25", "org.slf4j:slf4j-api:1.7.36");
+    final Pair<String, String> duplicate =
+        Pair.of("org.slf4j:slf4j-api:1.7.25", "org.slf4j:slf4j-api:1.7.36");
+    final Pair<String, String> binding =
+        Pair.of("org.slf4j:slf4j-simple:1.7.25", "org.slf4j:slf4j-simple:1.7.36");
+    final Pair<String, String> invalid = Pair.of("org.slf4j:slf4j-nop", "org.slf4j:slf4j-nop");
+
+    final List<List<Pair<String, String>>> groups =
+        RecommendationAlgorithm.groupJointUpdates(
+            Arrays.asList(core, duplicate, binding, invalid));
+
+    assertEquals(
+        Arrays.asList(
+            Arrays.asList(core, binding),
+            Collections.singletonList(duplicate),
+            Collections.singletonList(invalid)),
+        groups);
+  }
+}
@@ -0,0 +1,56 @@
+package de.upb.upcy.update.recommendation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.junit.Test;
+
+public class ShrinkedCGCodecTest {
+
+  @Test
+  public void roundTrip() throws IOException {
+    MethodTable methodTable = new MethodTable();
+    final int foo =
+        methodTable.intern(
+            "<a.B: void foo(int)>", "a.B", "foo", "void", Collections.singletonList("int"));
+    final int bar =
+        methodTable.intern(
+            "<c.D: int bar(a.B,int)>", "c.D", "bar", "int", Arrays.asList("a.B", "int"));
+
+    Graph<String, CustomEdge> shrinkedCG = new DefaultDirectedGraph<>(CustomEdge.class);
+    shrinkedCG.addVertex("g:a:1");
+    shrinkedCG.addVertex("g:c:2");
+    CustomEdge edge = new CustomEdge();
+    edge.addSrcTgtMethod(foo, bar);
+    edge.addSrcTgtMethod(bar, foo);
+    edge.compact();
+    shrinkedCG.addEdge("g:a:1", "g:c:2", edge);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ShrinkedCGCodec.write(new DataOutputStream(bytes), shrinkedCG, methodTable, true);
+    final ShrinkedCGCodec.ShrinkedCG decoded =
+        ShrinkedCGCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertTrue(decoded.isPartialCG());
+    assertEquals(methodTable.size(), decoded.getMethodTable().size());
+    assertEquals(bar, decoded.getMethodTable().getId("<c.D: int bar(a.B,int)>"));
+    assertEquals(
+        Arrays.asList("a.B", "int"), decoded.getMethodTable().getParameterTypes(bar));
+
+    final Graph<String, CustomEdge> decodedCG = decoded.getGraph();
+    assertEquals(2, decodedCG.vertexSet().size());
+    final CustomEdge decodedEdge = decodedCG.getEdge("g:a:1", "g:c:2");
+    assertEquals(2, decodedEdge.size());
+    assertEquals(edge.getSrcMethod(0), decodedEdge.getSrcMethod(0));
+    assertEquals(edge.getTgtMethod(1), decodedEdge.getTgtMethod(1));
+  }
+}
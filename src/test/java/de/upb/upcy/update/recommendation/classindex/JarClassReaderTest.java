@@ -0,0 +1,37 @@
+package de.upb.upcy.update.recommendation.classindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.Test;
+
+public class JarClassReaderTest {
+
+  @Test
+  public void readCentralDirectory() throws IOException {
+    final Path jar = Files.createTempFile("classes", ".jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (String name :
+          new String[] {"a/b/C.class", "a/b/C$1.class", "a/D.class", "a/b/", "a/b/res.txt"}) {
+        out.putNextEntry(new JarEntry(name));
+        out.closeEntry();
+      }
+    }
+
+    ClassIndex classIndex = new ClassIndex();
+    final JarClasses jarClasses =
+        JarClassReader.readCentralDirectory(jar, classIndex::internPackage);
+    assertEquals(3, jarClasses.size());
+
+    classIndex.add("g:a:1.0", jarClasses);
+    assertEquals("g:a:1.0", classIndex.getGav("a.b.C$1"));
+    assertEquals("g:a:1.0", classIndex.getGav("a.D"));
+    assertNull(classIndex.getGav("a.b.res"));
+    assertEquals(2, classIndex.getPackages("g:a:1.0").size());
+  }
+}
@@ -0,0 +1,67 @@
+package de.upb.upcy.update.recommendation.cypher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import de.upb.upcy.base.graph.GraphModel;
+import org.junit.Test;
+
+public class PathBoundsTest {
+
+  private static GraphModel.Artifact artifact(String name) {
+    GraphModel.Artifact artifact = new GraphModel.Artifact();
+    artifact.setId(name);
+    artifact.setGroupId("g");
+    artifact.setArtifactId(name);
+    artifact.setVersion("1.0");
+    return artifact;
+  }
+
+  private final GraphModel.Artifact root = artifact("root");
+  private final GraphModel.Artifact shared = artifact("shared");
+
+  @Test
+  public void startsAtMinimalPathLength() {
+    final PathBounds pathBounds = new PathBounds(5, 8);
+    final PathBounds.Attempt attempt = pathBounds.newAttempt();
+    assertEquals(5, attempt.getBound(root, shared, 2));
+    assertEquals(6, pathBounds.newAttempt().getBound(root, shared, 6));
+  }
+
+  @Test
+  public void widensUpToMaximalPathLength() {
+    final PathBounds.Attempt attempt = new PathBounds(5, 8).newAttempt();
+    attempt.getBound(root, shared, 2);
+    assertTrue(attempt.widen());
+    assertEquals(8, attempt.getBound(root, shared, 2));
+    assertEquals(2, attempt.getNr());
+    assertFalse(attempt.widen());
+  }
+
+  @Test
+  public void startsAtWorkingBound() {
+    final PathBounds pathBounds = new PathBounds(5, 8);
+    final PathBounds.Attempt attempt = pathBounds.newAttempt();
+    attempt.getBound(root, shared, 2);
+    attempt.widen();
+    attempt.succeeded();
+    assertEquals(8, pathBounds.newAttempt().getBound(root, shared, 2));
+  }
+
+  @Test
+  public void doesNotWidenExhaustedBoundsAgain() {
+    final PathBounds pathBounds = new PathBounds(5, 8);
+    final PathBounds.Attempt attempt = pathBounds.newAttempt();
+    attempt.getBound(root, shared, 2);
+    attempt.widen();
+    assertFalse(attempt.widen());
+    attempt.exhausted();
+
+    final PathBounds.Attempt next = pathBounds.newAttempt();
+    assertEquals(8, next.getBound(root, shared, 2));
+    assertFalse(next.widen());
+    // other pairs still start tight
+    assertEquals(5, next.getBound(root, artifact("other"), 2));
+  }
+}
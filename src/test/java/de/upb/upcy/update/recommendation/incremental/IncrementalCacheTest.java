@@ -0,0 +1,59 @@
+package de.upb.upcy.update.recommendation.incremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.upb.upcy.update.recommendation.MethodTable;
+import de.upb.upcy.update.recommendation.UpdateSuggestion;
+import de.upb.upcy.update.recommendation.check.Violation;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalCacheTest {
+
+  private static final String SIGNATURE = "<a.B: void foo(int)>";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static int internFoo(MethodTable methodTable) {
+    return methodTable.intern(SIGNATURE, "a.B", "foo", "void", Collections.singletonList("int"));
+  }
+
+  @Test
+  public void suggestionsAreMappedOntoNewMethodTable() throws Exception {
+    MethodTable oldTable = new MethodTable();
+    final int oldId = internFoo(oldTable);
+    UpdateSuggestion updateSuggestion = new UpdateSuggestion();
+    updateSuggestion.setOrgGav("a:b:1.0");
+    updateSuggestion.setUpdateSteps(Collections.singletonList(Pair.of("a:b:1.0", "a:b:2.0")));
+    updateSuggestion.setViolations(
+        Collections.singletonList(
+            new Violation(Collections.singletonList(oldId), "a:b:1.0", "a:b:2.0", oldTable)));
+    final Pair<String, String> request = Pair.of("a:b:1.0", "a:b:2.0");
+
+    IncrementalCache incrementalCache =
+        new IncrementalCache(temporaryFolder.getRoot().toPath(), "module");
+    incrementalCache.storeSuggestions(
+        Collections.singletonMap(request, Collections.singletonList(updateSuggestion)));
+
+    // the method has another id in the new table
+    MethodTable newTable = new MethodTable();
+    newTable.intern("<c.D: void bar()>", "c.D", "bar", "void", Collections.emptyList());
+    final int newId = internFoo(newTable);
+    final Map<Pair<String, String>, List<UpdateSuggestion>> loaded =
+        incrementalCache.loadSuggestions(newTable);
+    final UpdateSuggestion loadedSuggestion = loaded.get(request).get(0);
+    assertEquals(updateSuggestion.getUpdateSteps(), loadedSuggestion.getUpdateSteps());
+    final Violation violation = loadedSuggestion.getViolations().iterator().next();
+    assertEquals(Collections.singletonList(newId), violation.getViolatedCalls());
+    assertEquals(Collections.singletonList(SIGNATURE), violation.getViolatedCallSignatures());
+
+    // the method is unknown, thus the suggestions are stale
+    assertTrue(incrementalCache.loadSuggestions(new MethodTable()).isEmpty());
+  }
+}
@@ -0,0 +1,79 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VersionIndexTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void findsNewerVersionsAndPersists() throws Exception {
+    final Path indexDir = temporaryFolder.newFolder("index").toPath();
+    final AtomicInteger queries = new AtomicInteger();
+    VersionSource source =
+        (group, artifact) -> {
+          queries.incrementAndGet();
+          return Arrays.asList("1.10", "1.2", "2.0-beta-1", "1.9.1", "2.0");
+        };
+    VersionIndex versionIndex = new VersionIndex(indexDir, source, Long.MAX_VALUE);
+
+    assertEquals(
+        Arrays.asList("2.0", "2.0-beta-1", "1.10"),
+        versionIndex.getNewerVersions("g", "a", "1.9.5"));
+    assertEquals(
+        Arrays.asList("2.0", "2.0-beta-1", "1.10", "1.9.1"),
+        versionIndex.getNewerVersions("g", "a", "1.9.1"));
+    assertEquals(Collections.emptyList(), versionIndex.getNewerVersions("g", "a", "3"));
+    assertEquals(1, queries.get());
+
+    // another process answers offline from the persisted entry
+    VersionIndex offline = new VersionIndex(indexDir, null, Long.MAX_VALUE);
+    assertEquals(5, offline.getVersions("g", "a").size());
+    assertEquals(0, offline.getVersions("g", "unknown").size());
+  }
+
+  @Test
+  public void refreshesStaleEntries() throws Exception {
+    final Path indexDir = temporaryFolder.newFolder("index").toPath();
+    final AtomicInteger queries = new AtomicInteger();
+    VersionSource source =
+        (group, artifact) -> {
+          if (queries.incrementAndGet() > 1) {
+            throw new IOException("offline");
+          }
+          return Collections.singletonList("1.0");
+        };
+    VersionIndex versionIndex = new VersionIndex(indexDir, source, Long.MAX_VALUE);
+    assertEquals(1, versionIndex.getVersions("g", "a").size());
+
+    // every entry is stale
+    VersionIndex refreshing = new VersionIndex(indexDir, source, 0);
+    Thread.sleep(5);
+    // the failed refresh keeps the stale entry
+    assertEquals(Collections.singletonList("1.0"), refreshing.getNewerVersions("g", "a", "1.0"));
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  public void importsSnapshot() throws Exception {
+    final Path indexDir = temporaryFolder.newFolder("index").toPath();
+    final Path snapshot = temporaryFolder.newFile("versions.txt").toPath();
+    Files.write(snapshot, Arrays.asList("g:a:1.0", "g:a:1.1", "g:b:2.0", "invalid"));
+
+    VersionIndex versionIndex = new VersionIndex(indexDir, null, Long.MAX_VALUE);
+    assertEquals(2, versionIndex.importSnapshot(snapshot));
+    assertEquals(Arrays.asList("1.1", "1.0"), versionIndex.getNewerVersions("g", "a", "0.1"));
+    assertTrue(Files.exists(indexDir.resolve("g").resolve("b.versions")));
+  }
+}
@@ -0,0 +1,44 @@
+package de.upb.upcy.update.recommendation.versions;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.junit.Test;
+
+public class VersionOrdinalsTest {
+
+  @Test
+  public void ordersByComparableVersion() {
+    final Map<String, Long> ordinals =
+        VersionOrdinals.computeOrdinals(Arrays.asList("1.10", "1.9", "1.9.1", "2.0-beta-1", "2.0"));
+    assertEquals(0L, (long) ordinals.get("1.9"));
+    assertEquals(1L, (long) ordinals.get("1.9.1"));
+    // lexicographically, 1.10 is older than 1.9
+    assertEquals(2L, (long) ordinals.get("1.10"));
+    assertEquals(3L, (long) ordinals.get("2.0-beta-1"));
+    assertEquals(4L, (long) ordinals.get("2.0"));
+  }
+
+  @Test
+  public void findsLowerBound() {
+    final List<Pair<DefaultArtifactVersion, Long>> ordinals =
+        Arrays.asList(
+            Pair.of(new DefaultArtifactVersion("1.9"), 0L),
+            Pair.of(new DefaultArtifactVersion("1.10"), 2L),
+            Pair.of(new DefaultArtifactVersion("2.0"), 4L));
+    assertEquals(0L, VersionOrdinals.lowerBound(ordinals, new DefaultArtifactVersion("1.0")));
+    assertEquals(2L, VersionOrdinals.lowerBound(ordinals, new DefaultArtifactVersion("1.10")));
+    // unknown versions are bound by the next newer one
+    assertEquals(4L, VersionOrdinals.lowerBound(ordinals, new DefaultArtifactVersion("1.11")));
+    assertEquals(5L, VersionOrdinals.lowerBound(ordinals, new DefaultArtifactVersion("3.0")));
+  }
+
+  @Test
+  public void createsRangePredicate() {
+    assertEquals("n.versionOrdinal >= 4", VersionOrdinals.lowerBoundPredicate("n", 4));
+  }
+}